@@ -0,0 +1,138 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.tsnsched.core.interface_manager.JSONParser;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.schedule_generator.ScheduleGenerator;
+
+/**
+ * [Class]: ConcurrencyCheck
+ * [Usage]: Schedules a set of scenarios one at a time, and then all
+ * of them at once on a pool of threads, repeating each scenario a
+ * number of times. The scenarios are read or generated as in the
+ * TickEncodingBenchmark, and every network is parsed in its own
+ * NetworkScope. The JSON output of each parallel run must be equal to
+ * the output of the sequential run of the same scenario. Prints one
+ * line per parallel run and exits with status 1 on any difference.
+ *
+ * Needs the z3 native library.
+ * Usage: ConcurrencyCheck [inputs] [threads] [repetitions]
+ * e.g.   ConcurrencyCheck inputs 4 3
+ */
+public class ConcurrencyCheck {
+
+	public static void main(String[] args) throws InterruptedException {
+		String inputs = args.length > 0 ? args[0] : null;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+		LinkedHashMap<String, String> scenarios = TickEncodingBenchmark.loadScenarios(inputs);
+
+		if(scenarios == null) {
+			return;
+		}
+
+		LinkedHashMap<String, String> expected = new LinkedHashMap<String, String>();
+
+		long startTime = System.currentTimeMillis();
+
+		for(Map.Entry<String, String> scenario : scenarios.entrySet()) {
+			expected.put(scenario.getKey(), schedule(scenario.getValue()));
+		}
+
+		long sequentialTime = System.currentTimeMillis() - startTime;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		LinkedHashMap<String, Future<String>> runs = new LinkedHashMap<String, Future<String>>();
+
+		startTime = System.currentTimeMillis();
+
+		for(int i = 0; i < repetitions; i++) {
+			for(final Map.Entry<String, String> scenario : scenarios.entrySet()) {
+				runs.put(scenario.getKey() + ";" + i, executor.submit(new Callable<String>() {
+					public String call() {
+						return schedule(scenario.getValue());
+					}
+				}));
+			}
+		}
+
+		int mismatches = 0;
+
+		System.out.println("scenario;run;result");
+
+		for(Map.Entry<String, Future<String>> run : runs.entrySet()) {
+			String scenario = run.getKey().split(";")[0];
+			String output;
+
+			try {
+				output = run.getValue().get();
+			} catch (ExecutionException e) {
+				output = "[ERROR]: " + e.getCause();
+			}
+
+			Boolean matches = output.equals(expected.get(scenario));
+
+			if(!matches) {
+				mismatches++;
+			}
+
+			System.out.println(run.getKey() + ";" + (matches ? "MATCH" : "MISMATCH"));
+		}
+
+		long parallelTime = System.currentTimeMillis() - startTime;
+
+		executor.shutdown();
+
+		System.out.println(
+			"Sequential: " + sequentialTime + " ms for " + scenarios.size() + " runs, parallel: " +
+			parallelTime + " ms for " + runs.size() + " runs on " + threads + " threads, mismatches: " + mismatches
+		);
+
+		if(mismatches > 0) {
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Parses the network of the scenario in a new scope, schedules it
+	 * without writing any file and retrieves its JSON output.
+	 */
+	private static String schedule(String content) {
+		ScheduleGenerator generator = new ScheduleGenerator();
+		Network net = TickEncodingBenchmark.parseScenario(content, generator.getPrinter());
+
+		if(net == null) {
+			return "";
+		}
+
+		generator.setGenerateJSONOutput(false);
+		generator.setEnableLoggerFile(false);
+		generator.setFeasibilityCheck(false);
+		generator.generateSchedule(net);
+
+		return new JSONParser().generateOutputContent(net);
+	}
+
+}
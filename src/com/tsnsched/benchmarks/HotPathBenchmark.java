@@ -0,0 +1,822 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import com.google.gson.stream.JsonWriter;
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Model;
+import com.microsoft.z3.Solver;
+import com.microsoft.z3.Status;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.PathTree;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.JSONParser;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+import com.tsnsched.core.schedule_generator.ScheduleGenerator;
+import com.tsnsched.core.schedule_generator.SolverPortfolio;
+import com.tsnsched.core.sched2netconf.XMLExporter;
+
+/**
+ * [Class]: HotPathBenchmark
+ * [Usage]: Measures the hot paths of the scheduler for growing numbers
+ * of flows. The benchmarks are split into groups, so that a regression
+ * in building the rules shows apart from the time z3 takes to solve them:
+ *
+ *   constraints: Flow.toZ3 (and nodeToZ3), Port.setupSchedulingRules
+ *                and Network.secureHC. Only build the rules, on a new
+ *                solver that is never checked.
+ *   solve:       Solver.check of the rules of the whole network.
+ *   extraction:  Printer.generateLog, reading the model of the schedule.
+ *   arithmetic:  Port.findLCM and Port.findGCD of the periods.
+ *   paths:       Flow.getAverageLatency and Flow.getAverageJitter of
+ *                scheduled publish subscribe flows, which follow the
+ *                path to each subscriber for every packet.
+ *   input:       JSONParser.parseInputContent.
+ *   output:      JSONParser.generateOutput and the XMLExporter.
+ *
+ * Works as a JMH benchmark in the average time mode: every invocation
+ * (a thousand calls, for the arithmetic) gets a fresh state (network,
+ * context and solver) that isn't timed, and the time of the warm up
+ * invocations is discarded. Each benchmark
+ * reports the mean time per operation, the error of the mean (99.9%)
+ * and the raw times, and the constraint benchmarks also report the
+ * number of assertions they added. The results are printed as CSV and
+ * written as JSON to the result file.
+ *
+ * The networks are read from the input that JSONInputBenchmark
+ * generates, except for the paths group, whose flows have SUBSCRIBERS
+ * subscribers and PACKETS packets each. The benchmarks of the
+ * constraints, solve and extraction groups need the z3 native library
+ * and are skipped without it.
+ *
+ * Usage: HotPathBenchmark [-sizes=10,50] [-switches=8] [-warmup=3] [-iterations=5]
+ *                         [-benchmarks=name,...] [-result=hotpath.json]
+ * e.g.   HotPathBenchmark -sizes=10,100,1000 -benchmarks=Flow.toZ3,Network.secureHC
+ */
+public class HotPathBenchmark {
+
+	private static final double ERROR_QUANTILE = 3.291; // 99.9%, normal distribution
+	private static final int ARITHMETIC_OPERATIONS = 1000;
+	private static final int SUBSCRIBERS = 50;
+	private static final int PACKETS = 100;
+
+	private int[] sizes = {10, 50};
+	private int switches = 8;
+	private int warmup = 3;
+	private int iterations = 5;
+	private List<String> selected = null;
+	private String resultPath = "hotpath.json";
+
+	private List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+
+
+	public static void main(String[] args) throws IOException {
+		HotPathBenchmark benchmark = new HotPathBenchmark();
+
+		if(benchmark.setParameters(args)) {
+			benchmark.runAll();
+		}
+	}
+
+
+	private Boolean setParameters(String[] args) {
+		for(String argument : args) {
+			try {
+				if(argument.startsWith("-sizes=")) {
+					String[] values = argument.substring("-sizes=".length()).split(",");
+					this.sizes = new int[values.length];
+					for(int i = 0; i < values.length; i++) {
+						this.sizes[i] = Integer.parseInt(values[i].trim());
+					}
+				} else if(argument.startsWith("-switches=")) {
+					this.switches = Integer.parseInt(argument.substring("-switches=".length()));
+				} else if(argument.startsWith("-warmup=")) {
+					this.warmup = Integer.parseInt(argument.substring("-warmup=".length()));
+				} else if(argument.startsWith("-iterations=")) {
+					this.iterations = Integer.parseInt(argument.substring("-iterations=".length()));
+				} else if(argument.startsWith("-benchmarks=")) {
+					this.selected = Arrays.asList(argument.substring("-benchmarks=".length()).split(","));
+				} else if(argument.startsWith("-result=")) {
+					this.resultPath = argument.substring("-result=".length());
+				} else {
+					System.out.println("[ERROR]: Unknown parameter: " + argument);
+					return false;
+				}
+			} catch (NumberFormatException e) {
+				System.out.println("[ERROR]: Invalid value: " + argument);
+				return false;
+			}
+		}
+
+		if(this.switches < 2 || this.iterations < 1) {
+			System.out.println("[ERROR]: At least 2 switches and 1 iteration are needed");
+			return false;
+		}
+
+		return true;
+	}
+
+
+	private void runAll() throws IOException {
+		List<Benchmark> benchmarks = this.createBenchmarks();
+
+		System.out.println("benchmark;group;flows;ms/op;error;assertions");
+
+		for(Benchmark benchmark : benchmarks) {
+			if(this.selected != null && !this.selected.contains(benchmark.name)) {
+				continue;
+			}
+
+			for(int size : this.sizes) {
+				this.run(benchmark, size);
+			}
+		}
+
+		this.writeResults(new File(this.resultPath));
+	}
+
+
+	/*
+	 * Runs the warm up and the measured invocations of a benchmark,
+	 * timing only the run of each invocation.
+	 */
+	private void run(Benchmark benchmark, int size) {
+		BenchmarkResult result = new BenchmarkResult(benchmark, size);
+		String input = null;
+
+		try {
+			input = this.createInput(size);
+			benchmark.setUp(size, input);
+
+			for(int i = 0; i < this.warmup + this.iterations; i++) {
+				benchmark.prepare();
+
+				long startTime = System.nanoTime();
+				benchmark.run();
+				long time = System.nanoTime() - startTime;
+
+				if(i >= this.warmup) {
+					result.times.add(((double) time) / benchmark.getOperations() / 1000000);
+					result.assertions = benchmark.getAssertions();
+				}
+
+				benchmark.cleanUp();
+			}
+		} catch (LinkageError e) {
+			// The z3 native library couldn't be loaded
+			System.out.println("[ERROR]: " + benchmark.name + " skipped, z3 is not available: " + e.getMessage());
+			benchmark.cleanUp();
+			return;
+		} catch (RuntimeException e) {
+			System.out.println("[ERROR]: " + benchmark.name + " failed: " + e.getMessage());
+			benchmark.cleanUp();
+			return;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		} finally {
+			benchmark.tearDown();
+		}
+
+		this.results.add(result);
+
+		System.out.println(
+			benchmark.name + ";" + benchmark.group + ";" + size + ";" +
+			String.format(Locale.ROOT, "%.3f;%.3f", result.getScore(), result.getScoreError()) + ";" +
+			(result.assertions >= 0 ? String.valueOf(result.assertions) : "")
+		);
+	}
+
+
+	private String createInput(int flows) throws IOException {
+		File inputFile = File.createTempFile("hotpath", ".json");
+
+		try {
+			JSONInputBenchmark.writeInput(inputFile, flows, this.switches);
+			return new String(Files.readAllBytes(inputFile.toPath()), StandardCharsets.UTF_8);
+		} finally {
+			inputFile.delete();
+		}
+	}
+
+
+	/*
+	 * Writes the results in the JSON format of JMH, so the usual tools
+	 * can compare two runs.
+	 */
+	private void writeResults(File file) throws IOException {
+		JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8));
+		writer.setIndent("    ");
+
+		try {
+			writer.beginArray();
+
+			for(BenchmarkResult result : this.results) {
+				writer.beginObject();
+				writer.name("benchmark").value(HotPathBenchmark.class.getName() + "." + result.benchmark.name);
+				writer.name("group").value(result.benchmark.group);
+				writer.name("mode").value("avgt");
+				writer.name("warmupIterations").value(this.warmup);
+				writer.name("measurementIterations").value(result.times.size());
+				writer.name("params");
+				writer.beginObject();
+				writer.name("flows").value(String.valueOf(result.size));
+				writer.name("switches").value(String.valueOf(this.switches));
+				writer.endObject();
+
+				writer.name("primaryMetric");
+				writer.beginObject();
+				writer.name("score").value(result.getScore());
+				writeNumber(writer.name("scoreError"), result.getScoreError());
+				writer.name("scoreUnit").value("ms/op");
+				writer.name("rawData");
+				writer.beginArray();
+				writer.beginArray();
+				for(Double time : result.times) {
+					writer.value(time);
+				}
+				writer.endArray();
+				writer.endArray();
+				writer.endObject();
+
+				writer.name("secondaryMetrics");
+				writer.beginObject();
+				if(result.assertions >= 0) {
+					writer.name("assertions");
+					writer.beginObject();
+					writer.name("score").value(result.assertions);
+					writer.name("scoreUnit").value("assertions/op");
+					writer.endObject();
+				}
+				writer.endObject();
+
+				writer.endObject();
+			}
+
+			writer.endArray();
+		} finally {
+			writer.close();
+		}
+
+		System.out.println("Results written to " + file.getPath());
+	}
+
+
+	/*
+	 * As JMH, which writes the error of a single iteration as "NaN"
+	 */
+	private static void writeNumber(JsonWriter writer, double value) throws IOException {
+		if(Double.isNaN(value)) {
+			writer.value("NaN");
+		} else {
+			writer.value(value);
+		}
+	}
+
+
+	private List<Benchmark> createBenchmarks() {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		benchmarks.add(new Z3Benchmark("Flow.toZ3", "constraints", Z3Benchmark.CONFIGURED) {
+			void run() {
+				NetworkScope previousScope = this.net.getScope().enter();
+				try {
+					for(Flow flw : this.net.getFlows()) {
+						flw.toZ3(this.ctx);
+					}
+				} finally {
+					NetworkScope.restore(previousScope);
+				}
+			}
+		});
+
+		benchmarks.add(new Z3Benchmark("Port.setupSchedulingRules", "constraints", Z3Benchmark.CONVERTED) {
+			void run() {
+				NetworkScope previousScope = this.net.getScope().enter();
+				try {
+					for(Port port : this.getPorts()) {
+						port.setupSchedulingRules(this.solver, this.ctx);
+					}
+				} finally {
+					NetworkScope.restore(previousScope);
+				}
+			}
+		});
+
+		benchmarks.add(new Z3Benchmark("Network.secureHC", "constraints", Z3Benchmark.CONVERTED) {
+			void run() {
+				NetworkScope previousScope = this.net.getScope().enter();
+				try {
+					this.net.setJitterUpperBoundRangeZ3(this.ctx, 25);
+					this.net.secureHC(this.solver, this.ctx);
+				} finally {
+					NetworkScope.restore(previousScope);
+				}
+			}
+		});
+
+		benchmarks.add(new Z3Benchmark("Solver.check", "solve", Z3Benchmark.RULES) {
+			void run() {
+				this.status = this.solver.check();
+			}
+		});
+
+		benchmarks.add(new Z3Benchmark("Printer.generateLog", "extraction", Z3Benchmark.RULES) {
+			private Model model;
+			private File logFile;
+
+			void prepare() {
+				super.prepare();
+				this.status = this.solver.check();
+				this.model = this.status == Status.SATISFIABLE ? this.solver.getModel() : null;
+
+				try {
+					this.logFile = File.createTempFile("log", ".txt");
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+
+			void run() {
+				if(this.model == null) {
+					throw new IllegalStateException("The network of the benchmark has no schedule");
+				}
+
+				Printer printer = new Printer();
+				printer.setEnableConsoleOutput(false);
+				printer.setEnableLoggerFile(true);
+				printer.generateLog(this.logFile.getPath(), this.net, this.ctx, this.model);
+			}
+
+			void cleanUp() {
+				super.cleanUp();
+				this.model = null;
+				if(this.logFile != null) {
+					this.logFile.delete();
+				}
+			}
+		});
+
+		benchmarks.add(new Benchmark("Port.findLCM", "arithmetic") {
+			private ArrayList<Double> periods;
+
+			void setUp(int flows, String input) {
+				this.periods = createPeriods(flows);
+			}
+
+			void run() {
+				for(int i = 0; i < ARITHMETIC_OPERATIONS; i++) {
+					Port.findLCM(this.periods);
+				}
+			}
+
+			int getOperations() {
+				return ARITHMETIC_OPERATIONS;
+			}
+		});
+
+		benchmarks.add(new Benchmark("Port.findGCD", "arithmetic") {
+			private ArrayList<Double> periods;
+
+			void setUp(int flows, String input) {
+				this.periods = createPeriods(flows);
+			}
+
+			void run() {
+				for(int i = 0; i < ARITHMETIC_OPERATIONS; i++) {
+					Port.findGCD(this.periods);
+				}
+			}
+
+			int getOperations() {
+				return ARITHMETIC_OPERATIONS;
+			}
+		});
+
+		benchmarks.add(new Benchmark("Flow.getAverageLatency", "paths") {
+			private Network net;
+
+			void setUp(int flows, String input) {
+				this.net = createPublishSubscribeNetwork(flows, HotPathBenchmark.this.switches);
+			}
+
+			void run() {
+				for(Flow flw : this.net.getFlows()) {
+					flw.getAverageLatency();
+				}
+			}
+		});
+
+		benchmarks.add(new Benchmark("Flow.getAverageJitter", "paths") {
+			private Network net;
+
+			void setUp(int flows, String input) {
+				this.net = createPublishSubscribeNetwork(flows, HotPathBenchmark.this.switches);
+			}
+
+			void run() {
+				for(Flow flw : this.net.getFlows()) {
+					flw.getAverageJitter();
+				}
+			}
+		});
+
+		benchmarks.add(new Benchmark("JSONParser.parseInputContent", "input") {
+			private String input;
+
+			void setUp(int flows, String input) {
+				this.input = input;
+			}
+
+			void run() {
+				NetworkScope previousScope = new NetworkScope().enter();
+				try {
+					createParser().parseInputContent(this.input);
+				} finally {
+					NetworkScope.restore(previousScope);
+				}
+			}
+		});
+
+		benchmarks.add(new Benchmark("JSONParser.generateOutput", "output") {
+			private Network net;
+			private File outputFile;
+
+			void setUp(int flows, String input) throws IOException {
+				this.net = JSONOutputBenchmark.createScheduledNetwork(flows, 20);
+				this.outputFile = File.createTempFile("output", ".json");
+			}
+
+			void run() {
+				new JSONParser().generateOutput(this.net, this.outputFile.getPath(), true);
+			}
+
+			void tearDown() {
+				if(this.outputFile != null) {
+					this.outputFile.delete();
+				}
+			}
+		});
+
+		benchmarks.add(new Benchmark("XMLExporter", "output") {
+			private Network net;
+			private File directory;
+
+			void setUp(int flows, String input) throws IOException {
+				this.net = JSONOutputBenchmark.createScheduledNetwork(flows, 20);
+				this.directory = Files.createTempDirectory("xml").toFile();
+			}
+
+			void run() {
+				new XMLExporter(this.net, this.directory.getPath());
+			}
+
+			void tearDown() {
+				if(this.directory != null) {
+					delete(this.directory);
+				}
+			}
+		});
+
+		return benchmarks;
+	}
+
+
+	private static JSONParser createParser() {
+		JSONParser parser = new JSONParser();
+		Printer printer = new Printer();
+		printer.setEnableConsoleOutput(false);
+		parser.setPrinter(printer);
+		return parser;
+	}
+
+
+	/*
+	 * Periods of the usual control loops, in microseconds.
+	 */
+	private static ArrayList<Double> createPeriods(int size) {
+		double[] values = {250, 500, 1000, 2000, 4000, 5000, 10000, 20000};
+		ArrayList<Double> periods = new ArrayList<Double>();
+
+		for(int i = 0; i < size; i++) {
+			periods.add(values[i % values.length]);
+		}
+
+		return periods;
+	}
+
+
+	/*
+	 * Creates flows from the devices of the first switch to SUBSCRIBERS
+	 * devices, divided among the other switches. Each switch of a path
+	 * tree gets a fragment per child, with the packet times that the
+	 * schedule would give them.
+	 */
+	private static Network createPublishSubscribeNetwork(int numOfFlows, int numOfSwitches) {
+		NetworkScope previousScope = new NetworkScope().enter();
+
+		try {
+			Network net = new Network();
+			ArrayList<TSNSwitch> switches = new ArrayList<TSNSwitch>();
+			ArrayList<Device> subscribers = new ArrayList<Device>();
+
+			for(int i = 0; i < numOfSwitches; i++) {
+				TSNSwitch swt = new TSNSwitch("switch" + i, 1500, 1, 125, 1, 0, 2000);
+				switches.add(swt);
+				net.addSwitch(swt);
+
+				if(i > 0) {
+					switches.get(0).createPort(swt, new Cycle(500));
+				}
+			}
+
+			for(int i = 0; i < SUBSCRIBERS; i++) {
+				Device dev = new Device("sub" + i);
+				subscribers.add(dev);
+				net.addDevice(dev);
+				switches.get(1 + i % (numOfSwitches - 1)).createPort(dev, new Cycle(500));
+			}
+
+			for(int i = 0; i < numOfFlows; i++) {
+				Device publisher = new Device("pub" + i);
+				net.addDevice(publisher);
+				switches.get(0).createPort(publisher, new Cycle(500));
+
+				Flow flow = new Flow(Flow.PUBLISH_SUBSCRIBE);
+				PathTree pathTree = new PathTree();
+				PathNode firstSwitch = pathTree.addRoot(publisher).addChild(switches.get(0));
+
+				for(int j = 1; j < numOfSwitches; j++) {
+					PathNode swtNode = firstSwitch.addChild(switches.get(j));
+
+					for(int k = j - 1; k < SUBSCRIBERS; k += numOfSwitches - 1) {
+						swtNode.addChild(subscribers.get(k));
+					}
+				}
+
+				flow.setStartDevice(publisher);
+				flow.setPathTree(pathTree);
+				flow.setNumOfPacketsSent(PACKETS);
+				flow.setPacketSize(1500);
+				net.addFlow(flow);
+
+				storeTimes(flow, firstSwitch, i % 100);
+			}
+
+			return net;
+		} finally {
+			NetworkScope.restore(previousScope);
+		}
+	}
+
+
+	private static void storeTimes(Flow flow, PathNode node, double time) {
+		for(PathNode child : node.getChildren()) {
+			FlowFragment frag = new FlowFragment(flow);
+
+			for(int i = 0; i < PACKETS; i++) {
+				frag.addDepartureTime(time + i * 1000);
+				frag.addArrivalTime(time + i * 1000 + 1);
+				frag.addScheduledTime(time + i * 1000 + 13 + i % 3);
+			}
+
+			node.addFlowFragment(frag);
+			storeTimes(flow, child, time + 13);
+		}
+	}
+
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+
+		if(children != null) {
+			for(File child : children) {
+				delete(child);
+			}
+		}
+
+		file.delete();
+	}
+
+
+	/**
+	 * [Class]: Benchmark
+	 * [Usage]: State and operation of a benchmark. setUp and tearDown
+	 * are called once per size, and prepare and cleanUp around each
+	 * invocation. Only run is timed.
+	 */
+	private static abstract class Benchmark {
+		String name;
+		String group;
+
+		Benchmark(String name, String group) {
+			this.name = name;
+			this.group = group;
+		}
+
+		void setUp(int flows, String input) throws IOException {}
+
+		void prepare() {}
+
+		abstract void run();
+
+		void cleanUp() {}
+
+		void tearDown() {}
+
+		int getAssertions() {
+			return -1;
+		}
+
+		/*
+		 * Operations done by each run, as the OperationsPerInvocation
+		 * of JMH, for operations too short to be timed one by one.
+		 */
+		int getOperations() {
+			return 1;
+		}
+	}
+
+
+	/**
+	 * [Class]: Z3Benchmark
+	 * [Usage]: Benchmark on a network read from the input and brought,
+	 * before each invocation, to the stage of ScheduleGenerator.configureNetwork
+	 * it needs, with a new context and solver:
+	 *
+	 *   CONFIGURED: periods and cycle sizes set, nothing converted to z3.
+	 *   CONVERTED:  flows and switches converted to z3, first hops and first
+	 *               sending times asserted. secureHC is the next step.
+	 *   RULES:      all rules of the network asserted.
+	 */
+	private static abstract class Z3Benchmark extends Benchmark {
+		static final int CONFIGURED = 0;
+		static final int CONVERTED = 1;
+		static final int RULES = 2;
+
+		private int stage;
+		private String input;
+		private ScheduleGenerator generator;
+
+		Network net;
+		Context ctx;
+		Solver solver;
+		Status status;
+
+		Z3Benchmark(String name, String group, int stage) {
+			super(name, group);
+			this.stage = stage;
+		}
+
+		void setUp(int flows, String input) {
+			this.input = input;
+			this.generator = new ScheduleGenerator();
+			this.generator.getPrinter().setEnableConsoleOutput(false);
+		}
+
+		void prepare() {
+			NetworkScope previousScope = new NetworkScope().enter();
+			try {
+				this.net = createParser().parseInputContent(this.input);
+			} finally {
+				NetworkScope.restore(previousScope);
+			}
+
+			this.net.setPrinter(this.generator.getPrinter());
+			this.ctx = this.generator.createContext();
+			this.solver = SolverPortfolio.createSolver(this.ctx, this.generator.getStrategy());
+
+			if(this.stage == RULES) {
+				this.generator.configureNetwork(this.net, this.ctx, this.solver);
+				return;
+			}
+
+			previousScope = this.net.getScope().enter();
+			try {
+				// As ScheduleGenerator.configureNetwork does, without the tick
+				for(Flow flw : this.net.getFlows()) {
+					flw.setPrinter(this.generator.getPrinter());
+					flw.modifyIfUsingCustomVal();
+					flw.convertUnicastFlow();
+					flw.setUpPeriods(flw.getPathTree().getRoot());
+				}
+
+				for(Switch swt : this.net.getSwitches()) {
+					((TSNSwitch) swt).setPrinter(this.generator.getPrinter());
+					((TSNSwitch) swt).setUpCycleSize(this.solver, this.ctx);
+				}
+
+				if(this.stage == CONVERTED) {
+					for(Flow flw : this.net.getFlows()) {
+						flw.toZ3(this.ctx);
+					}
+
+					for(Switch swt : this.net.getSwitches()) {
+						((TSNSwitch) swt).toZ3(this.ctx, this.solver);
+					}
+
+					this.net.preventCollisionOnFirstHop(this.solver, this.ctx);
+					this.net.assertFirstSendingTimeOfFlows(this.solver, this.ctx);
+
+					// Only the assertions added by run are counted
+					this.solver = SolverPortfolio.createSolver(this.ctx, this.generator.getStrategy());
+				}
+			} finally {
+				NetworkScope.restore(previousScope);
+			}
+		}
+
+		void cleanUp() {
+			if(this.ctx != null) {
+				this.generator.closeContext(this.ctx);
+			}
+			this.ctx = null;
+			this.solver = null;
+			this.net = null;
+		}
+
+		int getAssertions() {
+			return this.solver != null && this.stage != RULES ? this.solver.getAssertions().length : -1;
+		}
+
+		List<Port> getPorts() {
+			List<Port> ports = new ArrayList<Port>();
+
+			for(Switch swt : this.net.getSwitches()) {
+				ports.addAll(((TSNSwitch) swt).getPorts());
+			}
+
+			return ports;
+		}
+	}
+
+
+	private static class BenchmarkResult {
+		private Benchmark benchmark;
+		private int size;
+		private List<Double> times = new ArrayList<Double>(); // In milliseconds
+		private int assertions = -1;
+
+		BenchmarkResult(Benchmark benchmark, int size) {
+			this.benchmark = benchmark;
+			this.size = size;
+		}
+
+		double getScore() {
+			double sum = 0;
+			for(Double time : this.times) {
+				sum += time;
+			}
+			return sum / this.times.size();
+		}
+
+		double getScoreError() {
+			if(this.times.size() < 2) {
+				return Double.NaN;
+			}
+
+			double score = this.getScore();
+			double sum = 0;
+			for(Double time : this.times) {
+				sum += (time - score) * (time - score);
+			}
+
+			return ERROR_QUANTILE * Math.sqrt(sum / (this.times.size() - 1)) / Math.sqrt(this.times.size());
+		}
+	}
+
+}
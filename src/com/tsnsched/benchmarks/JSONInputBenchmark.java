@@ -0,0 +1,301 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.JSONParser;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: JSONInputBenchmark
+ * [Usage]: Compares the time and the heap used to read a JSON input
+ * file by loading it into a Gson tree (JSONParser.parseInputTree, after
+ * reading all lines of the file) and by streaming it from the file
+ * (JSONParser.parseInput).
+ *
+ * The input is a line of switches with devices on each one and flows
+ * between devices of different switches, each with all of its hops,
+ * generated here, so z3 is not needed. Each parse runs in its own
+ * NetworkScope, and the networks given by both parsers must be equal.
+ * Prints one CSV line per parser.
+ *
+ * Usage: JSONInputBenchmark [flows] [switches] [repetitions]
+ * e.g.   JSONInputBenchmark 10000 64 3
+ */
+public class JSONInputBenchmark {
+
+	private static final int DEVICES_PER_SWITCH = 4;
+
+	public static void main(String[] args) throws IOException {
+		int flows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int switches = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		final File inputFile = File.createTempFile("input", ".json");
+		writeInput(inputFile, flows, switches);
+
+		final Network[] networks = new Network[2];
+
+		System.out.println("parser;flows;switches;bytes;ms;allocatedMB;peakHeapMB");
+
+		run("tree", flows, switches, repetitions, inputFile, new Runnable() {
+			public void run() {
+				try {
+					List<String> lines = Files.readAllLines(inputFile.toPath(), StandardCharsets.UTF_8);
+					StringBuilder content = new StringBuilder();
+					for(String line : lines) {
+						content.append(line);
+					}
+					networks[0] = createParser(inputFile).parseInputTree(content.toString());
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+
+		run("stream", flows, switches, repetitions, inputFile, new Runnable() {
+			public void run() {
+				networks[1] = createParser(inputFile).parseInput();
+			}
+		});
+
+		if(!describe(networks[0]).equals(describe(networks[1]))) {
+			System.out.println("[ERROR]: The streamed network differs from the network of the Gson tree");
+		}
+
+		inputFile.delete();
+	}
+
+
+	private static JSONParser createParser(File inputFile) {
+		JSONParser parser = new JSONParser(inputFile.getPath());
+		Printer printer = new Printer();
+		printer.setEnableConsoleOutput(false);
+		parser.setPrinter(printer);
+		return parser;
+	}
+
+
+	private static void run(String parser, int flows, int switches, int repetitions, File file, Runnable task) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		// Warm up
+		inScope(task);
+
+		System.gc();
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+
+		long allocatedBytes = threads.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+
+		for(int i = 0; i < repetitions; i++) {
+			inScope(task);
+		}
+
+		double time = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+		double allocated = ((double) (threads.getThreadAllocatedBytes(threadId) - allocatedBytes)) / repetitions / (1024 * 1024);
+		long peakHeap = 0;
+
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		System.out.println(
+			parser + ";" + flows + ";" + switches + ";" + file.length() + ";" + time + ";" +
+			allocated + ";" + ((double) peakHeap) / (1024 * 1024)
+		);
+	}
+
+
+	private static void inScope(Runnable task) {
+		NetworkScope previousScope = new NetworkScope().enter();
+
+		try {
+			task.run();
+		} finally {
+			NetworkScope.restore(previousScope);
+		}
+	}
+
+
+	/*
+	 * Writes a line of switches, with devices on each one, and flows
+	 * between devices of different switches, listing all of their hops.
+	 */
+	static void writeInput(File file, int numOfFlows, int numOfSwitches) throws IOException {
+		PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8));
+
+		writer.println("{");
+		writer.println("  \"switches\": [");
+
+		for(int i = 0; i < numOfSwitches; i++) {
+			writer.println("    {");
+			writer.println("      \"name\": \"switch" + i + "\",");
+			writer.println("      \"defaultTimeToTravel\": 1,");
+			writer.println("      \"defaultPortSpeed\": 125,");
+			writer.println("      \"ports\": [");
+
+			boolean first = true;
+
+			if(i > 0) {
+				writePort(writer, "switch" + (i - 1), first);
+				first = false;
+			}
+			if(i < numOfSwitches - 1) {
+				writePort(writer, "switch" + (i + 1), first);
+				first = false;
+			}
+			for(int j = 0; j < DEVICES_PER_SWITCH; j++) {
+				writePort(writer, "dev" + i + "_" + j, first);
+				first = false;
+			}
+
+			writer.println();
+			writer.println("      ]");
+			writer.print("    }");
+			writer.println(i < numOfSwitches - 1 ? "," : "");
+		}
+
+		writer.println("  ],");
+		writer.println("  \"devices\": [");
+
+		for(int i = 0; i < numOfSwitches * DEVICES_PER_SWITCH; i++) {
+			writer.print(
+				"    {\"name\": \"dev" + (i / DEVICES_PER_SWITCH) + "_" + (i % DEVICES_PER_SWITCH) +
+				"\", \"defaultFirstSendingTime\": 0, \"defaultPacketPeriodicity\": 1000, " +
+				"\"defaultHardConstraintTime\": 1000, \"defaultPacketSize\": 1500}"
+			);
+			writer.println(i < numOfSwitches * DEVICES_PER_SWITCH - 1 ? "," : "");
+		}
+
+		writer.println("  ],");
+		writer.println("  \"flows\": [");
+
+		for(int i = 0; i < numOfFlows; i++) {
+			int firstSwitch = i % numOfSwitches;
+			int lastSwitch = (firstSwitch + 1 + i % (numOfSwitches - 1)) % numOfSwitches;
+			int step = lastSwitch > firstSwitch ? 1 : -1;
+			String source = "dev" + firstSwitch + "_" + (i % DEVICES_PER_SWITCH);
+			String destination = "dev" + lastSwitch + "_" + ((i + 1) % DEVICES_PER_SWITCH);
+
+			writer.println("    {");
+			writer.println("      \"name\": \"flow" + i + "\",");
+			writer.println("      \"sourceDevice\": \"" + source + "\",");
+			writer.println("      \"endDevices\": [\"" + destination + "\"],");
+			writer.println("      \"packetPeriodicity\": 1000,");
+			writer.println("      \"packetSize\": 1500,");
+			writer.println("      \"hardConstraintTime\": 1000,");
+			writer.println("      \"hops\": [");
+			writer.print("        {\"currentNodeName\": \"" + source + "\", \"nextNodeName\": \"switch" + firstSwitch + "\"}");
+
+			for(int swt = firstSwitch; swt != lastSwitch; swt += step) {
+				writer.println(",");
+				writer.print("        {\"currentNodeName\": \"switch" + swt + "\", \"nextNodeName\": \"switch" + (swt + step) + "\"}");
+			}
+
+			writer.println(",");
+			writer.println("        {\"currentNodeName\": \"switch" + lastSwitch + "\", \"nextNodeName\": \"" + destination + "\"}");
+			writer.println("      ]");
+			writer.print("    }");
+			writer.println(i < numOfFlows - 1 ? "," : "");
+		}
+
+		writer.println("  ]");
+		writer.println("}");
+		writer.close();
+	}
+
+
+	private static void writePort(PrintWriter writer, String connectsTo, boolean first) {
+		if(!first) {
+			writer.println(",");
+		}
+		writer.print(
+			"        {\"connectsTo\": \"" + connectsTo + "\", \"timeToTravel\": 1, " +
+			"\"maximumSlotDuration\": 50, \"cycleStart\": 0}"
+		);
+	}
+
+
+	/*
+	 * Lists the names and values read from the input, so the networks
+	 * given by both parsers can be compared.
+	 */
+	static String describe(Network net) {
+		StringBuilder description = new StringBuilder();
+
+		for(Switch swt : net.getSwitches()) {
+			description.append(swt.getName()).append('\n');
+
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				description.append(' ').append(port.getName()).append(' ').append(port.getConnectsTo())
+					.append(' ').append(port.getCycle().getName())
+					.append(' ').append(port.getCycle().getMaximumSlotDuration()).append('\n');
+			}
+		}
+
+		for(Device dev : net.getDevices()) {
+			description.append(dev.getName()).append(' ').append(dev.getPacketPeriodicity()).append('\n');
+		}
+
+		for(Flow flow : net.getFlows()) {
+			description.append(flow.getName()).append(' ').append(flow.getStartDevice().getName())
+				.append(' ').append(flow.getFlowSendingPeriodicity())
+				.append(' ').append(flow.getFlowMaximumLatency()).append('\n');
+			describePath(flow.getPathTree().getRoot(), description);
+		}
+
+		return description.toString();
+	}
+
+
+	private static void describePath(PathNode node, StringBuilder description) {
+		Object element = node.getNode();
+
+		description.append(' ').append(element instanceof Device ? ((Device) element).getName() : ((Switch) element).getName());
+
+		for(PathNode child : node.getChildren()) {
+			describePath(child, description);
+		}
+	}
+
+}
@@ -0,0 +1,266 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.PathTree;
+import com.tsnsched.core.interface_manager.JSONOutputWriter;
+import com.tsnsched.core.interface_manager.JSONParser;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: JSONOutputBenchmark
+ * [Usage]: Compares the time and the heap used to write the output.json
+ * file of a network by building the Gson tree of JSONParser and by
+ * streaming it with the JSONOutputWriter (pretty printed to a buffered
+ * file, compact to a buffered file and compact to a FileChannel).
+ *
+ * The network is a line of switches with devices on each switch, whose
+ * flows and schedule are generated here, so z3 is not needed. The file
+ * written by the tree and by the pretty printed stream must be equal.
+ * Prints one CSV line per writer. Heap is the bytes allocated by the
+ * writing thread and the peak of the heap pools while writing.
+ *
+ * Usage: JSONOutputBenchmark [flows] [packets] [repetitions]
+ * e.g.   JSONOutputBenchmark 2000 20 5
+ */
+public class JSONOutputBenchmark {
+
+	private static final int SWITCHES = 8;
+	private static final int DEVICES_PER_SWITCH = 4;
+
+	public static void main(String[] args) throws IOException {
+		int flows = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int packets = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		final Network net = createScheduledNetwork(flows, packets);
+		final File treeFile = File.createTempFile("tree", ".json");
+		final File streamFile = File.createTempFile("stream", ".json");
+		final File compactFile = File.createTempFile("compact", ".json");
+		final File channelFile = File.createTempFile("channel", ".json");
+
+		System.out.println("writer;flows;packets;bytes;ms;allocatedMB;peakHeapMB");
+
+		run("tree", flows, packets, repetitions, treeFile, new Runnable() {
+			public void run() {
+				// As JSONParser.generateOutput wrote the file before streaming
+				try {
+					Writer writer = new FileWriter(treeFile);
+					writer.write(new JSONParser().generateOutputContent(net));
+					writer.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+
+		run("stream", flows, packets, repetitions, streamFile, new Runnable() {
+			public void run() {
+				new JSONParser().generateOutput(net, streamFile.getPath(), true);
+			}
+		});
+
+		run("streamCompact", flows, packets, repetitions, compactFile, new Runnable() {
+			public void run() {
+				new JSONParser().generateOutput(net, compactFile.getPath(), false);
+			}
+		});
+
+		run("channelCompact", flows, packets, repetitions, channelFile, new Runnable() {
+			public void run() {
+				try {
+					RandomAccessFile file = new RandomAccessFile(channelFile, "rw");
+					FileChannel channel = file.getChannel();
+					channel.truncate(0);
+					new JSONOutputWriter(false).writeToChannel(net, channel);
+					file.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+
+		if(!new String(Files.readAllBytes(treeFile.toPath())).equals(new String(Files.readAllBytes(streamFile.toPath())))) {
+			System.out.println("[ERROR]: The streamed output differs from the Gson tree output");
+		}
+
+		if(!new String(Files.readAllBytes(compactFile.toPath())).equals(new String(Files.readAllBytes(channelFile.toPath())))) {
+			System.out.println("[ERROR]: The channel output differs from the compact output");
+		}
+
+		treeFile.delete();
+		streamFile.delete();
+		compactFile.delete();
+		channelFile.delete();
+	}
+
+
+	private static void run(String writer, int flows, int packets, int repetitions, File file, Runnable task) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		// Warm up
+		task.run();
+
+		System.gc();
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+
+		long allocatedBytes = threads.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+
+		for(int i = 0; i < repetitions; i++) {
+			task.run();
+		}
+
+		double time = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+		double allocated = ((double) (threads.getThreadAllocatedBytes(threadId) - allocatedBytes)) / repetitions / (1024 * 1024);
+		long peakHeap = 0;
+
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		System.out.println(
+			writer + ";" + flows + ";" + packets + ";" + file.length() + ";" + time + ";" +
+			allocated + ";" + ((double) peakHeap) / (1024 * 1024)
+		);
+	}
+
+
+	/*
+	 * Creates a line of switches, with devices on each one, and flows
+	 * between devices of different switches. Each flow gets the fragments
+	 * and packet times that the schedule would give them, and each port
+	 * gets the slots of the fragments that use it.
+	 */
+	static Network createScheduledNetwork(int numOfFlows, int packets) {
+		Network net = new Network();
+		ArrayList<TSNSwitch> switches = new ArrayList<TSNSwitch>();
+		ArrayList<Device> devices = new ArrayList<Device>();
+
+		for(int i = 0; i < SWITCHES; i++) {
+			TSNSwitch swt = new TSNSwitch("switch" + i, 1500, 1, 125, 1, 0, 2000);
+			switches.add(swt);
+			net.addSwitch(swt);
+
+			if(i > 0) {
+				swt.createPort(switches.get(i - 1), new Cycle(500));
+				switches.get(i - 1).createPort(swt, new Cycle(500));
+			}
+
+			for(int j = 0; j < DEVICES_PER_SWITCH; j++) {
+				Device dev = new Device(1000, 0, 2000, 1500);
+				devices.add(dev);
+				net.addDevice(dev);
+				swt.createPort(dev, new Cycle(500));
+			}
+		}
+
+		for(int i = 0; i < numOfFlows; i++) {
+			int source = i % devices.size();
+			int destination = (source + DEVICES_PER_SWITCH * (1 + i % (SWITCHES - 1))) % devices.size();
+			int firstSwitch = source / DEVICES_PER_SWITCH;
+			int lastSwitch = destination / DEVICES_PER_SWITCH;
+			int step = lastSwitch > firstSwitch ? 1 : -1;
+
+			Flow flow = new Flow(Flow.PUBLISH_SUBSCRIBE);
+			PathTree pathTree = new PathTree();
+			PathNode pathNode = pathTree.addRoot(devices.get(source));
+
+			for(int swt = firstSwitch; swt != lastSwitch + step; swt += step) {
+				pathNode = pathNode.addChild(switches.get(swt));
+			}
+			pathNode.addChild(devices.get(destination));
+
+			flow.setPathTree(pathTree);
+			flow.setFlowFirstSendingTime(i % 100);
+			flow.setNumOfPacketsSent(packets);
+			flow.setPacketSize(1500);
+			net.addFlow(flow);
+
+			storeSchedule(flow, pathTree.getRoot(), packets, i % 100, 1 + i % 7);
+		}
+
+		return net;
+	}
+
+
+	private static void storeSchedule(Flow flow, PathNode node, int packets, double time, int priority) {
+		for(PathNode child : node.getChildren()) {
+			if(!(child.getNode() instanceof TSNSwitch)) {
+				continue;
+			}
+
+			TSNSwitch swt = (TSNSwitch) child.getNode();
+
+			for(PathNode next : child.getChildren()) {
+				String nextHop = next.getNode() instanceof TSNSwitch ?
+						((TSNSwitch) next.getNode()).getName() : ((Device) next.getNode()).getName();
+				FlowFragment frag = new FlowFragment(flow);
+
+				frag.setNextHop(nextHop);
+				frag.setNodeName(swt.getName());
+				frag.setFragmentPriority(priority);
+				frag.setNumOfPacketsSent(packets);
+
+				for(int i = 0; i < packets; i++) {
+					frag.addDepartureTime(time + i * 1000);
+					frag.addArrivalTime(time + i * 1000 + 1);
+					frag.addScheduledTime(time + i * 1000 + 13);
+				}
+
+				child.addFlowFragment(frag);
+
+				Cycle cycle = swt.getPortOf(nextHop).getCycle();
+				ArrayList<Double> slotStart = new ArrayList<Double>();
+				ArrayList<Double> slotDuration = new ArrayList<Double>();
+				slotStart.add(priority * 10.0);
+				slotDuration.add(10.0);
+				cycle.setCycleDuration(500);
+				cycle.addSlotUsed(priority, slotStart, slotDuration);
+			}
+
+			storeSchedule(flow, child, packets, time + 13, priority);
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import com.tsnsched.core.interface_manager.JSONOutputWriter;
+import com.tsnsched.core.interface_manager.NetworkSnapshot;
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: NetworkSnapshotBenchmark
+ * [Usage]: Compares the size of the file and the time to store and to
+ * load a scheduled network with Java serialization (ObjectOutputStream
+ * and ObjectInputStream) and with a NetworkSnapshot.
+ *
+ * The network is the one of JSONOutputBenchmark, so z3 is not needed.
+ * The output.json of the networks loaded by both must be equal to the
+ * one of the stored network. Prints one CSV line per format.
+ *
+ * Usage: NetworkSnapshotBenchmark [flows] [packets] [repetitions]
+ * e.g.   NetworkSnapshotBenchmark 2000 20 5
+ */
+public class NetworkSnapshotBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int flows = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int packets = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		Network net = JSONOutputBenchmark.createScheduledNetwork(flows, packets);
+		String expected = new JSONOutputWriter().writeToString(net);
+
+		File serializedFile = File.createTempFile("network", ".ser");
+		File snapshotFile = File.createTempFile("network", ".snapshot");
+
+		System.out.println("format;flows;packets;bytes;writeMs;readMs");
+
+		// Warm up
+		serialize(net, serializedFile);
+		deserialize(serializedFile);
+		new NetworkSnapshot().write(net, snapshotFile.getPath());
+		new NetworkSnapshot().read(snapshotFile.getPath());
+
+		long startTime = System.nanoTime();
+		for(int i = 0; i < repetitions; i++) {
+			serialize(net, serializedFile);
+		}
+		double writeTime = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+
+		Network serialized = null;
+		startTime = System.nanoTime();
+		for(int i = 0; i < repetitions; i++) {
+			serialized = deserialize(serializedFile);
+		}
+		double readTime = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+
+		System.out.println("serialization;" + flows + ";" + packets + ";" + serializedFile.length() + ";" + writeTime + ";" + readTime);
+
+		startTime = System.nanoTime();
+		for(int i = 0; i < repetitions; i++) {
+			new NetworkSnapshot().write(net, snapshotFile.getPath());
+		}
+		writeTime = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+
+		Network snapshot = null;
+		startTime = System.nanoTime();
+		for(int i = 0; i < repetitions; i++) {
+			snapshot = new NetworkSnapshot().read(snapshotFile.getPath());
+		}
+		readTime = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+
+		System.out.println("snapshot;" + flows + ";" + packets + ";" + snapshotFile.length() + ";" + writeTime + ";" + readTime);
+
+		if(!expected.equals(new JSONOutputWriter().writeToString(serialized))) {
+			System.out.println("[ERROR]: The deserialized network differs from the stored network");
+		}
+
+		if(!expected.equals(new JSONOutputWriter().writeToString(snapshot))) {
+			System.out.println("[ERROR]: The network of the snapshot differs from the stored network");
+		}
+
+		serializedFile.delete();
+		snapshotFile.delete();
+	}
+
+
+	private static void serialize(Network net, File file) throws IOException {
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeObject(net);
+		out.close();
+	}
+
+
+	private static Network deserialize(File file) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+		Network net = (Network) in.readObject();
+		in.close();
+		return net;
+	}
+
+}
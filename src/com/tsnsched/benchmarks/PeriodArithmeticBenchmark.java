@@ -0,0 +1,121 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Vector;
+
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Port;
+
+/**
+ * [Class]: PeriodArithmeticBenchmark
+ * [Usage]: Measures the hyper cycle and micro cycle set-up of a port
+ * for growing period values. The previous implementation, which searched
+ * for common factors with trial division up to the largest period, is
+ * kept here as reference. Its time grows with the value of the largest
+ * period, while the current set-up only grows with the number of periods.
+ *
+ * Does not need z3. Usage: PeriodArithmeticBenchmark [repetitions]
+ */
+public class PeriodArithmeticBenchmark {
+
+	public static void main(String[] args) {
+		int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+		System.out.println("maxPeriod;numOfPeriods;hyperCycle;expansionFactor;trialDivisionMs;portSetUpMs");
+
+		for(double maxPeriod = 1000; maxPeriod <= 10000000; maxPeriod *= 10) {
+			ArrayList<Double> periods = new ArrayList<Double>();
+			periods.add(maxPeriod);
+			periods.add(maxPeriod / 2);
+			periods.add(maxPeriod / 4);
+			periods.add(maxPeriod / 5);
+			periods.add(maxPeriod * 2 / 5);
+
+			Port port = new Port("eth0", 0, "dev0", 1500, 0, 0, 125, 0, new Cycle(maxPeriod, 0, maxPeriod));
+			port.setListOfPeriods(periods);
+
+			double legacyHyperCycle = 0;
+			long startTime = System.nanoTime();
+			for(int i = 0; i < repetitions; i++) {
+				legacyHyperCycle = trialDivisionLCM(new ArrayList<Double>(periods));
+			}
+			double legacyTime = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+
+			startTime = System.nanoTime();
+			for(int i = 0; i < repetitions; i++) {
+				port.setUpMicroCycles(null, null);
+				port.setUpHyperCycle(null, null);
+			}
+			double setUpTime = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+
+			if(legacyHyperCycle != port.getDefinedHyperCycleSize()) {
+				System.out.println("[ERROR]: Hyper cycles differ: " + legacyHyperCycle + " and " + port.getDefinedHyperCycleSize());
+			}
+
+			System.out.println(
+				maxPeriod + ";" + periods.size() + ";" + port.getDefinedHyperCycleSize() + ";" +
+				port.getExpansionFactor() + ";" + legacyTime + ";" + setUpTime
+			);
+		}
+	}
+
+	/*
+	 * Least common multiple as previously computed by Port.findLCM.
+	 */
+	private static double trialDivisionLCM(ArrayList<Double> arr) {
+		double n = arr.size();
+		double max_num = 0;
+
+		for (int i = 0; i < n; i++) {
+			if (max_num < arr.get(i)) {
+				max_num = arr.get(i);
+			}
+		}
+
+		double res = 1;
+		double x = 2;
+
+		while (x <= max_num) {
+			Vector<Integer> indexes = new Vector<>();
+			for (int j = 0; j < n; j++) {
+				if (arr.get(j) % x == 0) {
+					indexes.add(indexes.size(), j);
+				}
+			}
+			if (indexes.size() >= 2) {
+				for (int j = 0; j < indexes.size(); j++) {
+					arr.set(indexes.get(j), arr.get(indexes.get(j)) / x);
+				}
+				res = res * x;
+			} else {
+				x++;
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			res = res * arr.get(i);
+		}
+
+		return res;
+	}
+
+}
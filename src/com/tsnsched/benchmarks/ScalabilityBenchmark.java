@@ -0,0 +1,431 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Params;
+import com.microsoft.z3.Solver;
+import com.microsoft.z3.Statistics;
+import com.microsoft.z3.Status;
+import com.tsnsched.core.interface_manager.ParserManager;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.schedule_generator.FeasibilityCheck;
+import com.tsnsched.core.schedule_generator.ScheduleGenerator;
+import com.tsnsched.core.schedule_generator.SolverPortfolio;
+import com.tsnsched.scenario_generator.ScenarioGenerator;
+
+/**
+ * [Class]: ScalabilityBenchmark
+ * [Usage]: Runs TSNsched over a sweep of scenarios from the seeded
+ * ScenarioGenerator, crossing numbers of switches, flows, subscribers
+ * per flow and sets of periods, to see how the rules and the solving
+ * grow with the network. The inputs are kept in the corpus directory,
+ * so the same seed always gives the same corpus, and each run gets:
+ *
+ *   the status (or INFEASIBLE, if the feasibility check fails first),
+ *   the number of assertions, the set up and solving times,
+ *   the peak of the Java heap and the peak memory reported by z3.
+ *
+ * The solver stops at the timeout (UNKNOWN), the set up of the rules
+ * has no timeout. Each point of the sweep is run with the seeds seed,
+ * seed + 1, ..., seed + repetitions - 1. The runs are written to
+ * sweep.csv and the medians of each point to summary.txt, also printed.
+ * Needs the z3 native library.
+ *
+ * Usage: ScalabilityBenchmark [-switches=4,8] [-flows=4,8,16] [-subscribers=1,3]
+ *                             [-periods=1000,500+1000] [-pathSwitches=3] [-maxBranching=2]
+ *                             [-seed=1] [-repetitions=3] [-timeout=60] [-corpus=./scalability]
+ * e.g.   ScalabilityBenchmark -flows=5,10,20,40 -periods=1000,500+1000+2000 -timeout=300
+ *
+ * Sets of periods are separated by commas, and the periods of a set by "+".
+ * The timeout is in seconds.
+ */
+public class ScalabilityBenchmark {
+
+	private int[] switches = {4, 8};
+	private int[] flows = {4, 8, 16};
+	private int[] subscribers = {1, 3};
+	private List<double[]> periodSets = new ArrayList<double[]>();
+	private int pathSwitches = 3;
+	private int maxBranching = 2;
+	private long seed = 1;
+	private int repetitions = 3;
+	private int timeout = 60; // In seconds
+	private String corpusPath = "./scalability";
+	private String strategy = "qfufbv_ackr";
+
+	private List<SweepRun> runs = new ArrayList<SweepRun>();
+
+
+	public static void main(String[] args) throws IOException {
+		ScalabilityBenchmark benchmark = new ScalabilityBenchmark();
+
+		if(benchmark.setParameters(args)) {
+			benchmark.runSweep();
+		}
+	}
+
+
+	private Boolean setParameters(String[] args) {
+		this.periodSets.add(new double[] {1000});
+
+		for(String argument : args) {
+			try {
+				if(argument.startsWith("-switches=")) {
+					this.switches = parseInts(argument.substring("-switches=".length()));
+				} else if(argument.startsWith("-flows=")) {
+					this.flows = parseInts(argument.substring("-flows=".length()));
+				} else if(argument.startsWith("-subscribers=")) {
+					this.subscribers = parseInts(argument.substring("-subscribers=".length()));
+				} else if(argument.startsWith("-periods=")) {
+					this.periodSets.clear();
+					for(String set : argument.substring("-periods=".length()).split(",")) {
+						String[] values = set.split("\\+");
+						double[] periods = new double[values.length];
+						for(int i = 0; i < values.length; i++) {
+							periods[i] = Double.parseDouble(values[i].trim());
+						}
+						this.periodSets.add(periods);
+					}
+				} else if(argument.startsWith("-pathSwitches=")) {
+					this.pathSwitches = Integer.parseInt(argument.substring("-pathSwitches=".length()));
+				} else if(argument.startsWith("-maxBranching=")) {
+					this.maxBranching = Integer.parseInt(argument.substring("-maxBranching=".length()));
+				} else if(argument.startsWith("-seed=")) {
+					this.seed = Long.parseLong(argument.substring("-seed=".length()));
+				} else if(argument.startsWith("-repetitions=")) {
+					this.repetitions = Integer.parseInt(argument.substring("-repetitions=".length()));
+				} else if(argument.startsWith("-timeout=")) {
+					this.timeout = Integer.parseInt(argument.substring("-timeout=".length()));
+				} else if(argument.startsWith("-corpus=")) {
+					this.corpusPath = argument.substring("-corpus=".length());
+				} else if(argument.startsWith("-strategy=")) {
+					this.strategy = argument.substring("-strategy=".length());
+				} else {
+					System.out.println("[ERROR]: Unknown parameter: " + argument);
+					return false;
+				}
+			} catch (NumberFormatException e) {
+				System.out.println("[ERROR]: Invalid value: " + argument);
+				return false;
+			}
+		}
+
+		for(int numOfSubscribers : this.subscribers) {
+			if(numOfSubscribers < 1) {
+				System.out.println("[ERROR]: Every flow needs at least one subscriber");
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	private static int[] parseInts(String list) {
+		String[] values = list.split(",");
+		int[] numbers = new int[values.length];
+
+		for(int i = 0; i < values.length; i++) {
+			numbers[i] = Integer.parseInt(values[i].trim());
+		}
+
+		return numbers;
+	}
+
+
+	private void runSweep() throws IOException {
+		File corpus = new File(this.corpusPath);
+		corpus.mkdirs();
+
+		System.out.println("switches;flows;subscribers;periods;seed;status;assertions;setupMs;solvingMs;peakHeapMB;z3MemoryMB");
+
+		for(int numOfSwitches : this.switches) {
+			for(int numOfFlows : this.flows) {
+				for(int numOfSubscribers : this.subscribers) {
+					for(double[] periods : this.periodSets) {
+						for(int i = 0; i < this.repetitions; i++) {
+							SweepRun run = new SweepRun(numOfSwitches, numOfFlows, numOfSubscribers, periods, this.seed + i);
+
+							this.generate(run, corpus);
+							this.run(run);
+							this.runs.add(run);
+
+							System.out.println(
+								run.numOfSwitches + ";" + run.numOfFlows + ";" + run.numOfSubscribers + ";" +
+								run.getPeriods() + ";" + run.seed + ";" + run.status + ";" + run.assertions + ";" +
+								format(run.setupTime) + ";" + format(run.solvingTime) + ";" +
+								format(run.peakHeap) + ";" + format(run.z3Memory)
+							);
+						}
+					}
+				}
+			}
+		}
+
+		this.writeRuns(new File(corpus, "sweep.csv"));
+		this.writeSummary(new File(corpus, "summary.txt"));
+	}
+
+
+	private void generate(SweepRun run, File corpus) throws IOException {
+		ScenarioGenerator generator = new ScenarioGenerator(run.seed);
+		generator.setNumOfSwitches(run.numOfSwitches);
+		generator.setNumOfFlows(run.numOfFlows);
+		generator.setNumOfSubscribers(run.numOfSubscribers);
+		generator.setNumOfPathSwitches(this.pathSwitches);
+		generator.setMaxBranching(this.maxBranching);
+		generator.setPeriods(run.periods);
+
+		run.inputFile = new File(corpus,
+			"sw" + run.numOfSwitches + "_fl" + run.numOfFlows + "_sub" + run.numOfSubscribers +
+			"_p" + run.getPeriods() + "_seed" + run.seed + ".json"
+		);
+
+		generator.writeInput(run.inputFile.getPath());
+	}
+
+
+	/*
+	 * Sets up the rules of the scenario on a new context and checks
+	 * them until the timeout.
+	 */
+	private void run(SweepRun run) {
+		ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+		scheduleGenerator.getPrinter().setEnableConsoleOutput(false);
+		scheduleGenerator.getPrinter().setEnableLoggerFile(false);
+
+		ParserManager parserManager = new ParserManager(run.inputFile.getPath());
+		parserManager.setPrinter(scheduleGenerator.getPrinter());
+		Network net = parserManager.parseFromFile();
+
+		if(net == null) {
+			run.status = "ERROR";
+			return;
+		}
+
+		net.setPrinter(scheduleGenerator.getPrinter());
+
+		if(!new FeasibilityCheck(scheduleGenerator.getPrinter()).check(net)) {
+			run.status = "INFEASIBLE";
+			return;
+		}
+
+		Context ctx = null;
+
+		System.gc();
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+
+		try {
+			ctx = scheduleGenerator.createContext();
+			Solver solver = SolverPortfolio.createSolver(ctx, this.strategy);
+
+			long startTime = System.nanoTime();
+			scheduleGenerator.configureNetwork(net, ctx, solver);
+			run.setupTime = ((double) (System.nanoTime() - startTime)) / 1000000;
+			run.assertions = solver.getAssertions().length;
+
+			Params params = ctx.mkParams();
+			params.add("timeout", this.timeout * 1000);
+			solver.setParameters(params);
+
+			startTime = System.nanoTime();
+			Status status = solver.check();
+			run.solvingTime = ((double) (System.nanoTime() - startTime)) / 1000000;
+			run.status = status.toString();
+			run.z3Memory = maxMemory(solver.getStatistics());
+		} catch (LinkageError e) {
+			// The z3 native library couldn't be loaded
+			run.status = "ERROR";
+			ctx = null;
+		} catch (RuntimeException e) {
+			run.status = "ERROR";
+		} finally {
+			if(ctx != null) {
+				scheduleGenerator.closeContext(ctx);
+			}
+		}
+
+		long peakHeap = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		run.peakHeap = ((double) peakHeap) / (1024 * 1024);
+	}
+
+
+	/*
+	 * Peak memory of z3 in MB, from the statistics of the solver.
+	 */
+	private static double maxMemory(Statistics statistics) {
+		for(Statistics.Entry entry : statistics.getEntries()) {
+			if(entry.Key.equals("max memory")) {
+				return Double.parseDouble(entry.getValueString());
+			}
+		}
+
+		return Double.NaN;
+	}
+
+
+	private void writeRuns(File file) throws IOException {
+		PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8));
+
+		try {
+			out.println("switches,flows,subscribers,periods,seed,status,assertions,setupMs,solvingMs,peakHeapMB,z3MemoryMB,input");
+
+			for(SweepRun run : this.runs) {
+				out.println(
+					run.numOfSwitches + "," + run.numOfFlows + "," + run.numOfSubscribers + "," +
+					run.getPeriods() + "," + run.seed + "," + run.status + "," + run.assertions + "," +
+					format(run.setupTime) + "," + format(run.solvingTime) + "," +
+					format(run.peakHeap) + "," + format(run.z3Memory) + "," + run.inputFile.getName()
+				);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+
+	/*
+	 * One line per point of the sweep, with the medians of its runs.
+	 */
+	private void writeSummary(File file) throws IOException {
+		Map<String, List<SweepRun>> points = new LinkedHashMap<String, List<SweepRun>>();
+
+		for(SweepRun run : this.runs) {
+			String point = run.numOfSwitches + " " + run.numOfFlows + " " + run.numOfSubscribers + " " + run.getPeriods();
+
+			if(!points.containsKey(point)) {
+				points.put(point, new ArrayList<SweepRun>());
+			}
+			points.get(point).add(run);
+		}
+
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format(Locale.ROOT, "%8s %6s %11s %-16s %4s %4s %7s %10s %10s %10s %10s %10s%n",
+				"switches", "flows", "subscribers", "periods", "runs", "sat", "unknown",
+				"assertions", "setupMs", "solvingMs", "heapMB", "z3MB"));
+
+		for(List<SweepRun> pointRuns : points.values()) {
+			SweepRun first = pointRuns.get(0);
+			int sat = 0;
+			int unknown = 0;
+			List<Double> assertions = new ArrayList<Double>();
+			List<Double> setupTimes = new ArrayList<Double>();
+			List<Double> solvingTimes = new ArrayList<Double>();
+			List<Double> heaps = new ArrayList<Double>();
+			List<Double> z3Memories = new ArrayList<Double>();
+
+			for(SweepRun run : pointRuns) {
+				sat += run.status.equals(Status.SATISFIABLE.toString()) ? 1 : 0;
+				unknown += run.status.equals(Status.UNKNOWN.toString()) ? 1 : 0;
+				assertions.add((double) run.assertions);
+				setupTimes.add(run.setupTime);
+				solvingTimes.add(run.solvingTime);
+				heaps.add(run.peakHeap);
+				z3Memories.add(run.z3Memory);
+			}
+
+			summary.append(String.format(Locale.ROOT, "%8d %6d %11d %-16s %4d %4d %7d %10.0f %10.1f %10.1f %10.1f %10.1f%n",
+					first.numOfSwitches, first.numOfFlows, first.numOfSubscribers, first.getPeriods(),
+					pointRuns.size(), sat, unknown, median(assertions), median(setupTimes),
+					median(solvingTimes), median(heaps), median(z3Memories)));
+		}
+
+		System.out.println();
+		System.out.print(summary);
+
+		PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8));
+		out.print(summary);
+		out.close();
+	}
+
+
+	private static double median(List<Double> values) {
+		Collections.sort(values);
+		int middle = values.size() / 2;
+
+		return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2;
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+
+	private static class SweepRun {
+		private int numOfSwitches;
+		private int numOfFlows;
+		private int numOfSubscribers;
+		private double[] periods;
+		private long seed;
+		private File inputFile;
+
+		private String status = Status.UNKNOWN.toString();
+		private int assertions = 0;
+		private double setupTime = 0; // In milliseconds
+		private double solvingTime = 0; // In milliseconds
+		private double peakHeap = 0; // In MB
+		private double z3Memory = Double.NaN; // In MB
+
+		SweepRun(int numOfSwitches, int numOfFlows, int numOfSubscribers, double[] periods, long seed) {
+			this.numOfSwitches = numOfSwitches;
+			this.numOfFlows = numOfFlows;
+			this.numOfSubscribers = numOfSubscribers;
+			this.periods = periods;
+			this.seed = seed;
+		}
+
+		String getPeriods() {
+			StringBuilder periods = new StringBuilder();
+
+			for(double period : this.periods) {
+				if(periods.length() > 0) {
+					periods.append('+');
+				}
+				periods.append(period == Math.rint(period) ? String.valueOf((long) period) : String.valueOf(period));
+			}
+
+			return periods.toString();
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.util.*;
+
+import com.microsoft.z3.Status;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.TSNSwitch;
+import com.tsnsched.core.schedule_generator.ScheduleGenerator;
+import com.tsnsched.core.schedule_generator.ScheduleSession;
+
+/**
+ * [Class]: SessionCheck
+ * [Usage]: Opens a ScheduleSession on a network of one switch and
+ * three flows towards the same device, and then admits and withdraws
+ * flows through the same port:
+ *
+ *   - admits a flow, then a second one;
+ *   - withdraws the first one, so the second one is pinned again;
+ *   - admits the first flow again;
+ *   - admits a flow whose hard constraint is shorter than its
+ *     transmission time, which must be rejected and rolled back;
+ *   - admits a flow towards a port that had no traffic when the
+ *     session was opened, which must be rejected as well.
+ *
+ * After each step, the schedule of the flows that were already in the
+ * network must be unchanged and the solver must still be satisfiable.
+ * Prints one line per check and exits with status 1 on any failure.
+ *
+ * Needs the z3 native library.
+ * Usage: SessionCheck
+ */
+public class SessionCheck {
+
+	private static int failures = 0;
+
+	private Network net;
+	private TSNSwitch swt;
+	private Device destination;
+	private Device[] sources = new Device[6];
+
+
+	public static void main(String[] args) {
+		new SessionCheck().run();
+
+		System.out.println("Failures: " + failures);
+
+		if(failures > 0) {
+			System.exit(1);
+		}
+	}
+
+
+	private void run() {
+		NetworkScope previousScope = new NetworkScope().enter();
+		try {
+			this.createNetwork();
+		} finally {
+			NetworkScope.restore(previousScope);
+		}
+
+		ScheduleGenerator generator = new ScheduleGenerator();
+		generator.setEnableConsoleOutput(false);
+		generator.setEnableLoggerFile(false);
+		generator.setGenerateJSONOutput(false);
+
+		ScheduleSession session = new ScheduleSession(this.net, generator);
+
+		try {
+			check("open", session.open() == Status.SATISFIABLE);
+
+			String baseSchedule = scheduleOf(this.net.getFlows());
+
+			Flow first = this.createFlow(3);
+			check("admit first flow", session.admitFlow(first) == Status.SATISFIABLE);
+			check("base schedule kept after admitting", baseSchedule.equals(scheduleOf(this.baseFlows())));
+
+			Flow second = this.createFlow(4);
+			check("admit second flow", session.admitFlow(second) == Status.SATISFIABLE);
+
+			String secondSchedule = scheduleOf(Arrays.asList(second));
+			int numOfFragments = this.swt.getPortOf(this.destination.getName()).getFlowFragments().size();
+
+			check("withdraw first flow", session.withdrawFlow(first));
+			check("withdrawn flow removed from the network", !this.net.getFlows().contains(first));
+			check("withdrawn flow removed from the port",
+					this.swt.getPortOf(this.destination.getName()).getFlowFragments().size() == numOfFragments - 1);
+			check("second flow still admitted", session.getAdmittedFlows().equals(Arrays.asList(second)));
+			check("satisfiable after withdrawing", session.getSolver().check() == Status.SATISFIABLE);
+			check("second flow kept after withdrawing", secondSchedule.equals(scheduleOf(Arrays.asList(second))));
+
+			Flow readmitted = this.createFlow(3);
+			check("admit first flow again", session.admitFlow(readmitted) == Status.SATISFIABLE);
+			check("base schedule kept after admitting again", baseSchedule.equals(scheduleOf(this.baseFlows())));
+			check("second flow kept after admitting again", secondSchedule.equals(scheduleOf(Arrays.asList(second))));
+
+			String schedule = scheduleOf(this.net.getFlows());
+			numOfFragments = this.swt.getPortOf(this.destination.getName()).getFlowFragments().size();
+
+			Flow infeasible = this.createFlow(5);
+			check("infeasible flow rejected", session.admitFlow(infeasible) == Status.UNSATISFIABLE);
+			check("rejected flow removed from the network", !this.net.getFlows().contains(infeasible));
+			check("rejected flow removed from the port",
+					this.swt.getPortOf(this.destination.getName()).getFlowFragments().size() == numOfFragments);
+			check("session still satisfiable after rejecting", session.getStatus() == Status.SATISFIABLE);
+			check("admitted flows kept after rejecting", session.getAdmittedFlows().equals(Arrays.asList(second, readmitted)));
+			check("satisfiable after rejecting", session.getSolver().check() == Status.SATISFIABLE);
+			check("schedule kept after rejecting", schedule.equals(scheduleOf(this.net.getFlows())));
+
+			Flow idlePortFlow = this.createFlow(0, this.sources[1]);
+			check("flow through idle port rejected", session.admitFlow(idlePortFlow) == Status.UNSATISFIABLE);
+			check("flow through idle port removed from the network", !this.net.getFlows().contains(idlePortFlow));
+			check("idle port has no periods", this.swt.getPortOf(this.sources[1].getName()).getListOfPeriods().isEmpty());
+			check("schedule kept after rejecting idle port", schedule.equals(scheduleOf(this.net.getFlows())));
+
+			check("withdraw second flow", session.withdrawFlow(second));
+			check("satisfiable after withdrawing again", session.getSolver().check() == Status.SATISFIABLE);
+			check("admitted flows after withdrawing again", session.getAdmittedFlows().equals(Arrays.asList(readmitted)));
+		} finally {
+			session.close();
+		}
+	}
+
+
+	/*
+	 * One switch with six devices. The first three send to the
+	 * destination when the session is opened, the next two are admitted
+	 * later and the last one has a hard constraint of 1 microsecond,
+	 * shorter than the transmission time of its packets.
+	 */
+	private void createNetwork() {
+		this.net = new Network();
+		this.swt = new TSNSwitch("switch0", 100, 8, 125, 1, 400, 3000);
+		this.destination = new Device(1000, 0, 1000, 1250);
+
+		double[] periods = {200, 400, 600, 200, 400, 200};
+		double[] hardConstraints = {1000, 1000, 1000, 1000, 1000, 1};
+
+		this.swt.createPort(this.destination, new Cycle(50));
+		this.net.addDevice(this.destination);
+
+		for(int i = 0; i < this.sources.length; i++) {
+			this.sources[i] = new Device(periods[i], 0, hardConstraints[i], 1250);
+			this.swt.createPort(this.sources[i], new Cycle(50));
+			this.net.addDevice(this.sources[i]);
+		}
+
+		this.net.addSwitch(this.swt);
+
+		for(int i = 0; i < 3; i++) {
+			this.net.addFlow(this.createFlow(i));
+		}
+	}
+
+
+	private Flow createFlow(int source) {
+		return this.createFlow(source, this.destination);
+	}
+
+
+	private Flow createFlow(int source, Device endDevice) {
+		NetworkScope previousScope = this.net != null ? this.net.getScope().enter() : null;
+
+		try {
+			Flow flow = new Flow(Flow.UNICAST);
+			flow.setStartDevice(this.sources[source]);
+			flow.addToPath(this.swt);
+			flow.setEndDevice(endDevice);
+
+			return flow;
+		} finally {
+			if(previousScope != null) {
+				NetworkScope.restore(previousScope);
+			}
+		}
+	}
+
+
+	private List<Flow> baseFlows() {
+		return this.net.getFlows().subList(0, 3);
+	}
+
+
+	/*
+	 * Scheduled times of the packets of the flows, fragment by fragment.
+	 */
+	private static String scheduleOf(List<Flow> flows) {
+		StringBuilder schedule = new StringBuilder();
+
+		for(Flow flw : flows) {
+			schedule.append(flw.getName()).append(':').append(flw.getFlowFirstSendingTime());
+			appendFragments(flw.getPathTree().getRoot(), schedule);
+			schedule.append('\n');
+		}
+
+		return schedule.toString();
+	}
+
+	private static void appendFragments(PathNode node, StringBuilder schedule) {
+		if(node.getFlowFragments() != null) {
+			for(FlowFragment frag : node.getFlowFragments()) {
+				schedule.append(' ').append(frag.getFragmentPriority()).append(frag.getScheduledTimeList());
+			}
+		}
+
+		for(PathNode child : node.getChildren()) {
+			appendFragments(child, schedule);
+		}
+	}
+
+
+	private static void check(String name, Boolean passed) {
+		if(!passed) {
+			failures++;
+		}
+
+		System.out.println(name + ";" + (passed ? "PASS" : "FAIL"));
+	}
+
+}
@@ -0,0 +1,181 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Solver;
+import com.microsoft.z3.Status;
+import com.tsnsched.core.interface_manager.ParserManager;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.schedule_generator.ScheduleGenerator;
+import com.tsnsched.core.schedule_generator.SolverPortfolio;
+import com.tsnsched.scenario_generator.ScenarioGenerator;
+
+/**
+ * [Class]: TickEncodingBenchmark
+ * [Usage]: Compares the time to set up and solve a set of scenarios
+ * with the real time encoding and with the tick encoding, in which the
+ * time variables are integer numbers of ticks scaled to reals. Latency,
+ * jitter and the constants of the rules stay real, so the problem is
+ * still a mixed integer/real one in both encodings.
+ *
+ * The scenarios are the JSON inputs of a folder (or a single input file).
+ * Without one, the scenarios are made by the ScenarioGenerator with the
+ * seeds 1 to DEFAULT_SCENARIOS. Prints one CSV line per scenario, encoding
+ * and repetition.
+ *
+ * Needs the z3 native library.
+ * Usage: TickEncodingBenchmark [ticks] [strategy] [inputs] [repetitions]
+ * e.g.   TickEncodingBenchmark 1,0.5 qfufbv_ackr inputs 3
+ */
+public class TickEncodingBenchmark {
+
+	private static final int DEFAULT_SCENARIOS = 3;
+
+	public static void main(String[] args) {
+		String[] ticks = (args.length > 0 ? args[0] : "1").split(",");
+		String strategy = args.length > 1 ? args[1] : "qfufbv_ackr";
+		String inputs = args.length > 2 ? args[2] : null;
+		int repetitions = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+		LinkedHashMap<String, String> scenarios = loadScenarios(inputs);
+
+		if(scenarios == null) {
+			return;
+		}
+
+		System.out.println("scenario;encoding;strategy;status;setUpMs;solveMs");
+
+		for(Map.Entry<String, String> scenario : scenarios.entrySet()) {
+			for(int i = 0; i < repetitions; i++) {
+				run(scenario.getKey(), scenario.getValue(), 0, strategy);
+
+				for(String tick : ticks) {
+					run(scenario.getKey(), scenario.getValue(), Double.parseDouble(tick), strategy);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Parses a fresh network for the scenario, as setting up the rules
+	 * changes it, and times the set up of the rules and the check.
+	 */
+	private static void run(String name, String content, double tick, String strategy) {
+		ScheduleGenerator generator = new ScheduleGenerator();
+		generator.setTimeTick(tick);
+
+		Network net = parseScenario(content, generator.getPrinter());
+
+		if(net == null) {
+			return;
+		}
+
+		Context ctx = generator.createContext();
+		Solver solver = SolverPortfolio.createSolver(ctx, strategy);
+
+		long startTime = System.nanoTime();
+		generator.configureNetwork(net, ctx, solver);
+		long setUpTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		Status status = solver.check();
+		long solveTime = System.nanoTime() - startTime;
+
+		generator.closeContext(ctx);
+
+		System.out.println(
+			name + ";" + (tick > 0 ? "tick " + tick : "real") + ";" + strategy + ";" + status + ";" +
+			((double) setUpTime)/1000000 + ";" + ((double) solveTime)/1000000
+		);
+	}
+
+	/**
+	 * [Method]: loadScenarios
+	 * [Usage]: Reads the JSON inputs of a folder, sorted by name, or a
+	 * single input file. Without a path, generates DEFAULT_SCENARIOS
+	 * scenarios with the ScenarioGenerator, one per seed.
+	 *
+	 * @param inputs		Folder or file of the JSON inputs, or null
+	 * @return				Content of each scenario by name, or null if the inputs can't be read
+	 */
+	public static LinkedHashMap<String, String> loadScenarios(String inputs) {
+		LinkedHashMap<String, String> scenarios = new LinkedHashMap<String, String>();
+
+		if(inputs == null) {
+			for(long seed = 1; seed <= DEFAULT_SCENARIOS; seed++) {
+				scenarios.put("seed" + seed, new ScenarioGenerator(seed).generateInputContent());
+			}
+
+			return scenarios;
+		}
+
+		File source = new File(inputs);
+		File[] files = source.isDirectory() ? source.listFiles() : new File[] {source};
+
+		if(files == null || !source.exists()) {
+			System.out.println("[ERROR]: Can't list " + source.getPath());
+			return null;
+		}
+
+		Arrays.sort(files);
+
+		try {
+			for(File file : files) {
+				if(file.getName().endsWith(".json")) {
+					scenarios.put(file.getName(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		return scenarios;
+	}
+
+	/**
+	 * [Method]: parseScenario
+	 * [Usage]: Parses the network of a scenario in its own scope.
+	 *
+	 * @param content		JSON input of the scenario
+	 * @param printer		Printer of the parser and of the network
+	 * @return				Network of the scenario, or null if it can't be parsed
+	 */
+	public static Network parseScenario(String content, Printer printer) {
+		ParserManager parserManager = new ParserManager();
+		parserManager.setPrinter(printer);
+		Network net = parserManager.parseFromContent(content);
+
+		if(net != null) {
+			net.setPrinter(printer);
+		}
+
+		return net;
+	}
+
+}
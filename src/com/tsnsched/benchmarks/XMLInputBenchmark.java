@@ -0,0 +1,222 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.interface_manager.XMLParser;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
+
+/**
+ * [Class]: XMLInputBenchmark
+ * [Usage]: Compares the time used to read an XML input file by
+ * converting it to JSON and parsing it with the JSONParser
+ * (XMLParser.parseInputThroughJSON, after reading all lines of the file)
+ * and by streaming it with StAX (XMLParser.parseInput).
+ *
+ * The input has the same topology as in JSONInputBenchmark, with the
+ * sections in the order of the converted files (devices, flows and
+ * switches), so the flows are created after the switches are read.
+ * The sample input.xml, if given, is parsed both ways as well. The
+ * networks given by both parsers must be equal. Prints one CSV line
+ * per parser, with the throughput in MB/s.
+ *
+ * Usage: XMLInputBenchmark [flows] [switches] [repetitions] [input.xml]
+ * e.g.   XMLInputBenchmark 10000 64 3 src/com/tsnsched/generated_scenarios/input.xml
+ */
+public class XMLInputBenchmark {
+
+	private static final int DEVICES_PER_SWITCH = 4;
+
+	public static void main(String[] args) throws IOException {
+		int flows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int switches = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		File inputFile = File.createTempFile("input", ".xml");
+		writeInput(inputFile, flows, switches);
+
+		System.out.println("parser;flows;switches;bytes;ms;MBps");
+
+		Network[] roundTrip = run("roundTrip", flows, switches, repetitions, inputFile);
+		Network[] stax = run("stax", flows, switches, repetitions, inputFile);
+
+		if(!JSONInputBenchmark.describe(roundTrip[0]).equals(JSONInputBenchmark.describe(stax[0]))) {
+			System.out.println("[ERROR]: The StAX network differs from the network converted through JSON");
+		}
+
+		inputFile.delete();
+
+		if(args.length > 3) {
+			Network[] sampleRoundTrip = run("roundTrip", 0, 0, 1, new File(args[3]));
+			Network[] sampleStax = run("stax", 0, 0, 1, new File(args[3]));
+
+			if(!JSONInputBenchmark.describe(sampleRoundTrip[0]).equals(JSONInputBenchmark.describe(sampleStax[0]))) {
+				System.out.println("[ERROR]: The StAX network of " + args[3] + " differs from the network converted through JSON");
+			}
+		}
+	}
+
+
+	/*
+	 * Parses the file the given number of times, each in its own scope,
+	 * and retrieves the network of the last run.
+	 */
+	private static Network[] run(String parser, int flows, int switches, int repetitions, File file) throws IOException {
+		Network[] network = new Network[1];
+
+		// Warm up
+		parse(parser, file);
+
+		long startTime = System.nanoTime();
+
+		for(int i = 0; i < repetitions; i++) {
+			network[0] = parse(parser, file);
+		}
+
+		double time = ((double) (System.nanoTime() - startTime)) / repetitions / 1000000;
+
+		System.out.println(
+			parser + ";" + flows + ";" + switches + ";" + file.length() + ";" + time + ";" +
+			(((double) file.length()) / (1024 * 1024)) / (time / 1000)
+		);
+
+		return network;
+	}
+
+
+	private static Network parse(String parser, File file) throws IOException {
+		XMLParser xmlParser = new XMLParser(file.getPath());
+		Printer printer = new Printer();
+		NetworkScope previousScope = new NetworkScope().enter();
+
+		printer.setEnableConsoleOutput(false);
+		xmlParser.setPrinter(printer);
+
+		try {
+			if(parser.equals("stax")) {
+				return xmlParser.parseInput();
+			}
+
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			StringBuilder content = new StringBuilder();
+			for(String line : lines) {
+				content.append(line);
+			}
+			return xmlParser.parseInputThroughJSON(content.toString());
+		} finally {
+			NetworkScope.restore(previousScope);
+		}
+	}
+
+
+	/*
+	 * Writes the network of JSONInputBenchmark as XML, with each element
+	 * of a list in an element tag.
+	 */
+	private static void writeInput(File file, int numOfFlows, int numOfSwitches) throws IOException {
+		PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8));
+
+		writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		writer.println("<network>");
+		writer.println("   <devices>");
+
+		for(int i = 0; i < numOfSwitches * DEVICES_PER_SWITCH; i++) {
+			writer.println(
+				"      <element><name>dev" + (i / DEVICES_PER_SWITCH) + "_" + (i % DEVICES_PER_SWITCH) + "</name>" +
+				"<defaultFirstSendingTime>0</defaultFirstSendingTime><defaultPacketPeriodicity>1000</defaultPacketPeriodicity>" +
+				"<defaultHardConstraintTime>1000</defaultHardConstraintTime><defaultPacketSize>1500</defaultPacketSize></element>"
+			);
+		}
+
+		writer.println("   </devices>");
+		writer.println("   <flows>");
+
+		for(int i = 0; i < numOfFlows; i++) {
+			int firstSwitch = i % numOfSwitches;
+			int lastSwitch = (firstSwitch + 1 + i % (numOfSwitches - 1)) % numOfSwitches;
+			int step = lastSwitch > firstSwitch ? 1 : -1;
+			String source = "dev" + firstSwitch + "_" + (i % DEVICES_PER_SWITCH);
+			String destination = "dev" + lastSwitch + "_" + ((i + 1) % DEVICES_PER_SWITCH);
+
+			writer.println("      <element>");
+			writer.println("         <name>flow" + i + "</name>");
+			writer.println("         <sourceDevice>" + source + "</sourceDevice>");
+			writer.println("         <endDevices><element>" + destination + "</element></endDevices>");
+			writer.println("         <packetPeriodicity>1000</packetPeriodicity>");
+			writer.println("         <packetSize>1500</packetSize>");
+			writer.println("         <hardConstraintTime>1000</hardConstraintTime>");
+			writer.println("         <hops>");
+			writer.println("            <element><currentNodeName>" + source + "</currentNodeName><nextNodeName>switch" + firstSwitch + "</nextNodeName></element>");
+
+			for(int swt = firstSwitch; swt != lastSwitch; swt += step) {
+				writer.println("            <element><currentNodeName>switch" + swt + "</currentNodeName><nextNodeName>switch" + (swt + step) + "</nextNodeName></element>");
+			}
+
+			writer.println("            <element><currentNodeName>switch" + lastSwitch + "</currentNodeName><nextNodeName>" + destination + "</nextNodeName></element>");
+			writer.println("         </hops>");
+			writer.println("      </element>");
+		}
+
+		writer.println("   </flows>");
+		writer.println("   <switches>");
+
+		for(int i = 0; i < numOfSwitches; i++) {
+			writer.println("      <element>");
+			writer.println("         <name>switch" + i + "</name>");
+			writer.println("         <defaultTimeToTravel>1</defaultTimeToTravel>");
+			writer.println("         <defaultPortSpeed>125</defaultPortSpeed>");
+			writer.println("         <ports>");
+
+			if(i > 0) {
+				writePort(writer, "switch" + (i - 1));
+			}
+			if(i < numOfSwitches - 1) {
+				writePort(writer, "switch" + (i + 1));
+			}
+			for(int j = 0; j < DEVICES_PER_SWITCH; j++) {
+				writePort(writer, "dev" + i + "_" + j);
+			}
+
+			writer.println("         </ports>");
+			writer.println("      </element>");
+		}
+
+		writer.println("   </switches>");
+		writer.println("</network>");
+		writer.close();
+	}
+
+
+	private static void writePort(PrintWriter writer, String connectsTo) {
+		writer.println(
+			"            <element><connectsTo>" + connectsTo + "</connectsTo><timeToTravel>1</timeToTravel>" +
+			"<maximumSlotDuration>50</maximumSlotDuration><cycleStart>0</cycleStart></element>"
+		);
+	}
+
+}
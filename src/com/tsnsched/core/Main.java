@@ -19,6 +19,8 @@
 
 package com.tsnsched.core;
 
+import java.io.IOException;
+
 import com.tsnsched.generated_scenarios.*;
 import com.tsnsched.core.interface_manager.JSONParser;
 import com.tsnsched.core.network.*;
@@ -50,6 +52,25 @@ public class Main {
 			
 			ScheduleGenerator gen = new ScheduleGenerator();
 			gen.setParameters(args);
+			
+			if(gen.getServerPort() > 0) {
+				try {
+					new ScheduleServer(args).start();
+				} catch (IOException e) {
+					System.out.println("[ERROR]: Can't start the server: " + e.getMessage());
+				}
+				return;
+			}
+			
+			if(gen.getBatchInput() != null) {
+				try {
+					new ScheduleBatch(args).run();
+				} catch (IOException e) {
+					System.out.println("[ERROR]: Can't run the batch: " + e.getMessage());
+				}
+				return;
+			}
+			
 			gen.generateSchedule(args[0]);
 			
 		}
@@ -23,6 +23,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 
 import com.microsoft.z3.*;
+import com.tsnsched.core.network.NetworkScope;
 
 import com.tsnsched.core.schedule_generator.SlotArrangementMode;
 
@@ -66,8 +67,6 @@ public class Cycle implements Serializable {
 
     private boolean wrapTransmission = false;
 
-	static int instanceCounter = 0;
-	static int cycleInstanceCounter = 0;
 	private int instance;
 	
 	private double upperBoundCycleTime;
@@ -113,9 +112,8 @@ public class Cycle implements Serializable {
                  double lowerBoundCycleTime, 
                  double maximumSlotDuration) {
     	
-    	instanceCounter++;        
-        this.instance = instanceCounter;
-        this.name = "cycle" + Integer.toString(instanceCounter);
+    	this.instance = NetworkScope.current().nextCycleInstance();
+        this.name = "cycle" + Integer.toString(this.instance);
         
         this.upperBoundCycleTime = upperBoundCycleTime;
         this.lowerBoundCycleTime = lowerBoundCycleTime;
@@ -125,9 +123,8 @@ public class Cycle implements Serializable {
     
     
     public Cycle(double maximumSlotDuration) {
-        instanceCounter++;        
-        this.instance = instanceCounter;
-        this.name = "cycle" + Integer.toString(instanceCounter);
+        this.instance = NetworkScope.current().nextCycleInstance();
+        this.name = "cycle" + Integer.toString(this.instance);
         
         this.maximumSlotDuration = maximumSlotDuration;
         this.firstCycleStart = 0;
@@ -152,9 +149,8 @@ public class Cycle implements Serializable {
                  double firstCycleStart,
                  double maximumSlotDuration) {
     	
-    	instanceCounter++;        
-        this.instance = instanceCounter;
-        this.name = "cycle" + Integer.toString(instanceCounter);
+    	this.instance = NetworkScope.current().nextCycleInstance();
+        this.name = "cycle" + Integer.toString(this.instance);
     	
         this.upperBoundCycleTime = upperBoundCycleTime;
         this.lowerBoundCycleTime = lowerBoundCycleTime;
@@ -180,9 +176,8 @@ public class Cycle implements Serializable {
                  RealExpr lowerBoundCycleTimeZ3, 
                  RealExpr firstCycleStartZ3,
                  RealExpr maximumSlotDurationZ3) {
-    	instanceCounter++;        
-        this.instance = instanceCounter;
-        this.name = "cycle" + Integer.toString(instanceCounter);
+    	this.instance = NetworkScope.current().nextCycleInstance();
+        this.name = "cycle" + Integer.toString(this.instance);
         
         // this.upperBoundCycleTimeZ3 = upperBoundCycleTimeZ3;
         // this.lowerBoundCycleTimeZ3 = lowerBoundCycleTimeZ3;
@@ -201,9 +196,10 @@ public class Cycle implements Serializable {
      */
     public void toZ3(Context ctx) {
         //instanceCounter++;
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
         
-        this.cycleDurationZ3 = ctx.mkRealConst("cycle" + Integer.toString(instance) + "Duration");
-        this.firstCycleStartZ3 = ctx.mkRealConst("cycle" + Integer.toString(instance) + "Start");
+        this.cycleDurationZ3 = cache.mkTimeConst("cycle" + Integer.toString(instance) + "Duration");
+        this.firstCycleStartZ3 = cache.mkTimeConst("cycle" + Integer.toString(instance) + "Start");
         // this.firstCycleStartZ3 = ctx.mkReal(Double.toString(0));
         // this.firstCycleStartZ3 = ctx.mkReal(Double.toString(firstCycleStart));
         this.maximumSlotDurationZ3 = ctx.mkReal(Double.toString(maximumSlotDuration));
@@ -215,10 +211,10 @@ public class Cycle implements Serializable {
         	this.slotStartZ3.add(new ArrayList<RealExpr>());
         	this.slotDurationZ3.add(new ArrayList<RealExpr>());
         	for(int j = 0; j < this.numOfSlots; j++) {
-        		this.slotStartZ3.get(i).add(ctx.mkRealConst(this.name + "prt" + (i+1) + "slot" + (j+1) + "start"));
+        		this.slotStartZ3.get(i).add(cache.mkTimeConst(this.name + "prt" + (i+1) + "slot" + (j+1) + "start"));
         	}
         	for(int j = 0; j < this.numOfSlots; j++) {
-        		this.slotDurationZ3.get(i).add(ctx.mkRealConst(this.name + "prt" + (i+1) + "slot" + (j+1) + "duration"));
+        		this.slotDurationZ3.get(i).add(cache.mkTimeConst(this.name + "prt" + (i+1) + "slot" + (j+1) + "duration"));
         	}
         }
     }
@@ -235,6 +231,12 @@ public class Cycle implements Serializable {
      * @return          Z3 variable containing the cycle start time
      */
     public RealExpr cycleStartZ3(Context ctx, IntExpr index){
+        Integer auxIndex = ExpressionCache.getCache(ctx).literalValueOf(index);
+        
+        if(auxIndex != null) {
+        	return this.cycleStartZ3(ctx, auxIndex);
+        }
+        
         return (RealExpr) ctx.mkITE( 
                 ctx.mkGe(index, ctx.mkInt(1)), 
                 ctx.mkAdd(
@@ -255,16 +257,24 @@ public class Cycle implements Serializable {
      * @return          Z3 variable containing the cycle start time
      */
     public RealExpr cycleStartZ3(Context ctx, int auxIndex){
-        IntExpr index = ctx.mkInt(auxIndex);
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
+        RealExpr cycleStart = cache.get(ExpressionCache.CYCLE_START, this, auxIndex);
         
-        return (RealExpr) ctx.mkITE( 
-                ctx.mkGe(index, ctx.mkInt(1)), 
+        if(cycleStart != null) {
+        	return cycleStart;
+        }
+        
+        IntExpr index = cache.mkInt(auxIndex);
+        
+        cycleStart = (RealExpr) ctx.mkITE( 
+                ctx.mkGe(index, cache.mkInt(1)), 
                 ctx.mkAdd(
                         firstCycleStartZ3,
                         ctx.mkMul(cycleDurationZ3, index)
                         ), 
                 firstCycleStartZ3);
-
+        
+        return cache.put(ExpressionCache.CYCLE_START, this, auxIndex, cycleStart);
      }
     
     
@@ -417,24 +427,32 @@ public class Cycle implements Serializable {
 
     
     public RealExpr slotStartZ3(Context ctx, IntExpr prt, IntExpr index) {
-        return ctx.mkRealConst(this.name + "priority" + prt.toString() + "slot" + index.toString() + "Start");
+        return ExpressionCache.getCache(ctx).slotVariable(ExpressionCache.SLOT_START, this, prt, index);
+    }
+    
+    public RealExpr slotStartZ3(Context ctx, IntExpr prt, int auxIndex) {
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
+        return cache.slotVariable(ExpressionCache.SLOT_START, this, prt, cache.mkInt(auxIndex));
     }
     
     public RealExpr slotStartZ3(Context ctx, int auxPrt, int auxIndex) {
-        IntExpr index = ctx.mkInt(auxIndex);
-        IntExpr prt = ctx.mkInt(auxPrt);
-        return ctx.mkRealConst(this.name + "priority" + prt.toString() + "slot" + index.toString() + "Start");
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
+        return cache.slotVariable(ExpressionCache.SLOT_START, this, cache.mkInt(auxPrt), cache.mkInt(auxIndex));
     }
     
    
     public RealExpr slotDurationZ3(Context ctx, IntExpr prt, IntExpr index) {
-        return ctx.mkRealConst(this.name + "priority" + prt.toString() + "slot" + index.toString() + "Duration");
+        return ExpressionCache.getCache(ctx).slotVariable(ExpressionCache.SLOT_DURATION, this, prt, index);
+    }
+    
+    public RealExpr slotDurationZ3(Context ctx, IntExpr prt, int auxIndex) {
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
+        return cache.slotVariable(ExpressionCache.SLOT_DURATION, this, prt, cache.mkInt(auxIndex));
     }
     
     public RealExpr slotDurationZ3(Context ctx, int auxPrt, int auxIndex) {
-        IntExpr index = ctx.mkInt(auxIndex);
-        IntExpr prt = ctx.mkInt(auxPrt);
-        return ctx.mkRealConst(this.name + "priority" + prt.toString() + "slot" + index.toString() + "Duration");
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
+        return cache.slotVariable(ExpressionCache.SLOT_DURATION, this, cache.mkInt(auxPrt), cache.mkInt(auxIndex));
     }
 
     public RealExpr getCycleDurationZ3() {
@@ -559,6 +577,19 @@ public class Cycle implements Serializable {
 	}
 
 
+	public int getNumOfSlots() {
+		return numOfSlots;
+	}
+
+	public ArrayList<Integer> getNumOfSlotsPerPrt() {
+		return numOfSlotsPerPrt;
+	}
+
+	public void setNumOfSlotsPerPrt(ArrayList<Integer> numOfSlotsPerPrt) {
+		this.numOfSlotsPerPrt = numOfSlotsPerPrt;
+	}
+
+
     public SlotArrangementMode getSlotArrangementMode() {
 		return slotArrangementMode;
 	}
@@ -0,0 +1,417 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.components;
+
+import java.util.*;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: ExpressionCache
+ * [Usage]: Interns the z3 expressions built repeatedly while setting
+ * up the scheduling rules (packet times, slot variables, cycle starts
+ * and numeric literals). There is one cache per z3 context, retrieved
+ * with getCache and released when the context is closed.
+ *
+ * Expressions are stored by identity of their owner (fragment or cycle)
+ * and by index, so a hit costs no string concatenation and no call to
+ * the z3 native library.
+ *
+ * The cache also holds the tick of the time encoding of its context.
+ * With a tick, the time variables created with mkTimeConst are integer
+ * numbers of ticks scaled to real values, so every value of the model
+ * is a multiple of the tick. Latency, jitter and the constants of the
+ * rules stay real, so the rules are mixed integer/real and tactics for
+ * pure integer arithmetic (e.g. qflia) don't apply to them.
+ */
+public class ExpressionCache {
+
+	public static final int SCHEDULED_TIME = 0;
+	public static final int ARRIVAL_TIME = 1;
+	public static final int DEPARTURE_TIME = 2;
+	public static final int CYCLE_START = 3;
+	public static final int SLOT_START = 4;
+	public static final int SLOT_DURATION = 5;
+	public static final int LITERAL = 6;
+
+	private static final String[] KIND_NAMES = {
+		"scheduledTime", "arrivalTime", "departureTime", "cycleStart", "slotStart", "slotDuration", "literal"
+	};
+
+	private static final int SMALL_INT_RANGE = 1024;
+
+	private static Map<Context, ExpressionCache> caches =
+			Collections.synchronizedMap(new HashMap<Context, ExpressionCache>());
+
+	private Context ctx;
+	private double tick = 0;
+
+	// Packet times and cycle starts: owner -> expressions by index
+	private ArrayList<IdentityHashMap<Object, ArrayList<RealExpr>>> indexedExpressions =
+			new ArrayList<IdentityHashMap<Object, ArrayList<RealExpr>>>();
+
+	// Slot variables: cycle -> priority expression -> index expression -> variable
+	private ArrayList<IdentityHashMap<Cycle, IdentityHashMap<IntExpr, IdentityHashMap<IntExpr, RealExpr>>>> slotExpressions =
+			new ArrayList<IdentityHashMap<Cycle, IdentityHashMap<IntExpr, IdentityHashMap<IntExpr, RealExpr>>>>();
+
+	private IntExpr[] smallInts = new IntExpr[SMALL_INT_RANGE];
+	private HashMap<Integer, IntExpr> ints = new HashMap<Integer, IntExpr>();
+	private IdentityHashMap<IntExpr, Integer> intValues = new IdentityHashMap<IntExpr, Integer>();
+	private HashMap<Double, RealExpr> reals = new HashMap<Double, RealExpr>();
+	private IdentityHashMap<IntExpr, String> exprNames = new IdentityHashMap<IntExpr, String>();
+
+	private long[] hits = new long[KIND_NAMES.length];
+	private long[] misses = new long[KIND_NAMES.length];
+
+
+	private ExpressionCache(Context ctx) {
+		this.ctx = ctx;
+
+		for(int i = 0; i <= CYCLE_START; i++) {
+			this.indexedExpressions.add(new IdentityHashMap<Object, ArrayList<RealExpr>>());
+		}
+		for(int i = 0; i < 2; i++) {
+			this.slotExpressions.add(new IdentityHashMap<Cycle, IdentityHashMap<IntExpr, IdentityHashMap<IntExpr, RealExpr>>>());
+		}
+	}
+
+
+	/**
+	 * [Method]: getCache
+	 * [Usage]: Returns the cache of the given context, creating
+	 * it on the first call.
+	 *
+	 * @param ctx		z3 context of the cached expressions
+	 * @return			Cache of the context
+	 */
+	public static ExpressionCache getCache(Context ctx) {
+		synchronized(caches) {
+			ExpressionCache cache = caches.get(ctx);
+
+			if(cache == null) {
+				cache = new ExpressionCache(ctx);
+				caches.put(ctx, cache);
+			}
+
+			return cache;
+		}
+	}
+
+	/**
+	 * [Method]: releaseCache
+	 * [Usage]: Drops the cache of a context. Must be called before
+	 * closing the context, as its expressions can't be used afterwards.
+	 *
+	 * @param ctx		z3 context of the cached expressions
+	 * @return			The released cache, or null if the context had none
+	 */
+	public static ExpressionCache releaseCache(Context ctx) {
+		return caches.remove(ctx);
+	}
+
+
+	/**
+	 * [Method]: get
+	 * [Usage]: Retrieves an expression indexed by an owner (flow fragment
+	 * or cycle) and an index. Counts a hit or a miss for the given kind.
+	 *
+	 * @param kind		SCHEDULED_TIME, ARRIVAL_TIME, DEPARTURE_TIME or CYCLE_START
+	 * @param owner		Object that owns the expression
+	 * @param index		Index of the packet or cycle
+	 * @return			The cached expression or null
+	 */
+	public RealExpr get(int kind, Object owner, int index) {
+		ArrayList<RealExpr> expressions = this.indexedExpressions.get(kind).get(owner);
+
+		if(expressions != null && index < expressions.size() && expressions.get(index) != null) {
+			this.hits[kind]++;
+			return expressions.get(index);
+		}
+
+		this.misses[kind]++;
+		return null;
+	}
+
+	/**
+	 * [Method]: put
+	 * [Usage]: Stores an expression indexed by an owner and an index.
+	 *
+	 * @param kind		SCHEDULED_TIME, ARRIVAL_TIME, DEPARTURE_TIME or CYCLE_START
+	 * @param owner		Object that owns the expression
+	 * @param index		Index of the packet or cycle
+	 * @param expr		Expression to be stored
+	 * @return			The stored expression
+	 */
+	public RealExpr put(int kind, Object owner, int index, RealExpr expr) {
+		ArrayList<RealExpr> expressions = this.indexedExpressions.get(kind).get(owner);
+
+		if(expressions == null) {
+			expressions = new ArrayList<RealExpr>();
+			this.indexedExpressions.get(kind).put(owner, expressions);
+		}
+
+		while(expressions.size() <= index) {
+			expressions.add(null);
+		}
+
+		expressions.set(index, expr);
+
+		return expr;
+	}
+
+	/**
+	 * [Method]: remove
+	 * [Usage]: Drops the expressions of a kind indexed by an owner. Used
+	 * when the values the expressions were built from (e.g. the cycle
+	 * range of a port) change.
+	 *
+	 * @param kind		SCHEDULED_TIME, ARRIVAL_TIME, DEPARTURE_TIME or CYCLE_START
+	 * @param owner		Object that owns the expressions
+	 */
+	public void remove(int kind, Object owner) {
+		this.indexedExpressions.get(kind).remove(owner);
+	}
+
+
+	/**
+	 * [Method]: slotVariable
+	 * [Usage]: Returns the z3 variable of a slot start or duration of a
+	 * cycle. The priority is usually the priority variable of a fragment,
+	 * and the index an interned literal, so both are compared by identity.
+	 *
+	 * @param kind		SLOT_START or SLOT_DURATION
+	 * @param cycle		Cycle of the slot
+	 * @param prt		Priority of the slot as a z3 expression
+	 * @param index		Index of the slot as a z3 expression
+	 * @return			The z3 variable of the slot property
+	 */
+	public RealExpr slotVariable(int kind, Cycle cycle, IntExpr prt, IntExpr index) {
+		IdentityHashMap<IntExpr, IdentityHashMap<IntExpr, RealExpr>> cycleSlots =
+				this.slotExpressions.get(kind - SLOT_START).get(cycle);
+
+		if(cycleSlots == null) {
+			cycleSlots = new IdentityHashMap<IntExpr, IdentityHashMap<IntExpr, RealExpr>>();
+			this.slotExpressions.get(kind - SLOT_START).put(cycle, cycleSlots);
+		}
+
+		IdentityHashMap<IntExpr, RealExpr> prtSlots = cycleSlots.get(prt);
+
+		if(prtSlots == null) {
+			prtSlots = new IdentityHashMap<IntExpr, RealExpr>();
+			cycleSlots.put(prt, prtSlots);
+		}
+
+		RealExpr slotVariable = prtSlots.get(index);
+
+		if(slotVariable != null) {
+			this.hits[kind]++;
+			return slotVariable;
+		}
+
+		this.misses[kind]++;
+
+		slotVariable = this.mkTimeConst(
+			cycle.getName() + "priority" + this.nameOf(prt) + "slot" + this.nameOf(index) +
+			(kind == SLOT_START ? "Start" : "Duration")
+		);
+		prtSlots.put(index, slotVariable);
+
+		return slotVariable;
+	}
+
+
+	/**
+	 * [Method]: mkTimeConst
+	 * [Usage]: Creates a z3 variable for a time value. Without a tick it
+	 * is a real variable. With a tick, it is an integer variable with the
+	 * given name, counting ticks, multiplied by the tick and converted to
+	 * a real, so it can be used in the same rules as the real values.
+	 *
+	 * @param name		Name of the variable
+	 * @return			Real expression of the time variable
+	 */
+	public RealExpr mkTimeConst(String name) {
+		if(!this.isTickDomain()) {
+			return this.ctx.mkRealConst(name);
+		}
+
+		return (RealExpr) this.ctx.mkMul(
+			this.mkReal(this.tick),
+			this.ctx.mkInt2Real(this.ctx.mkIntConst(name))
+		);
+	}
+
+
+	/**
+	 * [Method]: mkInt
+	 * [Usage]: Returns an interned integer literal.
+	 *
+	 * @param value		Value of the literal
+	 * @return			z3 integer literal
+	 */
+	public IntExpr mkInt(int value) {
+		IntExpr literal = (value >= 0 && value < SMALL_INT_RANGE) ? this.smallInts[value] : this.ints.get(value);
+
+		if(literal != null) {
+			this.hits[LITERAL]++;
+			return literal;
+		}
+
+		this.misses[LITERAL]++;
+		literal = this.ctx.mkInt(value);
+
+		if(value >= 0 && value < SMALL_INT_RANGE) {
+			this.smallInts[value] = literal;
+		} else {
+			this.ints.put(value, literal);
+		}
+		this.intValues.put(literal, value);
+
+		return literal;
+	}
+
+	/**
+	 * [Method]: mkReal
+	 * [Usage]: Returns an interned real literal. Equivalent to
+	 * ctx.mkReal(Double.toString(value)).
+	 *
+	 * @param value		Value of the literal
+	 * @return			z3 real literal
+	 */
+	public RealExpr mkReal(double value) {
+		RealExpr literal = this.reals.get(value);
+
+		if(literal != null) {
+			this.hits[LITERAL]++;
+			return literal;
+		}
+
+		this.misses[LITERAL]++;
+		literal = this.ctx.mkReal(Double.toString(value));
+		this.reals.put(value, literal);
+
+		return literal;
+	}
+
+	/**
+	 * [Method]: intValueOf
+	 * [Usage]: Returns the value of an integer literal. Literals created
+	 * by this cache are resolved without calling z3.
+	 *
+	 * @param literal	z3 integer literal
+	 * @return			Integer value of the literal
+	 */
+	public int intValueOf(IntExpr literal) {
+		Integer value = this.intValues.get(literal);
+
+		if(value != null) {
+			return value;
+		}
+
+		return Integer.parseInt(literal.toString());
+	}
+
+	/**
+	 * [Method]: literalValueOf
+	 * [Usage]: Returns the value of an integer literal created by this
+	 * cache, or null if the expression was not created by it.
+	 *
+	 * @param expr		z3 integer expression
+	 * @return			Integer value of the literal or null
+	 */
+	public Integer literalValueOf(IntExpr expr) {
+		return this.intValues.get(expr);
+	}
+
+	private String nameOf(IntExpr expr) {
+		Integer value = this.intValues.get(expr);
+
+		if(value != null) {
+			return Integer.toString(value);
+		}
+
+		String name = this.exprNames.get(expr);
+
+		if(name == null) {
+			name = expr.toString();
+			this.exprNames.put(expr, name);
+		}
+
+		return name;
+	}
+
+
+	/**
+	 * [Method]: getStatistics
+	 * [Usage]: Returns a line with the hits and misses of each
+	 * kind of expression cached.
+	 *
+	 * @return		String with the cache statistics
+	 */
+	public String getStatistics() {
+		StringBuilder statistics = new StringBuilder();
+
+		for(int kind = 0; kind < KIND_NAMES.length; kind++) {
+			statistics.append(KIND_NAMES[kind] + ": " + this.hits[kind] + " hits, " + this.misses[kind] + " misses");
+			if(kind < KIND_NAMES.length - 1) {
+				statistics.append("; ");
+			}
+		}
+
+		return statistics.toString();
+	}
+
+	public double getTick() {
+		return this.tick;
+	}
+
+	public void setTick(double tick) {
+		this.tick = tick;
+	}
+
+	public Boolean isTickDomain() {
+		return this.tick > 0;
+	}
+
+	public long getHits(int kind) {
+		return this.hits[kind];
+	}
+
+	public long getMisses(int kind) {
+		return this.misses[kind];
+	}
+
+	public long getTotalHits() {
+		long total = 0;
+		for(long value : this.hits) {
+			total += value;
+		}
+		return total;
+	}
+
+	public long getTotalMisses() {
+		long total = 0;
+		for(long value : this.misses) {
+			total += value;
+		}
+		return total;
+	}
+
+}
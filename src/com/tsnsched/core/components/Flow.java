@@ -20,14 +20,15 @@ package com.tsnsched.core.components;
 
 
 import java.io.Serializable;
+import java.math.RoundingMode;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
 import com.microsoft.z3.*;
 import com.tsnsched.core.interface_manager.Printer;
 import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
 import com.tsnsched.core.nodes.Device;
 import com.tsnsched.core.nodes.Switch;
 import com.tsnsched.core.nodes.TSNSwitch;
@@ -50,7 +51,6 @@ public class Flow implements Serializable {
 	private Boolean isModifiedOrCreated = false;
 
 	private static final long serialVersionUID = 1L;
-	static int instanceCounter = 0;
 	private int instance = 0;
 
 	private Printer printer;    
@@ -110,10 +110,8 @@ public class Flow implements Serializable {
      * @param type      Value specifying the type of the flow (0 - Unicast; 1 - Publish subscribe)
      */
     public Flow(int type) {
-        instanceCounter++;
-        
-        this.instance = instanceCounter;
-        this.name = "flow" + Integer.toString(instanceCounter);
+        this.instance = NetworkScope.current().nextFlowInstance();
+        this.name = "flow" + Integer.toString(this.instance);
 
         if(type == UNICAST) {
             //Its not a unicast flow
@@ -125,16 +123,14 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            NetworkScope.current().releaseFlowInstance();
             //[TODO]: Throw error
         }
    
     }
 
     public Flow(String name, int type) {
-        instanceCounter++;
-        
-        this.instance = instanceCounter;
+        this.instance = NetworkScope.current().nextFlowInstance();
         this.name = name;
 
         if(type == UNICAST) {
@@ -147,7 +143,7 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            NetworkScope.current().releaseFlowInstance();
             //[TODO]: Throw error
         }
    
@@ -161,9 +157,8 @@ public class Flow implements Serializable {
      * @param type      Value specifying the type of the flow (0 - Unicast; 1 - Publish subscribe)
      */
     public Flow(int type, double flowFirstSendingTime, double flowSendingPeriodicity) {
-        instanceCounter++;
-        this.instance = instanceCounter;
-        this.name = "flow" + Integer.toString(instanceCounter);
+        this.instance = NetworkScope.current().nextFlowInstance();
+        this.name = "flow" + Integer.toString(this.instance);
 
         if(type == UNICAST) {
             //Its not a unicast flow
@@ -175,7 +170,7 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            NetworkScope.current().releaseFlowInstance();
             //[TODO]: Throw error
         }
 
@@ -186,8 +181,7 @@ public class Flow implements Serializable {
     }
 
     public Flow(String name, int type, double flowFirstSendingTime, double flowSendingPeriodicity) {
-        instanceCounter++;
-        this.instance = instanceCounter;
+        this.instance = NetworkScope.current().nextFlowInstance();
         this.name = name;
 
         if(type == UNICAST) {
@@ -200,7 +194,7 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            NetworkScope.current().releaseFlowInstance();
             //[TODO]: Throw error
         }
 
@@ -286,6 +280,7 @@ public class Flow implements Serializable {
      * @param ctx      Context variable containing the z3 environment used
      */
     public void toZ3(Context ctx) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
 
         if(this.type == UNICAST) { // If flow is unicast
             // Convert start device to z3
@@ -317,12 +312,12 @@ public class Flow implements Serializable {
             if(this.priorityValue < 0 || this.priorityValue > 7) {
             	this.flowPriority = ctx.mkIntConst(this.name + "Priority");
             } else {
-            	this.flowPriority = ctx.mkInt(this.priorityValue);
+            	this.flowPriority = cache.mkInt(this.priorityValue);
             }
             
-            this.flowFirstSendingTimeZ3 = ctx.mkRealConst("flow" + this.instance + "FirstSendingTime");
+            this.flowFirstSendingTimeZ3 = cache.mkTimeConst("flow" + this.instance + "FirstSendingTime");
 
-            this.flowSendingPeriodicityZ3 = ctx.mkReal(Double.toString(this.flowSendingPeriodicity));
+            this.flowSendingPeriodicityZ3 = cache.mkReal(this.flowSendingPeriodicity);
 
          
             //this.printer.printIfLoggingIsEnabled("On flow " + this.name + " - " + this.flowSendingPeriodicityZ3 + "; " + this.flowFirstSendingTimeZ3 );
@@ -344,8 +339,9 @@ public class Flow implements Serializable {
      * @param node      A node of the pathTree
      */
     public FlowFragment nodeToZ3(Context ctx, PathNode node, FlowFragment frag) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
         FlowFragment flowFrag = null;
-        int numberOfPackets = Network.PACKETUPPERBOUNDRANGE;
+        int numberOfPackets = NetworkScope.current().getPacketUpperBoundRange();
 
         /*
         this.printer.printIfLoggingIsEnabled("On node " +
@@ -390,7 +386,10 @@ public class Flow implements Serializable {
                 }
 
                 if(((TSNSwitch)auxN.getNode()).getPortOf(flowFrag.getNextHop()).checkIfAutomatedApplicationPeriod()) {
-                    numberOfPackets = (int) (((TSNSwitch)auxN.getNode()).getPortOf(flowFrag.getNextHop()).getDefinedHyperCycleSize()/this.flowSendingPeriodicity);
+                    numberOfPackets = PeriodArithmetic.packetsPerPeriod(
+                    		((TSNSwitch)auxN.getNode()).getPortOf(flowFrag.getNextHop()).getDefinedHyperCycleSize(),
+                    		this.flowSendingPeriodicity
+            		);
                     flowFrag.setNumOfPacketsSent(numberOfPackets);
                 }
 
@@ -409,7 +408,7 @@ public class Flow implements Serializable {
                         flowFrag.addDepartureTimeZ3(
                                 (RealExpr) ctx.mkAdd(
                                         this.flowFirstSendingTimeZ3,
-                                        ctx.mkReal(Double.toString(this.flowSendingPeriodicity * i))
+                                        cache.mkReal(this.flowSendingPeriodicity * i)
                                 )
                         );
                         /**/
@@ -417,6 +416,7 @@ public class Flow implements Serializable {
 
 
                 } else { // Fragment first departure = last fragment scheduled time
+                    FlowFragment parentFrag = auxN.getParent().getFlowFragments().get(auxN.getParent().getChildren().indexOf(auxN));
 
                     for (int i = 0; i < numberOfPackets; i++) {
 
@@ -425,7 +425,7 @@ public class Flow implements Serializable {
                                         .scheduledTime(
                                                 ctx,
                                                 i,
-                                                auxN.getParent().getFlowFragments().get(auxN.getParent().getChildren().indexOf(auxN))
+                                                parentFrag
                                         )
                         );
 
@@ -443,7 +443,7 @@ public class Flow implements Serializable {
                     flowFrag.setFragmentPriorityZ3(ctx.mkIntConst(flowFrag.getName() + "Priority"));
                 }
 
-                int portIndex = ((TSNSwitch) auxN.getNode()).getConnectsTo().indexOf(flowFrag.getNextHop());
+                int portIndex = ((TSNSwitch) auxN.getNode()).getPortIndexOf(flowFrag.getNextHop());
                 flowFrag.setPort(
                         ((TSNSwitch) auxN.getNode())
                                 .getPorts().get(portIndex)
@@ -456,7 +456,7 @@ public class Flow implements Serializable {
                 }
 
                 flowFrag.setPacketPeriodicityZ3(this.flowSendingPeriodicityZ3);
-                flowFrag.setPacketSizeZ3(ctx.mkReal(Double.toString(this.packetSize)));
+                flowFrag.setPacketSizeZ3(cache.mkReal(this.packetSize));
                 flowFrag.setStartDevice(this.startDevice);
                 flowFrag.setReferenceToNode(auxN);
 
@@ -503,6 +503,7 @@ public class Flow implements Serializable {
      * @param currentSwitchIndex    Index of the current switch in the path on the iteration
      */
     public void pathToZ3(Context ctx, Switch swt, int currentSwitchIndex) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
         // Flow fragment is created
         FlowFragment flowFrag = new FlowFragment(this);
         
@@ -514,16 +515,16 @@ public class Flow implements Serializable {
         if(flowFragments.size() == 0) { 
             // If no flowFragment has been added to the path, flowPriority is null, so initiate it
             //flowFrag.setNodeName(this.startDevice.getName());
-            for (int i = 0; i < Network.PACKETUPPERBOUNDRANGE; i++) {
+            for (int i = 0; i < NetworkScope.current().getPacketUpperBoundRange(); i++) {
                 flowFrag.addDepartureTimeZ3( // Packet departure constraint
                     (RealExpr) ctx.mkAdd(
                         this.flowFirstSendingTimeZ3,
-                        ctx.mkReal(Double.toString(this.flowSendingPeriodicity * i))
+                        cache.mkReal(this.flowSendingPeriodicity * i)
                     )
                 );
             }
         } else { 
-            for (int i = 0; i < Network.PACKETUPPERBOUNDRANGE; i++) {
+            for (int i = 0; i < NetworkScope.current().getPacketUpperBoundRange(); i++) {
                 flowFrag.addDepartureTimeZ3(
                     ((TSNSwitch) path.get(currentSwitchIndex - 1)).scheduledTime(ctx, i, flowFragments.get(flowFragments.size() - 1))
                 );
@@ -534,7 +535,7 @@ public class Flow implements Serializable {
         // Setting extra flow properties
         flowFrag.setFragmentPriorityZ3(ctx.mkIntConst(flowFrag.getName() + "Priority"));
         flowFrag.setPacketPeriodicityZ3(this.flowSendingPeriodicityZ3);
-        flowFrag.setPacketSizeZ3(ctx.mkReal(Double.toString(this.packetSize)));
+        flowFrag.setPacketSizeZ3(cache.mkReal(this.packetSize));
 
         /*
          * If index of current switch = last switch in the path, then 
@@ -596,6 +597,7 @@ public class Flow implements Serializable {
     
     
     public void assertFirstSendingTime(Solver solver, Context ctx) {
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
 
         double firstPortSpeed = ((TSNSwitch) this.pathTree
                                     .getRoot()
@@ -616,7 +618,10 @@ public class Flow implements Serializable {
 
         double firstPortCycleDuration = getFirstHopCycleDuration();
 
-        if(this.getPacketSize()/firstPortSpeed >= this.flowFirstSendingTime && (this.flowFirstSendingTime>=0)){
+        // Rounded up to the tick like the transmission times of the ports
+        double firstTransmissionTime = PeriodArithmetic.quantize(this.getPacketSize()/firstPortSpeed, cache.getTick(), RoundingMode.UP);
+
+        if(firstTransmissionTime >= this.flowFirstSendingTime && (this.flowFirstSendingTime>=0)){
             this.printer.printIfLoggingIsEnabled("Alert: First packet of flow " + this.name + " must have enough time to leave source. Making first sending time a variable.");
             this.flowFirstSendingTime = -1;
         }
@@ -628,7 +633,7 @@ public class Flow implements Serializable {
             solver.add(
                 ctx.mkEq(
                     this.flowFirstSendingTimeZ3,
-                    ctx.mkReal(Double.toString(this.flowFirstSendingTime))
+                    cache.mkReal(this.flowFirstSendingTime)
                 )
             );
 
@@ -640,7 +645,7 @@ public class Flow implements Serializable {
         solver.add(
             ctx.mkGe(
                 this.flowFirstSendingTimeZ3,
-                ctx.mkReal(Double.toString(this.getPacketSize()/firstPortSpeed))
+                cache.mkReal(firstTransmissionTime)
                 //ctx.mkReal(Double.toString(0))
             )
         );
@@ -653,7 +658,7 @@ public class Flow implements Serializable {
                 this.flowFirstSendingTimeZ3,
                 ctx.mkAdd(
                     firstPortCycleStart,
-                    ctx.mkReal(Double.toString(firstPortCycleDuration))
+                    cache.mkReal(firstPortCycleDuration)
                 )
             )
         );
@@ -662,6 +667,41 @@ public class Flow implements Serializable {
 
     }
 
+    /**
+     * [Method]: getEarliestFirstSendingTime
+     * [Usage]: Returns the lowest value that the first sending time of 
+     * this flow can take, according to the rules of assertFirstSendingTime.
+     * 
+     * @return      Lower bound of the first sending time
+     */
+    public double getEarliestFirstSendingTime() {
+    	double firstTransmissionTime = this.getPacketSize()/this.getFirstPortSpeed();
+    	
+    	if(this.flowFirstSendingTime >= 0 && firstTransmissionTime < this.flowFirstSendingTime) {
+    		return this.flowFirstSendingTime;
+    	}
+    	
+    	return firstTransmissionTime;
+    }
+    
+    /**
+     * [Method]: getLatestFirstSendingTime
+     * [Usage]: Returns the highest value that the first sending time of 
+     * this flow can take, according to the rules of assertFirstSendingTime.
+     * Cycles start at 0, as stated by the switches.
+     * 
+     * @return      Upper bound of the first sending time
+     */
+    public double getLatestFirstSendingTime() {
+    	double firstTransmissionTime = this.getPacketSize()/this.getFirstPortSpeed();
+    	
+    	if(this.flowFirstSendingTime >= 0 && firstTransmissionTime < this.flowFirstSendingTime) {
+    		return this.flowFirstSendingTime;
+    	}
+    	
+    	return this.getFirstHopCycleDuration();
+    }
+    
     public double getFirstHopCycleDuration(){
         PathNode firstNode = this.pathTree
                 .getRoot()
@@ -693,98 +733,78 @@ public class Flow implements Serializable {
      * [Method]: getFlowFromRootToNode
      * [Usage]: Given an end device of a publish subscriber flow, or in other
      * words, a leaf in the pathTree, returns the flow fragments used to go from
-     * the root to the leaf.
+     * the root to the leaf. The list is kept by the pathTree until the tree
+     * changes, so it can't be modified.
      * 
      * @param endDevice     End device (leaf) of the desired path
-     * @return              ArrayList of flow fragments containing every flow fragment from source to destination
+     * @return              List of flow fragments containing every flow fragment from source to destination
      */
-    public ArrayList<FlowFragment> getFlowFromRootToNode(Device endDevice){
-        ArrayList<FlowFragment> flowFragments = new ArrayList<FlowFragment>();
-        ArrayList<Device> flowEndDevices = new ArrayList<Device>();
-        PathNode auxNode = null;
-        
-        
-        // Iterate over leaves, get reference to the leaf of end device
-        for(PathNode node : this.pathTree.getLeaves()) {
-            flowEndDevices.add((Device) node.getNode());
-            
-            if((node.getNode() instanceof Device) &&
-               ((Device) node.getNode()).getName().equals(endDevice.getName())) {
-                auxNode = node;
-            }
-        } 
+    public List<FlowFragment> getFlowFromRootToNode(Device endDevice){
+        LeafPath leafPath = this.getPathTo(endDevice);
         
         // If no leaf contains the desired end device, throw error returns null
-        if(!flowEndDevices.contains(endDevice)) {
+        if(leafPath == null) {
             // TODO [Priority: Low]: Throw error
             return null;
         }
         
-        // Goes from parent to parent adding flowFragments to the list
-        while(auxNode.getParent().getParent() != null) {
-            flowFragments.add(
-                auxNode.getParent().getFlowFragments().get(
-                    auxNode.getParent().getChildren().indexOf(auxNode)
-                )
-            );
-            
-            auxNode = auxNode.getParent();
-        }
+        return leafPath.getFlowFragments();
+    }
+    
+    /**
+     * [Method]: getLeafOf
+     * [Usage]: Returns the leaf of the path tree that reaches the end
+     * device with the given name, through the index of the leaves kept
+     * by the path tree. If more than one leaf reaches it, the last one
+     * is returned.
+     * 
+     * @param deviceName    Name of the end device
+     * @return              Leaf of the end device, or null if not found
+     */
+    public PathNode getLeafOf(String deviceName) {
+        PathNode leaf = this.pathTree.getLeafOf(deviceName);
         
-        /*
-         * Since the fragments were added from end device to start device,
-         * reverse array list.
-         */
+        return leaf != null && leaf.getNode() instanceof Device ? leaf : null;
+    }
+    
+    /**
+     * [Method]: getPathTo
+     * [Usage]: Returns the path of the path tree from the publisher
+     * to the given end device, with its nodes and flow fragments.
+     * 
+     * @param endDevice     End device (leaf) of the desired path
+     * @return              Path to the end device, or null if not found
+     */
+    public LeafPath getPathTo(Device endDevice) {
+        PathNode leaf = this.getLeafOf(endDevice.getName());
         
-        Collections.reverse(flowFragments);
+        if(leaf == null || leaf.getNode() != endDevice) {
+            return null;
+        }
         
-        return flowFragments;
+        return this.pathTree.getPathTo(leaf);
     }
     
     /**
      * [Method]: getNodesFromRootToNode
      * [Usage]: Given an end device of a publish subscriber flow, or in other
      * words, a leaf in the pathTree, returns the nodes of the path used to go from
-     * the root to the leaf.
+     * the root to the leaf. The list is kept by the pathTree until the tree
+     * changes, so it can't be modified.
      * 
      * @param endDevice     End device (leaf) of the desired path
-     * @return              ArrayList of nodes containing every node from source to destination
+     * @return              List of nodes containing every node from source to destination
      */
-    public ArrayList<PathNode> getNodesFromRootToNode(Device endDevice){
-        ArrayList<PathNode> pathNodes = new ArrayList<PathNode>();
-        ArrayList<Device> flowEndDevices = new ArrayList<Device>();
-        PathNode auxNode = null;
-        
-        // Iterate over leaves, get reference to the leaf of end device
-        for(PathNode node : this.pathTree.getLeaves()) {
-            flowEndDevices.add((Device) node.getNode());
-            if((node.getNode() instanceof Device) &&
-               ((Device) node.getNode()).getName().equals(endDevice.getName())) {
-                auxNode = node;
-            }
-        } 
+    public List<PathNode> getNodesFromRootToNode(Device endDevice){
+        LeafPath leafPath = this.getPathTo(endDevice);
         
         // If no leaf contains the desired end device, throw error returns null
-        if(!flowEndDevices.contains(endDevice)) {
+        if(leafPath == null) {
             // TODO [Priority: Low]: Throw error
             return null;
         }
         
-        // Goes from parent to parent adding nodes to the list
-        while(auxNode != null) {
-            pathNodes.add(auxNode);
-            
-            auxNode = auxNode.getParent();
-        }
-        
-        /*
-         * Since the nodes were added from end device to start device,
-         * reverse array list.
-         */
-        
-        Collections.reverse(pathNodes);
-        
-        return pathNodes;
+        return leafPath.getNodes();
     }
     
     
@@ -861,17 +881,9 @@ public class Flow implements Serializable {
      */
     public double getDepartureTime(String deviceName, int hop, int packetNum) {
         double time;
-        Device targetDevice = null;
-        ArrayList<FlowFragment> auxFlowFragments;
-        
-        for(Object node : this.pathTree.getLeaves()) {
-            if(node instanceof Device) {
-                if(((Device) node).getName().equals(deviceName)) {
-                    targetDevice = (Device) node;
-                }
-            }
-            
-        }
+        PathNode leaf = this.getLeafOf(deviceName);
+        Device targetDevice = leaf != null ? (Device) leaf.getNode() : null;
+        List<FlowFragment> auxFlowFragments;
         
         if(targetDevice == null) {
             //TODO: Throw error
@@ -898,11 +910,7 @@ public class Flow implements Serializable {
      */
     public double getDepartureTime(Device targetDevice, int hop, int packetNum) {
         double time;
-        ArrayList<FlowFragment> auxFlowFragments;
-        
-        if(!this.pathTree.getLeaves().contains(targetDevice)) {
-            //TODO: Throw error
-        }
+        List<FlowFragment> auxFlowFragments;
         
         auxFlowFragments = this.getFlowFromRootToNode(targetDevice);
         
@@ -945,17 +953,9 @@ public class Flow implements Serializable {
      */
     public double getArrivalTime(String deviceName, int hop, int packetNum) {
         double time;
-        Device targetDevice = null;
-        ArrayList<FlowFragment> auxFlowFragments;
-        
-        for(Object node : this.pathTree.getLeaves()) {
-            if(node instanceof Device) {
-                if(((Device) node).getName().equals(deviceName)) {
-                    targetDevice = (Device) node;
-                }
-            }
-            
-        }
+        PathNode leaf = this.getLeafOf(deviceName);
+        Device targetDevice = leaf != null ? (Device) leaf.getNode() : null;
+        List<FlowFragment> auxFlowFragments;
         
         if(targetDevice == null) {
             //TODO: Throw error
@@ -983,11 +983,7 @@ public class Flow implements Serializable {
      */
     public double getArrivalTime(Device targetDevice, int hop, int packetNum) {
         double time;
-        ArrayList<FlowFragment> auxFlowFragments;
-        
-        if(!this.pathTree.getLeaves().contains(targetDevice)) {
-            //TODO: Throw error
-        }
+        List<FlowFragment> auxFlowFragments;
         
         auxFlowFragments = this.getFlowFromRootToNode(targetDevice);
         
@@ -1029,17 +1025,9 @@ public class Flow implements Serializable {
      */
     public double getScheduledTime(String deviceName, int hop, int packetNum) {
         double time;
-        Device targetDevice = null;
-        ArrayList<FlowFragment> auxFlowFragments;
-        
-        for(Object node : this.pathTree.getLeaves()) {
-            if(node instanceof Device) {
-                if(((Device) node).getName().equals(deviceName)) {
-                    targetDevice = (Device) node;
-                }
-            }
-            
-        }
+        PathNode leaf = this.getLeafOf(deviceName);
+        Device targetDevice = leaf != null ? (Device) leaf.getNode() : null;
+        List<FlowFragment> auxFlowFragments;
         
         if(targetDevice == null) {
             //TODO: Throw error
@@ -1066,11 +1054,7 @@ public class Flow implements Serializable {
      */
     public double getScheduledTime(Device targetDevice, int hop, int packetNum) {
         double time;
-        ArrayList<FlowFragment> auxFlowFragments;
-        
-        if(!this.pathTree.getLeaves().contains(targetDevice)) {
-            //TODO: Throw error
-        }
+        List<FlowFragment> auxFlowFragments;
         
         auxFlowFragments = this.getFlowFromRootToNode(targetDevice);
         
@@ -1118,10 +1102,15 @@ public class Flow implements Serializable {
                 endDevice = (Device) node.getNode();
                 auxAverageLatency = 0;
                 
+                // The path is the same for every packet
+                List<FlowFragment> fragments = this.getFlowFromRootToNode(endDevice);
+                FlowFragment firstFragment = fragments.get(0);
+                FlowFragment lastFragment = fragments.get(fragments.size() - 1);
+                
                 for(int i = 0; i < timeListSize; i++) {
                     auxAverageLatency += 
-                            this.getScheduledTime(endDevice, this.getFlowFromRootToNode(endDevice).size() - 1, i) -
-                            this.getDepartureTime(endDevice, 0, i) + 
+                            lastFragment.getScheduledTime(i) -
+                            firstFragment.getDepartureTime(i) + 
                             firstTransmissionDelay;
                 }
                 
@@ -1148,12 +1137,14 @@ public class Flow implements Serializable {
      
         double firstTransmissionDelay = ((double)this.getPacketSize())/this.getFirstPortSpeed();
         
-        ArrayList<FlowFragment> fragments = this.getFlowFromRootToNode(dev);
+        List<FlowFragment> fragments = this.getFlowFromRootToNode(dev);
+        FlowFragment firstFragment = fragments.get(0);
+        FlowFragment lastFragment = fragments.get(fragments.size() - 1);
         
         for(int i = 0; i < this.getNumOfPacketsSent(); i++) {
             averageLatency += 
-                    this.getScheduledTime(dev, fragments.size() - 1, i) -
-                    this.getDepartureTime(dev, 0, i) + 
+                    lastFragment.getScheduledTime(i) -
+                    firstFragment.getDepartureTime(i) + 
                     firstTransmissionDelay;
         }
         
@@ -1227,7 +1218,9 @@ public class Flow implements Serializable {
         double averageJitter = 0;
         double averageLatency = this.getAverageLatencyToDevice(dev);   
 
-        ArrayList<FlowFragment> fragments = this.getFlowFromRootToNode(dev);
+        List<FlowFragment> fragments = this.getFlowFromRootToNode(dev);
+        FlowFragment firstFragment = fragments.get(0);
+        FlowFragment lastFragment = fragments.get(fragments.size() - 1);
         
         double firstTransmissionDelay = ((double)this.getPacketSize())/this.getFirstPortSpeed();
         
@@ -1236,8 +1229,8 @@ public class Flow implements Serializable {
         for(int i = 0; i < this.getNumOfPacketsSent(); i++) {
             averageJitter += 
                     Math.abs(
-                        this.getScheduledTime(dev, this.getFlowFromRootToNode(dev).size() - 1, i) -
-                        this.getDepartureTime(dev, 0, i) + 
+                        lastFragment.getScheduledTime(i) -
+                        firstFragment.getDepartureTime(i) + 
                         firstTransmissionDelay - 
                         averageLatency
                     ); 
@@ -1303,8 +1296,9 @@ public class Flow implements Serializable {
 
         RealExpr latency = ctx.mkRealConst(this.name + "latencyOfPacket" + index + "For" + dev.getName());
         
-        ArrayList<PathNode> nodes = this.getNodesFromRootToNode(dev);
-        ArrayList<FlowFragment> flowFrags = this.getFlowFromRootToNode(dev);
+        LeafPath leafPath = this.getPathTo(dev);
+        List<PathNode> nodes = leafPath.getNodes();
+        List<FlowFragment> flowFrags = leafPath.getFlowFragments();
         
         TSNSwitch lastSwitchInPath = ((TSNSwitch) nodes.get(nodes.size() - 2).getNode()); // - 1 for indexing, - 1 for last node being the end device
         FlowFragment lastFragmentInList = flowFrags.get(flowFrags.size() - 1);
@@ -1482,11 +1476,12 @@ public class Flow implements Serializable {
         //index += 1;
         RealExpr jitter = ctx.mkRealConst(this.name + "JitterOfPacket" + index + "For" + dev.getName());
         
-        ArrayList<PathNode> nodes = this.getNodesFromRootToNode(dev);
+        LeafPath leafPath = this.getPathTo(dev);
+        List<PathNode> nodes = leafPath.getNodes();
         
         TSNSwitch lastSwitchInPath = ((TSNSwitch) nodes.get(nodes.size() - 2).getNode()); // - 1 for indexing, - 1 for last node being the end device
         FlowFragment lastFragmentInList = nodes.get(nodes.size() - 2).getFlowFragments()
-                        .get(nodes.get(nodes.size() - 2).getChildren().indexOf(nodes.get(nodes.size() - 1)));
+                        .get(leafPath.getFragmentIndex(leafPath.getNumOfHops() - 1));
         
         TSNSwitch firstSwitchInPath = ((TSNSwitch) nodes.get(1).getNode()); // 1 since the first node is the publisher
         FlowFragment firstFragmentInList = nodes.get(1).getFlowFragments().get(0); 
@@ -1833,11 +1828,11 @@ public class Flow implements Serializable {
 	}
 	
     public static int getInstanceCounter() {
-		return instanceCounter;
+		return NetworkScope.current().getFlowCounter();
 	}
 
 	public static void setInstanceCounter(int instanceCounter) {
-		Flow.instanceCounter = instanceCounter;
+		NetworkScope.current().setFlowCounter(instanceCounter);
 	}
 
 	public Boolean getIsModifiedOrCreated() {
@@ -1878,6 +1873,14 @@ public class Flow implements Serializable {
 		this.flowMaximumLatency = flowMaximumLatency;
 	}
 	
+	public int getPathTreeCount() {
+		return pathTreeCount;
+	}
+
+	public void setPathTreeCount(int pathTreeCount) {
+		this.pathTreeCount = pathTreeCount;
+	}
+	
 	public String getStartDeviceName() {
 		return this.startDevice.getName();
 	}
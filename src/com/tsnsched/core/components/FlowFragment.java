@@ -23,6 +23,7 @@ import java.util.*;
 
 import com.microsoft.z3.*;
 import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
 
 /**
  * [Class]: FlowFragment
@@ -52,7 +53,7 @@ public class FlowFragment extends Flow {
     private int fragmentPriority;
     private String nodeName;
     private String nextHopName;
-    private int numOfPacketsSent = Network.PACKETUPPERBOUNDRANGE;
+    private int numOfPacketsSent = NetworkScope.current().getPacketUpperBoundRange();
 
     //TODO: CREATE REFERENCES TO PREVIOUS AND NEXT FRAGMENTS
     private FlowFragment previousFragment;
@@ -99,6 +100,100 @@ public class FlowFragment extends Flow {
 
     }
 
+    /**
+     * [Method]: getEarliestArrivalTime
+     * [Usage]: Returns a lower bound for the arrival time of a packet of
+     * this fragment, built from the earliest first sending time of the flow
+     * and the minimum time that the packet spends on each previous hop. If
+     * the packet index wraps around the packets of this or of a previous
+     * fragment, no bound is known and negative infinity is returned.
+     * 
+     * @param index         Index of the packet of the flow fragment
+     * @return              Lower bound of the arrival time of the packet
+     */
+    public double getEarliestArrivalTime(int index) {
+    	double departureTime;
+    	
+    	if(index >= this.numOfPacketsSent || this.port == null) {
+    		return Double.NEGATIVE_INFINITY;
+    	}
+    	
+    	if(this.previousFragment == null) {
+    		departureTime = this.parent.getEarliestFirstSendingTime() + 
+    				this.parent.getFlowSendingPeriodicity() * index;
+    	} else {
+    		departureTime = this.previousFragment.getEarliestArrivalTime(index) +
+    				this.parent.getPacketSize()/this.previousFragment.getPort().getPortSpeed();
+    	}
+    	
+    	return departureTime + this.port.getTimeToTravel();
+    }
+    
+    /**
+     * [Method]: getLatestScheduledTime
+     * [Usage]: Returns an upper bound for the scheduled time of a packet of
+     * this fragment. The scheduled time of a packet only grows along the path,
+     * so it can't exceed the latest first sending time plus the maximum latency
+     * allowed by the hard constraint of the flow. If the hard constraint does
+     * not reach the packet, positive infinity is returned.
+     * 
+     * @param index         Index of the packet of the flow fragment
+     * @return              Upper bound of the scheduled time of the packet
+     */
+    public double getLatestScheduledTime(int index) {
+    	FlowFragment auxFrag = this.previousFragment;
+    	FlowFragment firstFrag;
+    	
+    	if(this.parent.getType() != Flow.PUBLISH_SUBSCRIBE || 
+		   this.parent.getFlowMaximumLatency() < 0 ||
+		   this.parent.getLatestFirstSendingTime() < this.parent.getEarliestFirstSendingTime() ||
+		   !this.reachesHardConstraint(index)) {
+    		return Double.POSITIVE_INFINITY;
+    	}
+    	
+    	// The departure times used by the hard constraint must not wrap either
+    	while(auxFrag != null) {
+    		if(index >= auxFrag.getNumOfPacketsSent()) {
+    			return Double.POSITIVE_INFINITY;
+    		}
+    		auxFrag = auxFrag.getPreviousFragment();
+    	}
+    	
+    	firstFrag = this.parent.getPathTree().getRoot().getChildren().get(0).getFlowFragments().get(0);
+    	if(index >= firstFrag.getNumOfPacketsSent()) {
+    		return Double.POSITIVE_INFINITY;
+    	}
+    	
+    	return this.parent.getLatestFirstSendingTime() + 
+    			this.parent.getFlowSendingPeriodicity() * index + 
+    			this.parent.getFlowMaximumLatency();
+    }
+    
+    /*
+     * Checks if the packet reaches a fragment on a parent of a leaf of the
+     * path tree without wrapping around the packets of a fragment on the way,
+     * in which case the hard constraint of the flow is asserted over it.
+     */
+    private Boolean reachesHardConstraint(int index) {
+    	if(index >= this.numOfPacketsSent || this.referenceToNode == null) {
+    		return false;
+    	}
+    	
+    	for(PathNode child : this.referenceToNode.getChildren()) {
+    		if(child.getChildren().size() == 0) {
+    			return true;
+    		}
+    	}
+    	
+    	for(FlowFragment nextFrag : this.nextFragments) {
+    		if(nextFrag.reachesHardConstraint(index)) {
+    			return true;
+    		}
+    	}
+    	
+    	return false;
+    }
+    
     /*
      * GETTERS AND SETTERS
      */
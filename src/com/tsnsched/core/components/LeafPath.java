@@ -0,0 +1,127 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * [Class]: LeafPath
+ * [Usage]: Path of a pathTree from its root to one of its
+ * leaves. Holds the nodes of the path, the flow fragments of
+ * its hops and, for each hop, the index of the next node among
+ * the children of the switch, which is also the index of the 
+ * flow fragment of the hop in that switch.
+ * 
+ * Created and cached by the PathTree, a path is not changed
+ * after it is created. The tree creates a new one when it changes.
+ */
+public class LeafPath {
+
+    private final PathNode leaf;
+    private final List<PathNode> nodes;
+    private final List<FlowFragment> flowFragments; // Null while the fragments are not created
+    private final int[] fragmentIndices;
+    
+    
+    /**
+     * [Method]: LeafPath
+     * [Usage]: Goes from the leaf to the root of its tree, from
+     * parent to parent, storing the nodes and fragments of the path.
+     * 
+     * @param leaf      Last node of the path
+     */
+    LeafPath(PathNode leaf) {
+        ArrayList<PathNode> nodes = new ArrayList<PathNode>();
+        PathNode auxNode = leaf;
+        
+        while(auxNode != null) {
+            nodes.add(auxNode);
+            auxNode = auxNode.getParent();
+        }
+        
+        Collections.reverse(nodes);
+        
+        /*
+         * The first node is the publisher, so the hops start on the
+         * switch after it, each going to the next node of the path
+         */
+        int numOfHops = Math.max(0, nodes.size() - 2);
+        FlowFragment[] fragments = new FlowFragment[numOfHops];
+        boolean hasFragments = true;
+        
+        this.fragmentIndices = new int[numOfHops];
+        
+        for(int i = 0; i < numOfHops; i++) {
+            PathNode swtNode = nodes.get(i + 1);
+            ArrayList<FlowFragment> swtFragments = swtNode.getFlowFragments();
+            
+            this.fragmentIndices[i] = swtNode.getChildren().indexOf(nodes.get(i + 2));
+            
+            if(swtFragments == null || swtFragments.size() <= this.fragmentIndices[i]) {
+                hasFragments = false;
+            } else {
+                fragments[i] = swtFragments.get(this.fragmentIndices[i]);
+            }
+        }
+        
+        this.leaf = leaf;
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.flowFragments = hasFragments ? Collections.unmodifiableList(Arrays.asList(fragments)) : null;
+    }
+    
+    
+    /**
+     * [Method]: getFragmentIndex
+     * [Usage]: Returns the index of the flow fragment of a hop in 
+     * the list of fragments of its switch.
+     * 
+     * @param hop       Number of the hop in the path
+     * @return          Index of the fragment of the hop in its switch
+     */
+    public int getFragmentIndex(int hop) {
+        return this.fragmentIndices[hop];
+    }
+    
+    
+    /*
+     * GETTERS AND SETTERS
+     */
+    
+    public PathNode getLeaf() {
+        return leaf;
+    }
+    
+    public List<PathNode> getNodes() {
+        return nodes;
+    }
+    
+    public List<FlowFragment> getFlowFragments() {
+        return flowFragments;
+    }
+    
+    public int getNumOfHops() {
+        return fragmentIndices.length;
+    }
+    
+}
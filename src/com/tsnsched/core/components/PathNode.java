@@ -42,6 +42,7 @@ public class PathNode implements Serializable {
     private Object node;
     private ArrayList<PathNode> children; // The children of the current FlowNode
     private ArrayList<FlowFragment> flowFragments;
+    private transient int modCount; // Changes made under this node while it is a root
    
     
     /**
@@ -80,10 +81,29 @@ public class PathNode implements Serializable {
         PathNode pathNode = new PathNode(node);
         pathNode.setParent(this);
         children.add(pathNode);
+        this.nodeChanged();
                 
         return pathNode;
     }
     
+    /**
+     * [Method]: nodeChanged
+     * [Usage]: Counts a change of the children, parent or flow
+     * fragments of this node in the root of its tree, so the
+     * pathTree knows its leaves and paths must be searched again.
+     * The tree must be changed through the methods of this class,
+     * not through the lists returned by the getters.
+     */
+    public void nodeChanged() {
+        PathNode root = this;
+        
+        while(root.parent != null) {
+            root = root.parent;
+        }
+        
+        root.modCount++;
+    }
+    
     /*
      * GETTERS AND SETTERS:
      */
@@ -93,7 +113,9 @@ public class PathNode implements Serializable {
     }
 
     public void setParent(PathNode parent) {
+        this.nodeChanged();
         this.parent = parent;
+        this.nodeChanged();
     }
 
     public Object getNode() {
@@ -110,10 +132,12 @@ public class PathNode implements Serializable {
 
     public void setChildren(ArrayList<PathNode> children) {
         this.children = children;
+        this.nodeChanged();
     }
 
     public void addFlowFragment(FlowFragment flowFragment) {
         this.flowFragments.add(flowFragment);
+        this.nodeChanged();
     }
     
     public ArrayList<FlowFragment> getFlowFragments() {
@@ -122,6 +146,11 @@ public class PathNode implements Serializable {
 
     public void setFlowFragment(ArrayList<FlowFragment>  flowFragments) {
         this.flowFragments = flowFragments;
+        this.nodeChanged();
+    }
+    
+    public int getModCount() {
+        return modCount;
     }
     
 }
@@ -21,6 +21,9 @@ package com.tsnsched.core.components;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 
 import com.tsnsched.core.nodes.*;
 
@@ -37,6 +40,14 @@ public class PathTree implements Serializable {
 	private static final long serialVersionUID = 1L;
 	private PathNode root;
     private ArrayList<PathNode> leaves;
+    
+    // Leaves, paths and nodes of the tree, searched again when the root or its count of changes differs
+    private transient PathNode cachedRoot;
+    private transient int cachedModCount;
+    private transient List<PathNode> cachedLeaves;
+    private transient HashMap<String, PathNode> leavesByName;
+    private transient HashMap<PathNode, LeafPath> pathsByLeaf;
+    private transient HashMap<String, PathNode> nodesByName;
 
     /**
      * [Method]: addRoot
@@ -100,32 +111,121 @@ public class PathTree implements Serializable {
     
     /**
      * [Method]: getLeaves
-     * [Usage]: Returns an ArrayList with all the nodes of the 
-     * pathTree.
+     * [Usage]: Returns a list with all the leaves of the 
+     * pathTree. The list is searched once and kept until the
+     * tree changes, so it can't be modified.
+     * 
+     * @return      List with all leaves as PathNodes
+     */
+    public List<PathNode> getLeaves(){
+        this.checkCache();
+        
+        return this.cachedLeaves;
+    }
+    
+    
+    /**
+     * [Method]: getLeafOf
+     * [Usage]: Returns the last leaf, in depth first order, of
+     * the device or switch with the given name.
+     * 
+     * @param name      Name of the device or switch
+     * @return          Leaf with the given name, or null if not found
+     */
+    public PathNode getLeafOf(String name) {
+        this.checkCache();
+        
+        if(this.leavesByName == null) {
+            this.leavesByName = new HashMap<String, PathNode>();
+            
+            for(PathNode leaf : this.cachedLeaves) {
+                if(leaf.getNode() instanceof Device || leaf.getNode() instanceof Switch) {
+                    this.leavesByName.put(nameOf(leaf), leaf);
+                }
+            }
+        }
+        
+        return this.leavesByName.get(name);
+    }
+    
+    
+    /**
+     * [Method]: getPathTo
+     * [Usage]: Returns the path from the root of the tree to 
+     * the given leaf. Paths are created on their first use and 
+     * kept until the tree changes.
      * 
-     * @return      ArrayList with all leaves as PathNodes
+     * @param leaf      Leaf at the end of the path
+     * @return          Path from the root to the leaf
+     */
+    public LeafPath getPathTo(PathNode leaf) {
+        this.checkCache();
+        
+        LeafPath path = this.pathsByLeaf.get(leaf);
+        
+        if(path == null) {
+            path = new LeafPath(leaf);
+            this.pathsByLeaf.put(leaf, path);
+        }
+        
+        return path;
+    }
+    
+    /*
+     * Searches the leaves again and drops the paths and the index
+     * of the nodes if the root was replaced or changed since they
+     * were searched
      */
-    public ArrayList<PathNode> getLeaves(){
+    private void checkCache() {
+        if(this.cachedLeaves != null && this.cachedRoot == this.root && this.cachedModCount == this.root.getModCount()) {
+            return;
+        }
+        
         leaves = new ArrayList<PathNode>();
         
         searchLeaves(root);
         
-        return leaves;
+        this.cachedRoot = this.root;
+        this.cachedModCount = this.root.getModCount();
+        this.cachedLeaves = Collections.unmodifiableList(new ArrayList<PathNode>(leaves));
+        this.leavesByName = null;
+        this.pathsByLeaf = new HashMap<PathNode, LeafPath>();
+        this.nodesByName = null;
     }
     
+    /**
+     * [Method]: searchNode
+     * [Usage]: Returns the first node, in depth first order, with the
+     * given name under the search point. Searches from the root use an
+     * index of the nodes by name, kept until the tree changes.
+     * 
+     * @param name          Name of the device or switch
+     * @param searchPoint   Node where the search starts
+     * @return              Node with the given name, or null if not found
+     */
     public PathNode searchNode(String name, PathNode searchPoint) {
+    	if(searchPoint != this.root || this.root == null) {
+    		return this.searchSubtree(name, searchPoint);
+    	}
+    	
+    	this.checkCache();
+    	
+    	if(this.nodesByName == null) {
+    		this.indexNodes();
+    	}
+    	
+    	return this.nodesByName.get(name);
+    }
+    
+    private PathNode searchSubtree(String name, PathNode searchPoint) {
     	PathNode ret = null;
     	
-    	if(
-			name.equals( 
-    			(searchPoint.getNode() instanceof Device? ((Device)searchPoint.getNode()).getName(): ((TSNSwitch)searchPoint.getNode()).getName())
-			)
-		) {
+    	if(name.equals(nameOf(searchPoint))) {
     		return searchPoint;
     	}
 		
     	for(PathNode child : searchPoint.getChildren()) {
-    		ret = this.searchNode(name, child);
+    		ret = this.searchSubtree(name, child);
     		if(ret != null) {
     			break;
     		}
@@ -134,6 +234,27 @@ public class PathTree implements Serializable {
     	return ret;
     }
     
+    private void indexNodes() {
+    	this.nodesByName = new HashMap<String, PathNode>();
+    	this.indexNode(this.root);
+    }
+    
+    private void indexNode(PathNode node) {
+    	String name = nameOf(node);
+    	
+    	if(!this.nodesByName.containsKey(name)) {
+    		this.nodesByName.put(name, node);
+    	}
+    	
+    	for(PathNode child : node.getChildren()) {
+    		this.indexNode(child);
+    	}
+    }
+    
+    private static String nameOf(PathNode node) {
+    	return node.getNode() instanceof Device ? ((Device) node.getNode()).getName() : ((Switch) node.getNode()).getName();
+    }
+    
     /*
      * GETTERS AND SETTERS
      */
@@ -0,0 +1,175 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.components;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * [Class]: PeriodArithmetic
+ * [Usage]: Exact arithmetic over the periods of the flows. The periods
+ * are given as double values, but are converted to integers over a common
+ * time base (the smallest power of 10 that makes all of them integers)
+ * before computing greatest common divisors and least common multiples
+ * with Euclid's algorithm. The cost grows with the number of periods and
+ * the logarithm of their values, and no precision is lost on the way.
+ *
+ * Time values are also quantized here to the tick of the integer time
+ * encoding, so the quantized values are exact multiples of the tick.
+ */
+public class PeriodArithmetic {
+
+	/**
+	 * [Method]: gcd
+	 * [Usage]: Retrieves the greatest common divisor of a list of periods.
+	 * Used as the size of a micro cycle.
+	 *
+	 * @param periods		List of periods
+	 * @return				Greatest common divisor of the periods, or 0 for an empty list
+	 */
+	public static double gcd(List<Double> periods) {
+		int scale = timeBase(periods);
+		BigInteger result = BigInteger.ZERO;
+
+		for(Double period : periods) {
+			result = result.gcd(toTimeBase(period, scale));
+		}
+
+		return fromTimeBase(result, scale);
+	}
+
+	/**
+	 * [Method]: lcm
+	 * [Usage]: Retrieves the least common multiple of a list of periods.
+	 * Used as the size of a hyper cycle.
+	 *
+	 * @param periods		List of periods
+	 * @return				Least common multiple of the periods, or 0 if the list is empty or has a 0
+	 */
+	public static double lcm(List<Double> periods) {
+		int scale = timeBase(periods);
+		BigInteger result = null;
+
+		for(Double period : periods) {
+			BigInteger value = toTimeBase(period, scale).abs();
+
+			if(result == null) {
+				result = value;
+			} else if(result.signum() == 0 || value.signum() == 0) {
+				result = BigInteger.ZERO;
+			} else {
+				result = result.divide(result.gcd(value)).multiply(value);
+			}
+		}
+
+		return result == null ? 0 : fromTimeBase(result, scale);
+	}
+
+	/**
+	 * [Method]: packetsPerPeriod
+	 * [Usage]: Retrieves how many packets of a given period fit in a
+	 * larger period, such as a hyper cycle.
+	 *
+	 * @param hyperCycle	Size of the larger period
+	 * @param period		Period of the packets
+	 * @return				Number of whole periods in the larger period
+	 */
+	public static int packetsPerPeriod(double hyperCycle, double period) {
+		BigDecimal exactPeriod = exact(period);
+
+		if(exactPeriod.signum() == 0) {
+			return 0;
+		}
+
+		return exact(hyperCycle).divide(exactPeriod, 0, RoundingMode.DOWN).intValue();
+	}
+
+	/**
+	 * [Method]: expansionFactor
+	 * [Usage]: Retrieves the number of packets scheduled in a hyper cycle
+	 * when one packet is sent per period in the list.
+	 *
+	 * @param periods		List of periods
+	 * @return				Number of packets in the hyper cycle of the periods
+	 */
+	public static int expansionFactor(List<Double> periods) {
+		double hyperCycle = lcm(periods);
+		int numOfPackets = 0;
+
+		for(Double period : periods) {
+			numOfPackets += packetsPerPeriod(hyperCycle, period);
+		}
+
+		return numOfPackets;
+	}
+
+	/**
+	 * [Method]: quantize
+	 * [Usage]: Rounds a time value to a multiple of a tick. Values are
+	 * returned unchanged if the tick is not positive.
+	 *
+	 * @param value			Time value to be quantized
+	 * @param tick			Size of the tick
+	 * @param mode			Rounding applied to the number of ticks
+	 * @return				Multiple of the tick closest to the value in the given rounding mode
+	 */
+	public static double quantize(double value, double tick, RoundingMode mode) {
+		if(tick <= 0) {
+			return value;
+		}
+
+		BigDecimal exactTick = exact(tick);
+
+		return exact(value).divide(exactTick, 0, mode).multiply(exactTick).doubleValue();
+	}
+
+	/**
+	 * [Method]: timeBase
+	 * [Usage]: Retrieves the number of decimal places needed to write all
+	 * periods of a list as integers.
+	 *
+	 * @param periods		List of periods
+	 * @return				Power of 10 of the common time base
+	 */
+	public static int timeBase(List<Double> periods) {
+		int scale = 0;
+
+		for(Double period : periods) {
+			scale = Math.max(scale, exact(period).scale());
+		}
+
+		return scale;
+	}
+
+	private static BigDecimal exact(double value) {
+		return new BigDecimal(Double.toString(value)).stripTrailingZeros();
+	}
+
+	private static BigInteger toTimeBase(double value, int scale) {
+		return exact(value).movePointRight(scale).toBigIntegerExact();
+	}
+
+	private static double fromTimeBase(BigInteger value, int scale) {
+		return new BigDecimal(value).movePointLeft(scale).doubleValue();
+	}
+
+}
@@ -20,20 +20,27 @@ package com.tsnsched.core.components;
 
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.Vector;
 
+import com.microsoft.z3.ArithExpr;
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
 import com.microsoft.z3.Expr;
 import com.microsoft.z3.IntExpr;
+import com.microsoft.z3.IntNum;
+import com.microsoft.z3.Model;
+import com.microsoft.z3.RatNum;
 import com.microsoft.z3.RealExpr;
 import com.microsoft.z3.Solver;
 import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
 
 /**
  * [Class]: Port
@@ -55,6 +62,19 @@ public class Port implements Serializable {
 	private Boolean isModifiedOrCreated = true;
 	
 	private static final long serialVersionUID = 1L;
+	
+	// Margin used when comparing candidate values of lazy pair rules
+	private static final double PAIR_RULE_TOLERANCE = 1e-9;
+	
+	private Boolean lazyPairRules = false;
+	private transient HashSet<String> addedPairRules;
+	private static final double PACKET_WINDOW_TOLERANCE = 1e-6;
+	private Boolean pruneWithWindows = false;
+	private transient int checkedPairRules = 0;
+	private transient int prunedPairRules = 0;
+	private transient int checkedCycleRules = 0;
+	private transient int prunedCycleRules = 0;
+	private transient double tick = 0;
 	private Boolean useMicroCycles = false;
     private Boolean useHyperCycle = false;
     
@@ -63,6 +83,7 @@ public class Port implements Serializable {
     private ArrayList<Double> listOfPeriods = new ArrayList<Double>();
     private double definedHyperCycleSize = -1;
     private double microCycleSize = -1; 
+    private int expansionFactor = 0; // Number of packets scheduled in the hyper cycle
     
 	private String name;
     private String connectsTo;
@@ -72,8 +93,8 @@ public class Port implements Serializable {
     
     private Cycle cycle;
     private ArrayList<FlowFragment> flowFragments;
-    private int packetUpperBoundRange = Network.PACKETUPPERBOUNDRANGE; // Limits the applications of rules to the packets
-    private int cycleUpperBoundRange = Network.CYCLEUPPERBOUNDRANGE; // Limits the applications of rules to the cycles
+    private int packetUpperBoundRange = NetworkScope.current().getPacketUpperBoundRange(); // Limits the applications of rules to the packets
+    private int cycleUpperBoundRange = NetworkScope.current().getCycleUpperBoundRange(); // Limits the applications of rules to the cycles
 
 	private double gbSize;
 	
@@ -137,12 +158,14 @@ public class Port implements Serializable {
      * @param ctx      Context variable containing the z3 environment used
      */
     public void toZ3(Context ctx) {
-        this.maxPacketSizeZ3 = ctx.mkReal(Double.toString(this.maxPacketSize));
-        this.timeToTravelZ3 = ctx.mkReal(Double.toString(this.timeToTravel));
-        this.transmissionTimeZ3 = ctx.mkReal(Double.toString(this.transmissionTime));
-        this.portSpeedZ3 = ctx.mkReal(Double.toString(portSpeed));
-        this.bestEffortPercentZ3 = ctx.mkReal(Double.toString(bestEffortPercent));
-        this.interframeGapSizeZ3 = ctx.mkReal(Double.toString(this.interframeGapSize));
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
+        this.tick = cache.getTick();
+        this.maxPacketSizeZ3 = cache.mkReal(this.maxPacketSize);
+        this.timeToTravelZ3 = cache.mkReal(PeriodArithmetic.quantize(this.timeToTravel, this.tick, RoundingMode.UP));
+        this.transmissionTimeZ3 = cache.mkReal(this.transmissionTime);
+        this.portSpeedZ3 = cache.mkReal(portSpeed);
+        this.bestEffortPercentZ3 = cache.mkReal(bestEffortPercent);
+        this.interframeGapSizeZ3 = cache.mkReal(this.interframeGapSize);
         this.gbSizeZ3 = ctx.mkRealConst(this.name + "guardBand");
         
         if(this.cycle.getFirstCycleStartZ3() == null) {
@@ -161,12 +184,13 @@ public class Port implements Serializable {
      * @param ctx           z3 context which specify the environment of constants, functions and variables
      */
     private void setUpCycleRules(Solver solver, Context ctx) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
     	
     	solver.add(
 			ctx.mkEq(
 				this.gbSizeZ3, 
 				ctx.mkDiv(
-					ctx.mkReal(Double.toString(this.gbSize)),
+					cache.mkReal(this.gbSize),
 					this.portSpeedZ3
 				)
 			)
@@ -174,11 +198,11 @@ public class Port implements Serializable {
 
         for(int numericFlowPriority = 0; numericFlowPriority < this.cycle.getNumOfPrts(); numericFlowPriority++) {
         	for(int index = 0; index < this.cycle.getNumOfSlots(numericFlowPriority); index++) {
-                IntExpr flowPriority = ctx.mkInt(numericFlowPriority);
-                IntExpr indexZ3 = ctx.mkInt(index);
+                IntExpr flowPriority = cache.mkInt(numericFlowPriority);
+                IntExpr indexZ3 = cache.mkInt(index);
                 
                 // A slot will be somewhere between 0 and the end of the cycle minus its duration (Slot in cycle constraint)
-                solver.add(ctx.mkGe(cycle.slotStartZ3(ctx, flowPriority, indexZ3), ctx.mkInt(0)));
+                solver.add(ctx.mkGe(cycle.slotStartZ3(ctx, flowPriority, indexZ3), cache.mkInt(0)));
                 solver.add(
                     ctx.mkLe(cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
                         ctx.mkSub(
@@ -189,7 +213,7 @@ public class Port implements Serializable {
                 );
                  
                 // Every slot duration is greater or equal 0 and lower or equal than the maximum (Slot duration constraint)
-                solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowPriority, indexZ3), ctx.mkInt(0)));
+                solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowPriority, indexZ3), cache.mkInt(0)));
                 solver.add(ctx.mkLe(cycle.slotDurationZ3(ctx, flowPriority, indexZ3), cycle.getMaximumSlotDurationZ3()));
                 
                 //Every slot must fit inside a cycle
@@ -230,44 +254,12 @@ public class Port implements Serializable {
                  */
             
                 // No two slots can overlap (No overlapping slots constraint)
-                for(int auxNumericFlowPriority = 0; auxNumericFlowPriority < this.cycle.getNumOfPrts(); auxNumericFlowPriority++) {
+                for(int auxNumericFlowPriority = 0; auxNumericFlowPriority < this.cycle.getNumOfPrts() && !this.getLazyPairRules(); auxNumericFlowPriority++) {
                     if(auxNumericFlowPriority == numericFlowPriority) {
                         continue;
                     }
                 	for(int auxIndex = 0; auxIndex < this.cycle.getNumOfSlots(numericFlowPriority); auxIndex++) {
-
-                        IntExpr auxIndexZ3 = ctx.mkInt(auxIndex);
-                        
-	                    
-	                    IntExpr auxFlowPriority = ctx.mkInt(auxNumericFlowPriority);
-	                    
-	                    solver.add(
-	                        ctx.mkImplies(
-	                            ctx.mkNot(
-	                                ctx.mkEq(
-	                                    flowPriority,
-	                                    auxFlowPriority
-	                                )
-	                            ),
-	                            ctx.mkOr(
-	                                ctx.mkGe(
-	                                    cycle.slotStartZ3(ctx, flowPriority, indexZ3),
-	                                    ctx.mkAdd(
-	                                        cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3),
-	                                        cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3)
-	                                    )
-	                                ), 
-	                                ctx.mkLe(
-	                                    ctx.mkAdd(
-	                                        cycle.slotStartZ3(ctx, flowPriority, indexZ3),
-	                                        cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
-	                                    ),
-	                                    cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
-	                                )
-	                            )
-	                        )
-	                    );
-                	
+	                    solver.add(this.slotOverlapRule(ctx, numericFlowPriority, index, auxNumericFlowPriority, auxIndex));
                 	}
             	}
                 
@@ -279,7 +271,7 @@ public class Port implements Serializable {
     							cycle.slotStartZ3(ctx, flowPriority, indexZ3),   
     							cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
 							),
-    						cycle.slotStartZ3(ctx, flowPriority, ctx.mkInt(index + 1))
+    						cycle.slotStartZ3(ctx, flowPriority, cache.mkInt(index + 1))
     					)
         			);
                 }
@@ -291,41 +283,9 @@ public class Port implements Serializable {
                  * of at least gbSize (the size of the guard band) between them
                  * (guard band constraint).
                  */
-                	for(int prt = 0; prt < this.cycle.getNumOfPrts(); prt ++) {
+                	for(int prt = 0; prt < this.cycle.getNumOfPrts() && !this.getLazyPairRules(); prt ++) {
                 		for(int auxIndex = 0; auxIndex < this.cycle.getNumOfSlots(prt); auxIndex++) {
-                        	IntExpr auxIndexZ3 = ctx.mkInt(auxIndex);
-                        	IntExpr auxFlowPriority = ctx.mkInt(prt);
-                        	
-                        	solver.add(
-                    			ctx.mkImplies(
-                					ctx.mkAnd(
-            							ctx.mkNot(
-    											ctx.mkEq(auxFlowPriority, flowPriority)
-    									),
-            							ctx.mkNot(
-        									ctx.mkEq(
-    											cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
-    											ctx.mkAdd(
-    												cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
-    												cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
-    											)                                                
-    										)
-    									),
-            							ctx.mkGt(
-        									cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
-        									cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
-    									)
-        							),
-                					ctx.mkGe(
-            							cycle.slotStartZ3(ctx, flowPriority, indexZ3),
-            							ctx.mkAdd(
-        									cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3),
-        									cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
-        									gbSizeZ3
-    									)   
-        							)                        
-            					)
-                			);
+                        	solver.add(this.guardBandRule(ctx, numericFlowPriority, index, prt, auxIndex));
                         }
                 	}                    
                 
@@ -347,6 +307,7 @@ public class Port implements Serializable {
      * @param flowFrag      A fragment of a flow that goes through this port
      */
     private void setupTimeSlots(Solver solver, Context ctx, FlowFragment flowFrag) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
     	IntExpr indexZ3;
     	
     	// If there is a flow assigned to the slot, slotDuration must be greater than transmission time
@@ -354,12 +315,12 @@ public class Port implements Serializable {
     		for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
         		solver.add(
     				ctx.mkImplies(
-    					ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
+    					ctx.mkEq(flowFrag.getFragmentPriorityZ3(), cache.mkInt(prt)), 
 						ctx.mkGe(
-	    					cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index+1)), 
+	    					cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), cache.mkInt(index+1)), 
 	    					ctx.mkAdd(
-    							cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index)),
-    							cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index))
+    							cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), cache.mkInt(index)),
+    							cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), cache.mkInt(index))
 	    					)
 	    				)
 					)
@@ -370,18 +331,18 @@ public class Port implements Serializable {
 
     	for(int prt = 0; prt<this.cycle.getNumOfPrts(); prt++) {
 	    	for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
-	    		indexZ3 = ctx.mkInt(index);
+	    		indexZ3 = cache.mkInt(index);
 	    		
 		        // solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowFrag.getFlowPriority(), indexZ3), this.transmissionTimeZ3));
 		        
 		        // Every flow must have a priority (Priority assignment constraint)
-		        solver.add(ctx.mkGe(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(0))); 
-		        solver.add(ctx.mkLt(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(this.cycle.getNumOfPrts())));
+		        solver.add(ctx.mkGe(flowFrag.getFragmentPriorityZ3(), cache.mkInt(0))); 
+		        solver.add(ctx.mkLt(flowFrag.getFragmentPriorityZ3(), cache.mkInt(this.cycle.getNumOfPrts())));
 		        
 		        // Slot start must be <= cycle time - slot duration 
 		        solver.add(
 	        		ctx.mkImplies(
-        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
+        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), cache.mkInt(prt)), 
 			            ctx.mkLe(
 			                ctx.mkAdd(
 			                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
@@ -410,6 +371,7 @@ public class Port implements Serializable {
      * @param flowFrag      A fragment of a flow that goes through this port
      */
     private void setupDevPacketTimes(Solver solver, Context ctx, FlowFragment flowFrag) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
 
         // For the specified range of packets defined by [0, upperBoundRange],
         // apply the scheduling rules.
@@ -430,7 +392,7 @@ public class Port implements Serializable {
             solver.add( // Time to Transmit constraint.
                 ctx.mkGe(
                     this.scheduledTime(ctx, i, flowFrag),
-                    ctx.mkAdd(this.arrivalTime(ctx, i, flowFrag), ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3))
+                    ctx.mkAdd(this.arrivalTime(ctx, i, flowFrag), this.transmissionTimeZ3(ctx, flowFrag))
                 )
             );
             
@@ -479,6 +441,10 @@ public class Port implements Serializable {
 	                	if(auxFragment == flowFrag && i == j) {
 	                        continue;
 	                    }
+	                	
+	                	if(!this.needsFollowRule(flowFrag, i, auxFragment, j)) {
+	                		continue;
+	                	}
 	                    
 	                    
 	                    /*****************************************************
@@ -497,8 +463,8 @@ public class Port implements Serializable {
 	                                    this.scheduledTime(ctx, j, auxFragment),
 	                                    ctx.mkAdd(
 	                                        this.scheduledTime(ctx, i, flowFrag),
-	                                        ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3),
-	                                        ctx.mkDiv(this.interframeGapSizeZ3, this.portSpeedZ3)
+	                                        this.transmissionTimeZ3(ctx, flowFrag),
+	                                        this.interframeGapZ3(ctx)
 	                                    )
 	                                )
 	                            )
@@ -507,6 +473,10 @@ public class Port implements Serializable {
 	                }
 	
 	                for(int j = 0; j < this.cycleUpperBoundRange; j++) {
+	                	
+	                	if(!this.canArriveInCycle(flowFrag, i, j)) {
+	                		continue;
+	                	}
 	                    
 	                    /*
 	                    T2 IS INSIDE SLOT, HAS ENOUGH TIME TO TRANSMIT
@@ -518,7 +488,7 @@ public class Port implements Serializable {
 	                    */
 	                	
 	                	for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
-	                		indexZ3 = ctx.mkInt(index);
+	                		indexZ3 = cache.mkInt(index);
 	
 	                		/**/
 	                		auxExp2 = ctx.mkAnd((BoolExpr) auxExp2, // Arrived during a time slot predicate
@@ -530,9 +500,9 @@ public class Port implements Serializable {
 	                                                ctx.mkAdd( 
 	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
 	                                                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                                    cycle.cycleStartZ3(ctx, ctx.mkInt(j))
+	                                                    cycle.cycleStartZ3(ctx, cache.mkInt(j))
 	                                                ), 
-	                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                                this.transmissionTimeZ3(ctx, flowFrag)
 	                                            )
 	                                        ),
 	                                        ctx.mkGe(
@@ -547,7 +517,7 @@ public class Port implements Serializable {
 	                                        this.scheduledTime(ctx, i, flowFrag),
 	                                        ctx.mkAdd(
 	                                            this.arrivalTime(ctx, i, flowFrag),
-	                                            ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                            this.transmissionTimeZ3(ctx, flowFrag)
 	                                        )
 	                                    )
 	                                )
@@ -587,7 +557,7 @@ public class Port implements Serializable {
 	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
 	                                                    cycle.cycleStartZ3(ctx, j)
 	                                                ),
-	                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                                this.transmissionTimeZ3(ctx, flowFrag)
 	                                            )
 	                                            
 	                                        )
@@ -609,10 +579,10 @@ public class Port implements Serializable {
 	                                                ctx.mkSub(
 	                                            		ctx.mkAdd(
 	                                                		cycle.cycleStartZ3(ctx, j),
-	                                                		cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index - 1)),
-	                                                		cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index - 1))                                                    
+	                                                		cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), cache.mkInt(index - 1)),
+	                                                		cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), cache.mkInt(index - 1))                                                    
 	                                            		),
-	                                            		ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                            		this.transmissionTimeZ3(ctx, flowFrag)
 	                                        		)                                                
 	                                            )
 	                                        ),
@@ -623,7 +593,7 @@ public class Port implements Serializable {
 	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
 	                                                    cycle.cycleStartZ3(ctx, j)
 	                                                ),
-	                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                                this.transmissionTimeZ3(ctx, flowFrag)
 	                                            )
 	                                            
 	                                        )
@@ -764,7 +734,7 @@ public class Port implements Serializable {
 	        
 	        solver.add(
 	        		ctx.mkImplies(
-	        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
+	        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), cache.mkInt(prt)), 
 	        				(BoolExpr)exp
         			)
     		);
@@ -778,15 +748,19 @@ public class Port implements Serializable {
         for(int prt = 0; prt<this.cycle.getNumOfPrts(); prt++) {
 	        for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
 	            for(int j = 0; j < this.cycleUpperBoundRange; j++) {
+	            	if(!this.canBeScheduledInCycle(flowFrag, i, j)) {
+	            		continue;
+	            	}
+	            	
 	            	for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
-	            		indexZ3 = ctx.mkInt(index);
+	            		indexZ3 = cache.mkInt(index);
 	                    auxExp = ctx.mkAnd(
 	                             ctx.mkGe(
 		                            this.scheduledTime(ctx, i, flowFrag), 
 		                            ctx.mkAdd(
 		                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
 		                                cycle.cycleStartZ3(ctx, j),
-		                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+		                                this.transmissionTimeZ3(ctx, flowFrag)
 		                            )      
 	  	                        ),
 		                        ctx.mkLe(
@@ -804,7 +778,7 @@ public class Port implements Serializable {
 	            }
 	            solver.add(
 	        		ctx.mkImplies(
-        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
+        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), cache.mkInt(prt)), 
         				(BoolExpr) exp
     				)
 				);
@@ -820,7 +794,7 @@ public class Port implements Serializable {
                     this.scheduledTime(ctx, i + 1, flowFrag), 
                     ctx.mkAdd(
                             this.scheduledTime(ctx, i, flowFrag),
-                            ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                            this.transmissionTimeZ3(ctx, flowFrag)
                     )
                 )
             );
@@ -865,7 +839,7 @@ public class Port implements Serializable {
 	                //Or ends at the end of a cycle
 	                for(int j = 0; j < this.cycleUpperBoundRange; j++) {
 	                    for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
-	                        indexZ3 = ctx.mkInt(index);
+	                        indexZ3 = cache.mkInt(index);
 	                        wtExp = ctx.mkOr((BoolExpr) wtExp,
 	                                ctx.mkEq(
 	                                    this.scheduledTime(ctx, i, flowFrag),
@@ -882,7 +856,7 @@ public class Port implements Serializable {
 	            if(wtExp != null){
 		            solver.add(
 		        		ctx.mkImplies(
-	        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
+	        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), cache.mkInt(prt)), 
 	        				(BoolExpr) wtExp
 	    				)
 					);
@@ -970,9 +944,10 @@ public class Port implements Serializable {
         
         /*
          * If two packets are from the same priority, the first one to arrive
-         * should be transmitted first (FIFO priority queue constraint)
+         * should be transmitted first (FIFO priority queue constraint).
+         * With lazy pair rules, these are only added by addViolatedPairRules.
          */
-        for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
+        for(int i = 0; i < flowFrag.getNumOfPacketsSent() && !this.getLazyPairRules(); i++) {
             for(FlowFragment auxFlowFrag : this.flowFragments) {
                 for(int j = 0; j < auxFlowFrag.getNumOfPacketsSent(); j++) {
                     
@@ -980,28 +955,11 @@ public class Port implements Serializable {
                 		continue;
                 	} 
                 	
-                	solver.add( // Packet transmission order constraint
-                        ctx.mkImplies(
-                            ctx.mkAnd(
-                                ctx.mkLe(
-                                    this.arrivalTime(ctx, i, flowFrag),
-                                    this.arrivalTime(ctx, j, auxFlowFrag)
-                                ),
-                                ctx.mkEq(
-                                    flowFrag.getFragmentPriorityZ3(), 
-                                    auxFlowFrag.getFragmentPriorityZ3()
-                                )       
-                            ),
-                            ctx.mkLe(
-                                this.scheduledTime(ctx, i, flowFrag),
-                                ctx.mkSub(
-                                    this.scheduledTime(ctx, j, auxFlowFrag),
-                                    ctx.mkDiv(auxFlowFrag.getPacketSizeZ3(), this.portSpeedZ3),
-                                    ctx.mkDiv(this.interframeGapSizeZ3, this.portSpeedZ3)
-                                )
-            				)
-                        )
-                    );
+                	if(!this.needsOrderRule(flowFrag, i, auxFlowFrag, j)) {
+                		continue;
+                	}
+                	
+                	solver.add(this.packetOrderRule(ctx, flowFrag, i, auxFlowFrag, j)); // Packet transmission order constraint
                     
                     /*
                     if(!(flowFrag.equals(auxFlowFrag) && i == j)) {
@@ -1023,6 +981,484 @@ public class Port implements Serializable {
     }
    
     
+    /**
+     * [Method]: needsOrderRule
+     * [Usage]: Checks, through the packet windows, if the packet transmission 
+     * order constraint between two packets can change the schedule. It can't 
+     * if packet i always arrives after packet j or if packet i is always 
+     * transmitted before packet j arrives.
+     * 
+     * @param flowFrag      Fragment of the first packet
+     * @param i             Index of the first packet
+     * @param auxFlowFrag   Fragment of the second packet
+     * @param j             Index of the second packet
+     * @return              False if the constraint can be skipped
+     */
+    private Boolean needsOrderRule(FlowFragment flowFrag, int i, FlowFragment auxFlowFrag, int j) {
+    	if(!this.getPruneWithWindows()) {
+    		return true;
+    	}
+    	
+    	this.checkedPairRules++;
+    	
+    	if(flowFrag.getEarliestArrivalTime(i) > this.latestArrivalTime(auxFlowFrag, j) + PACKET_WINDOW_TOLERANCE ||
+		   flowFrag.getLatestScheduledTime(i) < auxFlowFrag.getEarliestArrivalTime(j) - 
+		   		this.interframeGap() - PACKET_WINDOW_TOLERANCE) {
+    		this.prunedPairRules++;
+    		return false;
+    	}
+    	
+    	return true;
+    }
+    
+    /**
+     * [Method]: needsFollowRule
+     * [Usage]: Checks, through the packet windows, if packet j can be 
+     * transmitted right after packet i. If it can't, the case is left 
+     * out of the disjunction of cases of packet i.
+     * 
+     * @param flowFrag      Fragment of the first packet
+     * @param i             Index of the first packet
+     * @param auxFlowFrag   Fragment of the second packet
+     * @param j             Index of the second packet
+     * @return              False if the case can be skipped
+     */
+    private Boolean needsFollowRule(FlowFragment flowFrag, int i, FlowFragment auxFlowFrag, int j) {
+    	if(!this.getPruneWithWindows()) {
+    		return true;
+    	}
+    	
+    	double gap = this.transmissionTime(flowFrag) + this.interframeGap();
+    	
+    	this.checkedPairRules++;
+    	
+    	if(flowFrag.getEarliestArrivalTime(i) > this.latestArrivalTime(auxFlowFrag, j) + PACKET_WINDOW_TOLERANCE ||
+		   this.earliestScheduledTime(flowFrag, i) + gap > auxFlowFrag.getLatestScheduledTime(j) + PACKET_WINDOW_TOLERANCE ||
+		   flowFrag.getLatestScheduledTime(i) + gap < this.earliestScheduledTime(auxFlowFrag, j) - PACKET_WINDOW_TOLERANCE) {
+    		this.prunedPairRules++;
+    		return false;
+    	}
+    	
+    	return true;
+    }
+    
+    /**
+     * [Method]: canArriveInCycle
+     * [Usage]: Checks if a packet can arrive close enough to a cycle of this
+     * port for the arrival cases of that cycle to apply. Only used when the
+     * cycle duration is fixed.
+     * 
+     * @param flowFrag      Fragment of the packet
+     * @param i             Index of the packet
+     * @param j             Index of the cycle
+     * @return              False if the cases of the cycle can be skipped
+     */
+    private Boolean canArriveInCycle(FlowFragment flowFrag, int i, int j) {
+    	if(!this.hasFixedCycle()) {
+    		return true;
+    	}
+    	
+    	double cycleDuration = this.cycle.getCycleDuration();
+    	
+    	this.checkedCycleRules++;
+    	
+    	if(this.latestArrivalTime(flowFrag, i) < j * cycleDuration - this.transmissionTime(flowFrag) - PACKET_WINDOW_TOLERANCE ||
+		   flowFrag.getEarliestArrivalTime(i) > (j + 1) * cycleDuration + PACKET_WINDOW_TOLERANCE) {
+    		this.prunedCycleRules++;
+    		return false;
+    	}
+    	
+    	return true;
+    }
+    
+    /**
+     * [Method]: canBeScheduledInCycle
+     * [Usage]: Checks if a packet can be transmitted inside a cycle of this
+     * port. Only used when the cycle duration is fixed.
+     * 
+     * @param flowFrag      Fragment of the packet
+     * @param i             Index of the packet
+     * @param j             Index of the cycle
+     * @return              False if the slots of the cycle can be skipped
+     */
+    private Boolean canBeScheduledInCycle(FlowFragment flowFrag, int i, int j) {
+    	if(!this.hasFixedCycle()) {
+    		return true;
+    	}
+    	
+    	double cycleDuration = this.cycle.getCycleDuration();
+    	
+    	this.checkedCycleRules++;
+    	
+    	if(flowFrag.getLatestScheduledTime(i) < j * cycleDuration + this.transmissionTime(flowFrag) - PACKET_WINDOW_TOLERANCE ||
+		   this.earliestScheduledTime(flowFrag, i) > (j + 1) * cycleDuration + PACKET_WINDOW_TOLERANCE) {
+    		this.prunedCycleRules++;
+    		return false;
+    	}
+    	
+    	return true;
+    }
+    
+    /*
+     * Cycles of switch ports start at 0, so the cycles can only be
+     * placed in time when their duration is asserted to a value.
+     */
+    private Boolean hasFixedCycle() {
+    	return this.getPruneWithWindows() && 
+			   (this.useMicroCycles || this.useHyperCycle) && 
+			   this.listOfPeriods.size() > 0 && 
+			   this.cycle.getCycleDuration() > 0;
+    }
+    
+    /*
+     * Transmission time of a packet and interframe gap on this port. With
+     * the integer time encoding, both are rounded up to a multiple of the
+     * tick, so packets sent back to back stay on the tick.
+     */
+    private double transmissionTime(FlowFragment flowFrag) {
+    	return PeriodArithmetic.quantize(flowFrag.getParent().getPacketSize()/this.portSpeed, this.tick, RoundingMode.UP);
+    }
+    
+    private double interframeGap() {
+    	return PeriodArithmetic.quantize(this.interframeGapSize/this.portSpeed, this.tick, RoundingMode.UP);
+    }
+    
+    private ArithExpr transmissionTimeZ3(Context ctx, FlowFragment flowFrag) {
+    	if(this.tick > 0) {
+    		return ExpressionCache.getCache(ctx).mkReal(this.transmissionTime(flowFrag));
+    	}
+    	
+    	return ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3);
+    }
+    
+    private ArithExpr interframeGapZ3(Context ctx) {
+    	if(this.tick > 0) {
+    		return ExpressionCache.getCache(ctx).mkReal(this.interframeGap());
+    	}
+    	
+    	return ctx.mkDiv(this.interframeGapSizeZ3, this.portSpeedZ3);
+    }
+    
+    private double earliestScheduledTime(FlowFragment flowFrag, int index) {
+    	return flowFrag.getEarliestArrivalTime(index) + this.transmissionTime(flowFrag);
+    }
+    
+    private double latestArrivalTime(FlowFragment flowFrag, int index) {
+    	return flowFrag.getLatestScheduledTime(index) - this.transmissionTime(flowFrag);
+    }
+    
+    /**
+     * [Method]: packetOrderRule
+     * [Usage]: Builds the packet transmission order (FIFO) constraint
+     * between packet i of a flow fragment and packet j of another
+     * fragment of this port.
+     * 
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param flowFrag      Fragment of the first packet
+     * @param i             Index of the first packet
+     * @param auxFlowFrag   Fragment of the second packet
+     * @param j             Index of the second packet
+     * @return              The z3 constraint between the two packets
+     */
+    private BoolExpr packetOrderRule(Context ctx, FlowFragment flowFrag, int i, FlowFragment auxFlowFrag, int j) {
+    	return ctx.mkImplies(
+            ctx.mkAnd(
+                ctx.mkLe(
+                    this.arrivalTime(ctx, i, flowFrag),
+                    this.arrivalTime(ctx, j, auxFlowFrag)
+                ),
+                ctx.mkEq(
+                    flowFrag.getFragmentPriorityZ3(), 
+                    auxFlowFrag.getFragmentPriorityZ3()
+                )       
+            ),
+            ctx.mkLe(
+                this.scheduledTime(ctx, i, flowFrag),
+                ctx.mkSub(
+                    this.scheduledTime(ctx, j, auxFlowFrag),
+                    this.transmissionTimeZ3(ctx, auxFlowFrag),
+                    this.interframeGapZ3(ctx)
+                )
+			)
+        );
+    }
+    
+    /**
+     * [Method]: slotOverlapRule
+     * [Usage]: Builds the constraint that keeps two slots of different
+     * priorities of the cycle of this port from overlapping.
+     * 
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param prt           Priority of the first slot
+     * @param index         Index of the first slot
+     * @param auxPrt        Priority of the second slot
+     * @param auxIndex      Index of the second slot
+     * @return              The z3 constraint between the two slots
+     */
+    private BoolExpr slotOverlapRule(Context ctx, int prt, int index, int auxPrt, int auxIndex) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
+    	IntExpr flowPriority = cache.mkInt(prt);
+    	IntExpr indexZ3 = cache.mkInt(index);
+    	IntExpr auxFlowPriority = cache.mkInt(auxPrt);
+    	IntExpr auxIndexZ3 = cache.mkInt(auxIndex);
+    	
+    	return ctx.mkImplies(
+            ctx.mkNot(
+                ctx.mkEq(
+                    flowPriority,
+                    auxFlowPriority
+                )
+            ),
+            ctx.mkOr(
+                ctx.mkGe(
+                    cycle.slotStartZ3(ctx, flowPriority, indexZ3),
+                    ctx.mkAdd(
+                        cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3),
+                        cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3)
+                    )
+                ), 
+                ctx.mkLe(
+                    ctx.mkAdd(
+                        cycle.slotStartZ3(ctx, flowPriority, indexZ3),
+                        cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+                    ),
+                    cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
+                )
+            )
+        );
+    }
+    
+    /**
+     * [Method]: guardBandRule
+     * [Usage]: Builds the constraint that keeps a guard band between
+     * two non consecutive slots of different priorities.
+     * 
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param prt           Priority of the first slot
+     * @param index         Index of the first slot
+     * @param auxPrt        Priority of the second slot
+     * @param auxIndex      Index of the second slot
+     * @return              The z3 constraint between the two slots
+     */
+    private BoolExpr guardBandRule(Context ctx, int prt, int index, int auxPrt, int auxIndex) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
+    	IntExpr flowPriority = cache.mkInt(prt);
+    	IntExpr indexZ3 = cache.mkInt(index);
+    	IntExpr auxFlowPriority = cache.mkInt(auxPrt);
+    	IntExpr auxIndexZ3 = cache.mkInt(auxIndex);
+    	
+    	return ctx.mkImplies(
+			ctx.mkAnd(
+				ctx.mkNot(
+					ctx.mkEq(auxFlowPriority, flowPriority)
+				),
+				ctx.mkNot(
+					ctx.mkEq(
+						cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
+						ctx.mkAdd(
+							cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
+							cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
+						)                                                
+					)
+				),
+				ctx.mkGt(
+					cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
+					cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
+				)
+			),
+			ctx.mkGe(
+				cycle.slotStartZ3(ctx, flowPriority, indexZ3),
+				ctx.mkAdd(
+					cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3),
+					cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
+					gbSizeZ3
+				)   
+			)                        
+		);
+    }
+    
+    
+    /**
+     * [Method]: addViolatedPairRules
+     * [Usage]: Used when the pair rules of this port are lazy (packet
+     * transmission order, slot overlap and guard band). Reads the times
+     * of the packets and slots from a candidate model and compares every
+     * pair in plain Java. The pair rule is added to the solver only for the
+     * pairs that conflict or are too close to tell. Returns the number of 
+     * rules added, so 0 means that the model respects every pair rule.
+     * 
+     * @param solver        z3 solver object used to discover the variables' values
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param model         Candidate model found without the missing pair rules
+     * @return              Number of pair rules added to the solver
+     */
+    public int addViolatedPairRules(Solver solver, Context ctx, Model model) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
+    	int numOfAddedRules = 0;
+    	
+    	if(!this.getLazyPairRules() || this.flowFragments.size() == 0) {
+    		return 0;
+    	}
+    	
+    	if(this.addedPairRules == null) {
+    		this.addedPairRules = new HashSet<String>();
+    	}
+    	
+    	// Packet values of the candidate model
+    	int numOfFragments = this.flowFragments.size();
+    	double[][] arrival = new double[numOfFragments][];
+    	double[][] scheduled = new double[numOfFragments][];
+    	double[] transmission = new double[numOfFragments];
+    	int[] priority = new int[numOfFragments];
+    	double interframeGap = this.valueOf(model, this.interframeGapZ3(ctx));
+    	
+    	for(int f = 0; f < numOfFragments; f++) {
+    		FlowFragment frag = this.flowFragments.get(f);
+    		arrival[f] = new double[frag.getNumOfPacketsSent()];
+    		scheduled[f] = new double[frag.getNumOfPacketsSent()];
+    		transmission[f] = this.valueOf(model, this.transmissionTimeZ3(ctx, frag));
+    		priority[f] = (int) this.valueOf(model, frag.getFragmentPriorityZ3());
+    		
+    		for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+    			arrival[f][i] = this.valueOf(model, this.arrivalTime(ctx, i, frag));
+    			scheduled[f][i] = this.valueOf(model, this.scheduledTime(ctx, i, frag));
+    		}
+    	}
+    	
+    	for(int f = 0; f < numOfFragments; f++) {
+    		for(int g = 0; g < numOfFragments; g++) {
+    			if(priority[f] != priority[g]) {
+    				continue;
+    			}
+    			
+    			for(int i = 0; i < arrival[f].length; i++) {
+    				for(int j = 0; j < arrival[g].length; j++) {
+    					if(f == g && i == j) {
+    						continue;
+    					}
+    					
+    					if(arrival[f][i] <= arrival[g][j] + PAIR_RULE_TOLERANCE &&
+    					   scheduled[f][i] > scheduled[g][j] - transmission[g] - interframeGap - PAIR_RULE_TOLERANCE &&
+    					   this.addedPairRules.add("order:" + f + ":" + i + ":" + g + ":" + j)) {
+    						solver.add(this.packetOrderRule(ctx, this.flowFragments.get(f), i, this.flowFragments.get(g), j));
+    						numOfAddedRules++;
+    					}
+    				}
+    			}
+    		}
+    	}
+    	
+    	// Slot values of the candidate model
+    	double[][] slotStart = new double[this.cycle.getNumOfPrts()][];
+    	double[][] slotDuration = new double[this.cycle.getNumOfPrts()][];
+    	double guardBand = this.valueOf(model, this.gbSizeZ3);
+    	
+    	for(int prt = 0; prt < this.cycle.getNumOfPrts(); prt++) {
+    		// Overlap rules may refer to as many slots as the priority with most slots
+    		int numOfSlots = 0;
+    		for(int auxPrt = 0; auxPrt < this.cycle.getNumOfPrts(); auxPrt++) {
+    			numOfSlots = Math.max(numOfSlots, this.cycle.getNumOfSlots(auxPrt));
+    		}
+    		
+    		slotStart[prt] = new double[numOfSlots];
+    		slotDuration[prt] = new double[numOfSlots];
+    		
+    		for(int index = 0; index < numOfSlots; index++) {
+    			slotStart[prt][index] = this.valueOf(model, cycle.slotStartZ3(ctx, cache.mkInt(prt), cache.mkInt(index)));
+    			slotDuration[prt][index] = this.valueOf(model, cycle.slotDurationZ3(ctx, cache.mkInt(prt), cache.mkInt(index)));
+    		}
+    	}
+    	
+    	for(int prt = 0; prt < this.cycle.getNumOfPrts(); prt++) {
+    		for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
+    			double start = slotStart[prt][index];
+    			double end = start + slotDuration[prt][index];
+    			
+    			for(int auxPrt = 0; auxPrt < this.cycle.getNumOfPrts(); auxPrt++) {
+    				if(auxPrt == prt) {
+    					continue;
+    				}
+    				
+    				for(int auxIndex = 0; auxIndex < this.cycle.getNumOfSlots(prt); auxIndex++) {
+    					double auxStart = slotStart[auxPrt][auxIndex];
+    					double auxEnd = auxStart + slotDuration[auxPrt][auxIndex];
+    					
+    					if(start < auxEnd + PAIR_RULE_TOLERANCE && end > auxStart - PAIR_RULE_TOLERANCE &&
+    					   this.addedPairRules.add("overlap:" + prt + ":" + index + ":" + auxPrt + ":" + auxIndex)) {
+    						solver.add(this.slotOverlapRule(ctx, prt, index, auxPrt, auxIndex));
+    						numOfAddedRules++;
+    					}
+    				}
+    				
+    				for(int auxIndex = 0; auxIndex < this.cycle.getNumOfSlots(auxPrt); auxIndex++) {
+    					double auxStart = slotStart[auxPrt][auxIndex];
+    					double auxEnd = auxStart + slotDuration[auxPrt][auxIndex];
+    					
+    					if(start > auxStart - PAIR_RULE_TOLERANCE && start < auxEnd + guardBand + PAIR_RULE_TOLERANCE &&
+    					   this.addedPairRules.add("guardBand:" + prt + ":" + index + ":" + auxPrt + ":" + auxIndex)) {
+    						solver.add(this.guardBandRule(ctx, prt, index, auxPrt, auxIndex));
+    						numOfAddedRules++;
+    					}
+    				}
+    			}
+    		}
+    	}
+    	
+    	return numOfAddedRules;
+    }
+    
+    /**
+     * [Method]: getNumOfPairRules
+     * [Usage]: Returns the number of pair rules (packet transmission 
+     * order, slot overlap and guard band) that this port asserts when
+     * its pair rules are not lazy.
+     * 
+     * @return              Number of pair rules of the port
+     */
+    public int getNumOfPairRules() {
+    	int numOfRules = 0;
+    	int numOfPackets = 0;
+    	
+    	if(this.flowFragments.size() == 0) {
+    		return 0;
+    	}
+    	
+    	for(FlowFragment frag : this.flowFragments) {
+    		numOfPackets += frag.getNumOfPacketsSent();
+    	}
+    	numOfRules += numOfPackets * (numOfPackets - 1);
+    	
+    	for(int prt = 0; prt < this.cycle.getNumOfPrts(); prt++) {
+    		for(int auxPrt = 0; auxPrt < this.cycle.getNumOfPrts(); auxPrt++) {
+    			numOfRules += this.cycle.getNumOfSlots(prt) * this.cycle.getNumOfSlots(auxPrt);
+    			if(auxPrt != prt) {
+    				numOfRules += this.cycle.getNumOfSlots(prt) * this.cycle.getNumOfSlots(prt);
+    			}
+    		}
+    	}
+    	
+    	return numOfRules;
+    }
+    
+    /*
+     * Evaluates a numeric expression on the model. Rational values
+     * are converted without going through strings.
+     */
+    private double valueOf(Model model, Expr expr) {
+    	Expr value = model.eval(expr, true);
+    	
+    	if(value instanceof RatNum) {
+    		return new BigDecimal(((RatNum) value).getBigIntNumerator())
+    				.divide(new BigDecimal(((RatNum) value).getBigIntDenominator()), MathContext.DECIMAL128)
+    				.doubleValue();
+    	} else if(value instanceof IntNum) {
+    		return ((IntNum) value).getBigInteger().doubleValue();
+    	}
+    	
+    	return Double.parseDouble(value.toString());
+    }
+   
+    
     /**
      * [Method]: setupBestEffort
      * [Usage]: Use in order to enable the best effort traffic reservation
@@ -1032,6 +1468,7 @@ public class Port implements Serializable {
      * @param ctx		Context object for the solver
      */
     public void setupBestEffort(Solver solver, Context ctx) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
         RealExpr []slotStart = new RealExpr[8];
         RealExpr []slotDuration = new RealExpr[8];
         // RealExpr guardBandTime = null;        
@@ -1045,12 +1482,12 @@ public class Port implements Serializable {
         }
         
         for(int numericFlowPriority = 0; numericFlowPriority < this.cycle.getNumOfPrts(); numericFlowPriority++) {
-        	IntExpr flowPriority = ctx.mkInt(numericFlowPriority);
+        	IntExpr flowPriority = cache.mkInt(numericFlowPriority);
             // RealExpr sumOfSlotsStart = ctx.mkReal(0);
             RealExpr sumOfSlotsDuration = ctx.mkReal(0);
         	
         	for(int i = 0; i < this.cycle.getNumOfSlots(numericFlowPriority); i++) {
-        		sumOfSlotsDuration = (RealExpr) ctx.mkAdd(cycle.slotDurationZ3(ctx, flowPriority, ctx.mkInt(i)));
+        		sumOfSlotsDuration = (RealExpr) ctx.mkAdd(cycle.slotDurationZ3(ctx, flowPriority, cache.mkInt(i)));
         	}
         	
         	/**/
@@ -1059,7 +1496,7 @@ public class Port implements Serializable {
                     ctx.mkImplies(
                         ctx.mkEq(
                         	flowPriority,
-                            ctx.mkInt(i)
+                            cache.mkInt(i)
                         ),
                         ctx.mkEq(
                             slotDuration[i-1],
@@ -1077,17 +1514,17 @@ public class Port implements Serializable {
             firstPartOfImplication = null;
             
             for(int numericFlowPriority = 0; numericFlowPriority < this.cycle.getNumOfPrts(); numericFlowPriority++) {
-            	IntExpr flowPriority = ctx.mkInt(numericFlowPriority);
+            	IntExpr flowPriority = cache.mkInt(numericFlowPriority);
                 if(firstPartOfImplication == null) {
                     firstPartOfImplication = ctx.mkNot(ctx.mkEq(
                     							flowPriority,
-                                                ctx.mkInt(i)
+                                                cache.mkInt(i)
                                              ));
                 } else {
                     firstPartOfImplication = ctx.mkAnd(firstPartOfImplication, 
                                              ctx.mkNot(ctx.mkEq(
                                         		 flowPriority,
-                                                 ctx.mkInt(i)
+                                                 cache.mkInt(i)
                                              )));
                 } 
             }
@@ -1146,24 +1583,6 @@ public class Port implements Serializable {
         
     }
     
-    /**
-     * [Method]: gcd
-     * [Usage]: Method used to obtain the greatest common
-     * divisor of two values.
-     * 
-     * @param a		First value
-     * @param b		Second value
-     * @return		Greatest common divisor or the two previous parameters
-     */
-    static double gcd(double a, double b) { 
-        if (a == 0) {
-            return b;             
-        }
-        
-        return gcd(b % a, a); 
-    } 
-  
-    
     /**
      * [Method]: findGCD
      * [Usage]: Retrieves the value of the greatest common divisor 
@@ -1172,13 +1591,8 @@ public class Port implements Serializable {
      * @param arr	Array of double values
      * @return		Greatest common divisor of all values of arr
      */
-    static double findGCD(ArrayList<Double> arr) { 
-        double gdc = arr.get(0); 
-        for (int i = 1; i < arr.size(); i++) {            
-            gdc = gcd(arr.get(i), gdc); 
-        }
-  
-        return gdc; 
+    public static double findGCD(ArrayList<Double> arr) { 
+        return PeriodArithmetic.gcd(arr); 
     } 
     
     
@@ -1190,43 +1604,8 @@ public class Port implements Serializable {
      * @param arr 		Array of double values
      * @return			Least common multiple of all values of arr	
      */
-    static double findLCM(ArrayList<Double> arr) {
-    	
-    	double n = arr.size();
-    	
-    	double max_num = 0; 
-        for (int i = 0; i < n; i++) { 
-            if (max_num < arr.get(i)) { 
-                max_num = arr.get(i); 
-            } 
-        } 
-
-        double res = 1; 
- 
-        double x = 2;  
-        while (x <= max_num) {  
-            Vector<Integer> indexes = new Vector<>(); 
-            for (int j = 0; j < n; j++) { 
-                if (arr.get(j) % x == 0) { 
-                    indexes.add(indexes.size(), j); 
-                } 
-            } 
-            if (indexes.size() >= 2) { 
-                for (int j = 0; j < indexes.size(); j++) { 
-                    arr.set(indexes.get(j), arr.get(indexes.get(j)) / x); 
-                } 
-  
-                res = res * x; 
-            } else { 
-                x++; 
-            } 
-        } 
-  
-        for (int i = 0; i < n; i++) { 
-            res = res * arr.get(i); 
-        } 
-  
-        return res; 
+    public static double findLCM(ArrayList<Double> arr) {
+        return PeriodArithmetic.lcm(arr);
     }
     
     
@@ -1241,9 +1620,10 @@ public class Port implements Serializable {
     public void setUpHyperCycle(Solver solver, Context ctx) {
         int numOfPacketsScheduled = 0;
 
-        double hyperCycleSize = findLCM((ArrayList<Double>) listOfPeriods.clone());
+        double hyperCycleSize = findLCM(this.listOfPeriods);
         
         this.definedHyperCycleSize = hyperCycleSize;
+        this.expansionFactor = PeriodArithmetic.expansionFactor(this.listOfPeriods);
         
         this.cycleUpperBoundRange = 1;
 
@@ -1256,7 +1636,7 @@ public class Port implements Serializable {
         */
         
         for(Double periodicity : this.listOfPeriods) {
-        	numOfPacketsScheduled += (int) (hyperCycleSize/periodicity);
+        	numOfPacketsScheduled += PeriodArithmetic.packetsPerPeriod(hyperCycleSize, periodicity);
         }
         
         // System.out.println("Num of Cycles: " + this.cycleUpperBoundRange);
@@ -1288,12 +1668,13 @@ public class Port implements Serializable {
         }
         */
 
-        this.microCycleSize = findGCD((ArrayList<Double>) listOfPeriods.clone());
-        double hyperCycleSize = findLCM((ArrayList<Double>) listOfPeriods.clone());
+        this.microCycleSize = findGCD(this.listOfPeriods);
+        double hyperCycleSize = findLCM(this.listOfPeriods);
         
         this.definedHyperCycleSize = hyperCycleSize;
+        this.expansionFactor = PeriodArithmetic.expansionFactor(this.listOfPeriods);
         
-        this.cycleUpperBoundRange = (int) (hyperCycleSize/microCycleSize);
+        this.cycleUpperBoundRange = PeriodArithmetic.packetsPerPeriod(hyperCycleSize, microCycleSize);
 
         /*
         for(FlowFragment flowFrag : this.flowFragments) {
@@ -1322,6 +1703,7 @@ public class Port implements Serializable {
      * @param ctx		Context object for the solver
      */
     public void bindTimeSlots(Solver solver, Context ctx) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
     	
     	// Ideia = se a prioridade de um flow e' igual a um numero, 
     	// ctx.mkeq nele com o slot the cycle (getSlotS/D(prt, slotnum))
@@ -1330,15 +1712,15 @@ public class Port implements Serializable {
         		for(int slotIndex = 0; slotIndex < this.cycle.getNumOfSlots(prtIndex); slotIndex++) {
             		solver.add(
         				ctx.mkImplies(
-        					ctx.mkEq(frag.getFragmentPriorityZ3(), ctx.mkInt(prtIndex)),
+        					ctx.mkEq(frag.getFragmentPriorityZ3(), cache.mkInt(prtIndex)),
         					ctx.mkAnd(
     							ctx.mkEq(
-									cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(slotIndex)), 
-									cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), ctx.mkInt(slotIndex)) 
+									cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), cache.mkInt(slotIndex)), 
+									cycle.slotStartZ3(ctx, cache.mkInt(prtIndex), cache.mkInt(slotIndex)) 
 								),
     							ctx.mkEq(
-									cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(slotIndex)), 
-									cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), ctx.mkInt(slotIndex)) 
+									cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), cache.mkInt(slotIndex)), 
+									cycle.slotDurationZ3(ctx, cache.mkInt(prtIndex), cache.mkInt(slotIndex)) 
 								)
 							)
         				)	
@@ -1359,6 +1741,7 @@ public class Port implements Serializable {
      * @param ctx           z3 context which specify the environment of constants, functions and variables
      */
     public void setUpCycle(Solver solver, Context ctx) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
 
     	if(this.cycle.getFirstCycleStartZ3() == null) {
         	this.cycle.toZ3(ctx);
@@ -1375,19 +1758,29 @@ public class Port implements Serializable {
             setUpMicroCycles(solver, ctx);
                         
             solver.add(
-	            ctx.mkEq(this.cycle.getCycleDurationZ3(), ctx.mkReal(Double.toString(this.microCycleSize)))
+	            ctx.mkEq(this.cycle.getCycleDurationZ3(), cache.mkReal(this.microCycleSize))
 	        );
             this.cycle.setCycleDuration(this.microCycleSize);
         } else if (useHyperCycle && this.listOfPeriods.size() > 0) {
         	setUpHyperCycle(solver, ctx);
 
         	solver.add(
-	            ctx.mkEq(this.cycle.getCycleDurationZ3(), ctx.mkReal(Double.toString(this.definedHyperCycleSize)))
+	            ctx.mkEq(this.cycle.getCycleDurationZ3(), cache.mkReal(this.definedHyperCycleSize))
 	        );
             this.cycle.setCycleDuration(this.definedHyperCycleSize);
 
         }
 
+        /*
+         * Packet times past the packets sent by a fragment are built with the
+         * cycle range of the port, which may have been changed above.
+         */
+        for(FlowFragment frag : this.flowFragments) {
+            cache.remove(ExpressionCache.SCHEDULED_TIME, frag);
+            cache.remove(ExpressionCache.ARRIVAL_TIME, frag);
+            cache.remove(ExpressionCache.DEPARTURE_TIME, frag);
+        }
+
     }
     
     /**
@@ -1400,6 +1793,7 @@ public class Port implements Serializable {
      * @param ctx
      */
     public void zeroOutNonUsedSlots(Solver solver, Context ctx) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
     	
     	if(this.useMicroCycles) {
     		return;
@@ -1437,7 +1831,7 @@ public class Port implements Serializable {
 		for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
 			for(int cycleNum = 0; cycleNum < this.cycleUpperBoundRange; cycleNum++) {
 				for(int indexNum = 0; indexNum < this.cycle.getNumOfSlots(prtIndex); indexNum++) {
-					indexZ3 = ctx.mkInt(indexNum);
+					indexZ3 = cache.mkInt(indexNum);
     				exp1 = ctx.mkTrue();
         			for(FlowFragment frag : this.flowFragments) {
         				for(int packetNum = 0; packetNum < frag.getNumOfPacketsSent(); packetNum++) {
@@ -1449,19 +1843,19 @@ public class Port implements Serializable {
 	    		    							ctx.mkGe(
     		    									ctx.mkSub(
 		    											this.scheduledTime(ctx, packetNum, frag),
-	    												ctx.mkDiv(frag.getPacketSizeZ3(), this.portSpeedZ3)
+	    												this.transmissionTimeZ3(ctx, frag)
 	    											),
 	    											ctx.mkAdd( 
-	    		                                        cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-	    		                                        cycle.cycleStartZ3(ctx, ctx.mkInt(cycleNum))
+	    		                                        cycle.slotStartZ3(ctx, cache.mkInt(prtIndex), indexZ3),
+	    		                                        cycle.cycleStartZ3(ctx, cache.mkInt(cycleNum))
 	    		                                    )
 	    										),
 	    		    							ctx.mkLe(
 	    											this.scheduledTime(ctx, packetNum, frag),
 	    											ctx.mkAdd( 
-	    		                                        cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-	    		                                        cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-	    		                                        cycle.cycleStartZ3(ctx, ctx.mkInt(cycleNum))
+	    		                                        cycle.slotStartZ3(ctx, cache.mkInt(prtIndex), indexZ3),
+	    		                                        cycle.slotDurationZ3(ctx, cache.mkInt(prtIndex), indexZ3),
+	    		                                        cycle.cycleStartZ3(ctx, cache.mkInt(cycleNum))
 	    		                                    )
 	    										)
 	    									)	
@@ -1476,7 +1870,7 @@ public class Port implements Serializable {
     				solver.add(
     					ctx.mkImplies(
 							exp1, 	
-							ctx.mkEq(cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), indexZ3), ctx.mkReal(0)) 
+							ctx.mkEq(cycle.slotDurationZ3(ctx, cache.mkInt(prtIndex), indexZ3), ctx.mkReal(0)) 
 						)
     				);
     			}   
@@ -1499,13 +1893,14 @@ public class Port implements Serializable {
      * @param ctx           z3 context which specify the environment of constants, functions and variables
      */
     public void setupSchedulingRules(Solver solver, Context ctx) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
 
     	
 
     	/**/
     	if (this.flowFragments.size() == 0) {
     		solver.add(ctx.mkEq( 
-                ctx.mkReal(Double.toString(0)), 
+                cache.mkReal(0), 
                 this.cycle.getCycleDurationZ3()
             ));
     		// solver.add(ctx.mkEq( 
@@ -1575,9 +1970,10 @@ public class Port implements Serializable {
      */
     
     public RealExpr departureTime(Context ctx, IntExpr index, FlowFragment flowFrag){
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
                 
         // If the index is 0, then its the first departure time, else add index * periodicity
-        return this.departureTime(ctx, (Integer.parseInt(index.toString())), flowFrag);
+        return this.departureTime(ctx, cache.intValueOf(index), flowFrag);
         
         /*
         return (RealExpr) ctx.mkITE( 
@@ -1602,29 +1998,32 @@ public class Port implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr departureTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-    	IntExpr index = null;
     	RealExpr departureTime;
     	int cycleNum = 0;
         
         if(auxIndex + 1 > flowFrag.getNumOfPacketsSent()) {
+        	ExpressionCache cache = ExpressionCache.getCache(ctx);
+        	
+        	departureTime = cache.get(ExpressionCache.DEPARTURE_TIME, flowFrag, auxIndex);
+        	if(departureTime != null) {
+        		return departureTime;
+        	}
 
 			cycleNum = (auxIndex - (auxIndex % flowFrag.getNumOfPacketsSent()))/flowFrag.getNumOfPacketsSent();
 
-        	auxIndex = (auxIndex % flowFrag.getNumOfPacketsSent());
-
         	departureTime = (RealExpr)
         			ctx.mkAdd(
-    					flowFrag.getDepartureTimeZ3(auxIndex), 
+    					flowFrag.getDepartureTimeZ3(auxIndex % flowFrag.getNumOfPacketsSent()), 
     					ctx.mkMul(
-                            ctx.mkReal(cycleNum),
+                            cache.mkReal(cycleNum),
                             ctx.mkMul(
                                 this.cycle.getCycleDurationZ3(),
-                                ctx.mkReal(this.cycleUpperBoundRange)
+                                cache.mkReal(this.cycleUpperBoundRange)
                             )
                         )
 					);
 
-        	return departureTime;
+        	return cache.put(ExpressionCache.DEPARTURE_TIME, flowFrag, auxIndex, departureTime);
         }
         
         departureTime = flowFrag.getDepartureTimeZ3(auxIndex);
@@ -1670,12 +2069,19 @@ public class Port implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr arrivalTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-        IntExpr index = ctx.mkInt(auxIndex);
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
+    	RealExpr arrivalTime = cache.get(ExpressionCache.ARRIVAL_TIME, flowFrag, auxIndex);
+    	
+    	if(arrivalTime != null) {
+    		return arrivalTime;
+    	}
         
-        return (RealExpr) ctx.mkAdd( // Arrival time value constraint
-                        departureTime(ctx, index, flowFrag),
+        arrivalTime = (RealExpr) ctx.mkAdd( // Arrival time value constraint
+                        departureTime(ctx, auxIndex, flowFrag),
                         timeToTravelZ3
                         );
+        
+        return cache.put(ExpressionCache.ARRIVAL_TIME, flowFrag, auxIndex, arrivalTime);
     }
    
     /**
@@ -1718,38 +2124,35 @@ public class Port implements Serializable {
      * @return              Returns the z3 variable for the scheduled time of the desired packet
      */
     public RealExpr scheduledTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-    	IntExpr index = null;
-    	RealExpr scheduledTime;
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
+    	RealExpr scheduledTime = cache.get(ExpressionCache.SCHEDULED_TIME, flowFrag, auxIndex);
     	int cycleNum = 0;
     	
+    	if(scheduledTime != null) {
+    		return scheduledTime;
+    	}
+    	
         if(auxIndex + 1 > flowFrag.getNumOfPacketsSent()) {
 			cycleNum = (auxIndex - (auxIndex % flowFrag.getNumOfPacketsSent()))/flowFrag.getNumOfPacketsSent();
-
-        	auxIndex = (auxIndex % flowFrag.getNumOfPacketsSent());
-        	index = ctx.mkInt(auxIndex);
         	
         	scheduledTime = (RealExpr)
         			ctx.mkAdd(
-    					ctx.mkRealConst(flowFrag.getName() + "ScheduledTime" + index.toString()), 
+    					this.scheduledTime(ctx, auxIndex % flowFrag.getNumOfPacketsSent(), flowFrag), 
     					ctx.mkMul(
-                            ctx.mkReal(cycleNum),
+                            cache.mkReal(cycleNum),
                             ctx.mkMul(
                                 this.cycle.getCycleDurationZ3(),
-                                ctx.mkReal(this.cycleUpperBoundRange)
+                                cache.mkReal(this.cycleUpperBoundRange)
                             )
                         )
 					);
         	
-        	
-        	return scheduledTime;
+        	return cache.put(ExpressionCache.SCHEDULED_TIME, flowFrag, auxIndex, scheduledTime);
         }
         
-        index = ctx.mkInt(auxIndex);
-        
+        scheduledTime = cache.mkTimeConst(flowFrag.getName() + "ScheduledTime" + auxIndex);
         
-        scheduledTime = ctx.mkRealConst(flowFrag.getName() + "ScheduledTime" + index.toString());
-        
-        return (RealExpr) scheduledTime;
+        return cache.put(ExpressionCache.SCHEDULED_TIME, flowFrag, auxIndex, scheduledTime);
     }
 
     
@@ -1777,6 +2180,7 @@ public class Port implements Serializable {
      * @param solver	Solver object
      */
     public void loadZ3(Context ctx, Solver solver) {
+    	ExpressionCache cache = ExpressionCache.getCache(ctx);
     	
 //    	System.out.println("Loading port " + this.name + " with duration " + this.cycle.getCycleDurationZ3());
     	
@@ -1785,7 +2189,7 @@ public class Port implements Serializable {
     	for(FlowFragment frag : this.flowFragments) {
     		
     		frag.setFragmentPriorityZ3(
-				ctx.mkInt(
+				cache.mkInt(
 					frag.getFragmentPriority()				
 				)
 			);
@@ -1802,23 +2206,15 @@ public class Port implements Serializable {
     		for(int index = 0; index < this.cycle.getNumOfSlots(frag.getFragmentPriority()); index++) {
     			solver.add(
 					ctx.mkEq(
-						this.cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(index)), 
-						ctx.mkReal(
-							Double.toString(
-								this.cycle.getSlotDuration(frag.getFragmentPriority(), index)
-							)
-						)
+						this.cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), cache.mkInt(index)), 
+						cache.mkReal(this.cycle.getSlotDuration(frag.getFragmentPriority(), index))
 					)
 				);
     			
     			solver.add(
 					ctx.mkEq(
-						this.cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(index)), 
-						ctx.mkReal(
-							Double.toString(
-								this.cycle.getSlotStart(frag.getFragmentPriority(), index)
-							)
-						)
+						this.cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), cache.mkInt(index)), 
+						cache.mkReal(this.cycle.getSlotStart(frag.getFragmentPriority(), index))
 					)
 				);
     			
@@ -1834,19 +2230,19 @@ public class Port implements Serializable {
 				);
     			*/
     			if (i > 0)
-    				frag.addDepartureTimeZ3(ctx.mkReal(Double.toString(frag.getDepartureTime(i))));
+    				frag.addDepartureTimeZ3(cache.mkReal(frag.getDepartureTime(i)));
     			
     			solver.add(
 					ctx.mkEq(
 						this.arrivalTime(ctx, i, frag),
-						ctx.mkReal(Double.toString(frag.getArrivalTime(i)))
+						cache.mkReal(frag.getArrivalTime(i))
 					)
 				);
     			
     			solver.add(
 					ctx.mkEq(
 						this.scheduledTime(ctx, i, frag),
-						ctx.mkReal(Double.toString(frag.getScheduledTime(i)))
+						cache.mkReal(frag.getScheduledTime(i))
 					)
 				);
     			
@@ -1938,6 +2334,22 @@ public class Port implements Serializable {
 		this.cycleUpperBoundRange = cycleUpperBoundRange;
 	}
 
+	public int getExpansionFactor() {
+		return expansionFactor;
+	}
+
+	public void setExpansionFactor(int expansionFactor) {
+		this.expansionFactor = expansionFactor;
+	}
+
+	public double getMicroCycleSize() {
+		return microCycleSize;
+	}
+
+	public void setMicroCycleSize(double microCycleSize) {
+		this.microCycleSize = microCycleSize;
+	}
+
 	public double getDefinedHyperCycleSize() {
 		return definedHyperCycleSize;
 	}
@@ -2043,6 +2455,15 @@ public class Port implements Serializable {
 	}
 
 
+	public double getInterframeGapSize() {
+		return interframeGapSize;
+	}
+
+	public void setInterframeGapSize(double interframeGapSize) {
+		this.interframeGapSize = interframeGapSize;
+	}
+
+
 	public void setPortSpeed(double portSpeed) {
 		this.portSpeed = portSpeed;
 	}
@@ -2093,6 +2514,81 @@ public class Port implements Serializable {
 		
 	}
 
+
+	public Boolean getLazyPairRules() {
+		return lazyPairRules != null && lazyPairRules;
+	}
+
+
+	public void setLazyPairRules(Boolean lazyPairRules) {
+		this.lazyPairRules = lazyPairRules;
+		this.addedPairRules = null;
+	}
+
+
+	public Boolean getPruneWithWindows() {
+		return pruneWithWindows != null && pruneWithWindows;
+	}
+
+
+	public void setPruneWithWindows(Boolean pruneWithWindows) {
+		this.pruneWithWindows = pruneWithWindows;
+		this.checkedPairRules = 0;
+		this.prunedPairRules = 0;
+		this.checkedCycleRules = 0;
+		this.prunedCycleRules = 0;
+	}
+
+
+	public int getCheckedPairRules() {
+		return checkedPairRules;
+	}
+
+
+	public int getPrunedPairRules() {
+		return prunedPairRules;
+	}
+
+
+	public int getCheckedCycleRules() {
+		return checkedCycleRules;
+	}
+
+
+	public int getPrunedCycleRules() {
+		return prunedCycleRules;
+	}
+
+
+	public double getBestEffortPercent() {
+		return bestEffortPercent;
+	}
+
+
+	public void setBestEffortPercent(double bestEffortPercent) {
+		this.bestEffortPercent = bestEffortPercent;
+	}
+
+
+	public int getPacketUpperBoundRange() {
+		return packetUpperBoundRange;
+	}
+
+
+	public void setPacketUpperBoundRange(int packetUpperBoundRange) {
+		this.packetUpperBoundRange = packetUpperBoundRange;
+	}
+
+
+	public double getMaxPacketSize() {
+		return maxPacketSize;
+	}
+
+
+	public double getTransmissionTime() {
+		return transmissionTime;
+	}
+
 		
 	
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.interface_manager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.google.gson.stream.JsonWriter;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: JSONOutputWriter
+ * [Usage]: Writes the schedule of a network in the format of the
+ * output.json file, streaming it from the network objects with a
+ * Gson JsonWriter instead of building a tree of maps first.
+ *
+ * The fields are written in the order in which Gson writes the maps of
+ * JSONParser.generateOutputContent, so with pretty printing both give
+ * the same file. Without it, the output has no whitespace.
+ */
+public class JSONOutputWriter {
+
+	private Boolean prettyPrinting = true;
+
+
+	public JSONOutputWriter() {
+		;
+	}
+
+	public JSONOutputWriter(Boolean prettyPrinting) {
+		this.prettyPrinting = prettyPrinting;
+	}
+
+
+	/**
+	 * [Method]: write
+	 * [Usage]: Writes the schedule of the network in the given writer.
+	 * The writer is flushed, but not closed.
+	 *
+	 * @param net		Network with the schedule already generated
+	 * @param writer	Destination of the output
+	 */
+	public void write(Network net, Writer writer) throws IOException {
+		JsonWriter json = new JsonWriter(writer);
+
+		// Same settings as the Gson instance of JSONParser
+		json.setHtmlSafe(true);
+		json.setSerializeNulls(false);
+		if(this.prettyPrinting) {
+			json.setIndent("  ");
+		}
+
+		json.beginObject();
+		json.name("flows");
+		this.writeFlows(net, json);
+		json.name("switches");
+		this.writeSwitches(net, json);
+		json.endObject();
+
+		json.flush();
+	}
+
+
+	/**
+	 * [Method]: writeToFile
+	 * [Usage]: Writes the schedule of the network in a file through a
+	 * buffered writer.
+	 *
+	 * @param net			Network with the schedule already generated
+	 * @param outputPath	Path of the output file
+	 */
+	public void writeToFile(Network net, String outputPath) throws IOException {
+		Writer writer = Files.newBufferedWriter(Paths.get(outputPath), StandardCharsets.UTF_8);
+
+		try {
+			this.write(net, writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	/**
+	 * [Method]: writeToChannel
+	 * [Usage]: Writes the schedule of the network in a channel, such
+	 * as a FileChannel or a socket. The channel is not closed.
+	 *
+	 * @param net			Network with the schedule already generated
+	 * @param channel		Destination of the output
+	 */
+	public void writeToChannel(Network net, WritableByteChannel channel) throws IOException {
+		Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), 8192));
+
+		this.write(net, writer);
+	}
+
+
+	/**
+	 * [Method]: writeToString
+	 * [Usage]: Retrieves the content of the output file.
+	 *
+	 * @param net			Network with the schedule already generated
+	 * @return				Content of the output file
+	 */
+	public String writeToString(Network net) {
+		StringWriter writer = new StringWriter();
+
+		try {
+			this.write(net, writer);
+		} catch (IOException e) {
+			// A StringWriter doesn't throw
+			e.printStackTrace();
+		}
+
+		return writer.toString();
+	}
+
+
+	private void writeSwitches(Network net, JsonWriter json) throws IOException {
+		json.beginArray();
+
+		for(Switch swt : net.getSwitches()) {
+			json.beginObject();
+			json.name("name").value(swt.getName());
+			json.name("ports");
+			json.beginArray();
+
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				Cycle cyc = port.getCycle();
+
+				json.beginObject();
+				json.name("cycleDuration").value(cyc.getCycleDuration());
+				json.name("name").value(port.getName());
+				json.name("firstCycleStart").value(cyc.getFirstCycleStart());
+				json.name("prioritySlotsData");
+				json.beginArray();
+
+				for(int prt : cyc.getSlotsUsed()) {
+					json.beginObject();
+					json.name("slotsData");
+					json.beginArray();
+
+					for(int i = 0; i < cyc.getSlotStartList(prt).size(); i++) {
+						if(cyc.getSlotDuration(prt, i) > 0) {
+							json.beginObject();
+							json.name("slotDuration").value(cyc.getSlotDuration(prt, i));
+							json.name("slotStart").value(cyc.getSlotStart(prt, i));
+							json.endObject();
+						}
+					}
+
+					json.endArray();
+					json.name("priority").value(prt);
+					json.endObject();
+				}
+
+				json.endArray();
+				json.endObject();
+			}
+
+			json.endArray();
+			json.endObject();
+		}
+
+		json.endArray();
+	}
+
+
+	private void writeFlows(Network net, JsonWriter json) throws IOException {
+		json.beginArray();
+
+		for(Flow flow : net.getFlows()) {
+			json.beginObject();
+			json.name("averageLatency").value(flow.getAverageLatency());
+			json.name("jitter").value(flow.getAverageJitter());
+			json.name("name").value(flow.getName());
+			json.name("firstSendingTime").value(flow.getFlowFirstSendingTime());
+
+			if(flow.isFixedPriority()) {
+				json.name("flowPriority").value(flow.getPriorityValue());
+			} else {
+				json.name("hops");
+				json.beginArray();
+				this.writeHops(flow.getPathTree().getRoot().getChildren().get(0), json);
+				json.endArray();
+			}
+
+			json.endObject();
+		}
+
+		json.endArray();
+	}
+
+
+	/*
+	 * Writes the fragments of the node and of its children, in the
+	 * same order as JSONParser.recursiveHopInfoGathering.
+	 */
+	private void writeHops(PathNode node, JsonWriter json) throws IOException {
+		if(node.getFlowFragments() == null) {
+			return;
+		}
+
+		for(FlowFragment frag : node.getFlowFragments()) {
+			json.beginObject();
+			json.name("nextNodeName").value(frag.getNextHop());
+			json.name("currentNodeName").value(frag.getNodeName());
+			json.name("priority").value(frag.getFragmentPriority());
+			json.endObject();
+		}
+
+		for(PathNode childNode : node.getChildren()) {
+			this.writeHops(childNode, json);
+		}
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public Boolean getPrettyPrinting() {
+		return prettyPrinting;
+	}
+
+	public void setPrettyPrinting(Boolean prettyPrinting) {
+		this.prettyPrinting = prettyPrinting;
+	}
+
+}
@@ -10,10 +10,10 @@ import com.tsnsched.core.network.*;
 import com.tsnsched.core.schedule_generator.*;
 
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.Charset;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -23,6 +23,8 @@ import java.util.List;
 import java.util.Map;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.json.*;
 
 
@@ -33,6 +35,10 @@ public class JSONParser implements GenericParser {
 
 	private Printer printer;
 	
+	// Nodes read so far, by name, to resolve the flows without scanning the network
+	private HashMap<String, Device> devicesByName = new HashMap<String, Device>();
+	private HashMap<String, Switch> switchesByName = new HashMap<String, Switch>();
+	
 
 
 	public JSONParser() {
@@ -55,7 +61,21 @@ public class JSONParser implements GenericParser {
 
 	    		for(JsonElement jsonElement : devicesDataObject ) {
 	    			
-	    			JsonObject deviceObject = jsonElement.getAsJsonObject();
+	    			listOfDevices.add(this.createDevice(jsonElement.getAsJsonObject()));
+	    			
+	    		}
+	    		
+		    }
+		    
+		}
+		
+		Device[] arrayOfDevices = new Device[listOfDevices.size()];
+		listOfDevices.toArray(arrayOfDevices);
+		return arrayOfDevices;
+		
+	}
+	
+	private Device createDevice(JsonObject deviceObject) {
 	    			
 	    			Device dev = new Device(deviceObject.get("name").getAsString());
 	    			
@@ -95,22 +115,14 @@ public class JSONParser implements GenericParser {
 						);
 	    			}
 	    			
-	    			listOfDevices.add(dev);
+	    			if(!this.devicesByName.containsKey(dev.getName())) {
+	    				this.devicesByName.put(dev.getName(), dev);
+	    			}
 	    			
-	    		}
-	    		
-		    }
-		    
-		}
-		
-		Device[] arrayOfDevices = new Device[listOfDevices.size()];
-		listOfDevices.toArray(arrayOfDevices);
-		return arrayOfDevices;
-		
+	    			return dev;
 	}
 	
 	private void setPortsOfSwitch(JsonObject jsonObject, Network net) {
-		List<Switch> listOfSwitches = new ArrayList<Switch>();
 		
 		if (jsonObject.has("switches")) {
 
@@ -121,8 +133,18 @@ public class JSONParser implements GenericParser {
 	    		for(JsonElement jsonElement : switchesDataObject ) {
 	    			
 	    			JsonObject switchObject = jsonElement.getAsJsonObject();
-	    			TSNSwitch swt = (TSNSwitch) net.getSwitch(switchObject.get("name").getAsString());
 	    			
+	    			this.createPortsOfSwitch(switchObject, (TSNSwitch) this.switchesByName.get(switchObject.get("name").getAsString()));
+	    				    			
+	    		}
+		        
+		    } 
+		    
+		} 
+		
+	}
+	
+	private void createPortsOfSwitch(JsonObject switchObject, TSNSwitch swt) {
 	    			if(switchObject.has("ports")) {
 
 	    			    JsonArray portsDataObject = this.getArrayFromElement(switchObject, "ports");
@@ -215,13 +237,6 @@ public class JSONParser implements GenericParser {
 	    			    }
 	    			    
 	    			}
-	    				    			
-	    		}
-		        
-		    } 
-		    
-		} 
-		
 	}
 	
 	public JsonArray getArrayFromElement(JsonObject object, String objectName) {
@@ -260,7 +275,21 @@ public class JSONParser implements GenericParser {
 		    	
 	    		for(JsonElement jsonElement : switchesDataObject ) {
 	    			
-	    			JsonObject switchObject = jsonElement.getAsJsonObject();
+	    			listOfSwitches.add(this.createSwitch(jsonElement.getAsJsonObject()));
+	    			
+	    		}
+		        
+		    } 
+		    
+		} 
+		
+		Switch[] arrayOfSwitches = new Switch[listOfSwitches.size()];
+		listOfSwitches.toArray(arrayOfSwitches);
+		return arrayOfSwitches;
+		
+	}
+	
+	private TSNSwitch createSwitch(JsonObject switchObject) {
 	    			
 	    			TSNSwitch swt = new TSNSwitch(switchObject.get("name").getAsString());
 	    			
@@ -306,18 +335,11 @@ public class JSONParser implements GenericParser {
 	    				}
 	    			}
 
-	    			listOfSwitches.add(swt);
+	    			if(!this.switchesByName.containsKey(swt.getName())) {
+	    				this.switchesByName.put(swt.getName(), swt);
+	    			}
 	    			
-	    		}
-		        
-		    } 
-		    
-		} 
-		
-		Switch[] arrayOfSwitches = new Switch[listOfSwitches.size()];
-		listOfSwitches.toArray(arrayOfSwitches);
-		return arrayOfSwitches;
-		
+	    			return swt;
 	}
 	
 	private Flow[] getListOfFlows(JsonObject jsonObject, Network net) {
@@ -331,7 +353,21 @@ public class JSONParser implements GenericParser {
 		    	
 	    		for(JsonElement jsonElement : flowsDataObject ) {
 
-	    			JsonObject flowObject = jsonElement.getAsJsonObject();
+	    			listOfFlows.add(this.createFlow(jsonElement.getAsJsonObject()));
+	    			
+	    		}
+	    		
+		    }
+		    
+		}
+		
+		Flow[] arrayOfFlows = new Flow[listOfFlows.size()];
+		listOfFlows.toArray(arrayOfFlows);
+		return arrayOfFlows;
+		
+	}
+	
+	private Flow createFlow(JsonObject flowObject) {
 	    			Flow flow;
 	    			
 	    			flow = new Flow(flowObject.get("name").getAsString(), Flow.PUBLISH_SUBSCRIBE);
@@ -372,7 +408,7 @@ public class JSONParser implements GenericParser {
 	    			}
 	    			
 	    			if(flowObject.has("sourceDevice")) {
-	    				flow.setStartDevice(net.getDevice(flowObject.get("sourceDevice").getAsString()));
+	    				flow.setStartDevice(this.devicesByName.get(flowObject.get("sourceDevice").getAsString()));
 	    			}
 	    			
 
@@ -402,7 +438,7 @@ public class JSONParser implements GenericParser {
 	    			    	
 	    			    	for(JsonElement endDevicesJsonElement : endDevicesDataObject ) {
 	    			    		
-	    			    		flow.setEndDevice(net.getDevice(endDevicesJsonElement.getAsString()));
+	    			    		flow.setEndDevice(this.devicesByName.get(endDevicesJsonElement.getAsString()));
 	    		    			
 	    			    	}
 	    			
@@ -419,12 +455,8 @@ public class JSONParser implements GenericParser {
 	    		    			
 	    		    			JsonObject hopObject = hopJsonElement.getAsJsonObject();
 	    		    			
-	    		    			Object source = net.getDevice(hopObject.get("currentNodeName").getAsString()) == null ?
-	    		    					net.getSwitch(hopObject.get("currentNodeName").getAsString()) :
-	    		    					net.getDevice(hopObject.get("currentNodeName").getAsString());
-	    		    			Object destination = net.getDevice(hopObject.get("nextNodeName").getAsString()) == null ?
-	    		    					net.getSwitch(hopObject.get("nextNodeName").getAsString()) :
-	    		    					net.getDevice(hopObject.get("nextNodeName").getAsString());
+	    		    			Object source = this.getNode(hopObject.get("currentNodeName").getAsString());
+	    		    			Object destination = this.getNode(hopObject.get("nextNodeName").getAsString());
 	    		    			
 	    		    			flow.addToPath(source, destination);
 	    		    			
@@ -434,41 +466,63 @@ public class JSONParser implements GenericParser {
 	    			
 	    			}
 	    			
-	    			listOfFlows.add(flow);
-	    			
-	    		}
-	    		
-		    }
-		    
-		}
-		
-		Flow[] arrayOfFlows = new Flow[listOfFlows.size()];
-		listOfFlows.toArray(arrayOfFlows);
-		return arrayOfFlows;
-		
+	    			return flow;
 	}
 
+	/**
+	 * [Method]: parseInput
+	 * [Usage]: Streams the input file through a buffered reader,
+	 * building the network one element at a time.
+	 * 
+	 * @return			Network described in the input file
+	 */
 	public Network parseInput() {
 
-		List<String> contentListOfLines; 
-		try {
-			contentListOfLines = Files.readAllLines(Paths.get(this.inputFilePath), Charset.forName("UTF-8"));
-		} catch(Exception e) {
-			contentListOfLines = new ArrayList<String>();
+		try (Reader reader = Files.newBufferedReader(Paths.get(this.inputFilePath), StandardCharsets.UTF_8)) {
+			return this.parseInputStream(reader);
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 		
-		for(String line : contentListOfLines) {
-			this.fileContent += line;
+		return null;
+	}
+	
+	/**
+	 * [Method]: parseInputContent
+	 * [Usage]: Builds the network described in a String with the
+	 * content of an input file.
+	 * 
+	 * @param content	Content of the input file
+	 * @return			Network described in the content
+	 */
+	public Network parseInputContent(String content) {
+		
+		try {
+			return this.parseInputStream(new StringReader(content));
+		} catch (IOException e) {
+			// A StringReader doesn't throw
+			e.printStackTrace();
 		}
 		
-		return this.parseInputContent(fileContent);
+		return null;
 	}
 	
-	public Network parseInputContent(String content) {
+	/**
+	 * [Method]: parseInputTree
+	 * [Usage]: Builds the network described in a String after reading
+	 * the whole content into a Gson tree. Gives the same network as
+	 * parseInputContent, but holds the tree of the input in memory.
+	 * 
+	 * @param content	Content of the input file
+	 * @return			Network described in the content
+	 */
+	public Network parseInputTree(String content) {
 		JsonObject networkJson = new Gson().fromJson(content, JsonObject.class);
 		
 		Network net = new Network();
 		
+		this.clearNodeIndexes();
+		
 		for(Switch swt : this.getListOfSwitches(networkJson)) {
 			net.addSwitch(swt);
 		}
@@ -486,6 +540,151 @@ public class JSONParser implements GenericParser {
 		return net;
 		
 	}
+	
+	/**
+	 * [Method]: parseInputStream
+	 * [Usage]: Reads the sections of the input with a JsonReader, keeping
+	 * only the element being read in memory. Switches and their ports are
+	 * created as they are read, in the same order as parseInputTree. Flows
+	 * are created as they are read if the switches and devices came
+	 * before them in the input, or at the end otherwise.
+	 * 
+	 * @param in		Reader of the input content
+	 * @return			Network described in the input
+	 */
+	public Network parseInputStream(Reader in) throws IOException {
+		JsonReader reader = new JsonReader(in);
+		Network net = new Network();
+		ArrayList<JsonObject> pendingFlows = new ArrayList<JsonObject>();
+		Boolean hasSwitches = false;
+		Boolean hasDevices = false;
+		
+		this.clearNodeIndexes();
+		
+		// Same as the Gson instance used by parseInputTree
+		reader.setLenient(true);
+		
+		reader.beginObject();
+		
+		while(reader.hasNext()) {
+			String section = reader.nextName();
+			
+			switch(section) {
+				case "switches":
+					this.readSection(reader, section, net, hasSwitches && hasDevices, pendingFlows);
+					hasSwitches = true;
+					break;
+				case "devices":
+					this.readSection(reader, section, net, hasSwitches && hasDevices, pendingFlows);
+					hasDevices = true;
+					break;
+				case "flows":
+					this.readSection(reader, section, net, hasSwitches && hasDevices, pendingFlows);
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		
+		reader.endObject();
+		
+		this.addPendingFlows(net, pendingFlows);
+		
+		return net;
+	}
+	
+	void addPendingFlows(Network net, ArrayList<JsonObject> pendingFlows) {
+		for(JsonObject flowObject : pendingFlows) {
+			net.addFlow(this.createFlow(flowObject));
+		}
+	}
+	
+	void clearNodeIndexes() {
+		this.devicesByName.clear();
+		this.switchesByName.clear();
+	}
+	
+	/*
+	 * Reads the elements of a section, given as an array or, as in the
+	 * files converted from XML, in an object with an "element" field.
+	 */
+	private void readSection(JsonReader reader, String section, Network net, Boolean nodesRead, ArrayList<JsonObject> pendingFlows) throws IOException {
+		
+		if(reader.peek() == JsonToken.BEGIN_ARRAY) {
+			reader.beginArray();
+			while(reader.hasNext()) {
+				this.readElement(reader, section, net, nodesRead, pendingFlows);
+			}
+			reader.endArray();
+		} else if(reader.peek() == JsonToken.BEGIN_OBJECT) {
+			reader.beginObject();
+			while(reader.hasNext()) {
+				if(!reader.nextName().equals("element")) {
+					reader.skipValue();
+				} else if(reader.peek() == JsonToken.BEGIN_ARRAY) {
+					reader.beginArray();
+					while(reader.hasNext()) {
+						this.readElement(reader, section, net, nodesRead, pendingFlows);
+					}
+					reader.endArray();
+				} else {
+					this.readElement(reader, section, net, nodesRead, pendingFlows);
+				}
+			}
+			reader.endObject();
+		} else {
+			reader.skipValue();
+		}
+		
+	}
+	
+	private void readElement(JsonReader reader, String section, Network net, Boolean nodesRead, ArrayList<JsonObject> pendingFlows) {
+		this.addElement(net, section, JsonParser.parseReader(reader).getAsJsonObject(), nodesRead, pendingFlows);
+	}
+	
+	/**
+	 * [Method]: addElement
+	 * [Usage]: Creates the switch (with its ports), device or flow
+	 * described by an element of a section of the input and adds it to
+	 * the network. Used by the parsers that read the input one element
+	 * at a time.
+	 * 
+	 * @param net			Network being built
+	 * @param section		Name of the section: switches, devices or flows
+	 * @param elementObject	Fields of the element
+	 * @param nodesRead		Whether all switches and devices were already read
+	 * @param pendingFlows	Flows to be created once all nodes are read
+	 */
+	void addElement(Network net, String section, JsonObject elementObject, Boolean nodesRead, ArrayList<JsonObject> pendingFlows) {
+		
+		switch(section) {
+			case "switches":
+				TSNSwitch swt = this.createSwitch(elementObject);
+				net.addSwitch(swt);
+				this.createPortsOfSwitch(elementObject, swt);
+				break;
+			case "devices":
+				net.addDevice(this.createDevice(elementObject));
+				break;
+			case "flows":
+				if(nodesRead) {
+					net.addFlow(this.createFlow(elementObject));
+				} else {
+					pendingFlows.add(elementObject);
+				}
+				break;
+		}
+	}
+	
+	/*
+	 * Retrieves the device with the given name or, if there is none,
+	 * the switch, as the linear search on the network did.
+	 */
+	private Object getNode(String name) {
+		Device dev = this.devicesByName.get(name);
+		
+		return dev != null ? dev : this.switchesByName.get(name);
+	}
 
 	public double convertSpeedUnits(Double value, String sizeUnit, String timeUnit) {
 		
@@ -818,26 +1017,48 @@ public class JSONParser implements GenericParser {
 
 	}
 	
-	public void generateOutput(Network net) {
-		
-		Gson gson = new GsonBuilder().setPrettyPrinting().create();;
-		String outputPath = "./output.json";
+	/**
+	 * [Method]: generateOutputContent
+	 * [Usage]: Retrieves the schedule of the network in the
+	 * format of the output.json file, without writing it.
+	 * 
+	 * @param net		Network with the schedule already generated
+	 * @return			Content of the output.json file
+	 */
+	public String generateOutputContent(Network net) {
+		
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
 		
-		JsonObject networkObject = new JsonObject();
-		JsonArray switchList = new JsonArray();
-		
-
 		Map<String, Object> networkInfo = new HashMap<>();
 				
 		networkInfo.put("switches", this.extractSwitchInfoList(net));
 		networkInfo.put("flows", this.extractFlowInfoList(net));
-
+		
+		return gson.toJson(networkInfo);
+	}
+	
+	public void generateOutput(Network net) {
+		this.generateOutput(net, "./output.json");
+	}
+	
+	public void generateOutput(Network net, String outputPath) {
+		this.generateOutput(net, outputPath, true);
+	}
+	
+	/**
+	 * [Method]: generateOutput
+	 * [Usage]: Writes the schedule of the network in the output 
+	 * file, streaming it from the network objects. 
+	 * 
+	 * @param net				Network with the schedule already generated
+	 * @param outputPath		Path of the output file
+	 * @param prettyPrinting	False to write the file without whitespace
+	 */
+	public void generateOutput(Network net, String outputPath, Boolean prettyPrinting) {
 	    
 		try {
-		    Writer writer = new FileWriter(outputPath);
-			gson.toJson(networkInfo, writer);
-			writer.close();
-		} catch (JsonIOException | IOException e) {
+			new JSONOutputWriter(prettyPrinting).writeToFile(net, outputPath);
+		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
@@ -0,0 +1,328 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.interface_manager;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: ModelExtractor
+ * [Usage]: Reads the values of a z3 model in a single pass over its
+ * constants into a table indexed by name. Numbers are read from the
+ * numerator and denominator of the z3 numerals, without converting
+ * them to strings.
+ *
+ * The time expressions of the network (departure, arrival and scheduled
+ * times, slots and cycles) are sums and products of these constants and
+ * of literals, so they are evaluated from the table. The values of shared
+ * expressions are kept, so each one is evaluated once. As in z3, they are
+ * evaluated on exact fractions, which are only converted to double (as in
+ * Printer.stringToDouble) when returned. Expressions that use constants
+ * missing from the model, or other operators, are evaluated by z3 as before.
+ */
+public class ModelExtractor {
+
+	private Model model;
+	private Printer printer;
+
+	private HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+	private Rational[] values;
+	private IdentityHashMap<Expr, Rational> evaluated = new IdentityHashMap<Expr, Rational>();
+
+	private long extractionTime = 0;
+	private int fallbacks = 0;
+
+
+	/*
+	 * Exact fraction with a positive denominator, in lowest terms.
+	 */
+	private static final class Rational {
+		private static final Rational ZERO = new Rational(BigInteger.ZERO, BigInteger.ONE);
+		private static final Rational ONE = new Rational(BigInteger.ONE, BigInteger.ONE);
+
+		private final BigInteger numerator;
+		private final BigInteger denominator;
+
+		private Rational(BigInteger numerator, BigInteger denominator) {
+			if(denominator.signum() < 0) {
+				numerator = numerator.negate();
+				denominator = denominator.negate();
+			}
+
+			BigInteger gcd = numerator.gcd(denominator);
+
+			if(gcd.signum() != 0 && !gcd.equals(BigInteger.ONE)) {
+				numerator = numerator.divide(gcd);
+				denominator = denominator.divide(gcd);
+			}
+
+			this.numerator = numerator;
+			this.denominator = denominator;
+		}
+
+		private Rational add(Rational other) {
+			if(this.denominator.equals(other.denominator)) {
+				return new Rational(this.numerator.add(other.numerator), this.denominator);
+			}
+
+			return new Rational(
+				this.numerator.multiply(other.denominator).add(other.numerator.multiply(this.denominator)),
+				this.denominator.multiply(other.denominator)
+			);
+		}
+
+		private Rational multiply(Rational other) {
+			return new Rational(this.numerator.multiply(other.numerator), this.denominator.multiply(other.denominator));
+		}
+
+		private Rational negate() {
+			return new Rational(this.numerator.negate(), this.denominator);
+		}
+
+		// Null for a division by zero, which z3 leaves uninterpreted
+		private Rational divide(Rational other) {
+			if(other.numerator.signum() == 0) {
+				return null;
+			}
+
+			return new Rational(this.numerator.multiply(other.denominator), this.denominator.multiply(other.numerator));
+		}
+
+		private double doubleValue() {
+			if(this.denominator.equals(BigInteger.ONE)) {
+				return this.numerator.doubleValue();
+			}
+
+			return new BigDecimal(this.numerator)
+					.divide(new BigDecimal(this.denominator), MathContext.DECIMAL128)
+					.doubleValue();
+		}
+	}
+
+
+	/**
+	 * [Method]: ModelExtractor
+	 * [Usage]: Reads all constants of the model into the table.
+	 *
+	 * @param model		Model found by z3
+	 * @param printer	Printer used to convert values evaluated by z3
+	 */
+	public ModelExtractor(Model model, Printer printer) {
+		long startTime = System.nanoTime();
+
+		this.model = model;
+		this.printer = printer;
+
+		FuncDecl[] decls = model.getConstDecls();
+		this.values = new Rational[decls.length];
+
+		for(int i = 0; i < decls.length; i++) {
+			this.indexes.put(decls[i].getName().toString(), i);
+			this.values[i] = this.numeralValue(model.getConstInterp(decls[i]));
+		}
+
+		this.extractionTime = System.nanoTime() - startTime;
+	}
+
+
+	/**
+	 * [Method]: getValue
+	 * [Usage]: Returns the value of a real or integer expression in the
+	 * model. Values that z3 can't give as a number are -1, as in
+	 * Printer.stringToDouble.
+	 *
+	 * @param expr		Expression to be evaluated
+	 * @return			Value of the expression
+	 */
+	public double getValue(Expr expr) {
+		Rational value = this.evaluate(expr);
+
+		if(value == null) {
+			this.fallbacks++;
+			return this.printer.stringToDouble(this.model.eval(expr, false).toString());
+		}
+
+		return value.doubleValue();
+	}
+
+
+	/**
+	 * [Method]: getIntValue
+	 * [Usage]: Returns the value of an integer expression in the model,
+	 * such as the priority of a fragment.
+	 *
+	 * @param expr		Integer expression to be evaluated
+	 * @return			Value of the expression
+	 */
+	public int getIntValue(Expr expr) {
+		Rational value = this.evaluate(expr);
+
+		if(value == null || !value.denominator.equals(BigInteger.ONE)) {
+			this.fallbacks++;
+			return Integer.parseInt(this.model.eval(expr, false).toString());
+		}
+
+		return value.numerator.intValue();
+	}
+
+
+	/**
+	 * [Method]: getValue
+	 * [Usage]: Returns the value of a constant of the model by its name,
+	 * or NaN if the model has no such constant.
+	 *
+	 * @param name		Name of the constant
+	 * @return			Value of the constant
+	 */
+	public double getValue(String name) {
+		Rational value = this.constantValue(name);
+
+		return value != null ? value.doubleValue() : Double.NaN;
+	}
+
+
+	private Rational constantValue(String name) {
+		Integer index = this.indexes.get(name);
+
+		return index != null ? this.values[index] : null;
+	}
+
+
+	/*
+	 * Evaluates the expression from the table, or returns null if it has
+	 * anything that is not in the table.
+	 */
+	private Rational evaluate(Expr expr) {
+		if(expr instanceof RatNum || expr instanceof IntNum) {
+			return this.numeralValue(expr);
+		}
+
+		if(this.evaluated.containsKey(expr)) {
+			return this.evaluated.get(expr);
+		}
+
+		Rational value = null;
+
+		if(expr.isApp()) {
+			Expr[] args = expr.getArgs();
+
+			if(args.length == 0) {
+				value = this.constantValue(expr.getFuncDecl().getName().toString());
+			} else {
+				switch(expr.getFuncDecl().getDeclKind()) {
+					case Z3_OP_ADD:
+						value = Rational.ZERO;
+						for(int i = 0; i < args.length && value != null; i++) {
+							Rational arg = this.evaluate(args[i]);
+							value = arg != null ? value.add(arg) : null;
+						}
+						break;
+					case Z3_OP_MUL:
+						value = Rational.ONE;
+						for(int i = 0; i < args.length && value != null; i++) {
+							Rational arg = this.evaluate(args[i]);
+							value = arg != null ? value.multiply(arg) : null;
+						}
+						break;
+					case Z3_OP_SUB:
+						value = this.evaluate(args[0]);
+						for(int i = 1; i < args.length && value != null; i++) {
+							Rational arg = this.evaluate(args[i]);
+							value = arg != null ? value.add(arg.negate()) : null;
+						}
+						break;
+					case Z3_OP_UMINUS:
+						value = this.evaluate(args[0]);
+						value = value != null ? value.negate() : null;
+						break;
+					case Z3_OP_DIV:
+						value = this.evaluate(args[0]);
+						Rational divisor = this.evaluate(args[1]);
+						value = value != null && divisor != null ? value.divide(divisor) : null;
+						break;
+					case Z3_OP_TO_REAL:
+						value = this.evaluate(args[0]);
+						break;
+					default:
+						break;
+				}
+			}
+		}
+
+		this.evaluated.put(expr, value);
+
+		return value;
+	}
+
+
+	/*
+	 * Reads a z3 numeral. Numerators and denominators that fit in a long
+	 * are read without strings, others with their BigInteger value.
+	 */
+	private Rational numeralValue(Expr expr) {
+		try {
+			if(expr instanceof IntNum) {
+				return new Rational(BigInteger.valueOf(((IntNum) expr).getInt64()), BigInteger.ONE);
+			}
+
+			if(expr instanceof RatNum) {
+				RatNum ratNum = (RatNum) expr;
+
+				return new Rational(
+					BigInteger.valueOf(ratNum.getNumerator().getInt64()),
+					BigInteger.valueOf(ratNum.getDenominator().getInt64())
+				);
+			}
+		} catch (Z3Exception e) {
+			if(expr instanceof IntNum) {
+				return new Rational(((IntNum) expr).getBigInteger(), BigInteger.ONE);
+			}
+
+			RatNum ratNum = (RatNum) expr;
+
+			return new Rational(ratNum.getBigIntNumerator(), ratNum.getBigIntDenominator());
+		}
+
+		return null;
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public int getNumOfConstants() {
+		return values.length;
+	}
+
+	public long getExtractionTime() {
+		return extractionTime;
+	}
+
+	public int getFallbacks() {
+		return fallbacks;
+	}
+
+}
@@ -0,0 +1,1023 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.interface_manager;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.PathTree;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+import com.tsnsched.core.schedule_generator.ScheduleType;
+import com.tsnsched.core.schedule_generator.SlotArrangementMode;
+
+/**
+ * [Class]: NetworkSnapshot
+ * [Usage]: Writes and reads a binary snapshot of a network: its
+ * topology, the properties of flows, switches and ports, and the
+ * schedule found for it (cycles, slots, priorities and packet times
+ * of every fragment). A snapshot can be loaded to schedule new flows
+ * on top of the network, as the serialized network object was.
+ *
+ * The file starts with a magic number and the schema version. Then
+ * come the counters of the scope of the network and one table per
+ * kind of object (devices, switches, ports, flows, path nodes and
+ * fragments) with their values, followed by the references between
+ * them as indexes in these tables. Strings are UTF-8 and numbers
+ * are big endian. The z3 expressions and the printers are not stored.
+ *
+ * Snapshots are written through a FileChannel and read from a
+ * memory mapped buffer of the file.
+ */
+public class NetworkSnapshot {
+
+	public static final int MAGIC = 0x54534E53; // "TSNS"
+	public static final int SCHEMA_VERSION = 1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final byte NODE_NONE = 0;
+	private static final byte NODE_DEVICE = 1;
+	private static final byte NODE_SWITCH = 2;
+
+	private ObjectTable<Device> devices;
+	private ObjectTable<Switch> switches;
+	private ObjectTable<Port> ports;
+	private ObjectTable<Flow> flows;
+	private ObjectTable<PathNode> pathNodes;
+	private ObjectTable<FlowFragment> fragments;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+
+	/**
+	 * [Method]: isSnapshot
+	 * [Usage]: Checks if the file starts with the magic number of a
+	 * snapshot, so it can be told apart from a serialized network.
+	 *
+	 * @param path		Path of the file
+	 * @return			Whether the file is a snapshot
+	 */
+	public static Boolean isSnapshot(String path) {
+		try (FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(4);
+
+			while(header.hasRemaining() && file.read(header) >= 0) {
+				;
+			}
+
+			header.flip();
+
+			return header.remaining() == 4 && header.getInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * [Method]: write
+	 * [Usage]: Writes the snapshot of the network in a file.
+	 *
+	 * @param net		Network to be stored
+	 * @param path		Path of the snapshot file
+	 */
+	public void write(Network net, String path) throws IOException {
+		this.collect(net);
+
+		this.channel = FileChannel.open(
+			Paths.get(path),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+		);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		try {
+			NetworkScope scope = net.getScope() != null ? net.getScope() : NetworkScope.current();
+
+			this.putInt(MAGIC);
+			this.putInt(SCHEMA_VERSION);
+
+			this.putInt(scope.getFlowCounter());
+			this.putInt(scope.getCycleCounter());
+			this.putInt(scope.getDeviceCounter());
+			this.putInt(scope.getPacketUpperBoundRange());
+			this.putInt(scope.getCycleUpperBoundRange());
+
+			this.putBoolean(net.getHasBeenModified());
+			this.putDouble(net.getTimeToTravel());
+			this.putDouble(net.getJitterUpperBoundRange());
+
+			this.putInt(this.devices.size());
+			this.putInt(net.getDevices().size());
+			this.putInt(this.switches.size());
+			this.putInt(net.getSwitches().size());
+			this.putInt(this.ports.size());
+			this.putInt(this.flows.size());
+			this.putInt(net.getFlows().size());
+			this.putInt(this.pathNodes.size());
+			this.putInt(this.fragments.size());
+
+			for(Device dev : this.devices.list) {
+				this.writeDevice(dev);
+			}
+			for(Switch swt : this.switches.list) {
+				this.writeSwitch(swt);
+			}
+			for(Port port : this.ports.list) {
+				this.writePort(port);
+			}
+			for(Flow flow : this.flows.list) {
+				this.putBoolean(flow.getPathTree() != null);
+				this.writeFlowValues(flow);
+				this.putInt(flow.getPathTreeCount());
+			}
+			for(FlowFragment frag : this.fragments.list) {
+				this.putInt(this.flows.indexOf(frag.getParent()));
+				this.writeFlowValues(frag);
+				this.putInt(frag.getFragmentPriority());
+				this.putString(frag.getNodeName());
+				this.putString(frag.getNextHop());
+				this.putDoubles(frag.getDepartureTimeList());
+				this.putDoubles(frag.getArrivalTimeList());
+				this.putDoubles(frag.getScheduledTimeList());
+			}
+
+			this.writeReferences();
+
+			this.flush();
+		} finally {
+			this.channel.close();
+			this.channel = null;
+			this.buffer = null;
+		}
+	}
+
+
+	/**
+	 * [Method]: read
+	 * [Usage]: Reads a network from a snapshot file. The network gets
+	 * a new scope with the counters that it had when it was stored.
+	 *
+	 * @param path		Path of the snapshot file
+	 * @return			Network stored in the file
+	 */
+	public Network read(String path) throws IOException {
+		Path file = Paths.get(path);
+
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+			this.buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+		}
+
+		try {
+			return this.readNetwork();
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Snapshot " + path + " is truncated", e);
+		} finally {
+			this.buffer = null;
+		}
+	}
+
+
+	private Network readNetwork() throws IOException {
+		if(this.buffer.remaining() < 8 || this.buffer.getInt() != MAGIC) {
+			throw new IOException("Not a network snapshot");
+		}
+
+		int version = this.buffer.getInt();
+
+		if(version != SCHEMA_VERSION) {
+			throw new IOException("Unsupported snapshot version " + version + ", expected " + SCHEMA_VERSION);
+		}
+
+		NetworkScope scope = new NetworkScope();
+		int flowCounter = this.buffer.getInt();
+		int cycleCounter = this.buffer.getInt();
+		int deviceCounter = this.buffer.getInt();
+
+		scope.setPacketUpperBoundRange(this.buffer.getInt());
+		scope.setCycleUpperBoundRange(this.buffer.getInt());
+
+		Network net = new Network();
+		net.setHasBeenModified(this.getBoolean());
+		net.setTimeToTravel(this.buffer.getDouble());
+		net.setJitterUpperBoundRange(this.buffer.getDouble());
+		net.setScope(scope);
+
+		Device[] deviceTable = new Device[this.buffer.getInt()];
+		int netDevices = this.buffer.getInt();
+		Switch[] switchTable = new Switch[this.buffer.getInt()];
+		int netSwitches = this.buffer.getInt();
+		Port[] portTable = new Port[this.buffer.getInt()];
+		Flow[] flowTable = new Flow[this.buffer.getInt()];
+		int netFlows = this.buffer.getInt();
+		PathNode[] pathNodeTable = new PathNode[this.buffer.getInt()];
+		FlowFragment[] fragmentTable = new FlowFragment[this.buffer.getInt()];
+
+		// The constructors take their names and instances from the scope, which are replaced below
+		NetworkScope previousScope = scope.enter();
+
+		try {
+			for(int i = 0; i < deviceTable.length; i++) {
+				deviceTable[i] = this.readDevice();
+			}
+			for(int i = 0; i < switchTable.length; i++) {
+				switchTable[i] = this.readSwitch();
+			}
+			for(int i = 0; i < portTable.length; i++) {
+				portTable[i] = this.readPort();
+			}
+
+			int[] pathTreeCounts = new int[flowTable.length];
+
+			/*
+			 * Flows are created with a path tree only if they had one.
+			 * Their types are set with the references, as the names
+			 * given to the fragments depend on them.
+			 */
+			for(int i = 0; i < flowTable.length; i++) {
+				flowTable[i] = new Flow("", this.getBoolean() ? Flow.PUBLISH_SUBSCRIBE : Flow.UNICAST);
+				this.readFlowValues(flowTable[i]);
+				pathTreeCounts[i] = this.buffer.getInt();
+			}
+
+			for(int i = 0; i < pathNodeTable.length; i++) {
+				pathNodeTable[i] = new PathNode(null);
+			}
+
+			for(int i = 0; i < fragmentTable.length; i++) {
+				Flow parent = this.getObject(flowTable);
+
+				fragmentTable[i] = new FlowFragment(parent != null ? parent : new Flow("", Flow.UNICAST));
+				fragmentTable[i].setType(this.readFlowValues(fragmentTable[i]));
+				fragmentTable[i].setFragmentPriority(this.buffer.getInt());
+				fragmentTable[i].setNodeName(this.getString());
+				fragmentTable[i].setNextHop(this.getString());
+				this.readTimes(fragmentTable[i]);
+			}
+
+			for(int i = 0; i < flowTable.length; i++) {
+				flowTable[i].setPathTreeCount(pathTreeCounts[i]);
+			}
+
+			this.readReferences(deviceTable, switchTable, portTable, flowTable, pathNodeTable, fragmentTable);
+		} finally {
+			NetworkScope.restore(previousScope);
+		}
+
+		scope.setFlowCounter(flowCounter);
+		scope.setCycleCounter(cycleCounter);
+		scope.setDeviceCounter(deviceCounter);
+
+		for(int i = 0; i < netDevices; i++) {
+			net.addDevice(deviceTable[i]);
+		}
+		for(int i = 0; i < netSwitches; i++) {
+			net.addSwitch(switchTable[i]);
+		}
+		for(int i = 0; i < netFlows; i++) {
+			net.addFlow(flowTable[i]);
+		}
+
+		return net;
+	}
+
+
+	/*
+	 * Finds every object reachable from the network. The devices,
+	 * switches and flows of the network come first in their tables,
+	 * in the order of the network.
+	 */
+	private void collect(Network net) {
+		this.devices = new ObjectTable<Device>();
+		this.switches = new ObjectTable<Switch>();
+		this.ports = new ObjectTable<Port>();
+		this.flows = new ObjectTable<Flow>();
+		this.pathNodes = new ObjectTable<PathNode>();
+		this.fragments = new ObjectTable<FlowFragment>();
+
+		for(Device dev : net.getDevices()) {
+			this.devices.add(dev);
+		}
+		for(Switch swt : net.getSwitches()) {
+			this.switches.add(swt);
+		}
+		for(Flow flow : net.getFlows()) {
+			this.flows.add(flow);
+		}
+
+		int switchIndex = 0;
+		int portIndex = 0;
+		int flowIndex = 0;
+		int pathNodeIndex = 0;
+		int fragmentIndex = 0;
+		Boolean changed = true;
+
+		while(changed) {
+			changed = false;
+
+			for(; switchIndex < this.switches.size(); switchIndex++, changed = true) {
+				Switch swt = this.switches.get(switchIndex);
+
+				if(swt instanceof TSNSwitch) {
+					for(Port port : ((TSNSwitch) swt).getPorts()) {
+						this.ports.add(port);
+					}
+				}
+			}
+
+			for(; portIndex < this.ports.size(); portIndex++, changed = true) {
+				this.fragments.addAll(this.ports.get(portIndex).getFlowFragments());
+			}
+
+			for(; flowIndex < this.flows.size(); flowIndex++, changed = true) {
+				Flow flow = this.flows.get(flowIndex);
+
+				this.devices.add(flow.getStartDevice());
+				this.devices.addAll(flow.getEndDeviceList());
+				this.switches.addAll(flow.getPath());
+				this.fragments.addAll(flow.getFlowFragments());
+				if(flow.getPathTree() != null) {
+					this.pathNodes.add(flow.getPathTree().getRoot());
+				}
+			}
+
+			for(; pathNodeIndex < this.pathNodes.size(); pathNodeIndex++, changed = true) {
+				PathNode pathNode = this.pathNodes.get(pathNodeIndex);
+
+				if(pathNode.getNode() instanceof Device) {
+					this.devices.add((Device) pathNode.getNode());
+				} else if(pathNode.getNode() instanceof Switch) {
+					this.switches.add((Switch) pathNode.getNode());
+				}
+				this.pathNodes.add(pathNode.getParent());
+				this.pathNodes.addAll(pathNode.getChildren());
+				this.fragments.addAll(pathNode.getFlowFragments());
+			}
+
+			for(; fragmentIndex < this.fragments.size(); fragmentIndex++, changed = true) {
+				FlowFragment frag = this.fragments.get(fragmentIndex);
+
+				this.flows.add(frag.getParent());
+				this.ports.add(frag.getPort());
+				this.pathNodes.add(frag.getReferenceToNode());
+				this.fragments.add(frag.getPreviousFragment());
+				this.fragments.addAll(frag.getNextFragments());
+				this.devices.add(frag.getStartDevice());
+			}
+		}
+	}
+
+
+	private void writeDevice(Device dev) throws IOException {
+		this.putString(dev.getName());
+		this.putDouble(dev.getPacketPeriodicity());
+		this.putDouble(dev.getFirstT1Time());
+		this.putDouble(dev.getHardConstraintTime());
+		this.putDouble(dev.getSoftConstraintTime());
+		this.putDouble(dev.getPacketSize());
+	}
+
+	private Device readDevice() {
+		Device dev = new Device(this.getString());
+
+		dev.setPacketPeriodicity(this.buffer.getDouble());
+		dev.setFirstT1Time(this.buffer.getDouble());
+		dev.setHardConstraintTime(this.buffer.getDouble());
+		dev.setSoftConstraintTime(this.buffer.getDouble());
+		dev.setPacketSize(this.buffer.getDouble());
+
+		return dev;
+	}
+
+
+	private void writeSwitch(Switch swt) throws IOException {
+		this.putBoolean(swt instanceof TSNSwitch);
+		this.putString(swt.getName());
+		this.putDouble(swt.getMaxPacketSize());
+		this.putDouble(swt.getTimeToTravel());
+		this.putDouble(swt.getTransmissionTime());
+		this.putDouble(swt.getPortSpeed());
+
+		if(swt instanceof TSNSwitch) {
+			TSNSwitch tsnSwitch = (TSNSwitch) swt;
+
+			this.putBoolean(tsnSwitch.getIsModifiedOrCreated());
+			this.putDouble(tsnSwitch.getGbSize());
+			this.putDouble(tsnSwitch.getCycleDurationUpperBound());
+			this.putDouble(tsnSwitch.getCycleDurationLowerBound());
+			this.putInt(tsnSwitch.getPortNum());
+			this.putString(tsnSwitch.getScheduleType() != null ? tsnSwitch.getScheduleType().name() : null);
+			this.putStrings(tsnSwitch.getConnectsTo());
+		}
+	}
+
+	private Switch readSwitch() {
+		Boolean isTSNSwitch = this.getBoolean();
+		String name = this.getString();
+		Switch swt;
+
+		if(isTSNSwitch) {
+			swt = new TSNSwitch(name);
+		} else {
+			swt = new Switch();
+			swt.setName(name);
+		}
+
+		swt.setMaxPacketSize(this.buffer.getDouble());
+		swt.setTimeToTravel(this.buffer.getDouble());
+		swt.setTransmissionTime(this.buffer.getDouble());
+		swt.setPortSpeed(this.buffer.getDouble());
+
+		if(isTSNSwitch) {
+			TSNSwitch tsnSwitch = (TSNSwitch) swt;
+
+			tsnSwitch.setIsModifiedOrCreated(this.getBoolean());
+			tsnSwitch.setGbSize(this.buffer.getDouble());
+			tsnSwitch.setCycleDurationUpperBound(this.buffer.getDouble());
+			tsnSwitch.setCycleDurationLowerBound(this.buffer.getDouble());
+			tsnSwitch.setPortNum(this.buffer.getInt());
+
+			String scheduleType = this.getString();
+			tsnSwitch.setScheduleType(scheduleType != null ? ScheduleType.valueOf(scheduleType) : null);
+
+			ArrayList<String> connectsTo = this.getStrings();
+			if(connectsTo != null) {
+				tsnSwitch.setConnectsTo(connectsTo);
+			}
+		}
+
+		return swt;
+	}
+
+
+	private void writePort(Port port) throws IOException {
+		this.putString(port.getName());
+		this.putInt(port.getPortNum());
+		this.putString(port.getConnectsTo());
+		this.putDouble(port.getMaxPacketSize());
+		this.putDouble(port.getTimeToTravel());
+		this.putDouble(port.getTransmissionTime());
+		this.putDouble(port.getPortSpeed());
+		this.putDouble(port.getGbSize());
+
+		Cycle cycle = port.getCycle();
+
+		this.putBoolean(cycle != null);
+
+		if(cycle != null) {
+			this.putString(cycle.getName());
+			this.putString(cycle.getPortName());
+			this.putInt(cycle.getInstance());
+			this.putBoolean(cycle.getWrapTransmission());
+			this.putDouble(cycle.getUpperBoundCycleTime());
+			this.putDouble(cycle.getLowerBoundCycleTime());
+			this.putDouble(cycle.getFirstCycleStart());
+			this.putDouble(cycle.getMaximumSlotDuration());
+			this.putDouble(cycle.getCycleDuration());
+			this.putDouble(cycle.getCycleStart());
+			this.putInt(cycle.getNumOfPrts());
+			this.putInt(cycle.getNumOfSlots());
+			this.putString(cycle.getSlotArrangementMode() != null ? cycle.getSlotArrangementMode().name() : null);
+			this.putInts(cycle.getNumOfSlotsPerPrt());
+
+			this.putInt(cycle.getSlotsUsed().size());
+
+			for(int prt : cycle.getSlotsUsed()) {
+				this.putInt(prt);
+				this.putDoubles(cycle.getSlotStartList(prt));
+				this.putDoubles(cycle.getSlotDurationList(prt));
+			}
+		}
+
+		this.putBoolean(port.getIsModifiedOrCreated());
+		this.putBoolean(port.getLazyPairRules());
+		this.putBoolean(port.getPruneWithWindows());
+		this.putBoolean(port.getUseMicroCycles());
+		this.putBoolean(port.getUseHyperCycle());
+		this.putDouble(port.getInterframeGapSize());
+		this.putDoubles(port.getListOfPeriods());
+		this.putDouble(port.getDefinedHyperCycleSize());
+		this.putDouble(port.getMicroCycleSize());
+		this.putInt(port.getExpansionFactor());
+		this.putDouble(port.getBestEffortPercent());
+		this.putInt(port.getPacketUpperBoundRange());
+		this.putInt(port.getCycleUpperBoundRange());
+	}
+
+	private Port readPort() {
+		String name = this.getString();
+		int portNum = this.buffer.getInt();
+		String connectsTo = this.getString();
+		double maxPacketSize = this.buffer.getDouble();
+		double timeToTravel = this.buffer.getDouble();
+		double transmissionTime = this.buffer.getDouble();
+		double portSpeed = this.buffer.getDouble();
+		double gbSize = this.buffer.getDouble();
+
+		Boolean hasCycle = this.getBoolean();
+		// Ports are created with a cycle, which is removed below if they had none
+		Cycle cycle = new Cycle(0);
+
+		if(hasCycle) {
+			cycle.setName(this.getString());
+			cycle.setPortName(this.getString());
+			cycle.setInstance(this.buffer.getInt());
+			cycle.setWrapTransmission(this.getBoolean());
+			cycle.setUpperBoundCycleTime(this.buffer.getDouble());
+			cycle.setLowerBoundCycleTime(this.buffer.getDouble());
+			cycle.setFirstCycleStart(this.buffer.getDouble());
+			cycle.setMaximumSlotDuration(this.buffer.getDouble());
+			cycle.setCycleDuration(this.buffer.getDouble());
+			cycle.setCycleStart(this.buffer.getDouble());
+			cycle.setNumOfPrts(this.buffer.getInt());
+
+			int numOfSlots = this.buffer.getInt();
+			String slotArrangementMode = this.getString();
+
+			cycle.setSlotArrangementMode(slotArrangementMode != null ? SlotArrangementMode.valueOf(slotArrangementMode) : null);
+			if(cycle.getSlotArrangementMode() != null) {
+				cycle.setNumOfSlots(numOfSlots);
+			}
+			cycle.setNumOfSlotsPerPrt(this.getInts());
+
+			int numOfSlotsUsed = this.buffer.getInt();
+
+			for(int i = 0; i < numOfSlotsUsed; i++) {
+				int prt = this.buffer.getInt();
+				ArrayList<Double> slotStart = this.getDoubles();
+				ArrayList<Double> slotDuration = this.getDoubles();
+
+				cycle.addSlotUsed(prt, slotStart, slotDuration);
+			}
+		}
+
+		Port port = new Port(name, portNum, connectsTo, maxPacketSize, timeToTravel, transmissionTime, portSpeed, gbSize, cycle);
+
+		if(!hasCycle) {
+			port.setCycle(null);
+		}
+
+		port.setIsModifiedOrCreated(this.getBoolean());
+		port.setLazyPairRules(this.getBoolean());
+		port.setPruneWithWindows(this.getBoolean());
+		port.setUseMicroCycles(this.getBoolean());
+		port.setUseHyperCycle(this.getBoolean());
+		port.setInterframeGapSize(this.buffer.getDouble());
+		port.setListOfPeriods(this.getDoubles());
+		port.setDefinedHyperCycleSize(this.buffer.getDouble());
+		port.setMicroCycleSize(this.buffer.getDouble());
+		port.setExpansionFactor(this.buffer.getInt());
+		port.setBestEffortPercent(this.buffer.getDouble());
+		port.setPacketUpperBoundRange(this.buffer.getInt());
+		port.setCycleUpperBoundRange(this.buffer.getInt());
+
+		return port;
+	}
+
+
+	/*
+	 * Values of the Flow class, kept by flows and by fragments
+	 */
+	private void writeFlowValues(Flow flow) throws IOException {
+		this.putString(flow.getName());
+		this.putInt(flow.getInstance());
+		this.putInt(flow.getType());
+		this.putInt(flow.getTotalNumOfPackets());
+		this.putBoolean(flow.isFixedPriority());
+		this.putInt(flow.getPriorityValue());
+		this.putDouble(flow.getFlowMaximumJitter());
+		this.putDouble(flow.getFlowMaximumLatency());
+		this.putDouble(flow.getPacketSize());
+		this.putDouble(flow.getFlowFirstSendingTime());
+		this.putDouble(flow.getFlowSendingPeriodicity());
+		this.putInt(flow.getNumOfPacketsSent());
+		this.putBoolean(flow.getIsModifiedOrCreated());
+	}
+
+	/*
+	 * Returns the type of the flow without setting it, as the names of
+	 * the fragments created after it depend on the type
+	 */
+	private int readFlowValues(Flow flow) {
+		int type;
+
+		flow.setName(this.getString());
+		flow.setInstance(this.buffer.getInt());
+		type = this.buffer.getInt();
+		flow.setTotalNumOfPackets(this.buffer.getInt());
+		flow.setFixedPriority(this.getBoolean());
+		flow.setPriorityValue(this.buffer.getInt());
+		flow.setFlowMaximumJitter(this.buffer.getDouble());
+		flow.setFlowMaximumLatency(this.buffer.getDouble());
+		flow.setPacketSize(this.buffer.getDouble());
+		flow.setFlowFirstSendingTime(this.buffer.getDouble());
+		flow.setFlowSendingPeriodicity(this.buffer.getDouble());
+		flow.setNumOfPacketsSent(this.buffer.getInt());
+		flow.setIsModifiedOrCreated(this.getBoolean());
+
+		return type;
+	}
+
+	private void readTimes(FlowFragment frag) {
+		ArrayList<Double> departureTimes = this.getDoubles();
+		ArrayList<Double> arrivalTimes = this.getDoubles();
+		ArrayList<Double> scheduledTimes = this.getDoubles();
+
+		if(departureTimes != null) {
+			for(double time : departureTimes) {
+				frag.addDepartureTime(time);
+			}
+		}
+		if(arrivalTimes != null) {
+			for(double time : arrivalTimes) {
+				frag.addArrivalTime(time);
+			}
+		}
+		if(scheduledTimes != null) {
+			for(double time : scheduledTimes) {
+				frag.addScheduledTime(time);
+			}
+		}
+	}
+
+	/*
+	 * References between the objects, as indexes in their tables. The
+	 * parents of the fragments are stored with their values.
+	 */
+	private void writeReferences() throws IOException {
+		for(Switch swt : this.switches.list) {
+			if(swt instanceof TSNSwitch) {
+				this.putIndexes(this.ports, ((TSNSwitch) swt).getPorts());
+			}
+		}
+
+		for(Port port : this.ports.list) {
+			this.putIndexes(this.fragments, port.getFlowFragments());
+		}
+
+		for(PathNode pathNode : this.pathNodes.list) {
+			if(pathNode.getNode() instanceof Device) {
+				this.putByte(NODE_DEVICE);
+				this.putInt(this.devices.indexOf((Device) pathNode.getNode()));
+			} else if(pathNode.getNode() instanceof Switch) {
+				this.putByte(NODE_SWITCH);
+				this.putInt(this.switches.indexOf((Switch) pathNode.getNode()));
+			} else {
+				this.putByte(NODE_NONE);
+				this.putInt(-1);
+			}
+			this.putInt(this.pathNodes.indexOf(pathNode.getParent()));
+			this.putIndexes(this.pathNodes, pathNode.getChildren());
+			this.putIndexes(this.fragments, pathNode.getFlowFragments());
+		}
+
+		for(Flow flow : this.flows.list) {
+			this.putInt(flow.getType());
+			this.putInt(this.devices.indexOf(flow.getStartDevice()));
+			this.putIndexes(this.devices, flow.getEndDeviceList());
+			this.putIndexes(this.switches, flow.getPath());
+			this.putIndexes(this.fragments, flow.getFlowFragments());
+			this.putInt(flow.getPathTree() != null ? this.pathNodes.indexOf(flow.getPathTree().getRoot()) : -1);
+		}
+
+		for(FlowFragment frag : this.fragments.list) {
+			this.putInt(this.ports.indexOf(frag.getPort()));
+			this.putInt(this.pathNodes.indexOf(frag.getReferenceToNode()));
+			this.putInt(this.fragments.indexOf(frag.getPreviousFragment()));
+			this.putIndexes(this.fragments, frag.getNextFragments());
+			this.putInt(this.devices.indexOf(frag.getStartDevice()));
+		}
+	}
+
+	private void readReferences(Device[] deviceTable, Switch[] switchTable, Port[] portTable, Flow[] flowTable,
+			PathNode[] pathNodeTable, FlowFragment[] fragmentTable) {
+
+		for(Switch swt : switchTable) {
+			if(swt instanceof TSNSwitch) {
+				((TSNSwitch) swt).setPorts(this.getObjects(portTable));
+			}
+		}
+
+		for(Port port : portTable) {
+			port.setFlowFragments(this.getObjects(fragmentTable));
+		}
+
+		for(PathNode pathNode : pathNodeTable) {
+			byte kind = this.buffer.get();
+			int index = this.buffer.getInt();
+
+			if(kind == NODE_DEVICE) {
+				pathNode.setNode(deviceTable[index]);
+			} else if(kind == NODE_SWITCH) {
+				pathNode.setNode(switchTable[index]);
+			}
+			pathNode.setParent(this.getObject(pathNodeTable));
+			pathNode.setChildren(this.getObjects(pathNodeTable));
+			pathNode.setFlowFragment(this.getObjects(fragmentTable));
+		}
+
+		for(Flow flow : flowTable) {
+			int type = this.buffer.getInt();
+			Device startDevice = this.getObject(deviceTable);
+
+			ArrayList<Device> endDevices = this.getObjects(deviceTable);
+			flow.getEndDeviceList().clear();
+			if(endDevices != null) {
+				flow.getEndDeviceList().addAll(endDevices);
+			}
+
+			flow.setPath(this.getObjects(switchTable));
+			flow.setFlowFragments(this.getObjects(fragmentTable));
+
+			PathNode root = this.getObject(pathNodeTable);
+
+			if(root != null) {
+				PathTree pathTree = flow.getPathTree();
+				pathTree.setRoot(root);
+				flow.setPathTree(pathTree);
+			}
+
+			this.setStartDevice(flow, type, startDevice);
+		}
+
+		for(FlowFragment frag : fragmentTable) {
+			frag.setPort(this.getObject(portTable));
+			frag.setReferenceToNode(this.getObject(pathNodeTable));
+			frag.setPreviousFragment(this.getObject(fragmentTable));
+
+			List<FlowFragment> nextFragments = this.getObjects(fragmentTable);
+			frag.setNextFragments(nextFragments != null ? nextFragments : new ArrayList<FlowFragment>());
+
+			this.setStartDevice(frag, frag.getType(), this.getObject(deviceTable));
+		}
+	}
+
+	/*
+	 * Publish subscribe flows get a new path tree when their start
+	 * device is set, so it is set while the flow is unicast
+	 */
+	private void setStartDevice(Flow flow, int type, Device startDevice) {
+		flow.setType(Flow.UNICAST);
+		flow.setStartDevice(startDevice);
+		flow.setType(type);
+	}
+
+
+	/*
+	 * Writing through the buffer of the channel
+	 */
+
+	private void ensure(int bytes) throws IOException {
+		if(this.buffer.remaining() < bytes) {
+			this.flush();
+
+			if(this.buffer.capacity() < bytes) {
+				this.buffer = ByteBuffer.allocateDirect(bytes);
+			}
+		}
+	}
+
+	private void flush() throws IOException {
+		this.buffer.flip();
+		while(this.buffer.hasRemaining()) {
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	private void putByte(byte value) throws IOException {
+		this.ensure(1);
+		this.buffer.put(value);
+	}
+
+	private void putInt(int value) throws IOException {
+		this.ensure(4);
+		this.buffer.putInt(value);
+	}
+
+	private void putDouble(double value) throws IOException {
+		this.ensure(8);
+		this.buffer.putDouble(value);
+	}
+
+	/*
+	 * Booleans are stored as -1 for null, 0 and 1
+	 */
+	private void putBoolean(Boolean value) throws IOException {
+		this.putByte(value == null ? (byte) -1 : (value ? (byte) 1 : (byte) 0));
+	}
+
+	private void putString(String value) throws IOException {
+		if(value == null) {
+			this.putInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+		this.putInt(bytes.length);
+		this.ensure(bytes.length);
+		this.buffer.put(bytes);
+	}
+
+	private void putStrings(List<String> values) throws IOException {
+		this.putInt(values != null ? values.size() : -1);
+		if(values != null) {
+			for(String value : values) {
+				this.putString(value);
+			}
+		}
+	}
+
+	private void putInts(List<Integer> values) throws IOException {
+		this.putInt(values != null ? values.size() : -1);
+		if(values != null) {
+			for(int value : values) {
+				this.putInt(value);
+			}
+		}
+	}
+
+	private void putDoubles(List<Double> values) throws IOException {
+		this.putInt(values != null ? values.size() : -1);
+		if(values != null) {
+			for(double value : values) {
+				this.putDouble(value);
+			}
+		}
+	}
+
+	private <T> void putIndexes(ObjectTable<T> table, List<? extends T> values) throws IOException {
+		this.putInt(values != null ? values.size() : -1);
+		if(values != null) {
+			for(T value : values) {
+				this.putInt(table.indexOf(value));
+			}
+		}
+	}
+
+
+	/*
+	 * Reading from the mapped buffer
+	 */
+
+	private Boolean getBoolean() {
+		byte value = this.buffer.get();
+
+		return value < 0 ? null : value == 1;
+	}
+
+	private String getString() {
+		int length = this.buffer.getInt();
+
+		if(length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		this.buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private ArrayList<String> getStrings() {
+		int size = this.buffer.getInt();
+
+		if(size < 0) {
+			return null;
+		}
+
+		ArrayList<String> values = new ArrayList<String>(size);
+		for(int i = 0; i < size; i++) {
+			values.add(this.getString());
+		}
+
+		return values;
+	}
+
+	private ArrayList<Integer> getInts() {
+		int size = this.buffer.getInt();
+
+		if(size < 0) {
+			return null;
+		}
+
+		ArrayList<Integer> values = new ArrayList<Integer>(size);
+		for(int i = 0; i < size; i++) {
+			values.add(this.buffer.getInt());
+		}
+
+		return values;
+	}
+
+	private ArrayList<Double> getDoubles() {
+		int size = this.buffer.getInt();
+
+		if(size < 0) {
+			return null;
+		}
+
+		ArrayList<Double> values = new ArrayList<Double>(size);
+		for(int i = 0; i < size; i++) {
+			values.add(this.buffer.getDouble());
+		}
+
+		return values;
+	}
+
+	private <T> T getObject(T[] table) {
+		int index = this.buffer.getInt();
+
+		return index >= 0 ? table[index] : null;
+	}
+
+	private <T> ArrayList<T> getObjects(T[] table) {
+		int size = this.buffer.getInt();
+
+		if(size < 0) {
+			return null;
+		}
+
+		ArrayList<T> values = new ArrayList<T>(size);
+		for(int i = 0; i < size; i++) {
+			values.add(this.getObject(table));
+		}
+
+		return values;
+	}
+
+
+	/*
+	 * Objects of one kind in the order they were found, with their
+	 * indexes by identity.
+	 */
+	private static class ObjectTable<T> {
+		private IdentityHashMap<T, Integer> indexes = new IdentityHashMap<T, Integer>();
+		private ArrayList<T> list = new ArrayList<T>();
+
+		void add(T object) {
+			if(object != null && !this.indexes.containsKey(object)) {
+				this.indexes.put(object, this.list.size());
+				this.list.add(object);
+			}
+		}
+
+		void addAll(List<? extends T> objects) {
+			if(objects != null) {
+				for(T object : objects) {
+					this.add(object);
+				}
+			}
+		}
+
+		int indexOf(T object) {
+			Integer index = object != null ? this.indexes.get(object) : null;
+
+			return index != null ? index : -1;
+		}
+
+		T get(int index) {
+			return this.list.get(index);
+		}
+
+		int size() {
+			return this.list.size();
+		}
+	}
+
+}
@@ -1,16 +1,16 @@
 package com.tsnsched.core.interface_manager;
 
-import java.nio.charset.Charset;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
 
 import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
 
 public class ParserManager {
 	private String inputFile = "";
-	private String fileContent = "";
 	private Printer printer;
 	
 	public ParserManager() {
@@ -32,6 +32,17 @@ public class ParserManager {
 	    return 'n';
 	}
 	
+	public static char getFirstNonWhitespace(Reader reader) throws IOException {
+		int character;
+		
+		while((character = reader.read()) != -1) {
+			if(!Character.isWhitespace(character)) {
+				return (char) character;
+			}
+		}
+		return 'n';
+	}
+	
 	public GenericParser getParser(String content) {
 		GenericParser parser = null;
 		
@@ -67,21 +78,23 @@ public class ParserManager {
 		
 		this.printer.printIfLoggingIsEnabled("Trying to detect type of input.");
 		
-		List<String> contentListOfLines; 
-		try {
-			contentListOfLines = Files.readAllLines(Paths.get(this.inputFile), Charset.forName("UTF-8"));
+		// Only the start of the file is read here, the parser streams the rest
+		char firstCharacter; 
+		try (Reader reader = Files.newBufferedReader(Paths.get(this.inputFile), StandardCharsets.UTF_8)) {
+			firstCharacter = getFirstNonWhitespace(reader);
 		} catch(Exception e) {
-			contentListOfLines = new ArrayList<String>();
+			firstCharacter = 'n';
 		}
 		
-		this.fileContent = "";
-		for(String line : contentListOfLines) {
-			this.fileContent += line;
-		}
+		GenericParser parser = this.getParser(String.valueOf(firstCharacter));
 		
-		GenericParser parser = this.getParser(this.fileContent);
-		
-		net = parser.parseInput();
+		// Each parsed network names its components in its own scope
+		NetworkScope previousScope = new NetworkScope().enter();
+		try {
+			net = parser.parseInput();
+		} finally {
+			NetworkScope.restore(previousScope);
+		}
 		
 		return net;
 	}
@@ -91,7 +104,12 @@ public class ParserManager {
 		
 		GenericParser parser = this.getParser(content);
 		
-		net = parser.parseInputContent(content);
+		NetworkScope previousScope = new NetworkScope().enter();
+		try {
+			net = parser.parseInputContent(content);
+		} finally {
+			NetworkScope.restore(previousScope);
+		}
 		
 		return net;
 	}
@@ -103,6 +121,20 @@ public class ParserManager {
 		
 	}
 	
+	public void parseOutput(Network net, String outputPath) {
+		
+		JSONParser parser = new JSONParser();
+		parser.generateOutput(net, outputPath);
+		
+	}
+	
+	public void parseOutput(Network net, String outputPath, Boolean prettyPrinting) {
+		
+		JSONParser parser = new JSONParser();
+		parser.generateOutput(net, outputPath, prettyPrinting);
+		
+	}
+	
 	public static void main(String []args) {
 		
 		ParserManager parserManager = new ParserManager("src/com/tsnsched/generated_scenarios/input.xml");
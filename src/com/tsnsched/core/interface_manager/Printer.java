@@ -24,6 +24,7 @@ import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.ArrayList;
+import java.util.List;
 
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
@@ -38,6 +39,7 @@ import com.tsnsched.core.components.PathTree;
 import com.tsnsched.core.components.Port;
 import com.tsnsched.core.network.*;
 import com.tsnsched.core.nodes.*;
+import com.tsnsched.core.schedule_generator.ScheduleResult;
 
 public class Printer {
 
@@ -96,8 +98,23 @@ public class Printer {
     * @param out       PrintWriter stream to output log file
     */
    public void writePathTree(PathNode pathNode, Model model, Context ctx, PrintWriter out) {
-       Switch swt;
-       IntExpr indexZ3 = null;
+	   this.writePathTree(pathNode, new ModelExtractor(model, this), ctx, out);
+   }
+   
+   
+   /**
+    * [Method]: writePathTree
+    * [Usage]: Same as the method above, but reading the values
+    * of the model from the given extractor.
+    * 
+    * @param pathNode  Current node of pathTree (should start with root)
+    * @param values    Values of the model generated by z3
+    * @param ctx       z3 context used to generate the model
+    * @param out       PrintWriter stream to output log file
+    */
+   public void writePathTree(PathNode pathNode, ModelExtractor values, Context ctx, PrintWriter out) {
+       TSNSwitch swt;
+       Cycle cycle;
     
        if((pathNode.getNode() instanceof Device) && (pathNode.getParent() != null)) {
            this.logIfLoggingIsEnabled(out , "    [END OF BRANCH]");
@@ -116,148 +133,263 @@ public class Printer {
         if(child.getNode() instanceof Switch) {
             
             for(FlowFragment ffrag : child.getFlowFragments()) {
+            	swt = (TSNSwitch) child.getNode();
+            	cycle = swt.getPortOf(ffrag.getNextHop()).getCycle();
             	
-            	/*
-            	this.printIfLoggingIsEnabled("Fragment " + ffrag.getName() + " : " + 
-            						((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle().getName()
-    			);
-            	*/
-            	int prt = Integer.parseInt(model.eval(ffrag.getFragmentPriorityZ3(), false).toString());
+            	int prt = values.getIntValue(ffrag.getFragmentPriorityZ3());
+            	int numOfSlots = cycle.getNumOfSlots(prt);
+            	
+            	// The slots of the priority of the fragment
+            	ArrayList<Double> listOfStart = new ArrayList<Double>();
+         	    ArrayList<Double> listOfDuration = new ArrayList<Double>();
+         	    
+         	    for(int index = 0; index < numOfSlots; index++) {
+         	    	listOfStart.add(values.getValue(cycle.slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), index)));
+         	    	listOfDuration.add(values.getValue(cycle.slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), index)));
+         	    }
             	
                 this.logIfLoggingIsEnabled(out ,"    Fragment name: " + ffrag.getName());
                 this.logIfLoggingIsEnabled(out , "        Fragment node: " + ffrag.getNodeName());
                 this.logIfLoggingIsEnabled(out, "        Fragment next hop: " + ffrag.getNextHop());
-                this.logIfLoggingIsEnabled(out, "        Fragment priority: " + model.eval(ffrag.getFragmentPriorityZ3(), false));
-                for(int index = 0; index < ((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle().getNumOfSlots(prt); index++) {
-             	   indexZ3 = ctx.mkInt(index);
-             	   this.logIfLoggingIsEnabled(out, "        Fragment slot start " + index + ": " 
-                            + this.stringToDouble(
-                                    model.eval(((TSNSwitch) child.getNode())
-                                           .getPortOf(ffrag.getNextHop())
-                                           .getCycle()
-                                           .slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                           , false).toString()
-                                )
-                           + " ; " + model.eval(((TSNSwitch) child.getNode())
-                                   .getPortOf(ffrag.getNextHop())
-                                   .getCycle()
-                                   .slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                   , false).toString()
-             			   );
-             	   this.logIfLoggingIsEnabled(out, "        Fragment slot duration " + index + " : " 
-                             + this.stringToDouble(
-                                 model.eval(((TSNSwitch) child.getNode())
-                                            .getPortOf(ffrag.getNextHop())
-                                            .getCycle()
-                                            .slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                            , false).toString())
-                             + " ; " + model.eval(((TSNSwitch) child.getNode())
-                                     .getPortOf(ffrag.getNextHop())
-                                     .getCycle()
-                                     .slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                     , false).toString()
-             			   );
-         
+                this.logIfLoggingIsEnabled(out, "        Fragment priority: " + prt);
+                for(int index = 0; index < numOfSlots; index++) {
+             	   this.logIfLoggingIsEnabled(out, "        Fragment slot start " + index + ": " + listOfStart.get(index));
+             	   this.logIfLoggingIsEnabled(out, "        Fragment slot duration " + index + " : " + listOfDuration.get(index));
                 }
                 
                 this.logIfLoggingIsEnabled(out, "        Fragment times-");
                 ffrag.getParent().addToTotalNumOfPackets(ffrag.getNumOfPacketsSent());
+                ffrag.setFragmentPriority(prt);
                 
                 for(int i = 0; i < ffrag.getParent().getNumOfPacketsSent(); i++) {
+                	double departureTime = values.getValue(swt.departureTime(ctx, i, ffrag));
+                	double arrivalTime = values.getValue(swt.arrivalTime(ctx, i, ffrag));
+                	double scheduledTime = values.getValue(swt.scheduledTime(ctx, i, ffrag));
+                	
              	   if(i < ffrag.getNumOfPacketsSent()) {
-	                	   this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment departure time: " + this.stringToDouble(model.eval(((TSNSwitch) child.getNode()).departureTime(ctx, i, ffrag) , false).toString()));
-	                	   this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment arrival time: " + this.stringToDouble(model.eval(((TSNSwitch) child.getNode()).arrivalTime(ctx, i, ffrag) , false).toString()));
-	                       this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment scheduled time: " + this.stringToDouble(model.eval(((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) , false).toString()));
+	                	   this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment departure time: " + departureTime);
+	                	   this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment arrival time: " + arrivalTime);
+	                       this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment scheduled time: " + scheduledTime);
 	                       this.logIfLoggingIsEnabled(out, "          ----------------------------");
              	   }
-                    
-             	   ffrag.setFragmentPriority(
-         			   Integer.parseInt(
-             			   model.eval(ffrag.getFragmentPriorityZ3(), false).toString()
- 					   )
-     			   );
              	   
-                    ffrag.addDepartureTime(
-                        this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).departureTime(ctx, i, ffrag) , false).toString()   
-                        )
-                    );
-                    ffrag.addArrivalTime(
-                        this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).arrivalTime(ctx, i, ffrag) , false).toString()   
-                        )
-                    );
-                    ffrag.addScheduledTime(
-                        this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) , false).toString()   
-                        )
-                    );
-                    
-                    /*
-                    this.printIfLoggingIsEnabled(
-                		((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) 
-                		+
-                		" : "
-                		+
-                		this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) , false).toString()   
-                        )	
-            		);
-                    */
+                    ffrag.addDepartureTime(departureTime);
+                    ffrag.addArrivalTime(arrivalTime);
+                    ffrag.addScheduledTime(scheduledTime);
                 }
                 
-                swt = (TSNSwitch) child.getNode();
-
-                for (Port port : ((TSNSwitch) swt).getPorts()) {
+                for (Port port : swt.getPorts()) {
 
                     if(!port.getFlowFragments().contains(ffrag)) {
                         continue;
                     }
-
-                    ArrayList<Double> listOfStart = new ArrayList<Double>();
-             	    ArrayList<Double> listOfDuration = new ArrayList<Double>();
-             	
-                    
-                    for(int index = 0; index < ((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle().getNumOfSlots(prt); index++) {
-                 	   indexZ3 = ctx.mkInt(index);
-                 	   
-             		   listOfStart.add(
-         				   this.stringToDouble(model.eval( 
-                                ((TSNSwitch) child.getNode())
-                                .getPortOf(ffrag.getNextHop())
-                                .getCycle().slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) , false).toString())
-     				   );
-             		   listOfDuration.add(
-         				   this.stringToDouble(model.eval( 
-                                ((TSNSwitch) child.getNode())
-                                .getPortOf(ffrag.getNextHop())
-                                .getCycle().slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) , false).toString())
-     				   );
-                    }
              	   
              	   port.getCycle().addSlotUsed(
-                        (int) this.stringToDouble(model.eval(ffrag.getFragmentPriorityZ3(), false).toString()), 
-                        listOfStart, 
-                        listOfDuration
+                        prt, 
+                        new ArrayList<Double>(listOfStart), 
+                        new ArrayList<Double>(listOfDuration)
                     );
                 }
                 
             }
             
-            this.writePathTree(child, model, ctx, out);
+            this.writePathTree(child, values, ctx, out);
          } 
       }
    }
 	
    
+   /**
+    * [Method]: storeFlowData
+    * [Usage]: Stores the values of a single flow from the model
+    * in its flow fragments and in the cycles of the ports used by
+    * it, without writing anything in the log file. Used when only 
+    * part of the network was scheduled in the last check.
+    * 
+    * @param f         Flow to have its values stored
+    * @param model     Output model generated by z3
+    * @param ctx       z3 context used to generate the model
+    */
+   public void storeFlowData(Flow f, Model model, Context ctx) {
+	   Boolean auxEnableLoggerFile = this.enableLoggerFile;
+	   this.enableLoggerFile = false;
+	   
+	   ModelExtractor values = new ModelExtractor(model, this);
+	   
+	   f.setFlowFirstSendingTime(values.getValue(f.getFlowFirstSendingTimeZ3()));
+	   this.writePathTree(f.getPathTree().getRoot(), values, ctx, null);
+	   
+	   this.enableLoggerFile = auxEnableLoggerFile;
+   }
+   
+   
+   /**
+    * [Method]: storeNetworkData
+    * [Usage]: Stores the values of the model in the flow fragments
+    * and in the cycles of the network, without writing anything in
+    * the log file.
+    * 
+    * @param net       Network to have its values stored
+    * @param ctx       z3 context used to generate the model
+    * @param model     Output model generated by z3
+    */
+   public void storeNetworkData(Network net, Context ctx, Model model) {
+	   Boolean auxEnableLoggerFile = this.enableLoggerFile;
+	   this.enableLoggerFile = false;
+	   
+	   this.generateLog(null, net, ctx, model);
+	   
+	   this.enableLoggerFile = auxEnableLoggerFile;
+   }
+   
+   
+   /**
+    * [Method]: writeLog
+    * [Usage]: Writes the log file of a schedule from its result, in
+    * the same layout used by generateLog. The properties of the switches
+    * and the paths of the flows are read from the network, and the
+    * values of the schedule from the result.
+    * 
+    * @param logName   Path of the log file
+    * @param result    Result of the schedule
+    * @param net       Network that was scheduled
+    */
+   public void writeLog(String logName, ScheduleResult result, Network net) {
+	   try {
+		   PrintWriter out = new PrintWriter(logName);
+		   
+		   out.println("SCHEDULER LOG:\n\n");
+		   
+		   out.println("SWITCH LIST:");
+		   for(Switch auxSwt : net.getSwitches()) {
+			   out.println("  Switch name: " + auxSwt.getName());
+			   out.println("    Max packet size: " + auxSwt.getMaxPacketSize());
+			   out.println("    Port speed: " + auxSwt.getPortSpeed());
+			   out.println("    Time to Travel: " + auxSwt.getTimeToTravel());
+			   out.println("    Transmission time: " + auxSwt.getTransmissionTime());
+			   out.println("");
+		   }
+		   
+		   out.println("");
+		   
+		   // Flows and fragments are in the same order in the result
+		   int frag = 0;
+		   
+		   out.println("FLOW LIST:");
+		   for(int flow = 0; flow < net.getFlows().size(); flow++) {
+			   Flow f = net.getFlows().get(flow);
+			   
+			   out.println("  Flow name: " + f.getName());
+			   out.println("    Start first t1: " + result.getFirstSendingTime(flow));
+			   out.println("    Start HC: " + f.getFlowMaximumLatency());
+			   out.println("    Start packet periodicity: " + f.getFlowSendingPeriodicity());
+			   
+			   if(f.getType() == Flow.PUBLISH_SUBSCRIBE) {
+				   out.println("    Flow type: Multicast");
+				   
+				   out.println("    List of leaves: ");
+				   for(PathNode node : f.getPathTree().getLeaves()) {
+					   out.println(((Device) node.getNode()).getName() + ", ");
+				   }
+				   out.println("");
+				   for(PathNode node : f.getPathTree().getLeaves()) {
+					   List<PathNode> auxNodes = f.getNodesFromRootToNode((Device) node.getNode());
+					   List<FlowFragment> auxFlowFragments = f.getFlowFromRootToNode((Device) node.getNode());
+					   int auxCount = 0;
+					   
+					   out.println("    Path to " + ((Device) node.getNode()).getName() + ": ");
+					   for(PathNode auxNode : auxNodes) {
+						   if(auxNode.getNode() instanceof Device) {
+							   out.println(((Device) auxNode.getNode()).getName() + ", ");
+						   } else if (auxNode.getNode() instanceof TSNSwitch) {
+							   out.println(
+								   ((TSNSwitch) auxNode.getNode()).getName() + 
+								   "(" + 
+								   auxFlowFragments.get(auxCount).getName() +
+								   "), ");
+							   auxCount++;
+						   }
+					   }
+					   out.println("");
+				   }
+				   out.println("");
+				   
+				   frag = this.writePathTree(f.getPathTree().getRoot(), result, out, frag);
+			   }
+			   
+			   out.println("");
+		   }
+		   
+		   out.close();
+	   } catch (FileNotFoundException e) {
+		   e.printStackTrace();
+	   }
+   }
+   
+   
+   /*
+    * Writes the fragments of a path tree as writePathTree does, reading
+    * the priorities, slots and packet times from the result. Returns the
+    * index of the next fragment in the result.
+    */
+   private int writePathTree(PathNode pathNode, ScheduleResult result, PrintWriter out, int frag) {
+	   if((pathNode.getNode() instanceof Device) && (pathNode.getParent() != null)) {
+		   out.println("    [END OF BRANCH]");
+	   }
+	   
+	   for(PathNode child : pathNode.getChildren()) {
+		   if(child.getNode() instanceof Switch) {
+			   for(FlowFragment ffrag : child.getFlowFragments()) {
+				   int port = result.getFragmentPort(frag);
+				   int prt = result.getFragmentPriority(frag);
+				   
+				   out.println("    Fragment name: " + ffrag.getName());
+				   out.println("        Fragment node: " + result.getFragmentNode(frag));
+				   out.println("        Fragment next hop: " + result.getFragmentNextHop(frag));
+				   out.println("        Fragment priority: " + prt);
+				   
+				   int index = 0;
+				   for(int slot = 0; port >= 0 && slot < result.getNumOfSlots(port); slot++) {
+					   if(result.getSlotPriority(port, slot) != prt) {
+						   continue;
+					   }
+					   
+					   out.println("        Fragment slot start " + index + ": " + result.getSlotStart(port, slot));
+					   out.println("        Fragment slot duration " + index + " : " + result.getSlotDuration(port, slot));
+					   index++;
+				   }
+				   
+				   out.println("        Fragment times-");
+				   for(int i = 0; i < ffrag.getNumOfPacketsSent() && i < result.getNumOfPackets(frag); i++) {
+					   out.println("          (" + Integer.toString(i) + ") Fragment departure time: " + result.getDepartureTime(frag, i));
+					   out.println("          (" + Integer.toString(i) + ") Fragment arrival time: " + result.getArrivalTime(frag, i));
+					   out.println("          (" + Integer.toString(i) + ") Fragment scheduled time: " + result.getScheduledTime(frag, i));
+					   out.println("          ----------------------------");
+				   }
+				   
+				   frag++;
+			   }
+			   
+			   frag = this.writePathTree(child, result, out, frag);
+		   }
+	   }
+	   
+	   return frag;
+   }
+   
+   
    public void generateLog(String logName, Network net, Context ctx, Model model) {
 	   this.printIfLoggingIsEnabled("- Model generated successfully.");
+	   
+	   ModelExtractor values = new ModelExtractor(model, this);
+	   
+	   this.printIfLoggingIsEnabled("- " + values.getNumOfConstants() + " values read from the model in " + ((float) values.getExtractionTime())/1000000000 + " seconds");
        
        try {
            PrintWriter out = null; 
            
            if(this.enableLoggerFile) {        	   
-        	   out = new PrintWriter("log.txt");
+        	   out = new PrintWriter(logName);
            }
            
            
@@ -297,14 +429,14 @@ public class Printer {
                    port
                        .getCycle()
                        .setCycleStart(
-                           this.stringToDouble("" + model.eval(port.getCycle().getFirstCycleStartZ3(), false))
+                           values.getValue(port.getCycle().getFirstCycleStartZ3())
                        );
                
                    // cycleDuration
                    port
                        .getCycle()
                        .setCycleDuration(
-                           this.stringToDouble("" + model.eval(port.getCycle().getCycleDurationZ3(), false))
+                           values.getValue(port.getCycle().getCycleDurationZ3())
                        );
                }
                
@@ -332,10 +464,10 @@ public class Printer {
                //this.logIfLoggingIsEnabled(out, "    Flow priority:" + model.eval(f.getFlowPriority(), false));
                //this.logIfLoggingIsEnabled(out, "    Flow latency:" + model.eval(f.getFlowPriority(), false));
                //this.logIfLoggingIsEnabled(out, "    Flow latency:" + model.eval(f.getJitterZ3(), false));
-               this.logIfLoggingIsEnabled(out, "    Start first t1: " + model.eval(f.getFlowFirstSendingTimeZ3(), false));
-               f.setFlowFirstSendingTime(this.stringToDouble(model.eval(f.getFlowFirstSendingTimeZ3(), false).toString()));
+               f.setFlowFirstSendingTime(values.getValue(f.getFlowFirstSendingTimeZ3()));
+               this.logIfLoggingIsEnabled(out, "    Start first t1: " + f.getFlowFirstSendingTime());
                this.logIfLoggingIsEnabled(out, "    Start HC: " + f.getFlowMaximumLatency());
-               this.logIfLoggingIsEnabled(out, "    Start packet periodicity: " + model.eval(f.getFlowSendingPeriodicityZ3(), false));
+               this.logIfLoggingIsEnabled(out, "    Start packet periodicity: " + f.getFlowSendingPeriodicity());
                
                
                // IF FLOW IS UNICAST
@@ -369,8 +501,8 @@ public class Printer {
                    pathNode = pathTree.getRoot();
                    
                    this.logIfLoggingIsEnabled(out, "    Flow type: Multicast");
-                   ArrayList<PathNode> auxNodes;
-                   ArrayList<FlowFragment> auxFlowFragments;
+                   List<PathNode> auxNodes;
+                   List<FlowFragment> auxFlowFragments;
                    int auxCount = 0;
                    
                    this.logInLineIfLoggingIsEnabled(out, "    List of leaves: ");
@@ -402,7 +534,7 @@ public class Printer {
                    this.logIfLoggingIsEnabled(out, "");
                    
                    //Start the data storing and log printing process from the root
-                   this.writePathTree(pathNode, model, ctx, out);                                
+                   this.writePathTree(pathNode, values, ctx, out);                                
                }
                
                this.logIfLoggingIsEnabled(out, "");
@@ -413,6 +545,10 @@ public class Printer {
         	   out.close();        	   
            }
            
+           if(values.getFallbacks() > 0) {
+        	   this.printIfLoggingIsEnabled("- " + values.getFallbacks() + " values evaluated by z3");
+           }
+           
        } catch (FileNotFoundException e) {
            e.printStackTrace();
        }
@@ -472,9 +608,13 @@ public class Printer {
    
    
    public void exportModel(Solver solver) {
+	   this.exportModel(solver, "model.txt");
+   }
+   
+   public void exportModel(Solver solver, String path) {
 	   
 	   try {
-		PrintWriter out = new PrintWriter("model.txt");
+		PrintWriter out = new PrintWriter(path);
 		for(BoolExpr exp : solver.getAssertions()) {
 			out.println(exp);	    		   
 		}
@@ -495,8 +635,8 @@ public class Printer {
 		this.printIfLoggingIsEnabled("");
 		this.printIfLoggingIsEnabled("");
 		int auxCount = 0;
-		ArrayList<PathNode> auxNodes;
-		ArrayList<FlowFragment> auxFlowFragments;
+		List<PathNode> auxNodes;
+		List<FlowFragment> auxFlowFragments;
 
 		Cycle auxCycle;
 		TSNSwitch auxSwt;
@@ -7,11 +7,18 @@ import com.tsnsched.core.components.Port;
 import com.tsnsched.core.network.*;
 import com.tsnsched.core.schedule_generator.*;
 
-import java.nio.charset.Charset;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -33,28 +40,68 @@ public class XMLParser implements GenericParser {
 		this.inputFilePath = inputFilePath;
 	}
 	
+	/**
+	 * [Method]: parseInput
+	 * [Usage]: Streams the input file through a StAX reader, building
+	 * the network one element at a time.
+	 * 
+	 * @return			Network described in the input file
+	 */
 	public Network parseInput() {
-		Network net = null;
-
-		List<String> contentListOfLines; 
-		try {
-			contentListOfLines = Files.readAllLines(Paths.get(this.inputFilePath), Charset.forName("UTF-8"));
-		} catch(Exception e) {
-			contentListOfLines = new ArrayList<String>();
-		}
 		
-		for(String line : contentListOfLines) {
-			this.fileContent += line;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(this.inputFilePath)))) {
+			XMLStreamReader reader = this.createInputFactory().createXMLStreamReader(in);
+			
+			try {
+				return this.parseInputStream(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException | XMLStreamException e) {
+			e.printStackTrace();
 		}
 		
-		net = this.parseInputContent(this.fileContent);
-		
-		return net;
+		return null;
 	
 	}
 	
-
+	/**
+	 * [Method]: parseInputContent
+	 * [Usage]: Builds the network described in a String with the
+	 * content of an input file.
+	 * 
+	 * @param content	Content of the input file
+	 * @return			Network described in the content
+	 */
 	public Network parseInputContent(String content) {
+		
+		try {
+			XMLStreamReader reader = this.createInputFactory().createXMLStreamReader(new StringReader(content));
+			
+			try {
+				return this.parseInputStream(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+		
+	}
+	
+	/**
+	 * [Method]: parseInputThroughJSON
+	 * [Usage]: Builds the network described in a String by converting the
+	 * whole XML document to JSON and parsing it with the JSONParser. Gives
+	 * the same network as parseInputContent, with the input held several
+	 * times in memory.
+	 * 
+	 * @param content	Content of the input file
+	 * @return			Network described in the content
+	 */
+	public Network parseInputThroughJSON(String content) {
 
 		Network net = null;
 		String jsonPrettyPrintString = null;
@@ -70,12 +117,140 @@ public class XMLParser implements GenericParser {
 		}
 
 		JSONParser jsonParser = new JSONParser();
-		net = jsonParser.parseInputContent(jsonPrettyPrintString);
+		jsonParser.setPrinter(this.printer);
+		net = jsonParser.parseInputTree(jsonPrettyPrintString);
 		
 		return net;
 		
 	}
 	
+	/**
+	 * [Method]: parseInputStream
+	 * [Usage]: Reads the sections of the network element of the input
+	 * with a StAX reader. Each element of a section is read into the
+	 * fields that org.json would give it and handed to the JSONParser,
+	 * which creates the switch, device or flow and converts the units.
+	 * Flows that come before the switches or the devices are created at
+	 * the end.
+	 * 
+	 * @param reader	StAX reader of the input content
+	 * @return			Network described in the input
+	 */
+	public Network parseInputStream(XMLStreamReader reader) throws XMLStreamException {
+		JSONParser jsonParser = new JSONParser();
+		Network net = new Network();
+		ArrayList<JsonObject> pendingFlows = new ArrayList<JsonObject>();
+		Boolean hasSwitches = false;
+		Boolean hasDevices = false;
+		
+		jsonParser.setPrinter(this.printer);
+		jsonParser.clearNodeIndexes();
+		
+		// Network element
+		reader.nextTag();
+		
+		while(reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String section = reader.getLocalName();
+			Boolean nodesRead = hasSwitches && hasDevices;
+			
+			switch(section) {
+				case "switches":
+					hasSwitches = true;
+					break;
+				case "devices":
+					hasDevices = true;
+					break;
+				case "flows":
+					break;
+				default:
+					this.readElement(reader);
+					continue;
+			}
+			
+			while(reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				if(!reader.getLocalName().equals("element")) {
+					this.readElement(reader);
+					continue;
+				}
+				
+				JsonElement element = this.readElement(reader);
+				
+				if(element.isJsonObject()) {
+					jsonParser.addElement(net, section, element.getAsJsonObject(), nodesRead, pendingFlows);
+				}
+			}
+		}
+		
+		jsonParser.addPendingFlows(net, pendingFlows);
+		
+		return net;
+	}
+	
+	/*
+	 * Reads the current element until its end tag, as org.json converts
+	 * it: an object with the attributes and child elements as fields,
+	 * repeated elements grouped in an array, or the trimmed text of an
+	 * element without children.
+	 */
+	private JsonElement readElement(XMLStreamReader reader) throws XMLStreamException {
+		JsonObject object = null;
+		StringBuilder text = new StringBuilder();
+		
+		for(int i = 0; i < reader.getAttributeCount(); i++) {
+			if(object == null) {
+				object = new JsonObject();
+			}
+			object.addProperty(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		
+		while(true) {
+			switch(reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					if(object == null) {
+						object = new JsonObject();
+					}
+					
+					String name = reader.getLocalName();
+					JsonElement child = this.readElement(reader);
+					JsonElement existing = object.get(name);
+					
+					if(existing == null) {
+						object.add(name, child);
+					} else if(existing.isJsonArray()) {
+						existing.getAsJsonArray().add(child);
+					} else {
+						JsonArray array = new JsonArray();
+						array.add(existing);
+						array.add(child);
+						object.add(name, array);
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					text.append(reader.getText());
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					if(object != null) {
+						return object;
+					}
+					return new JsonPrimitive(text.toString().trim());
+				default:
+					break;
+			}
+		}
+	}
+	
+	private XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		
+		// The input only describes the network, so no DTDs or external entities
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		
+		return factory;
+	}
+	
 	public static void main(String []args) {
 		
 		//JSONParser parser = new JSONParser("");
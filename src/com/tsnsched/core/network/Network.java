@@ -21,6 +21,8 @@ package com.tsnsched.core.network;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Stack;
 
@@ -62,11 +64,19 @@ public class Network implements Serializable {
     private ArrayList<Switch> switches;
     private ArrayList<Flow> flows;
     private double timeToTravel;
+    
+    // Indexes of the switches and devices by name, kept by addSwitch, addDevice and setSwitches.
+    // The lists of getSwitches and getDevices must not be changed directly.
+    private transient HashMap<String, Switch> switchesByName;
+    private transient HashMap<String, Device> devicesByName;
     public transient ArrayList<RealExpr> allSumOfJitter = new ArrayList<RealExpr>();
     public ArrayList<Integer> numberOfNodes = new ArrayList<Integer>();
     
-    public static int PACKETUPPERBOUNDRANGE = 5; // Limits the applications of rules to the packets
-    public static int CYCLEUPPERBOUNDRANGE = 25; // Limits the applications of rules to the cycles
+    // Default ranges of the scopes. Set the ranges of a network through its NetworkScope
+    public static final int PACKETUPPERBOUNDRANGE = 5; // Limits the applications of rules to the packets
+    public static final int CYCLEUPPERBOUNDRANGE = 25; // Limits the applications of rules to the cycles
+    
+    private NetworkScope scope = NetworkScope.current();
     
     private double jitterUpperBoundRange = -1;
 	transient RealExpr jitterUpperBoundRangeZ3;
@@ -151,133 +161,147 @@ public class Network implements Serializable {
          */
         
         for(Flow flw : this.getFlows()) {
-        	flw.setNumberOfPacketsSent(flw.getPathTree().getRoot());
-
-            flw.bindAllFragments(solver, ctx);
+            this.secureFlowHC(flw, solver, ctx);
+        }
+        
+    }
 
-            solver.add( // No negative cycle values constraint
-                ctx.mkGe(
-                    flw.getStartDevice().getFirstT1TimeZ3(),
-                    ctx.mkReal(0)
-                )
-            );
-            solver.add( // Maximum transmission offset constraint
-                ctx.mkLe(
-                    flw.getStartDevice().getFirstT1TimeZ3(),
-                    flw.getStartDevice().getPacketPeriodicityZ3() 
-                )
-            );
+    /**
+     * [Method]: secureFlowHC
+     * [Usage]: Sets up the number of packets, the fragment bindings
+     * and the hard constraints (latency and jitter) of a single flow.
+     * Called for every flow by secureHC, but can also be used alone
+     * when a flow is added to an already configured solver.
+     * 
+     * @param flw       Flow that will have its hard constraint established
+     * @param solver    z3 solver object used to discover the variables' values
+     * @param ctx       z3 context which specify the environment of constants, functions and variables
+     */
+    public void secureFlowHC(Flow flw, Solver solver, Context ctx) {
+    	flw.setNumberOfPacketsSent(flw.getPathTree().getRoot());
+
+        flw.bindAllFragments(solver, ctx);
+
+        solver.add( // No negative cycle values constraint
+            ctx.mkGe(
+                flw.getStartDevice().getFirstT1TimeZ3(),
+                ctx.mkReal(0)
+            )
+        );
+        solver.add( // Maximum transmission offset constraint
+            ctx.mkLe(
+                flw.getStartDevice().getFirstT1TimeZ3(),
+                flw.getStartDevice().getPacketPeriodicityZ3() 
+            )
+        );
+        
+        
+        
+        if(flw.getType() == Flow.UNICAST) {
             
+            ArrayList<FlowFragment> currentFrags = flw.getFlowFragments();
+            ArrayList<Switch> path = flw.getPath();
             
             
-            if(flw.getType() == Flow.UNICAST) {
+            //Make sure that HC is respected
+            for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+                solver.add(
+                        ctx.mkLe(
+                            ctx.mkSub(
+                                ((TSNSwitch) path.get(path.size() - 1)).scheduledTime(ctx, i, currentFrags.get(currentFrags.size() - 1)),
+                                ((TSNSwitch) path.get(0)).departureTime(ctx, i, currentFrags.get(0))
+                            ),
+                            flw.getStartDevice().getHardConstraintTimeZ3()  
+                        )                   
+                  );
+            }
+           
+        } else if (flw.getType() == Flow.PUBLISH_SUBSCRIBE) {
+            PathNode root = flw.getPathTree().getRoot();
+            List<PathNode> leaves = flw.getPathTree().getLeaves();
+            ArrayList<PathNode> parents = new ArrayList<PathNode>();
+            
+            // Make list of parents of all leaves
+            for(PathNode leaf : leaves) {
                 
-                ArrayList<FlowFragment> currentFrags = flw.getFlowFragments();
-                ArrayList<Switch> path = flw.getPath();
+                if(!parents.contains(leaf.getParent())){
+                    parents.add(leaf.getParent());
+                }
                 
                 
-                //Make sure that HC is respected
-                for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
-                    solver.add(
-                            ctx.mkLe(
-                                ctx.mkSub(
-                                    ((TSNSwitch) path.get(path.size() - 1)).scheduledTime(ctx, i, currentFrags.get(currentFrags.size() - 1)),
-                                    ((TSNSwitch) path.get(0)).departureTime(ctx, i, currentFrags.get(0))
-                                ),
-                                flw.getStartDevice().getHardConstraintTimeZ3()  
-                            )                   
-                      );
+                // Set the maximum allowed jitter
+                for(int index = 0; index < flw.getNumOfPacketsSent(); index++) {
+                	solver.add( // Maximum allowed jitter constraint
+                        ctx.mkLe(
+                            flw.getJitterZ3((Device) leaf.getNode(), solver, ctx, index),
+                            (flw.getFlowMaximumJitter() < 0 ? this.jitterUpperBoundRangeZ3 : ctx.mkReal(Double.toString(flw.getFlowMaximumJitter())))
+                        )
+                    );
                 }
-               
-            } else if (flw.getType() == Flow.PUBLISH_SUBSCRIBE) {
-                PathNode root = flw.getPathTree().getRoot();
-                ArrayList<PathNode> leaves = flw.getPathTree().getLeaves();
-                ArrayList<PathNode> parents = new ArrayList<PathNode>();
                 
-                // Make list of parents of all leaves
-                for(PathNode leaf : leaves) {
-                    
-                    if(!parents.contains(leaf.getParent())){
-                        parents.add(leaf.getParent());
-                    }
-                    
-                    
-                    // Set the maximum allowed jitter
-                    for(int index = 0; index < flw.getNumOfPacketsSent(); index++) {
-                    	solver.add( // Maximum allowed jitter constraint
+            }
+            
+         // Iterate over the flows of each leaf parent, assert HC
+            for(PathNode parent : parents) {
+                for(FlowFragment ffrag : parent.getFlowFragments()) {
+                	for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+
+            			solver.add( // Maximum Allowed Latency constraint
                             ctx.mkLe(
-                                flw.getJitterZ3((Device) leaf.getNode(), solver, ctx, index),
-                                (flw.getFlowMaximumJitter() < 0 ? this.jitterUpperBoundRangeZ3 : ctx.mkReal(Double.toString(flw.getFlowMaximumJitter())))
-                            )
+                            		ctx.mkAdd(
+                            				ctx.mkReal(Double.toString(ffrag.getParent().getPacketSize()/
+                            						((TSNSwitch) root.getChildren().get(0).getNode()).getPortOf(ffrag.getParent().getStartDeviceName()).getPortSpeed()))                              				
+                            				,ctx.mkSub(
+                                                    ((TSNSwitch) parent.getNode()).scheduledTime(ctx, i, ffrag),
+                                                    ((TSNSwitch) root.getChildren().get(0).getNode()).departureTime(ctx, i, 
+                                                        root.getChildren().get(0).getFlowFragments().get(0)
+                                                    )
+                                                )
+                            				)
+                                ,
+                                ctx.mkReal(Double.toString(flw.getFlowMaximumLatency()))
+                            )                   
                         );
+
                     }
-                    
-                }
-                
-             // Iterate over the flows of each leaf parent, assert HC
-                for(PathNode parent : parents) {
-                    for(FlowFragment ffrag : parent.getFlowFragments()) {
-                    	for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
-
-                			solver.add( // Maximum Allowed Latency constraint
-                                ctx.mkLe(
-                                		ctx.mkAdd(
-                                				ctx.mkReal(Double.toString(ffrag.getParent().getPacketSize()/
-                                						((TSNSwitch) root.getChildren().get(0).getNode()).getPortOf(ffrag.getParent().getStartDeviceName()).getPortSpeed()))                              				
-                                				,ctx.mkSub(
-                                                        ((TSNSwitch) parent.getNode()).scheduledTime(ctx, i, ffrag),
-                                                        ((TSNSwitch) root.getChildren().get(0).getNode()).departureTime(ctx, i, 
-                                                            root.getChildren().get(0).getFlowFragments().get(0)
-                                                        )
-                                                    )
-                                				)
-                                    ,
-                                    ctx.mkReal(Double.toString(flw.getFlowMaximumLatency()))
-                                )                   
-                            );
-
-                        }
-                    } 
-                    
-                }
-                
-                /*
+                } 
                 
-                // TODO: CHECK FAIRNESS CONSTRAINT (?)
-                
-                sumOfAllJitter = flw.getSumOfAllDevJitterZ3(solver, ctx, Network.PACKETUPPERBOUNDRANGE - 1);
-                
-                jitterList.push(sumOfAllJitter);
-                totalNumOfLeaves += flw.getPathTree().getLeaves().size();
+            }
+            
+            /*
+            
+            // TODO: CHECK FAIRNESS CONSTRAINT (?)
+            
+            sumOfAllJitter = flw.getSumOfAllDevJitterZ3(solver, ctx, Network.PACKETUPPERBOUNDRANGE - 1);
+            
+            jitterList.push(sumOfAllJitter);
+            totalNumOfLeaves += flw.getPathTree().getLeaves().size();
+            
+            // SET THE MAXIMUM JITTER FOR THE FLOW    
+            solver.add(
+                ctx.mkLe(
+                    ctx.mkDiv(
+                        sumOfAllJitter,
+                        ctx.mkReal(flw.getPathTree().getLeaves().size() * (PACKETUPPERBOUNDRANGE))
+                    ),  
+                    jitterUpperBoundRangeZ3
+                )
+            );
+            */
+            
+            avgOfAllLatency = flw.getAvgLatency(solver, ctx);
+            for(PathNode node : flw.getPathTree().getLeaves()) {
+                Device endDev = (Device) node.getNode();
                 
-                // SET THE MAXIMUM JITTER FOR THE FLOW    
-                solver.add(
-                    ctx.mkLe(
-                        ctx.mkDiv(
-                            sumOfAllJitter,
-                            ctx.mkReal(flw.getPathTree().getLeaves().size() * (PACKETUPPERBOUNDRANGE))
-                        ),  
-                        jitterUpperBoundRangeZ3
+                this.avgLatencyPerDev.add(
+                    (RealExpr) ctx.mkDiv(
+                        flw.getSumOfJitterZ3(endDev, solver, ctx, flw.getNumOfPacketsSent() - 1),
+                        ctx.mkInt(flw.getNumOfPacketsSent())
                     )
                 );
-                */
-                
-                avgOfAllLatency = flw.getAvgLatency(solver, ctx);
-                for(PathNode node : flw.getPathTree().getLeaves()) {
-                    Device endDev = (Device) node.getNode();
-                    
-                    this.avgLatencyPerDev.add(
-                        (RealExpr) ctx.mkDiv(
-                            flw.getSumOfJitterZ3(endDev, solver, ctx, flw.getNumOfPacketsSent() - 1),
-                            ctx.mkInt(flw.getNumOfPacketsSent())
-                        )
-                    );
-                }
-                
             }
-        
+            
         }
-        
     }
     
     
@@ -350,16 +374,26 @@ public class Network implements Serializable {
     
     public void preventCollisionOnFirstHop(Solver solver, Context context) {
         List<Flow> listOfFlows = null;
+        
+        // Flows of each source device, in the order of the network
+        HashMap<String, List<Flow>> flowsBySource = new LinkedHashMap<String, List<Flow>>();
+        
+        for(Flow flow : this.flows){
+            listOfFlows = flowsBySource.get(flow.getStartDevice().getName());
+            
+            if(listOfFlows == null) {
+                listOfFlows = new ArrayList<Flow>();
+                flowsBySource.put(flow.getStartDevice().getName(), listOfFlows);
+            }
+            
+            listOfFlows.add(flow);
+        }
 
         for(Device dev : this.devices){
-            listOfFlows = new ArrayList<Flow>();
-
-            for(Flow flow : this.flows){
-
-                if(flow.getStartDevice().getName().equals(dev.getName())){
-                    listOfFlows.add(flow);
-                }
+            listOfFlows = flowsBySource.get(dev.getName());
 
+            if(listOfFlows == null) {
+                continue;
             }
 
             this.assertRulesForCollisionPrevention(listOfFlows, solver, context);
@@ -430,11 +464,11 @@ public class Network implements Serializable {
 
                 for(FlowFragment fragB : listOfFragments) {
 
-                    for(int j = 0; j < fragB.getNumOfPacketsSent(); j++) {
+                    if(fragA.getParent().getName().equals(fragB.getParent().getName())){
+                        continue;
+                    }
 
-                        if(fragA.getParent().getName().equals(fragB.getParent().getName())){
-                            continue;
-                        }
+                    for(int j = 0; j < fragB.getNumOfPacketsSent(); j++) {
 
                         solver.add(
                             ctx.mkOr(
@@ -592,16 +626,31 @@ public class Network implements Serializable {
      */
     
     public Switch getSwitch(String name) {
-    	Switch swt = null;
+    	if(this.switchesByName == null) {
+    		this.indexSwitches();
+    	}
+    	
+    	return this.switchesByName.get(name);
+    }
+    
+    private void indexSwitches() {
+    	this.switchesByName = new HashMap<String, Switch>();
     	
-    	for(Switch auxSwt : this.switches) {
-    		if(auxSwt.getName().equals(name)) {
-    			swt = auxSwt;
-    			break;
+    	for(Switch swt : this.switches) {
+    		if(!this.switchesByName.containsKey(swt.getName())) {
+    			this.switchesByName.put(swt.getName(), swt);
     		}
     	}
+    }
+    
+    private void indexDevices() {
+    	this.devicesByName = new HashMap<String, Device>();
     	
-    	return swt;
+    	for(Device dev : this.devices) {
+    		if(!this.devicesByName.containsKey(dev.getName())) {
+    			this.devicesByName.put(dev.getName(), dev);
+    		}
+    	}
     }
     
     public RealExpr getJitterUpperBoundRangeZ3() {
@@ -622,6 +671,7 @@ public class Network implements Serializable {
 
     public void setSwitches(ArrayList<Switch> switches) {
         this.switches = switches;
+        this.switchesByName = null;
     }
 
     public ArrayList<Flow> getFlows() {
@@ -638,10 +688,18 @@ public class Network implements Serializable {
     
     public void addSwitch (Switch swt) {
         this.switches.add(swt);
+        
+        if(this.switchesByName != null && !this.switchesByName.containsKey(swt.getName())) {
+        	this.switchesByName.put(swt.getName(), swt);
+        }
     }
 
 	public void addDevice(Device dev) {
 		this.devices.add(dev);
+		
+		if(this.devicesByName != null && !this.devicesByName.containsKey(dev.getName())) {
+			this.devicesByName.put(dev.getName(), dev);
+		}
 	}
 	
 	public ArrayList<Device> getDevices(){
@@ -649,13 +707,11 @@ public class Network implements Serializable {
 	}
 	
 	public Device getDevice(String name) { 
-		for(Device dev : this.devices) {
-			if(dev.getName().equals(name)) {
-				return dev;
-			}
+		if(this.devicesByName == null) {
+			this.indexDevices();
 		}
 		
-		return null;
+		return this.devicesByName.get(name);
 	}
 
 	public Boolean getHasBeenModified() {
@@ -672,6 +728,26 @@ public class Network implements Serializable {
 		this.jitterUpperBoundRange = jitterUpperBoundRange;
 	}
 
+	public void setHasBeenModified(Boolean hasBeenModified) {
+		this.hasBeenModified = hasBeenModified;
+	}
+
+	public double getTimeToTravel() {
+		return timeToTravel;
+	}
+
+	public void setTimeToTravel(double timeToTravel) {
+		this.timeToTravel = timeToTravel;
+	}
+
+	public NetworkScope getScope() {
+		return scope;
+	}
+
+	public void setScope(NetworkScope scope) {
+		this.scope = scope;
+	}
+
 	public Printer getPrinter() {
 		return printer;
 	}
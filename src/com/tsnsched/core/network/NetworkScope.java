@@ -0,0 +1,170 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.network;
+
+import java.io.Serializable;
+
+/**
+ * [Class]: NetworkScope
+ * [Usage]: Naming scope and configuration shared by the components of
+ * a network. Flows, cycles and devices take their instance
+ * numbers (used in their names and in the names of their z3 variables)
+ * from the scope of the thread that creates them, and the rules of a
+ * network read the packet and cycle ranges from the scope of the network.
+ *
+ * Threads use a global scope until another one is entered, so networks
+ * built in their own scopes get the same names no matter how many other
+ * networks are being built or scheduled at the same time:
+ *
+ *     NetworkScope previous = new NetworkScope().enter();
+ *     try {
+ *         // Create the network and its components
+ *     } finally {
+ *         NetworkScope.restore(previous);
+ *     }
+ *
+ * A network keeps the scope in which it was created.
+ */
+public class NetworkScope implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final NetworkScope GLOBAL = new NetworkScope();
+	private static final ThreadLocal<NetworkScope> CURRENT = new ThreadLocal<NetworkScope>();
+
+	private int flowCounter = 0;
+	private int cycleCounter = 0;
+	private int deviceCounter = -1;
+
+	private int packetUpperBoundRange = Network.PACKETUPPERBOUNDRANGE; // Limits the applications of rules to the packets
+	private int cycleUpperBoundRange = Network.CYCLEUPPERBOUNDRANGE; // Limits the applications of rules to the cycles
+
+
+	/**
+	 * [Method]: current
+	 * [Usage]: Retrieves the scope entered by the current thread, or the
+	 * global scope if none was entered.
+	 *
+	 * @return			Scope of the current thread
+	 */
+	public static NetworkScope current() {
+		NetworkScope scope = CURRENT.get();
+
+		return scope != null ? scope : GLOBAL;
+	}
+
+	/**
+	 * [Method]: enter
+	 * [Usage]: Makes this the scope of the current thread until the
+	 * returned scope is restored.
+	 *
+	 * @return			Scope that the thread had before, to be given to restore
+	 */
+	public NetworkScope enter() {
+		NetworkScope previous = CURRENT.get();
+
+		CURRENT.set(this);
+
+		return previous;
+	}
+
+	/**
+	 * [Method]: restore
+	 * [Usage]: Gives back to the current thread the scope it had before
+	 * entering another one.
+	 *
+	 * @param previous	Scope returned by enter
+	 */
+	public static void restore(NetworkScope previous) {
+		if(previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+
+	/*
+	 * Instance counters of the components. The global scope is shared by
+	 * every thread, so the counters are synchronized.
+	 */
+
+	public synchronized int nextFlowInstance() {
+		return ++flowCounter;
+	}
+
+	public synchronized void releaseFlowInstance() {
+		flowCounter--;
+	}
+
+	public synchronized int nextCycleInstance() {
+		return ++cycleCounter;
+	}
+
+	public synchronized int nextDeviceInstance() {
+		return ++deviceCounter;
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public synchronized int getFlowCounter() {
+		return flowCounter;
+	}
+
+	public synchronized void setFlowCounter(int flowCounter) {
+		this.flowCounter = flowCounter;
+	}
+
+	public synchronized int getCycleCounter() {
+		return cycleCounter;
+	}
+
+	public synchronized void setCycleCounter(int cycleCounter) {
+		this.cycleCounter = cycleCounter;
+	}
+
+	public synchronized int getDeviceCounter() {
+		return deviceCounter;
+	}
+
+	public synchronized void setDeviceCounter(int deviceCounter) {
+		this.deviceCounter = deviceCounter;
+	}
+
+	public int getPacketUpperBoundRange() {
+		return packetUpperBoundRange;
+	}
+
+	public void setPacketUpperBoundRange(int packetUpperBoundRange) {
+		this.packetUpperBoundRange = packetUpperBoundRange;
+	}
+
+	public int getCycleUpperBoundRange() {
+		return cycleUpperBoundRange;
+	}
+
+	public void setCycleUpperBoundRange(int cycleUpperBoundRange) {
+		this.cycleUpperBoundRange = cycleUpperBoundRange;
+	}
+
+}
@@ -21,6 +21,7 @@ package com.tsnsched.core.nodes;
 import java.io.Serializable;
 
 import com.microsoft.z3.*;
+import com.tsnsched.core.network.NetworkScope;
 
 // CLASS WHERE DEVICE PROPERTIES AND CONDITIONS ARE SPECIFIED
 
@@ -41,7 +42,6 @@ public class Device implements Serializable {
     private double softConstraintTime = 0;
     private double packetSize = 0;
 
-    private static int indexCounter = -1;        
     private transient RealExpr packetPeriodicityZ3;
 	private transient RealExpr firstT1TimeZ3;
 	private transient RealExpr hardConstraintTimeZ3;
@@ -55,7 +55,7 @@ public class Device implements Serializable {
      * Sets the newly created device name.
      */
     public Device() {
-		this.name = "dev" + indexCounter++;
+		this.name = "dev" + (NetworkScope.current().nextDeviceInstance() - 1);
 	}
     
     /**
@@ -66,7 +66,7 @@ public class Device implements Serializable {
      */
     public Device(String name) {
 		this.name = name;
-		indexCounter++;
+		NetworkScope.current().nextDeviceInstance();
 		this.packetPeriodicity = 0;
         this.firstT1Time = 0;
         this.hardConstraintTime = 0;
@@ -93,7 +93,7 @@ public class Device implements Serializable {
         this.hardConstraintTime = hardConstraintTime;
         this.softConstraintTime = 0;
         this.packetSize = 0;        
-        this.name = "dev" + ++indexCounter;
+        this.name = "dev" + NetworkScope.current().nextDeviceInstance();
     }
     
     /**
@@ -119,7 +119,7 @@ public class Device implements Serializable {
         this.hardConstraintTime = hardConstraintTime;
         this.softConstraintTime = softConstraintTime;
         this.packetSize = packetSize;        
-        this.name = "dev" + ++indexCounter;
+        this.name = "dev" + NetworkScope.current().nextDeviceInstance();
     }
 	
     /**
@@ -143,7 +143,7 @@ public class Device implements Serializable {
         this.hardConstraintTime = hardConstraintTime;
         this.softConstraintTime = 0;
         this.packetSize = packetSize;        
-        this.name = "dev" + ++indexCounter;
+        this.name = "dev" + NetworkScope.current().nextDeviceInstance();
     }
     
     
@@ -172,7 +172,7 @@ public class Device implements Serializable {
 		this.softConstraintTimeZ3 = softConstraintTimeZ3;
 		this.packetSizeZ3 = packetSizeZ3;
 		this.flowPriority = flowPriority;  
-        this.name = "dev" + indexCounter++;
+        this.name = "dev" + (NetworkScope.current().nextDeviceInstance() - 1);
 	}
    
 	/**
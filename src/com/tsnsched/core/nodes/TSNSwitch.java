@@ -20,9 +20,11 @@ package com.tsnsched.core.nodes;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import com.microsoft.z3.*;
 import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.ExpressionCache;
 import com.tsnsched.core.components.FlowFragment;
 import com.tsnsched.core.components.Port;
 import com.tsnsched.core.interface_manager.Printer;
@@ -48,6 +50,7 @@ public class TSNSwitch extends Switch implements Serializable {
 	// private Cycle cycle;
     private ArrayList<String> connectsTo;
     private ArrayList<Port> ports;
+    private transient HashMap<String, Integer> portIndexByName; // Index of connectsTo, kept by createPort and setConnectsTo
     private double cycleDurationUpperBound;
     private double cycleDurationLowerBound;
     
@@ -64,7 +67,6 @@ public class TSNSwitch extends Switch implements Serializable {
     private ScheduleType scheduleType = ScheduleType.DEFAULT;
    
 
-	private static int indexCounter = 0; 
     
     
     /**
@@ -206,8 +208,9 @@ public class TSNSwitch extends Switch implements Serializable {
         this.cycleDurationUpperBoundZ3 = ctx.mkReal(Double.toString(cycleDurationUpperBound));
         
         // Creating the cycle duration and start for this switch
-        this.cycleDuration = ctx.mkRealConst("cycleOf" + this.name + "Duration");
-        this.cycleStart = ctx.mkRealConst("cycleOf" + this.name + "Start");
+        ExpressionCache cache = ExpressionCache.getCache(ctx);
+        this.cycleDuration = cache.mkTimeConst("cycleOf" + this.name + "Duration");
+        this.cycleStart = cache.mkTimeConst("cycleOf" + this.name + "Start");
         
 
         // Creating the cycle setting up the bounds for the duration (Cycle duration constraint)
@@ -351,6 +354,7 @@ public class TSNSwitch extends Switch implements Serializable {
         }
         
         this.ports.add(newPort);
+        this.indexPort(destination);
         
         this.portNum++;
         
@@ -358,6 +362,47 @@ public class TSNSwitch extends Switch implements Serializable {
     }
     
     
+    /**
+     * [Method]: getPortIndexOf
+     * [Usage]: Given a name of a node, returns the index of the port
+     * that can reach this node, as connectsTo.indexOf, through an index
+     * of the names. The list of getConnectsTo must not be changed
+     * directly, only through createPort and setConnectsTo.
+     * 
+     * @param name      Name of the node that the switch connects to
+     * @return          Index of the port, or -1 if no port reaches the node
+     */
+    public int getPortIndexOf(String name) {
+    	if(this.portIndexByName == null) {
+    		this.indexPorts();
+    	}
+    	
+    	Integer index = this.portIndexByName.get(name);
+    	
+    	return index != null ? index : -1;
+    }
+    
+    private void indexPorts() {
+    	this.portIndexByName = new HashMap<String, Integer>();
+    	
+    	for(int i = 0; i < this.connectsTo.size(); i++) {
+    		if(!this.portIndexByName.containsKey(this.connectsTo.get(i))) {
+    			this.portIndexByName.put(this.connectsTo.get(i), i);
+    		}
+    	}
+    }
+    
+    /*
+     * Adds the last name of connectsTo to the index, if it was built.
+     * The first port to a node is kept, as in indexOf.
+     */
+    private void indexPort(String name) {
+    	if(this.portIndexByName != null && !this.portIndexByName.containsKey(name)) {
+    		this.portIndexByName.put(name, this.connectsTo.size() - 1);
+    	}
+    }
+    
+    
     /**
      * [Method]: addToFragmentList
      * [Usage]: Given a flow fragment, it finds the port that connects to
@@ -367,7 +412,7 @@ public class TSNSwitch extends Switch implements Serializable {
      * @param flowFrag      Fragment of a flow to be added to a port
      */
     public void addToFragmentList(FlowFragment flowFrag) {
-        int index = this.connectsTo.indexOf(flowFrag.getNextHop());
+        int index = this.getPortIndexOf(flowFrag.getNextHop());
         
         /*
         this.printer.printIfLoggingIsEnabled("Current node: " + flowFrag.getNodeName());
@@ -396,7 +441,7 @@ public class TSNSwitch extends Switch implements Serializable {
      * @return          Port of the switch that connects to a given node
      */
     public Port getPortOf(String name) {
-        int index = this.connectsTo.indexOf(name);
+        int index = this.getPortIndexOf(name);
         
         //this.printer.printIfLoggingIsEnabled("On switch " + this.getName() + " looking for port to " + name);
          
@@ -416,6 +461,13 @@ public class TSNSwitch extends Switch implements Serializable {
     public void setUpCycleSize(Solver solver, Context ctx) {
     	for(Port port : this.ports) {
     		port.setUpCycle(solver, ctx);
+    		
+    		if(port.checkIfAutomatedApplicationPeriod() && port.getExpansionFactor() > 0) {
+    			this.printer.printIfLoggingIsEnabled(
+					"Port " + this.name + "/" + port.getName() + ": hyper cycle of " + port.getDefinedHyperCycleSize() + 
+					" with " + port.getExpansionFactor() + " packets"
+				);
+    		}
     	}
     }
         
@@ -432,8 +484,7 @@ public class TSNSwitch extends Switch implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr arrivalTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-        IntExpr index = ctx.mkInt(auxIndex);
-        int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
+        int portIndex = this.getPortIndexOf(flowFrag.getNextHop());
 
         return (RealExpr) this.ports.get(portIndex).arrivalTime(ctx, auxIndex, flowFrag);
      }
@@ -451,7 +502,7 @@ public class TSNSwitch extends Switch implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      *
     public RealExpr arrivalTime(Context ctx, IntExpr index, FlowFragment flowFrag){
-        int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
+        int portIndex = this.getPortIndexOf(flowFrag.getNextHop());
         return (RealExpr) this.ports.get(portIndex).arrivalTime(ctx, index, flowFrag);
     }
     /**/
@@ -468,7 +519,7 @@ public class TSNSwitch extends Switch implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr departureTime(Context ctx, IntExpr index, FlowFragment flowFrag){
-        int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
+        int portIndex = this.getPortIndexOf(flowFrag.getNextHop());
         return (RealExpr) this.ports.get(portIndex).departureTime(ctx, index, flowFrag);
     }
     /**/
@@ -485,10 +536,8 @@ public class TSNSwitch extends Switch implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr departureTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-        IntExpr index = ctx.mkInt(auxIndex);
-        
-        int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
-        return (RealExpr) this.ports.get(portIndex).departureTime(ctx, index, flowFrag);
+        int portIndex = this.getPortIndexOf(flowFrag.getNextHop());
+        return (RealExpr) this.ports.get(portIndex).departureTime(ctx, auxIndex, flowFrag);
      }
   
     /**
@@ -503,7 +552,7 @@ public class TSNSwitch extends Switch implements Serializable {
      * @return              Returns the z3 variable for the scheduled time of the desired packet
      *
     public RealExpr scheduledTime(Context ctx, IntExpr index, FlowFragment flowFrag){
-        int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
+        int portIndex = this.getPortIndexOf(flowFrag.getNextHop());
         return (RealExpr) this.ports.get(portIndex).scheduledTime(ctx, index, flowFrag);
     }
     /**/
@@ -522,7 +571,7 @@ public class TSNSwitch extends Switch implements Serializable {
     public RealExpr scheduledTime(Context ctx, int auxIndex, FlowFragment flowFrag){
         // IntExpr index = ctx.mkInt(auxIndex);
         
-        int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
+        int portIndex = this.getPortIndexOf(flowFrag.getNextHop());
         
         return (RealExpr) this.ports.get(portIndex).scheduledTime(ctx, auxIndex, flowFrag);
     }
@@ -609,6 +658,7 @@ public class TSNSwitch extends Switch implements Serializable {
     public void addPort(Port port, String name) {
         this.ports.add(port);
         this.connectsTo.add(name);
+        this.indexPort(name);
     }
     
     public RealExpr getCycleDuration() {
@@ -638,6 +688,11 @@ public class TSNSwitch extends Switch implements Serializable {
 	public ArrayList<String> getConnectsTo(){
 		return this.connectsTo;
 	}
+	
+	public void setConnectsTo(ArrayList<String> connectsTo) {
+		this.connectsTo = connectsTo;
+		this.portIndexByName = null;
+	}
 		 
     public ScheduleType getScheduleType() {
 		return scheduleType;
@@ -647,6 +702,30 @@ public class TSNSwitch extends Switch implements Serializable {
 		this.scheduleType = scheduleType;
 	}
 
+	public double getCycleDurationUpperBound() {
+		return cycleDurationUpperBound;
+	}
+
+	public void setCycleDurationUpperBound(double cycleDurationUpperBound) {
+		this.cycleDurationUpperBound = cycleDurationUpperBound;
+	}
+
+	public double getCycleDurationLowerBound() {
+		return cycleDurationLowerBound;
+	}
+
+	public void setCycleDurationLowerBound(double cycleDurationLowerBound) {
+		this.cycleDurationLowerBound = cycleDurationLowerBound;
+	}
+
+	public int getPortNum() {
+		return portNum;
+	}
+
+	public void setPortNum(int portNum) {
+		this.portNum = portNum;
+	}
+
 	public Printer getPrinter() {
 		return printer;
 	}
@@ -19,6 +19,7 @@ package com.tsnsched.core.sched2netconf;
 //    along with this program.  If not, see <https://www.gnu.org/licenses/>.
 
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.text.SimpleDateFormat;
@@ -56,6 +57,7 @@ public class XMLExporter {
   private Document doc;
   private Element portsTag;
   private Network net;
+  private String directory = CURRENT_DIR;
   private int gclIndex = 0;
   private static final int OPEN_GATES_IN_GAP = 1; // 1 for queue 0, 255 to open all queues
 
@@ -84,6 +86,20 @@ public class XMLExporter {
     writeDataToXML();
   }
 
+  /**
+   * Constructor of the XMLExporter class writing the files in the
+   * XMLExporterFiles folder of the given directory.
+   *
+   * @param net input network topology
+   * @param directory directory of the XMLExporterFiles folder
+   */
+  public XMLExporter(Network net, String directory) {
+    this.net = net;
+    this.directory = directory;
+    new File(directory + SLASH + "XMLExporterFiles").mkdirs();
+    writeDataToXML();
+  }
+
   private void setupXMLNodes(String switchName) {
     // Get Document Builder
     DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -285,7 +301,7 @@ public class XMLExporter {
         // write to file
         StreamResult file =
             new StreamResult(
-                new FileOutputStream(CURRENT_DIR + SLASH + "XMLExporterFiles" + SLASH + CURRENT_TIME + "-" + switchName + XML));
+                new FileOutputStream(this.directory + SLASH + "XMLExporterFiles" + SLASH + CURRENT_TIME + "-" + switchName + XML));
         transformer.transform(source, file);
       }
     } catch (TransformerException | FileNotFoundException e) {
@@ -0,0 +1,104 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.microsoft.z3.Context;
+
+/**
+ * [Class]: ContextPool
+ * [Usage]: Keeps one z3 context per worker thread, reused for all the
+ * jobs of the worker, with a new solver (and expression cache) per job.
+ * Used by the ScheduleServer and the ScheduleBatch. The contexts are
+ * created and closed with the given ScheduleGenerator.
+ */
+public class ContextPool {
+
+	private ScheduleGenerator scheduleGenerator;
+
+	private ThreadLocal<Context> workerContext = new ThreadLocal<Context>();
+	private List<Context> contexts = Collections.synchronizedList(new ArrayList<Context>());
+
+
+	/**
+	 * [Method]: ContextPool
+	 * [Usage]: Creates an empty pool.
+	 *
+	 * @param scheduleGenerator		Generator used to create and close the contexts
+	 */
+	public ContextPool(ScheduleGenerator scheduleGenerator) {
+		this.scheduleGenerator = scheduleGenerator;
+	}
+
+
+	/**
+	 * [Method]: getContext
+	 * [Usage]: Returns the context of the calling thread, creating
+	 * it on the first call.
+	 *
+	 * @return			Context of the worker
+	 */
+	public Context getContext() {
+		Context ctx = this.workerContext.get();
+
+		if(ctx == null) {
+			ctx = this.scheduleGenerator.createContext();
+			this.workerContext.set(ctx);
+			this.contexts.add(ctx);
+		}
+
+		return ctx;
+	}
+
+
+	/**
+	 * [Method]: dropContext
+	 * [Usage]: Closes the context of the calling thread, which gets a
+	 * new one on its next job. Used after a failure, as the context may
+	 * be left in any state.
+	 */
+	public void dropContext() {
+		Context ctx = this.workerContext.get();
+
+		if(ctx != null) {
+			this.workerContext.remove();
+			this.contexts.remove(ctx);
+			this.scheduleGenerator.closeContext(ctx);
+		}
+	}
+
+
+	/**
+	 * [Method]: close
+	 * [Usage]: Closes the contexts of all workers. Must be called once
+	 * the workers are done.
+	 */
+	public void close() {
+		synchronized(this.contexts) {
+			for(Context ctx : this.contexts) {
+				this.scheduleGenerator.closeContext(ctx);
+			}
+			this.contexts.clear();
+		}
+	}
+
+}
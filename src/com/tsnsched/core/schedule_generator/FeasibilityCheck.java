@@ -0,0 +1,368 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+import com.google.gson.*;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: FeasibilityCheck
+ * [Usage]: Analyzes the load of the ports and the paths of the flows of
+ * a network before any z3 rule is created. Errors are reported for inputs
+ * that can't have a schedule:
+ *
+ * - Ports whose transmission time per unit of time exceeds the maximum utilization;
+ * - Ports where the largest packet does not fit in a slot or in a fixed cycle;
+ * - Flows whose minimum end-to-end latency exceeds their hard constraint.
+ *
+ * Warnings are reported for ports that only exceed the maximum utilization
+ * when interframe gaps and guard bands are counted for every packet, and
+ * for ports whose hyper cycle holds too many packets.
+ *
+ * The issues can be written as a JSON report with writeReport.
+ */
+public class FeasibilityCheck {
+
+	public static final String ERROR = "error";
+	public static final String WARNING = "warning";
+
+	private static final double TOLERANCE = 1e-9;
+
+	private Printer printer;
+	private double maximumUtilization = 1;
+	private int maximumHyperCyclePackets = 1000;
+
+	private ArrayList<Map<String, Object>> issues = new ArrayList<Map<String, Object>>();
+	private int numOfErrors = 0;
+	private int numOfWarnings = 0;
+	private long checkTime = 0;
+
+
+	/**
+	 * [Class]: PortLoad
+	 * [Usage]: Load of the flows that leave a switch through a port.
+	 */
+	private class PortLoad {
+		private TSNSwitch swt;
+		private Port port;
+		private ArrayList<Double> periods = new ArrayList<Double>();
+		private int numOfFlows = 0;
+		private double transmissionUtilization = 0;
+		private double totalUtilization = 0;
+		private double packetsPerHyperCycle = 0;
+		private double largestTransmissionTime = 0;
+
+		public PortLoad(TSNSwitch swt, Port port) {
+			this.swt = swt;
+			this.port = port;
+		}
+
+		public void addFlow(Flow flw) {
+			double period = flw.getFlowSendingPeriodicity();
+			double transmissionTime = flw.getPacketSize()/this.port.getPortSpeed();
+			double overhead = (this.port.getInterframeGapSize() + this.port.getGbSize())/this.port.getPortSpeed();
+
+			this.numOfFlows++;
+			this.transmissionUtilization += transmissionTime/period;
+			this.totalUtilization += (transmissionTime + overhead)/period;
+
+			if(transmissionTime > this.largestTransmissionTime) {
+				this.largestTransmissionTime = transmissionTime;
+			}
+
+			this.periods.add(period);
+		}
+	}
+
+
+	/**
+	 * [Method]: FeasibilityCheck
+	 * [Usage]: Creates a check that logs its issues with the given printer.
+	 *
+	 * @param printer		Printer used to log the issues
+	 */
+	public FeasibilityCheck(Printer printer) {
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: check
+	 * [Usage]: Computes the load of every port used by the flows of the
+	 * network and the minimum latency of every path, registering the
+	 * issues found. The flows have their custom values applied and the
+	 * unicast flows are converted, as done when the network is configured.
+	 *
+	 * @param net		Network to be checked
+	 * @return			False if an error was found
+	 */
+	public Boolean check(Network net) {
+		long startTime = System.nanoTime();
+		LinkedHashMap<Port, PortLoad> loads = new LinkedHashMap<Port, PortLoad>();
+
+		this.issues.clear();
+		this.numOfErrors = 0;
+		this.numOfWarnings = 0;
+
+		for(Flow flw : net.getFlows()) {
+			flw.modifyIfUsingCustomVal();
+			flw.convertUnicastFlow();
+
+			if(flw.getFlowSendingPeriodicity() <= 0) {
+				this.addIssue(ERROR, "flow", null, flw.getName(), "period", flw.getFlowSendingPeriodicity(), 0);
+				continue;
+			}
+
+			PathNode root = flw.getPathTree() == null ? null : flw.getPathTree().getRoot();
+
+			if(root == null || root.getChildren().isEmpty()) {
+				continue;
+			}
+
+			Port firstPort = this.getPortOf(
+				(TSNSwitch) root.getChildren().get(0).getNode(),
+				flw.getStartDevice().getName()
+			);
+			double firstTransmissionTime = firstPort == null ? 0 : flw.getPacketSize()/firstPort.getPortSpeed();
+
+			LinkedHashMap<String, Double> latencies = new LinkedHashMap<String, Double>();
+			this.checkPath(flw, root, firstTransmissionTime, loads, latencies);
+
+			for(String endDevice : latencies.keySet()) {
+				if(flw.getFlowMaximumLatency() >= 0 &&
+				   latencies.get(endDevice) > flw.getFlowMaximumLatency() + TOLERANCE) {
+					this.addIssue(ERROR, "flow", endDevice, flw.getName(), "latency",
+							latencies.get(endDevice), flw.getFlowMaximumLatency());
+				}
+			}
+		}
+
+		for(PortLoad load : loads.values()) {
+			this.checkPort(load);
+		}
+
+		this.checkTime = System.nanoTime() - startTime;
+
+		this.printer.printIfLoggingIsEnabled(
+			"Feasibility check: " + this.numOfErrors + " errors and " + this.numOfWarnings +
+			" warnings on " + loads.size() + " ports and " + net.getFlows().size() + " flows in " +
+			((float) this.checkTime)/1000000 + " ms"
+		);
+
+		return this.numOfErrors == 0;
+	}
+
+
+	/*
+	 * Walks the path tree of a flow, adding the flow to the load of each port
+	 * in the way and storing the minimum latency until each end device. The
+	 * latency counts the transmission time on the first hop, as the hard
+	 * constraint does, plus the time to travel and transmit on each port.
+	 */
+	private void checkPath(Flow flw, PathNode node, double latency,
+			LinkedHashMap<Port, PortLoad> loads, LinkedHashMap<String, Double> latencies) {
+
+		if(!(node.getNode() instanceof TSNSwitch)) {
+			for(PathNode child : node.getChildren()) {
+				this.checkPath(flw, child, latency, loads, latencies);
+			}
+			return;
+		}
+
+		TSNSwitch swt = (TSNSwitch) node.getNode();
+
+		for(PathNode child : node.getChildren()) {
+			String childName = child.getNode() instanceof Device ?
+					((Device) child.getNode()).getName() : ((Switch) child.getNode()).getName();
+			Port port = this.getPortOf(swt, childName);
+
+			if(port == null) {
+				this.addIssue(ERROR, "flow", swt.getName(), flw.getName(), "path", 0, 0);
+				continue;
+			}
+
+			if(!loads.containsKey(port)) {
+				loads.put(port, new PortLoad(swt, port));
+			}
+			loads.get(port).addFlow(flw);
+
+			double hopLatency = latency + port.getTimeToTravel() + flw.getPacketSize()/port.getPortSpeed();
+
+			if(child.getChildren().isEmpty()) {
+				latencies.put(childName, hopLatency);
+			} else {
+				this.checkPath(flw, child, hopLatency, loads, latencies);
+			}
+		}
+	}
+
+
+	/*
+	 * Checks the utilization, slot demand and hyper cycle of a port.
+	 */
+	private void checkPort(PortLoad load) {
+		Port port = load.port;
+		String swtName = load.swt.getName();
+		double hyperCycle = Port.findLCM(new ArrayList<Double>(load.periods));
+		double slotLimit = port.getCycle().getMaximumSlotDuration();
+
+		for(Double period : load.periods) {
+			load.packetsPerHyperCycle += hyperCycle/period;
+		}
+
+		if(port.getUseMicroCycles()) {
+			slotLimit = Math.min(slotLimit, Port.findGCD(new ArrayList<Double>(load.periods)));
+		} else if (port.getUseHyperCycle()) {
+			slotLimit = Math.min(slotLimit, hyperCycle);
+		}
+
+		if(load.transmissionUtilization > this.maximumUtilization + TOLERANCE) {
+			this.addIssue(ERROR, "port", swtName, port.getName(), "utilization",
+					load.transmissionUtilization, this.maximumUtilization);
+		} else if(load.totalUtilization > this.maximumUtilization + TOLERANCE) {
+			this.addIssue(WARNING, "port", swtName, port.getName(), "utilizationWithOverhead",
+					load.totalUtilization, this.maximumUtilization);
+		}
+
+		if(load.largestTransmissionTime > slotLimit + TOLERANCE) {
+			this.addIssue(ERROR, "port", swtName, port.getName(), "slotDemand",
+					load.largestTransmissionTime, slotLimit);
+		}
+
+		if((port.getUseMicroCycles() || port.getUseHyperCycle()) &&
+		   load.packetsPerHyperCycle > this.maximumHyperCyclePackets) {
+			this.addIssue(WARNING, "port", swtName, port.getName(), "hyperCycle",
+					load.packetsPerHyperCycle, this.maximumHyperCyclePackets);
+		}
+	}
+
+
+	private Port getPortOf(TSNSwitch swt, String name) {
+		if(!swt.getConnectsTo().contains(name)) {
+			return null;
+		}
+
+		return swt.getPortOf(name);
+	}
+
+
+	private void addIssue(String level, String type, String location, String name, String check, double value, double limit) {
+		Map<String, Object> issue = new LinkedHashMap<String, Object>();
+
+		issue.put("level", level);
+		issue.put("type", type);
+		issue.put("name", name);
+		if(location != null) {
+			issue.put(type.equals("port") ? "switch" : "node", location);
+		}
+		issue.put("check", check);
+		issue.put("value", value);
+		issue.put("limit", limit);
+
+		this.issues.add(issue);
+
+		if(level.equals(ERROR)) {
+			this.numOfErrors++;
+		} else {
+			this.numOfWarnings++;
+		}
+
+		this.printer.printIfLoggingIsEnabled(
+			"[" + level.toUpperCase() + "]: " + check + " of " + type + " " +
+			(location != null ? location + "/" : "") + name + " is " + value + " (limit: " + limit + ")"
+		);
+	}
+
+
+	/**
+	 * [Method]: writeReport
+	 * [Usage]: Writes the result of the last check and its issues as JSON.
+	 *
+	 * @param outputPath	Path of the report file
+	 */
+	public void writeReport(String outputPath) {
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		Map<String, Object> report = new LinkedHashMap<String, Object>();
+
+		report.put("feasible", this.numOfErrors == 0);
+		report.put("errors", this.numOfErrors);
+		report.put("warnings", this.numOfWarnings);
+		report.put("checkTimeMs", ((double) this.checkTime)/1000000);
+		report.put("issues", this.issues);
+
+		try {
+			Writer writer = new FileWriter(outputPath);
+			gson.toJson(report, writer);
+			writer.close();
+		} catch (JsonIOException | IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public ArrayList<Map<String, Object>> getIssues() {
+		return issues;
+	}
+
+	public int getNumOfErrors() {
+		return numOfErrors;
+	}
+
+	public int getNumOfWarnings() {
+		return numOfWarnings;
+	}
+
+	public long getCheckTime() {
+		return checkTime;
+	}
+
+	public double getMaximumUtilization() {
+		return maximumUtilization;
+	}
+
+	public void setMaximumUtilization(double maximumUtilization) {
+		this.maximumUtilization = maximumUtilization;
+	}
+
+	public int getMaximumHyperCyclePackets() {
+		return maximumHyperCyclePackets;
+	}
+
+	public void setMaximumHyperCyclePackets(int maximumHyperCyclePackets) {
+		this.maximumHyperCyclePackets = maximumHyperCyclePackets;
+	}
+
+}
@@ -0,0 +1,161 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: LazyRuleRefiner
+ * [Usage]: Solves a network without asserting the pairwise rules of
+ * its ports upfront (packet transmission order, slot overlap and guard
+ * band). After each check, the candidate model is compared pair by pair
+ * on every port and only the rules of conflicting pairs are added, until
+ * a model respects all of them. Since the missing rules only relax the
+ * problem, an UNSAT answer in any round is final.
+ *
+ * The pair rules must be made lazy with enable before the rules of the
+ * network are set up.
+ */
+public class LazyRuleRefiner {
+
+	private Printer printer;
+	private Model model = null;
+
+	private int rounds = 0;
+	private int addedRules = 0;
+	private int skippedRules = 0;
+
+
+	/**
+	 * [Method]: LazyRuleRefiner
+	 * [Usage]: Creates a refiner that logs its rounds with the given printer.
+	 *
+	 * @param printer		Printer used to log the rounds
+	 */
+	public LazyRuleRefiner(Printer printer) {
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: enable
+	 * [Usage]: Makes the pair rules of every port of the network lazy.
+	 * Must be called before the scheduling rules are set up.
+	 *
+	 * @param net		Network whose ports will have lazy pair rules
+	 */
+	public static void enable(Network net) {
+		for(Switch swt : net.getSwitches()) {
+			if(swt instanceof TSNSwitch) {
+				for(Port port : ((TSNSwitch) swt).getPorts()) {
+					port.setLazyPairRules(true);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * [Method]: solve
+	 * [Usage]: Checks the solver and adds the violated pair rules of
+	 * the ports until the candidate model respects all of them.
+	 *
+	 * @param net		Network with lazy pair rules already set up
+	 * @param ctx		Context of the network rules
+	 * @param solver	Solver with the rules of the network
+	 * @return			Answer of the last round
+	 */
+	public Status solve(Network net, Context ctx, Solver solver) {
+		this.skippedRules = 0;
+		for(Switch swt : net.getSwitches()) {
+			if(swt instanceof TSNSwitch) {
+				for(Port port : ((TSNSwitch) swt).getPorts()) {
+					if(port.getLazyPairRules()) {
+						this.skippedRules += port.getNumOfPairRules();
+					}
+				}
+			}
+		}
+
+		Status status;
+
+		while(true) {
+			this.rounds++;
+			status = solver.check();
+
+			if(status != Status.SATISFIABLE) {
+				break;
+			}
+
+			Model candidate = solver.getModel();
+			int roundRules = 0;
+
+			for(Switch swt : net.getSwitches()) {
+				if(swt instanceof TSNSwitch) {
+					for(Port port : ((TSNSwitch) swt).getPorts()) {
+						roundRules += port.addViolatedPairRules(solver, ctx, candidate);
+					}
+				}
+			}
+
+			this.addedRules += roundRules;
+			this.printer.printIfLoggingIsEnabled("Lazy round " + this.rounds + ": " + roundRules + " pair rules added");
+
+			if(roundRules == 0) {
+				this.model = candidate;
+				break;
+			}
+		}
+
+		this.printer.printIfLoggingIsEnabled(
+			"Lazy pair rules: " + this.rounds + " rounds, " + this.addedRules +
+			" of " + this.skippedRules + " pair rules added"
+		);
+
+		return status;
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public Model getModel() {
+		return model;
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	public int getAddedRules() {
+		return addedRules;
+	}
+
+	public int getSkippedRules() {
+		return skippedRules;
+	}
+
+}
@@ -0,0 +1,503 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.microsoft.z3.*;
+import com.microsoft.z3.enumerations.Z3_decl_kind;
+
+/**
+ * [Class]: NetworkDecomposer
+ * [Usage]: Splits the rules of a network into independent components
+ * and solves them in parallel, one context per worker. Flows that share
+ * no port (and no source device) share no z3 variable, so their rules
+ * fall in different components.
+ *
+ * The components are found on the assertions of the solver: two
+ * assertions are in the same component if they are linked by the
+ * variables they mention. Components are packed into at most numberOfWorkers
+ * partitions, translated to the context of their worker and checked.
+ * The values found for each partition are then pinned on a solver of
+ * the original context, so the merged model can be used to store the
+ * schedule on the network as usual.
+ */
+public class NetworkDecomposer {
+
+	// Interval in which the remaining partitions are interrupted after a failure
+	private static final long INTERRUPT_INTERVAL = 100;
+
+	// Marks the terms that contain no variable
+	private static final int NO_VARIABLE = -1;
+
+	private ScheduleGenerator scheduleGenerator;
+	private Integer numberOfWorkers;
+	private String strategy;
+
+	private ArrayList<Partition> partitions = new ArrayList<Partition>();
+	private Solver mergedSolver = null;
+	private Model model = null;
+
+	private int numberOfComponents = 0;
+	private int largestComponent = 0;
+	private long partitioningTime = 0;
+	private long solvingTime = 0;
+
+
+	/**
+	 * [Class]: Partition
+	 * [Usage]: Group of components solved by the same worker, with
+	 * its own context and solver.
+	 */
+	private class Partition implements Callable<Status> {
+		private ArrayList<BoolExpr> assertions = new ArrayList<BoolExpr>();
+		private ArrayList<Expr> constants = new ArrayList<Expr>();
+		private Expr[] translatedConstants;
+		private Context ctx;
+		private Solver solver;
+		private Status status = Status.UNKNOWN;
+		private volatile Boolean checking = false;
+
+		public Status call() {
+			try {
+				this.checking = true;
+				this.status = this.solver.check();
+			} catch (Z3Exception ex) {
+				this.status = Status.UNKNOWN;
+				scheduleGenerator.getPrinter().printIfLoggingIsEnabled("Partition failed: " + ex.getMessage());
+			} finally {
+				this.checking = false;
+			}
+
+			return this.status;
+		}
+
+		public void cancel() {
+			if(this.checking) {
+				this.ctx.interrupt();
+			}
+		}
+	}
+
+
+	/**
+	 * [Method]: NetworkDecomposer
+	 * [Usage]: Creates a decomposer that solves the components of
+	 * a network on the given number of workers.
+	 *
+	 * @param scheduleGenerator		Generator used to create and close contexts
+	 * @param numberOfWorkers		Maximum number of components solved at the same time
+	 */
+	public NetworkDecomposer(ScheduleGenerator scheduleGenerator, Integer numberOfWorkers) {
+		this.scheduleGenerator = scheduleGenerator;
+		this.numberOfWorkers = numberOfWorkers;
+		this.strategy = scheduleGenerator.getStrategy();
+	}
+
+
+	/**
+	 * [Method]: solve
+	 * [Usage]: Checks the assertions of the given solver component by
+	 * component. If every component is satisfiable, the merged model
+	 * can be retrieved with getModel. If there is a single component,
+	 * the given solver is checked directly.
+	 *
+	 * @param ctx		Context of the network rules
+	 * @param solver	Solver with the rules of the network
+	 * @return			SATISFIABLE if all components are, UNSATISFIABLE if any is
+	 */
+	public Status solve(Context ctx, Solver solver) {
+		long startTime = System.nanoTime();
+
+		ArrayList<ArrayList<BoolExpr>> components = new ArrayList<ArrayList<BoolExpr>>();
+		ArrayList<ArrayList<Expr>> componentConstants = new ArrayList<ArrayList<Expr>>();
+		this.findComponents(solver.getAssertions(), components, componentConstants);
+
+		this.numberOfComponents = components.size();
+		for(ArrayList<BoolExpr> component : components) {
+			this.largestComponent = Math.max(this.largestComponent, component.size());
+		}
+
+		this.scheduleGenerator.getPrinter().printIfLoggingIsEnabled(
+			"Independent components: " + this.numberOfComponents +
+			" (largest with " + this.largestComponent + " of " + solver.getAssertions().length + " assertions)"
+		);
+
+		if(this.numberOfComponents <= 1 || this.numberOfWorkers <= 1) {
+			this.partitioningTime = System.nanoTime() - startTime;
+			startTime = System.nanoTime();
+
+			Status status = solver.check();
+			if(status == Status.SATISFIABLE) {
+				this.model = solver.getModel();
+			}
+
+			this.solvingTime = System.nanoTime() - startTime;
+			return status;
+		}
+
+		this.createPartitions(ctx, components, componentConstants);
+		this.partitioningTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		Status status = this.checkPartitions();
+
+		if(status == Status.SATISFIABLE) {
+			status = this.mergeModels(ctx);
+		}
+
+		this.solvingTime = System.nanoTime() - startTime;
+
+		return status;
+	}
+
+
+	/*
+	 * Union-find over the variables (uninterpreted constants) of the rules.
+	 * The variables of an assertion are joined together, and an assertion
+	 * belongs to the component of its variables. Subterms without variables,
+	 * such as the transmission time of a packet on a port (shared by every
+	 * flow with the same packet size and port speed), join nothing: only
+	 * rules over the same fragments, ports or devices end up together.
+	 *
+	 * Each term is visited once; its representative variable (or NO_VARIABLE)
+	 * is kept so the subterms shared between assertions aren't walked again.
+	 */
+	private void findComponents(BoolExpr[] assertions,
+			ArrayList<ArrayList<BoolExpr>> components,
+			ArrayList<ArrayList<Expr>> componentConstants) {
+		HashMap<Integer, Integer> parent = new HashMap<Integer, Integer>();
+		HashMap<Integer, Integer> variableOf = new HashMap<Integer, Integer>();
+		HashMap<Integer, Expr> constants = new HashMap<Integer, Expr>();
+		ArrayDeque<Expr> stack = new ArrayDeque<Expr>();
+
+		for(BoolExpr assertion : assertions) {
+			stack.push(assertion);
+
+			while(!stack.isEmpty()) {
+				Expr term = stack.peek();
+
+				if(variableOf.containsKey(term.getId())) {
+					stack.pop();
+					continue;
+				}
+
+				if(!term.isApp()) {
+					variableOf.put(term.getId(), NO_VARIABLE);
+					stack.pop();
+					continue;
+				}
+
+				if(term.getNumArgs() == 0) {
+					if(term.getFuncDecl().getDeclKind() == Z3_decl_kind.Z3_OP_UNINTERPRETED) {
+						constants.put(term.getId(), term);
+						parent.put(term.getId(), term.getId());
+						variableOf.put(term.getId(), term.getId());
+					} else {
+						variableOf.put(term.getId(), NO_VARIABLE);
+					}
+					stack.pop();
+					continue;
+				}
+
+				Expr[] args = term.getArgs();
+				boolean visited = true;
+
+				for(Expr arg : args) {
+					if(!variableOf.containsKey(arg.getId())) {
+						stack.push(arg);
+						visited = false;
+					}
+				}
+
+				if(!visited) {
+					continue;
+				}
+
+				int variable = NO_VARIABLE;
+
+				for(Expr arg : args) {
+					int argVariable = variableOf.get(arg.getId());
+
+					if(argVariable == NO_VARIABLE) {
+						continue;
+					}
+
+					if(variable == NO_VARIABLE) {
+						variable = argVariable;
+					} else {
+						this.union(parent, variable, argVariable);
+					}
+				}
+
+				variableOf.put(term.getId(), variable);
+				stack.pop();
+			}
+		}
+
+		HashMap<Integer, Integer> componentOf = new HashMap<Integer, Integer>();
+		ArrayList<BoolExpr> groundAssertions = new ArrayList<BoolExpr>();
+
+		for(BoolExpr assertion : assertions) {
+			int variable = variableOf.get(assertion.getId());
+
+			if(variable == NO_VARIABLE) {
+				groundAssertions.add(assertion);
+				continue;
+			}
+
+			int root = this.find(parent, variable);
+
+			if(!componentOf.containsKey(root)) {
+				componentOf.put(root, components.size());
+				components.add(new ArrayList<BoolExpr>());
+				componentConstants.add(new ArrayList<Expr>());
+			}
+
+			components.get(componentOf.get(root)).add(assertion);
+		}
+
+		// Assertions without variables don't make a component of their own
+		if(!groundAssertions.isEmpty()) {
+			if(components.isEmpty()) {
+				components.add(new ArrayList<BoolExpr>());
+				componentConstants.add(new ArrayList<Expr>());
+			}
+			components.get(0).addAll(groundAssertions);
+		}
+
+		for(Integer id : constants.keySet()) {
+			Integer component = componentOf.get(this.find(parent, id));
+
+			if(component != null) {
+				componentConstants.get(component).add(constants.get(id));
+			}
+		}
+	}
+
+	private int find(HashMap<Integer, Integer> parent, int id) {
+		int root = id;
+
+		while(parent.get(root) != root) {
+			root = parent.get(root);
+		}
+
+		while(parent.get(id) != root) {
+			int next = parent.get(id);
+			parent.put(id, root);
+			id = next;
+		}
+
+		return root;
+	}
+
+	private void union(HashMap<Integer, Integer> parent, int a, int b) {
+		int rootA = this.find(parent, a);
+		int rootB = this.find(parent, b);
+
+		if(rootA != rootB) {
+			parent.put(rootB, rootA);
+		}
+	}
+
+
+	/*
+	 * The largest components are placed first, each one in the partition
+	 * with fewer assertions so far. Assertions and constants are translated
+	 * here, in the calling thread, as the original context is not thread safe.
+	 */
+	private void createPartitions(Context ctx,
+			ArrayList<ArrayList<BoolExpr>> components,
+			ArrayList<ArrayList<Expr>> componentConstants) {
+		Integer[] order = new Integer[components.size()];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return components.get(b).size() - components.get(a).size();
+			}
+		});
+
+		int size = Math.min(this.numberOfWorkers, components.size());
+		for(int i = 0; i < size; i++) {
+			this.partitions.add(new Partition());
+		}
+
+		for(Integer index : order) {
+			Partition smallest = this.partitions.get(0);
+
+			for(Partition partition : this.partitions) {
+				if(partition.assertions.size() < smallest.assertions.size()) {
+					smallest = partition;
+				}
+			}
+
+			smallest.assertions.addAll(components.get(index));
+			smallest.constants.addAll(componentConstants.get(index));
+		}
+
+		for(Partition partition : this.partitions) {
+			partition.ctx = this.scheduleGenerator.createContext();
+			partition.solver = SolverPortfolio.createSolver(partition.ctx, this.strategy);
+
+			for(BoolExpr assertion : partition.assertions) {
+				partition.solver.add((BoolExpr) assertion.translate(partition.ctx));
+			}
+
+			partition.translatedConstants = new Expr[partition.constants.size()];
+			for(int i = 0; i < partition.constants.size(); i++) {
+				partition.translatedConstants[i] = partition.constants.get(i).translate(partition.ctx);
+			}
+		}
+	}
+
+	private Status checkPartitions() {
+		ExecutorService pool = Executors.newFixedThreadPool(this.partitions.size());
+		CompletionService<Status> completion = new ExecutorCompletionService<Status>(pool);
+		Status result = Status.SATISFIABLE;
+
+		for(Partition partition : this.partitions) {
+			completion.submit(partition);
+		}
+
+		int finished = 0;
+
+		try {
+			while(finished < this.partitions.size()) {
+				Future<Status> future = completion.poll(INTERRUPT_INTERVAL, TimeUnit.MILLISECONDS);
+
+				if(future != null) {
+					finished++;
+
+					Status status = future.get();
+					if(status == Status.UNSATISFIABLE) {
+						result = Status.UNSATISFIABLE;
+					} else if(status == Status.UNKNOWN && result == Status.SATISFIABLE) {
+						result = Status.UNKNOWN;
+					}
+				}
+
+				// The network can't be scheduled if a single component fails
+				if(result != Status.SATISFIABLE) {
+					for(Partition partition : this.partitions) {
+						partition.cancel();
+					}
+				}
+			}
+		} catch (InterruptedException ex) {
+			for(Partition partition : this.partitions) {
+				partition.cancel();
+			}
+			result = Status.UNKNOWN;
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+			this.scheduleGenerator.getPrinter().printIfLoggingIsEnabled("Partition failed: " + ex.getMessage());
+			result = Status.UNKNOWN;
+		} finally {
+			pool.shutdown();
+		}
+
+		return result;
+	}
+
+	private Status mergeModels(Context ctx) {
+		this.mergedSolver = ctx.mkSolver();
+
+		for(Partition partition : this.partitions) {
+			Model partialModel = partition.solver.getModel();
+
+			for(int i = 0; i < partition.constants.size(); i++) {
+				Expr value = partialModel.eval(partition.translatedConstants[i], true).translate(ctx);
+				this.mergedSolver.add(ctx.mkEq(partition.constants.get(i), value));
+			}
+		}
+
+		Status status = this.mergedSolver.check();
+
+		if(status == Status.SATISFIABLE) {
+			this.model = this.mergedSolver.getModel();
+		}
+
+		return status;
+	}
+
+
+	/**
+	 * [Method]: close
+	 * [Usage]: Closes the contexts of the partitions. The merged
+	 * model belongs to the original context and is still valid.
+	 */
+	public void close() {
+		for(Partition partition : this.partitions) {
+			if(partition.ctx != null) {
+				this.scheduleGenerator.closeContext(partition.ctx);
+				partition.ctx = null;
+			}
+		}
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public Model getModel() {
+		return model;
+	}
+
+	public String getStrategy() {
+		return strategy;
+	}
+
+	public void setStrategy(String strategy) {
+		this.strategy = strategy;
+	}
+
+	public Integer getNumberOfWorkers() {
+		return numberOfWorkers;
+	}
+
+	public void setNumberOfWorkers(Integer numberOfWorkers) {
+		this.numberOfWorkers = numberOfWorkers;
+	}
+
+	public int getNumberOfComponents() {
+		return numberOfComponents;
+	}
+
+	public int getNumberOfPartitions() {
+		return this.partitions.size();
+	}
+
+	public int getLargestComponent() {
+		return largestComponent;
+	}
+
+	public long getPartitioningTime() {
+		return partitioningTime;
+	}
+
+	public long getSolvingTime() {
+		return solvingTime;
+	}
+
+}
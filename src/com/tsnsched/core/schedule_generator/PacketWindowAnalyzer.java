@@ -0,0 +1,134 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: PacketWindowAnalyzer
+ * [Usage]: Enables the pruning of scheduling rules through packet windows.
+ * The window of a packet on a port goes from its earliest arrival, given
+ * by the earliest first sending time of the flow and the minimum time spent
+ * on the previous hops, to its latest scheduled time, given by the latest
+ * first sending time and the hard constraint of the flow. Rules between
+ * packets whose windows can't meet, and rules of cycles that a packet can't
+ * reach, are left out of the solver, as the bounds already decide them.
+ *
+ * The pruning must be enabled after the first sending times of the flows
+ * are asserted and before the scheduling rules are set up.
+ */
+public class PacketWindowAnalyzer {
+
+	private Printer printer;
+
+	private int checkedPairRules = 0;
+	private int prunedPairRules = 0;
+	private int checkedCycleRules = 0;
+	private int prunedCycleRules = 0;
+
+
+	/**
+	 * [Method]: PacketWindowAnalyzer
+	 * [Usage]: Creates an analyzer that logs its statistics with the given printer.
+	 *
+	 * @param printer		Printer used to log the statistics
+	 */
+	public PacketWindowAnalyzer(Printer printer) {
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: enable
+	 * [Usage]: Makes every port of the network prune its rules through
+	 * the packet windows. Must be called before the scheduling rules are
+	 * set up.
+	 *
+	 * @param net		Network whose ports will prune their rules
+	 */
+	public static void enable(Network net) {
+		for(Switch swt : net.getSwitches()) {
+			if(swt instanceof TSNSwitch) {
+				for(Port port : ((TSNSwitch) swt).getPorts()) {
+					port.setPruneWithWindows(true);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * [Method]: report
+	 * [Usage]: Sums and logs the number of rules checked and pruned on
+	 * the ports of the network. Must be called after the scheduling rules
+	 * are set up.
+	 *
+	 * @param net		Network with the scheduling rules already set up
+	 */
+	public void report(Network net) {
+		this.checkedPairRules = 0;
+		this.prunedPairRules = 0;
+		this.checkedCycleRules = 0;
+		this.prunedCycleRules = 0;
+
+		for(Switch swt : net.getSwitches()) {
+			if(swt instanceof TSNSwitch) {
+				for(Port port : ((TSNSwitch) swt).getPorts()) {
+					this.checkedPairRules += port.getCheckedPairRules();
+					this.prunedPairRules += port.getPrunedPairRules();
+					this.checkedCycleRules += port.getCheckedCycleRules();
+					this.prunedCycleRules += port.getPrunedCycleRules();
+				}
+			}
+		}
+
+		this.printer.printIfLoggingIsEnabled(
+			"Packet windows: " + this.prunedPairRules + " of " + this.checkedPairRules +
+			" packet pair rules and " + this.prunedCycleRules + " of " + this.checkedCycleRules +
+			" cycle rules pruned"
+		);
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public int getCheckedPairRules() {
+		return checkedPairRules;
+	}
+
+	public int getPrunedPairRules() {
+		return prunedPairRules;
+	}
+
+	public int getCheckedCycleRules() {
+		return checkedCycleRules;
+	}
+
+	public int getPrunedCycleRules() {
+		return prunedCycleRules;
+	}
+
+}
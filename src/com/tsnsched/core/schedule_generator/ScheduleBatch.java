@@ -0,0 +1,559 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.ExpressionCache;
+import com.tsnsched.core.interface_manager.ParserManager;
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: ScheduleBatch
+ * [Usage]: Schedules every input file of a directory, or matching a
+ * glob, in a single JVM. Each file goes through the stages parse,
+ * build (setting up the rules), solve, extract and export, and the
+ * stages of different files overlap: files are parsed by a pool of
+ * parsers while others are solved, and their outputs are written by
+ * an exporter while the workers solve the next ones.
+ *
+ * Build, solve and extract run on a bounded pool of workers. Each
+ * worker keeps one z3 context for all of its files, with a new solver
+ * (and expression cache) per file, as in the ScheduleServer. At most
+ * workers + queue files are between parsing and exporting at a time,
+ * so parsed networks don't pile up in memory.
+ *
+ * Every file is scheduled with the parameters given to the batch, and
+ * its outputs (output.json, log, feasibility report and the other
+ * enabled exports) are written to a directory of its own, named after
+ * the file, in the output directory. The summary.csv file of the output
+ * directory gets the status, the number of assertions and the time of
+ * each stage of every file. The portfolio and the decomposition are
+ * not used, as they create contexts of their own.
+ *
+ * Usage: Main -batch=<directory or glob> [-outputDir=<dir>] [-workers=<n>] [-queue=<n>] [other parameters]
+ * e.g.   Main "-batch=cells/*.json" -outputDir=nightly -workers=8
+ */
+public class ScheduleBatch {
+
+	private static final String DEFAULT_OUTPUT_DIRECTORY = "./batch";
+
+	private String[] parameters;
+	private String input;
+	private String outputDirectory;
+	private int workers;
+	private int parsers;
+	private int queueSize;
+
+	private ContextPool contextPool;
+
+
+	/**
+	 * [Method]: ScheduleBatch
+	 * [Usage]: Creates a batch that schedules every file with the given
+	 * parameters, the same accepted by the ScheduleGenerator. The input,
+	 * the output directory, the number of workers and the size of the
+	 * queue are also taken from them.
+	 *
+	 * @param parameters	Parameters of the ScheduleGenerator
+	 */
+	public ScheduleBatch(String[] parameters) {
+		ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+		scheduleGenerator.setParameters(parameters);
+
+		this.parameters = parameters;
+		this.input = scheduleGenerator.getBatchInput();
+		this.outputDirectory = scheduleGenerator.getOutputDirectory() != null ?
+				scheduleGenerator.getOutputDirectory() : DEFAULT_OUTPUT_DIRECTORY;
+		this.workers = Math.max(1, scheduleGenerator.getServerWorkers());
+		this.queueSize = Math.max(1, scheduleGenerator.getServerQueueSize());
+		// Parsing is much faster than solving
+		this.parsers = Math.max(1, this.workers / 4);
+
+		// Only creates and closes the contexts of the workers
+		scheduleGenerator.getPrinter().setEnableConsoleOutput(scheduleGenerator.getEnableConsoleOutput());
+		scheduleGenerator.getPrinter().setEnableLoggerFile(false);
+		this.contextPool = new ContextPool(scheduleGenerator);
+	}
+
+
+	/**
+	 * [Method]: run
+	 * [Usage]: Schedules all input files, waits for the last one and
+	 * writes the summary.
+	 *
+	 * @return		Jobs of the files, in the order of the input
+	 */
+	public List<BatchJob> run() throws IOException {
+		List<Path> inputs = findInputs(this.input);
+		List<BatchJob> jobs = new ArrayList<BatchJob>();
+		HashSet<String> jobDirectories = new HashSet<String>();
+
+		Files.createDirectories(Paths.get(this.outputDirectory));
+
+		System.out.println("Scheduling " + inputs.size() + " files with " + this.workers + " workers into " + this.outputDirectory);
+
+		ExecutorService parserPool = Executors.newFixedThreadPool(this.parsers, this.createThreadFactory("schedule-batch-parser-"));
+		ExecutorService workerPool = Executors.newFixedThreadPool(this.workers, this.createThreadFactory("schedule-batch-worker-"));
+		ExecutorService exporterPool = Executors.newSingleThreadExecutor(this.createThreadFactory("schedule-batch-exporter-"));
+		final Semaphore slots = new Semaphore(this.workers + this.queueSize);
+		List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+
+		try {
+			for(Path inputFile : inputs) {
+				final BatchJob job = new BatchJob(inputFile, this.createJobDirectory(inputFile, jobDirectories));
+				jobs.add(job);
+
+				slots.acquireUninterruptibly();
+
+				futures.add(
+					CompletableFuture.supplyAsync(new Supplier<BatchJob>() {
+						public BatchJob get() {
+							return parse(job);
+						}
+					}, parserPool).thenApplyAsync(new Function<BatchJob, BatchJob>() {
+						public BatchJob apply(BatchJob job) {
+							return solve(job);
+						}
+					}, workerPool).thenAcceptAsync(new Consumer<BatchJob>() {
+						public void accept(BatchJob job) {
+							export(job);
+						}
+					}, exporterPool).whenComplete(new BiConsumer<Void, Throwable>() {
+						public void accept(Void nothing, Throwable error) {
+							if(error != null) {
+								job.fail(String.valueOf(error.getMessage()));
+							}
+							job.totalTime = System.nanoTime() - job.startTime;
+							job.net = null;
+							slots.release();
+							System.out.println("[" + job.status + "] " + job.inputFile);
+						}
+					})
+				);
+			}
+
+			for(CompletableFuture<Void> future : futures) {
+				try {
+					future.join();
+				} catch (CompletionException e) {
+					// Already recorded on the job
+				}
+			}
+		} finally {
+			parserPool.shutdown();
+			workerPool.shutdown();
+			exporterPool.shutdown();
+
+			try {
+				workerPool.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			this.contextPool.close();
+		}
+
+		this.writeSummary(jobs, Paths.get(this.outputDirectory, "summary.csv"));
+
+		return jobs;
+	}
+
+
+	/*
+	 * Runs on a parser: reads the network of the file in its own scope.
+	 */
+	private BatchJob parse(BatchJob job) {
+		job.startTime = System.nanoTime();
+		job.scheduleGenerator = this.createGenerator(job);
+
+		try {
+			ParserManager parserManager = new ParserManager(job.inputFile.toString());
+			parserManager.setPrinter(job.scheduleGenerator.getPrinter());
+			job.net = parserManager.parseFromFile();
+		} catch (RuntimeException e) {
+			job.net = null;
+		}
+
+		job.parseTime = System.nanoTime() - job.startTime;
+
+		if(job.net == null) {
+			job.fail("The network could not be parsed");
+		} else {
+			job.net.setPrinter(job.scheduleGenerator.getPrinter());
+		}
+
+		return job;
+	}
+
+
+	/*
+	 * Runs on a worker: sets up the rules of the network on the context
+	 * of the worker, checks a new solver and stores the model.
+	 */
+	private BatchJob solve(BatchJob job) {
+		if(job.net == null) {
+			return job;
+		}
+
+		ScheduleGenerator scheduleGenerator = job.scheduleGenerator;
+
+		if(!scheduleGenerator.passesFeasibilityCheck(job.net)) {
+			job.status = Status.UNSATISFIABLE.toString();
+			job.message = "Failed the feasibility check";
+			return job;
+		}
+
+		Context ctx = this.contextPool.getContext();
+
+		try {
+			ExpressionCache.getCache(ctx).setTick(scheduleGenerator.getTimeTick());
+
+			if(scheduleGenerator.getLazyPairRules()) {
+				LazyRuleRefiner.enable(job.net);
+			}
+
+			long startTime = System.nanoTime();
+			Solver solver = SolverPortfolio.createSolver(ctx, scheduleGenerator.getStrategy());
+
+			scheduleGenerator.setUpRules(job.net, ctx, solver);
+
+			job.setupTime = System.nanoTime() - startTime;
+			startTime = System.nanoTime();
+
+			ScheduleSolver scheduleSolver = new ScheduleSolver(scheduleGenerator);
+			Status result = scheduleSolver.solve(job.net, ctx, solver);
+			Model model = scheduleSolver.getModel();
+
+			job.solvingTime = System.nanoTime() - startTime;
+			job.assertions = solver.getAssertions().length;
+			job.status = result.toString();
+
+			job.result = scheduleGenerator.extractResult(job.net, ctx, solver, result, model, job.setupTime, job.solvingTime);
+			job.extractionTime = job.result.getExtractionTime();
+			job.status = job.result.getStatus().toString();
+		} catch (RuntimeException e) {
+			// The context may be left in any state, so the worker gets a new one
+			this.contextPool.dropContext();
+			job.fail(String.valueOf(e.getMessage()));
+		} finally {
+			ExpressionCache.releaseCache(ctx);
+		}
+
+		return job;
+	}
+
+
+	/*
+	 * Runs on the exporter: writes the files of the schedule.
+	 */
+	private void export(BatchJob job) {
+		if(job.result == null || !job.result.hasSchedule()) {
+			return;
+		}
+
+		long startTime = System.nanoTime();
+
+		try {
+			job.scheduleGenerator.exportResult(job.result, job.net);
+		} catch (RuntimeException e) {
+			job.fail(String.valueOf(e.getMessage()));
+		}
+
+		job.exportTime = System.nanoTime() - startTime;
+	}
+
+
+	/*
+	 * Creates the generator of a file, writing its outputs to the
+	 * directory of the file.
+	 */
+	private ScheduleGenerator createGenerator(BatchJob job) {
+		ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+		scheduleGenerator.setParameters(this.parameters);
+		scheduleGenerator.setOutputDirectory(job.outputDirectory);
+		scheduleGenerator.setLoadNetwork(false);
+		scheduleGenerator.setDecomposeNetwork(false);
+		scheduleGenerator.getPrinter().setEnableConsoleOutput(scheduleGenerator.getEnableConsoleOutput());
+		scheduleGenerator.getPrinter().setEnableLoggerFile(scheduleGenerator.getEnableLoggerFile());
+
+		return scheduleGenerator;
+	}
+
+
+	/*
+	 * Names the directory of the file after it, adding a number if
+	 * another file of the batch has the same name.
+	 */
+	private String createJobDirectory(Path inputFile, HashSet<String> jobDirectories) {
+		String name = inputFile.getFileName().toString();
+
+		if(name.lastIndexOf('.') > 0) {
+			name = name.substring(0, name.lastIndexOf('.'));
+		}
+
+		String directoryName = name;
+		for(int i = 2; !jobDirectories.add(directoryName); i++) {
+			directoryName = name + "_" + i;
+		}
+
+		return Paths.get(this.outputDirectory, directoryName).toString();
+	}
+
+
+	private ThreadFactory createThreadFactory(final String prefix) {
+		return new ThreadFactory() {
+			private int counter = 0;
+
+			public synchronized Thread newThread(Runnable runnable) {
+				return new Thread(runnable, prefix + (counter++));
+			}
+		};
+	}
+
+
+	/**
+	 * [Method]: findInputs
+	 * [Usage]: Lists the JSON and XML files of a directory, or the files
+	 * matching a glob such as "cells/*.json" or "runs/**.xml", sorted
+	 * by path. A path to a single file gives only that file.
+	 *
+	 * @param input		Directory, glob or file
+	 * @return			Paths of the input files
+	 */
+	public static List<Path> findInputs(String input) throws IOException {
+		final List<Path> inputs = new ArrayList<Path>();
+
+		if(input == null || input.isEmpty()) {
+			return inputs;
+		}
+
+		int firstGlobCharacter = -1;
+		for(int i = 0; i < input.length() && firstGlobCharacter < 0; i++) {
+			if("*?[{".indexOf(input.charAt(i)) >= 0) {
+				firstGlobCharacter = i;
+			}
+		}
+
+		if(firstGlobCharacter < 0) {
+			Path path = Paths.get(input);
+
+			if(Files.isDirectory(path)) {
+				DirectoryStream<Path> directory = Files.newDirectoryStream(path);
+				try {
+					for(Path file : directory) {
+						String name = file.getFileName().toString().toLowerCase();
+						if(Files.isRegularFile(file) && (name.endsWith(".json") || name.endsWith(".xml"))) {
+							inputs.add(file);
+						}
+					}
+				} finally {
+					directory.close();
+				}
+			} else if(Files.isRegularFile(path)) {
+				inputs.add(path);
+			}
+		} else {
+			// Walks the directories before the first glob character
+			int separator = input.lastIndexOf('/', firstGlobCharacter);
+			Path base = Paths.get(separator >= 0 ? input.substring(0, separator + 1) : ".");
+			final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + (separator >= 0 ? input : "./" + input));
+
+			if(Files.isDirectory(base)) {
+				Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+						if(attributes.isRegularFile() && matcher.matches(file)) {
+							inputs.add(file);
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			}
+		}
+
+		Collections.sort(inputs);
+
+		return inputs;
+	}
+
+
+	/*
+	 * Writes one line per file, with the times in milliseconds.
+	 */
+	private void writeSummary(List<BatchJob> jobs, Path summaryPath) throws IOException {
+		PrintWriter out = new PrintWriter(Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8));
+
+		try {
+			out.println("file,status,assertions,parseMs,setupMs,solvingMs,extractionMs,exportMs,totalMs,outputDirectory,message");
+
+			for(BatchJob job : jobs) {
+				out.println(
+					csvValue(job.inputFile.toString()) + "," + job.status + "," + job.assertions + "," +
+					milliseconds(job.parseTime) + "," + milliseconds(job.setupTime) + "," +
+					milliseconds(job.solvingTime) + "," + milliseconds(job.extractionTime) + "," +
+					milliseconds(job.exportTime) + "," + milliseconds(job.totalTime) + "," +
+					csvValue(job.outputDirectory) + "," + csvValue(job.message != null ? job.message : "")
+				);
+			}
+		} finally {
+			out.close();
+		}
+
+		System.out.println("Summary written to " + summaryPath);
+	}
+
+	private static String milliseconds(long nanoseconds) {
+		return String.format(Locale.ROOT, "%.3f", nanoseconds / 1000000.0);
+	}
+
+	private static String csvValue(String value) {
+		if(value.contains(",") || value.contains("\"") || value.contains("\n")) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * [Class]: BatchJob
+	 * [Usage]: Input file of the batch, with the state it gets on each
+	 * stage. Stages run on different threads, one after the other, so
+	 * the fields are only read after the stage that writes them.
+	 */
+	public static class BatchJob {
+		private Path inputFile;
+		private String outputDirectory;
+		private String status = Status.UNKNOWN.toString();
+		private String message = null;
+		private int assertions = 0;
+
+		// In nanoseconds
+		private long startTime = 0;
+		private long parseTime = 0;
+		private long setupTime = 0;
+		private long solvingTime = 0;
+		private long extractionTime = 0;
+		private long exportTime = 0;
+		private long totalTime = 0;
+
+		private ScheduleGenerator scheduleGenerator;
+		private Network net;
+		private ScheduleResult result;
+
+		BatchJob(Path inputFile, String outputDirectory) {
+			this.inputFile = inputFile;
+			this.outputDirectory = outputDirectory;
+		}
+
+		synchronized void fail(String message) {
+			this.status = "ERROR";
+			this.message = message;
+		}
+
+		public Path getInputFile() {
+			return inputFile;
+		}
+
+		public String getOutputDirectory() {
+			return outputDirectory;
+		}
+
+		public String getStatus() {
+			return status;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		public int getAssertions() {
+			return assertions;
+		}
+
+		public long getParseTime() {
+			return parseTime;
+		}
+
+		public long getSetupTime() {
+			return setupTime;
+		}
+
+		public long getSolvingTime() {
+			return solvingTime;
+		}
+
+		public long getExtractionTime() {
+			return extractionTime;
+		}
+
+		public long getExportTime() {
+			return exportTime;
+		}
+
+		public long getTotalTime() {
+			return totalTime;
+		}
+
+		public ScheduleResult getResult() {
+			return result;
+		}
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public String getInput() {
+		return input;
+	}
+
+	public String getOutputDirectory() {
+		return outputDirectory;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+}
@@ -0,0 +1,542 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.NetworkSnapshot;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: ScheduleCache
+ * [Usage]: Directory of networks already scheduled, stored as
+ * NetworkSnapshot files named by the hash of the network they were
+ * generated for. A network with the same hash is given the stored
+ * schedule without setting up the rules or checking the solver.
+ *
+ * The hash is taken from a canonical form of the network: devices,
+ * switches, ports and flows sorted by their trimmed names, with the
+ * values that the rules are built from (periods, sizes, constraints,
+ * cycle bounds and paths), and from the settings of the generator that
+ * change the schedule. So reordering or reformatting the input file
+ * gives the same hash.
+ *
+ * The entries are evicted in least recently used order once the files
+ * are over the size of the cache. The use of an entry is kept on the
+ * modification time of its file, so the order survives between runs.
+ */
+public class ScheduleCache {
+
+	private static final String EXTENSION = ".snapshot";
+
+	private Path directory;
+	private long maxSize; // In bytes
+	private Printer printer;
+
+	// Size of the file of each entry, from the least to the most recently used
+	private LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	private long size = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long stores = 0;
+	private long evictions = 0;
+
+
+	/**
+	 * [Method]: ScheduleCache
+	 * [Usage]: Opens the cache in the given directory, creating it if
+	 * needed, and indexes the entries already stored in it.
+	 *
+	 * @param directory		Directory of the cache
+	 * @param maxSize		Maximum size of the files of the cache, in bytes
+	 * @param printer		Printer used to log the use of the cache
+	 */
+	public ScheduleCache(String directory, long maxSize, Printer printer) {
+		this.directory = Paths.get(directory);
+		this.maxSize = maxSize;
+		this.printer = printer;
+
+		try {
+			Files.createDirectories(this.directory);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		File[] files = this.directory.toFile().listFiles();
+
+		if(files == null) {
+			return;
+		}
+
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+
+		for(File file : files) {
+			if(file.isFile() && file.getName().endsWith(EXTENSION)) {
+				String key = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+				this.entries.put(key, file.length());
+				this.size += file.length();
+			}
+		}
+
+		this.evict();
+	}
+
+
+	/**
+	 * [Method]: computeKey
+	 * [Usage]: Returns the hash of the canonical form of the network and
+	 * of the settings of the generator, as a hexadecimal string. Must be
+	 * called before the rules are set up, as they change the network.
+	 *
+	 * @param net			Network as given in the input
+	 * @param settings		Settings of the generator that change the schedule
+	 * @return				Key of the network in the cache
+	 */
+	public static String computeKey(Network net, String settings) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(getCanonicalForm(net).getBytes(StandardCharsets.UTF_8));
+			digest.update(settings.getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder key = new StringBuilder();
+			for(byte value : digest.digest()) {
+				key.append(String.format("%02x", value));
+			}
+
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * [Method]: getCanonicalForm
+	 * [Usage]: Describes the network with one line per element, sorted
+	 * by name. Lists of hops are kept in order, as they are the path.
+	 *
+	 * @param net		Network as given in the input
+	 * @return			Canonical form of the network
+	 */
+	public static String getCanonicalForm(Network net) {
+		StringBuilder form = new StringBuilder();
+		NetworkScope scope = net.getScope() != null ? net.getScope() : NetworkScope.current();
+
+		form.append("network ").append(net.getJitterUpperBoundRange())
+			.append(' ').append(net.getTimeToTravel())
+			.append(' ').append(scope.getPacketUpperBoundRange())
+			.append(' ').append(scope.getCycleUpperBoundRange()).append('\n');
+
+		ArrayList<String> lines = new ArrayList<String>();
+
+		for(Device dev : net.getDevices()) {
+			lines.add(
+				"device " + name(dev) + ' ' + dev.getPacketPeriodicity() + ' ' + dev.getFirstT1Time() + ' ' +
+				dev.getHardConstraintTime() + ' ' + dev.getSoftConstraintTime() + ' ' + dev.getPacketSize()
+			);
+		}
+
+		for(Switch swt : net.getSwitches()) {
+			StringBuilder line = new StringBuilder();
+
+			line.append("switch ").append(name(swt))
+				.append(' ').append(swt.getMaxPacketSize())
+				.append(' ').append(swt.getTimeToTravel())
+				.append(' ').append(swt.getTransmissionTime())
+				.append(' ').append(swt.getPortSpeed());
+
+			if(swt instanceof TSNSwitch) {
+				TSNSwitch tsnSwitch = (TSNSwitch) swt;
+
+				line.append(' ').append(tsnSwitch.getGbSize())
+					.append(' ').append(tsnSwitch.getCycleDurationUpperBound())
+					.append(' ').append(tsnSwitch.getCycleDurationLowerBound())
+					.append(' ').append(tsnSwitch.getScheduleType());
+
+				ArrayList<String> ports = new ArrayList<String>();
+
+				for(Port port : tsnSwitch.getPorts()) {
+					ports.add(describePort(port));
+				}
+
+				Collections.sort(ports);
+
+				for(String port : ports) {
+					line.append("\n ").append(port);
+				}
+			}
+
+			lines.add(line.toString());
+		}
+
+		for(Flow flow : net.getFlows()) {
+			lines.add(describeFlow(flow));
+		}
+
+		Collections.sort(lines);
+
+		for(String line : lines) {
+			form.append(line).append('\n');
+		}
+
+		return form.toString();
+	}
+
+
+	private static String describePort(Port port) {
+		StringBuilder line = new StringBuilder();
+		Cycle cycle = port.getCycle();
+
+		line.append("port ").append(trim(port.getName()))
+			.append(' ').append(trim(port.getConnectsTo()))
+			.append(' ').append(port.getMaxPacketSize())
+			.append(' ').append(port.getTimeToTravel())
+			.append(' ').append(port.getTransmissionTime())
+			.append(' ').append(port.getPortSpeed())
+			.append(' ').append(port.getGbSize())
+			.append(' ').append(port.getUseMicroCycles())
+			.append(' ').append(port.getUseHyperCycle());
+
+		if(cycle != null) {
+			line.append(" cycle ").append(cycle.getMaximumSlotDuration())
+				.append(' ').append(cycle.getUpperBoundCycleTime())
+				.append(' ').append(cycle.getLowerBoundCycleTime())
+				.append(' ').append(cycle.getFirstCycleStart())
+				.append(' ').append(cycle.getCycleStart())
+				.append(' ').append(cycle.getNumOfPrts())
+				.append(' ').append(cycle.getNumOfSlots())
+				.append(' ').append(cycle.getSlotArrangementMode());
+		}
+
+		return line.toString();
+	}
+
+
+	private static String describeFlow(Flow flow) {
+		StringBuilder line = new StringBuilder();
+
+		line.append("flow ").append(trim(flow.getName()))
+			.append(' ').append(flow.getType())
+			.append(' ').append(name(flow.getStartDevice()))
+			.append(' ').append(flow.getFlowSendingPeriodicity())
+			.append(' ').append(flow.getFlowFirstSendingTime())
+			.append(' ').append(flow.getPacketSize())
+			.append(' ').append(flow.getFlowMaximumJitter())
+			.append(' ').append(flow.getFlowMaximumLatency())
+			.append(' ').append(flow.isFixedPriority())
+			.append(' ').append(flow.getPriorityValue())
+			.append(' ').append(flow.getNumOfPacketsSent())
+			.append(' ').append(flow.getTotalNumOfPackets());
+
+		if(flow.getType() == Flow.UNICAST) {
+			line.append(" path");
+			if(flow.getPath() != null) {
+				for(Switch swt : flow.getPath()) {
+					line.append(' ').append(name(swt));
+				}
+			}
+
+			ArrayList<String> endDevices = new ArrayList<String>();
+			for(Device dev : flow.getEndDeviceList()) {
+				endDevices.add(name(dev));
+			}
+			Collections.sort(endDevices);
+
+			line.append(" to");
+			for(String endDevice : endDevices) {
+				line.append(' ').append(endDevice);
+			}
+		} else if(flow.getPathTree() != null && flow.getPathTree().getRoot() != null) {
+			ArrayList<String> hops = new ArrayList<String>();
+
+			collectHops(flow.getPathTree().getRoot(), hops);
+			Collections.sort(hops);
+
+			for(String hop : hops) {
+				line.append(' ').append(hop);
+			}
+		}
+
+		return line.toString();
+	}
+
+
+	private static void collectHops(PathNode node, List<String> hops) {
+		for(PathNode child : node.getChildren()) {
+			hops.add(name(node.getNode()) + ">" + name(child.getNode()));
+			collectHops(child, hops);
+		}
+	}
+
+
+	private static String name(Object node) {
+		if(node instanceof Device) {
+			return trim(((Device) node).getName());
+		} else if(node instanceof Switch) {
+			return trim(((Switch) node).getName());
+		}
+
+		return "null";
+	}
+
+	private static String trim(String name) {
+		return name != null ? name.trim() : "null";
+	}
+
+
+	/**
+	 * [Method]: load
+	 * [Usage]: Reads the network stored for the key, with its schedule.
+	 * Its devices, switches and flows are put in the order of the given
+	 * network, so the results follow the input.
+	 *
+	 * @param key		Key of the network, given by computeKey
+	 * @param input		Network as given in the input
+	 * @return			Network with the schedule, or null if there is none
+	 */
+	public synchronized Network load(String key, Network input) {
+		Path file = this.getFile(key);
+
+		if(!Files.isRegularFile(file)) {
+			this.misses++;
+			this.remove(key);
+			return null;
+		}
+
+		Network net;
+
+		try {
+			net = new NetworkSnapshot().read(file.toString());
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Unreadable entries, or of another version, are dropped
+			this.printer.printIfLoggingIsEnabled("Schedule cache - dropping " + file + ": " + e.getMessage());
+			this.misses++;
+			this.remove(key);
+			return null;
+		}
+
+		if(!this.entries.containsKey(key)) {
+			// Stored by another process
+			this.size += file.toFile().length();
+		}
+		this.entries.put(key, file.toFile().length());
+		this.hits++;
+
+		sortByNames(net.getDevices(), input.getDevices());
+		sortByNames(net.getSwitches(), input.getSwitches());
+		sortByNames(net.getFlows(), input.getFlows());
+
+		return net;
+	}
+
+
+	/*
+	 * Sorts the elements by the position of their names in the input
+	 */
+	private static <T> void sortByNames(List<T> elements, List<? extends T> input) {
+		final HashMap<String, Integer> positions = new HashMap<String, Integer>();
+
+		for(int i = 0; i < input.size(); i++) {
+			positions.put(elementName(input.get(i)), i);
+		}
+
+		Collections.sort(elements, new Comparator<T>() {
+			public int compare(T a, T b) {
+				Integer positionA = positions.get(elementName(a));
+				Integer positionB = positions.get(elementName(b));
+
+				return Integer.compare(
+					positionA != null ? positionA : Integer.MAX_VALUE,
+					positionB != null ? positionB : Integer.MAX_VALUE
+				);
+			}
+		});
+	}
+
+	private static String elementName(Object element) {
+		return element instanceof Flow ? trim(((Flow) element).getName()) : name(element);
+	}
+
+
+	/**
+	 * [Method]: store
+	 * [Usage]: Stores the network with its schedule under the key,
+	 * evicting the least recently used entries if the cache gets over
+	 * its size.
+	 *
+	 * @param key		Key of the network, given by computeKey
+	 * @param net		Network with the schedule already stored on it
+	 */
+	public synchronized void store(String key, Network net) {
+		Path file = this.getFile(key);
+		Path temporaryFile = this.directory.resolve(key + ".tmp");
+
+		try {
+			// Written aside first, so other processes never read half of an entry
+			new NetworkSnapshot().write(net, temporaryFile.toString());
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			try {
+				Files.deleteIfExists(temporaryFile);
+			} catch (IOException ignored) {
+				;
+			}
+			return;
+		}
+
+		Long previousSize = this.entries.put(key, file.toFile().length());
+
+		this.size += file.toFile().length() - (previousSize != null ? previousSize : 0);
+		this.stores++;
+
+		this.evict();
+	}
+
+
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> iterator = this.entries.entrySet().iterator();
+
+		// The entry just stored is kept, even if it is over the size alone
+		while(this.size > this.maxSize && this.entries.size() > 1 && iterator.hasNext()) {
+			Map.Entry<String, Long> entry = iterator.next();
+
+			try {
+				Files.deleteIfExists(this.getFile(entry.getKey()));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+
+			this.size -= entry.getValue();
+			this.evictions++;
+			iterator.remove();
+		}
+	}
+
+
+	private void remove(String key) {
+		Long entrySize = this.entries.remove(key);
+
+		if(entrySize != null) {
+			this.size -= entrySize;
+		}
+
+		try {
+			Files.deleteIfExists(this.getFile(key));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	private Path getFile(String key) {
+		return this.directory.resolve(key + EXTENSION);
+	}
+
+
+	/**
+	 * [Method]: getStatistics
+	 * [Usage]: Returns a line with the hits, misses, stores and
+	 * evictions of the cache and the size of its files.
+	 *
+	 * @return		String with the cache statistics
+	 */
+	public synchronized String getStatistics() {
+		return this.hits + " hits, " + this.misses + " misses, " + this.stores + " stores, " +
+				this.evictions + " evictions; " + this.entries.size() + " entries, " +
+				this.size + " of " + this.maxSize + " bytes";
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getStores() {
+		return stores;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized double getHitRate() {
+		return this.hits + this.misses > 0 ? ((double) this.hits) / (this.hits + this.misses) : 0;
+	}
+
+	public synchronized int getNumOfEntries() {
+		return entries.size();
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public String getDirectory() {
+		return directory.toString();
+	}
+
+}
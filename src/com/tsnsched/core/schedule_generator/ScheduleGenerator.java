@@ -22,19 +22,26 @@ package com.tsnsched.core.schedule_generator;
 import java.io.*;
 
 import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.math.MathContext;
+import java.math.RoundingMode;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import com.microsoft.z3.*;
 import com.tsnsched.nest_sched.NestSchedINIGen;
 import com.tsnsched.nest_sched.NestSchedNEDGen;
 import com.tsnsched.nest_sched.NestSchedXMLGen;
+import com.tsnsched.core.components.ExpressionCache;
 import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.PeriodArithmetic;
 import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.NetworkSnapshot;
 import com.tsnsched.core.interface_manager.ParserManager;
 import com.tsnsched.core.interface_manager.Printer;
 import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
 import com.tsnsched.core.nodes.Switch;
 import com.tsnsched.core.nodes.TSNSwitch;
 import com.tsnsched.core.sched2netconf.XMLExporter;
@@ -42,8 +49,9 @@ import com.tsnsched.core.sched2netconf.XMLExporter;
 /**
  * [Class]: ScheduleGenerator
  * [Usage]: Used to generate a schedule based on the properties of
- * a given network through the method generateSchedule. Will create
- * a log file and store the timing properties on the cycles and flows.
+ * a given network through the method generateSchedule. Will store
+ * the timing properties on the cycles and flows and return them in a
+ * ScheduleResult, which is also given to the enabled file exports.
  */
 public class ScheduleGenerator {
 		private Boolean exportModel = false;
@@ -54,9 +62,34 @@ public class ScheduleGenerator {
 		private Boolean enableConsoleOutput = false;
 		private Boolean enableLoggerFile = false;
 		private Boolean generateJSONOutput = true;
+		private Boolean compactJSONOutput = false;
+		private Integer portfolioSize = 1;
+		private Boolean decomposeNetwork = false;
+		private Boolean lazyPairRules = false;
+		private Boolean pruneWithWindows = false;
+		private Boolean feasibilityCheck = true;
+		private String feasibilityReportPath = null; // Written on errors only to ./feasibility.json, if not given
+		private String logFilePath = "log.txt";
+		private String jsonOutputPath = "./output.json";
+		private String outputDirectory = null; // Relative output paths are resolved against it, if given
+		private String batchInput = null; // Directory or glob of the input files of a batch
+		private Double timeTick = 0.0;
+		private String strategy = "qfufbv_ackr";
+		private Boolean optimizeSchedule = false;
+		private Double optimizationTime = 60.0; // In seconds
+		private Double latencyWeight = 1.0;
+		private Double jitterWeight = 1.0;
+		private Integer serverPort = 0;
+		private Integer serverWorkers = Runtime.getRuntime().availableProcessors();
+		private Integer serverQueueSize = 16;
+		private Integer decompositionWorkers = Runtime.getRuntime().availableProcessors();
+		private String scheduleCachePath = null; // Schedules are not cached if null
+		private Double scheduleCacheSize = 256.0; // In megabytes
 		
 		private ParserManager parserManager = null;
 		private Printer printer = new Printer(); // Used to generate output
+		private ArrayList<ScheduleSink> sinks = new ArrayList<ScheduleSink>(); // Receive the results of the schedules
+		private ScheduleCache scheduleCache = null;
 		
 	   @SuppressWarnings("serial")
 	   class TestFailedException extends Exception
@@ -100,6 +133,7 @@ public class ScheduleGenerator {
                     HashMap<String, String> cfg = new HashMap<String, String>();
                     cfg.put("model", "true");
                     Context ctx = new Context(cfg);
+                    ExpressionCache.getCache(ctx).setTick(this.timeTick);
 
                     return ctx;
                 }
@@ -127,6 +161,7 @@ public class ScheduleGenerator {
            {
                 
                 { 
+                    ExpressionCache.releaseCache(ctx);
                     ctx.close();
                 }
                 
@@ -146,9 +181,22 @@ public class ScheduleGenerator {
 	   
 	   
 	   public void configureNetwork(Network net, Context ctx, Solver solver) {
+		   // The rules read the packet and cycle ranges from the scope of the network
+		   NetworkScope previousScope = net.getScope().enter();
+		   try {
+			   this.configureNetworkInScope(net, ctx, solver);
+		   } finally {
+			   NetworkScope.restore(previousScope);
+		   }
+	   }
+	   
+	   private void configureNetworkInScope(Network net, Context ctx, Solver solver) {
 		   for(Flow flw : net.getFlows()) {
 			   flw.setPrinter(this.printer);
 		   	   flw.modifyIfUsingCustomVal();
+		   	   if(this.timeTick > 0) {
+		   		   this.quantizeFlowTimes(flw);
+		   	   }
 	    	   flw.convertUnicastFlow();
 	    	   flw.setUpPeriods(flw.getPathTree().getRoot());
 	       }
@@ -172,14 +220,90 @@ public class ScheduleGenerator {
            
            net.preventCollisionOnFirstHop(solver, ctx);
 		   net.assertFirstSendingTimeOfFlows(solver, ctx);
+		   
+		   // The windows of the packets depend on the asserted first sending times
+		   if(this.pruneWithWindows) {
+			   PacketWindowAnalyzer.enable(net);
+		   }
 
 		   // Sets up the hard constraint for each individual flow in the network
 
            net.setJitterUpperBoundRangeZ3(ctx, 25);
 	       net.secureHC(solver, ctx);
+	       
+	       if(this.pruneWithWindows) {
+	    	   new PacketWindowAnalyzer(this.printer).report(net);
+	       }
 	   }
 	   
-	   public void generateSchedule(String topologyFilePath) 
+	   /*
+	    * With the integer time encoding, the period and the fixed first
+	    * sending time of a flow must be multiples of the tick. Both are
+	    * rounded to the closest multiple.
+	    */
+	   private void quantizeFlowTimes(Flow flw) {
+		   double period = PeriodArithmetic.quantize(flw.getFlowSendingPeriodicity(), this.timeTick, RoundingMode.HALF_UP);
+		   double firstSendingTime = flw.getFlowFirstSendingTime();
+		   
+		   if(period <= 0) {
+			   period = this.timeTick;
+		   }
+		   
+		   if(period != flw.getFlowSendingPeriodicity()) {
+			   this.printer.printIfLoggingIsEnabled("Alert: Period of flow " + flw.getName() + " quantized from " + 
+					   flw.getFlowSendingPeriodicity() + " to " + period);
+			   flw.setFlowSendingPeriodicity(period);
+		   }
+		   
+		   if(firstSendingTime >= 0) {
+			   firstSendingTime = PeriodArithmetic.quantize(firstSendingTime, this.timeTick, RoundingMode.HALF_UP);
+			   
+			   if(firstSendingTime != flw.getFlowFirstSendingTime()) {
+				   this.printer.printIfLoggingIsEnabled("Alert: First sending time of flow " + flw.getName() + " quantized from " + 
+						   flw.getFlowFirstSendingTime() + " to " + firstSendingTime);
+				   flw.setFlowFirstSendingTime(firstSendingTime);
+			   }
+		   }
+	   }
+	   
+	   /**
+	    * [Method]: setUpRules
+	    * [Usage]: Sets up the rules of a network on a solver. Networks
+	    * loaded from a serialized file only have their modifications
+	    * configured.
+	    * 
+	    * @param net       Network to be scheduled
+	    * @param ctx       z3 context of the rules
+	    * @param solver    Solver that receives the rules
+	    */
+	   void setUpRules(Network net, Context ctx, Solver solver) {
+	       if(this.loadNetwork) {
+	    	   this.printer.printIfLoggingIsEnabled("- Loading network and modifications");
+	    	   this.serializeNetwork = false; 
+	    	   NetworkScope previousScope = net.getScope().enter();
+	    	   try {
+	    		   net.loadNetwork(ctx, solver);	
+	    		   // Sets up the hard constraint for each individual flow in the network
+	    		   net.setJitterUpperBoundRangeZ3(ctx, 25);
+	    		   net.secureHC(solver, ctx);
+	    	   } finally {
+	    		   NetworkScope.restore(previousScope);
+	    	   }
+	       } else {
+	    	   this.printer.printIfLoggingIsEnabled("- Creating network");
+	    	   this.configureNetwork(net, ctx, solver);	    	   
+	       }
+	   }
+	   
+	   /**
+	    * [Method]: generateSchedule
+	    * [Usage]: Parses the network of the given file and
+	    * generates its schedule.
+	    * 
+	    * @param topologyFilePath   Path of the input file
+	    * @return                   Result of the schedule
+	    */
+	   public ScheduleResult generateSchedule(String topologyFilePath) 
 	   {
 
 		    this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
@@ -188,8 +312,13 @@ public class ScheduleGenerator {
 		    this.parserManager = new ParserManager(topologyFilePath);
 		    this.parserManager.setPrinter(this.printer);
 			Network net = this.parserManager.parseFromFile();
+			
+			// The optimization refines the model of a single solver
+			if(this.portfolioSize > 1 && !this.loadNetwork && !this.optimizeSchedule) {
+				return this.generateScheduleWithPortfolio(net);
+			}
 			 
-			this.generateSchedule(net);
+			return this.generateSchedule(net);
 		   
 	   }
 	   
@@ -201,8 +330,9 @@ public class ScheduleGenerator {
 	    * using z3 
 	    * 
 	    * @param net   Network used as base to generate the schedule
+	    * @return      Result of the schedule
 	    */
-	   public void generateSchedule(Network net) 
+	   public ScheduleResult generateSchedule(Network net) 
 	   {
 		   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
 		   
@@ -213,6 +343,25 @@ public class ScheduleGenerator {
 		   
 		   net.setPrinter(printer);
 		   
+		   // Taken before the rules are set up, as they change the network
+		   String cacheKey = this.getScheduleCacheKey(net);
+		   
+		   if(cacheKey != null) {
+			   ScheduleResult cachedResult = this.readCachedSchedule(cacheKey, net);
+			   
+			   if(cachedResult != null) {
+				   return cachedResult;
+			   }
+		   }
+		   
+		   if(!this.loadNetwork && !this.passesFeasibilityCheck(net)) {
+			   return new ScheduleResult(null, Status.UNSATISFIABLE, 0, 0, 0);
+		   }
+		   
+		   if(this.lazyPairRules) {
+			   LazyRuleRefiner.enable(net);
+		   }
+		   
 			long totalStartTime = System.nanoTime();
 		   
 		   Context ctx = this.createContext(); //Creating the z3 context
@@ -223,13 +372,10 @@ public class ScheduleGenerator {
 		   }
 		   */
 		   
-		   String name = "qfufbv_ackr";
-		   //System.out.println(ctx.getTacticDescription(name));
-		   //qfufbv, qfufbv_ackr, nra, qsat, psmt
-		   Tactic t1 = ctx.mkTactic(name);
+		   //qfufbv, qfufbv_ackr, qflia, nra, qsat, psmt
 		   //Tactic t2 = ctx.mkTactic("nra");
 		   //Tactic t = ctx.parAndThen(t1, t2);
-	       Solver solver = ctx.mkSolver(t1);     //Creating the solver to generate unknown values based on the given context
+	       Solver solver = SolverPortfolio.createSolver(ctx, this.strategy);     //Creating the solver to generate unknown values based on the given context
 	       
 		   
 		   long startTime;
@@ -243,19 +389,318 @@ public class ScheduleGenerator {
 		   startTime = System.nanoTime();
 		   
 		   
-	       if(this.loadNetwork) {
-	    	   this.printer.printIfLoggingIsEnabled("- Loading network and modifications");
-	    	   this.serializeNetwork = false; 
-	    	   net.loadNetwork(ctx, solver);	
-	    	   // Sets up the hard constraint for each individual flow in the network
-	           net.setJitterUpperBoundRangeZ3(ctx, 25);
-	           net.secureHC(solver, ctx);
-	       } else {
-	    	   this.printer.printIfLoggingIsEnabled("- Creating network");
-	    	   this.configureNetwork(net, ctx, solver);	    	   
+	       this.setUpRules(net, ctx, solver);
+	       
+
+           endTime = System.nanoTime();
+           totalTime = endTime-startTime;
+           long setupTime = totalTime;
+           
+	       LocalTime time = LocalTime.now();
+	       
+	       this.printer.printIfLoggingIsEnabled("Time taken to set the rules: " + ((float) totalTime)/1000000000 + " seconds");
+	       this.printer.printIfLoggingIsEnabled("Expression cache - " + ExpressionCache.getCache(ctx).getStatistics() + "\n ");
+	       
+	       this.printer.printIfLoggingIsEnabled("\n==================================================");
+	       this.printer.printIfLoggingIsEnabled("[RULES SET. CHECKING SOLVER]");
+	       this.printer.printIfLoggingIsEnabled("Current time of the day: " + time);
+	       
+	       startTime = System.nanoTime();
+
+	       ScheduleSolver scheduleSolver = new ScheduleSolver(this);
+	       Status result = scheduleSolver.solve(net, ctx, solver);
+	       Model model = scheduleSolver.getModel();
+	       
+	       endTime = System.nanoTime();
+	       totalTime = endTime - startTime;
+	       startTime = System.nanoTime();
+	       
+	       ScheduleResult scheduleResult = this.writeResult(net, ctx, solver, result, model, setupTime, totalTime);
+	       
+	       if(cacheKey != null && scheduleResult.hasSchedule()) {
+	    	   this.scheduleCache.store(cacheKey, net);
 	       }
 	       
+	       scheduleSolver.close();
+		   this.closeContext(ctx);
+		   
+    	   endTime = System.nanoTime();
+    	   totalTime = endTime - startTime;
+    	   this.printer.printIfLoggingIsEnabled("Time taken on logging: " + ((float) totalTime)/1000000000 + " seconds");
 
+    	   this.printer.printIfLoggingIsEnabled("\n==================================================");
+
+		   long totalEndTime   = System.nanoTime();
+		   long totalExecutionTime = totalEndTime - totalStartTime;
+		
+		   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) totalExecutionTime)/1000000000 + " seconds\n ");
+		   
+		   return scheduleResult;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: generateScheduleAsync
+	    * [Usage]: Generates the schedule of a network on a background
+	    * thread. The returned future is completed with the job once it
+	    * answers, reaches the deadline or is cancelled. The results of a
+	    * SAT answer are written as in generateSchedule.
+	    * 
+	    * @param net          Network to be scheduled
+	    * @param deadline     Wall-clock deadline, as in System.currentTimeMillis
+	    * @param listener     Receives the z3 statistics during the check, or null
+	    * @return             Future completed with the job on its final state
+	    */
+	   public CompletableFuture<ScheduleJob> generateScheduleAsync(Network net, long deadline, ScheduleJob.ProgressListener listener) {
+		   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
+		   
+		   if(this.parserManager == null) {
+			   this.parserManager = new ParserManager();
+			   this.parserManager.setPrinter(this.printer);
+		   }
+		   
+		   net.setPrinter(printer);
+		   
+		   ScheduleJob job = new ScheduleJob(this, net, deadline);
+		   job.setListener(listener);
+		   
+		   if(!this.loadNetwork && !this.passesFeasibilityCheck(net)) {
+			   return job.reject();
+		   }
+		   
+		   return job.start(null);
+	   }
+	   
+	   
+	   /**
+	    * [Method]: passesFeasibilityCheck
+	    * [Usage]: Checks the load of the ports and the latency of the
+	    * paths of the network before any z3 rule is created. The issues
+	    * found are written to the feasibility report if its path was 
+	    * given. Otherwise, the report is only written, to 
+	    * ./feasibility.json, if the network has errors.
+	    * 
+	    * @param net   Network to be checked
+	    * @return      False if the network can't have a schedule
+	    */
+	   Boolean passesFeasibilityCheck(Network net) {
+		   if(!this.feasibilityCheck) {
+			   return true;
+		   }
+		   
+		   FeasibilityCheck check = new FeasibilityCheck(this.printer);
+		   Boolean feasible = check.check(net);
+		   String reportPath = this.feasibilityReportPath;
+		   
+		   if(reportPath == null && !feasible) {
+			   reportPath = "./feasibility.json";
+		   }
+		   
+		   if(reportPath != null && check.getIssues().size() > 0) {
+			   check.writeReport(this.getOutputPath(reportPath));
+		   }
+		   
+		   if(!feasible) {
+			   this.printer.printIfLoggingIsEnabled("The specified constraints are NOT satisfiable. See " + this.getOutputPath(reportPath));
+		   }
+		   
+		   return feasible;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: generateScheduleWithPortfolio
+	    * [Usage]: Solves the network with a SolverPortfolio of 
+	    * portfolioSize runs, each with a different tactic or seed. 
+	    * The network copies needed by the other runs are parsed 
+	    * again from the input file. The schedule of the winning run
+	    * is the one logged and exported.
+	    * 
+	    * @param net   Network parsed from the input file
+	    * @return      Result of the schedule
+	    */
+	   private ScheduleResult generateScheduleWithPortfolio(Network net) 
+	   {
+		   String cacheKey = this.getScheduleCacheKey(net);
+		   
+		   if(cacheKey != null) {
+			   ScheduleResult cachedResult = this.readCachedSchedule(cacheKey, net);
+			   
+			   if(cachedResult != null) {
+				   return cachedResult;
+			   }
+		   }
+		   
+		   if(!this.passesFeasibilityCheck(net)) {
+			   return new ScheduleResult(null, Status.UNSATISFIABLE, 0, 0, 0);
+		   }
+		   
+		   long totalStartTime = System.nanoTime();
+		   
+		   ArrayList<Network> networks = new ArrayList<Network>();
+		   networks.add(net);
+		   
+		   while(networks.size() < this.portfolioSize) {
+			   networks.add(this.parserManager.parseFromFile());
+		   }
+		   
+		   for(Network copy : networks) {
+			   copy.setPrinter(this.printer);
+		   }
+		   
+		   SolverPortfolio portfolio = new SolverPortfolio(this, this.portfolioSize);
+		   
+		   this.printer.printIfLoggingIsEnabled("==================================================");
+		   this.printer.printIfLoggingIsEnabled("[CREATING FRAGMENTS, SETTING RULES AND CHECKING PORTFOLIO]");
+		   this.printer.printIfLoggingIsEnabled("Strategies: " + portfolio.getStrategies());
+		   this.printer.printIfLoggingIsEnabled("Current time of the day: " + LocalTime.now());
+		   
+		   Status result = portfolio.solve(networks);
+		   
+		   long startTime = System.nanoTime();
+		   ScheduleResult scheduleResult;
+		   
+		   if(portfolio.getNetwork() != null) {
+			   this.printer.printIfLoggingIsEnabled("Winning strategy: " + portfolio.getWinningStrategy());
+			   this.printer.printIfLoggingIsEnabled("Time taken to set the rules: " + ((float) portfolio.getSetupTime())/1000000000 + " seconds");
+			   
+			   scheduleResult = this.writeResult(
+				   portfolio.getNetwork(), 
+				   portfolio.getContext(), 
+				   portfolio.getSolver(), 
+				   result, 
+				   result == Status.SATISFIABLE ? portfolio.getSolver().getModel() : null,
+				   portfolio.getSetupTime(),
+				   portfolio.getSolvingTime()
+			   );
+			   
+			   if(cacheKey != null && scheduleResult.hasSchedule()) {
+				   this.scheduleCache.store(cacheKey, portfolio.getNetwork());
+			   }
+		   } else {
+			   this.printer.printIfLoggingIsEnabled("No strategy of the portfolio could decide the constraints.");
+			   scheduleResult = new ScheduleResult(null, result, 0, portfolio.getSolvingTime(), 0);
+		   }
+		   
+		   portfolio.close();
+		   
+		   long endTime = System.nanoTime();
+		   this.printer.printIfLoggingIsEnabled("Time taken on logging: " + ((float) (endTime - startTime))/1000000000 + " seconds");
+		   
+		   this.printer.printIfLoggingIsEnabled("\n==================================================");
+		   
+		   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) (endTime - totalStartTime))/1000000000 + " seconds\n ");
+		   
+		   return scheduleResult;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: getScheduleCacheKey
+	    * [Usage]: Returns the key of the network in the schedule cache,
+	    * opening the cache on its first use. Networks loaded from a
+	    * serialized file are not cached, as only their modifications
+	    * are scheduled.
+	    * 
+	    * @param net   Network as given in the input
+	    * @return      Key of the network, or null if the cache is not used
+	    */
+	   private String getScheduleCacheKey(Network net) {
+		   if(this.scheduleCachePath == null || this.loadNetwork) {
+			   return null;
+		   }
+		   
+		   if(this.scheduleCache == null || !this.scheduleCache.getDirectory().equals(Paths.get(this.scheduleCachePath).toString())) {
+			   this.scheduleCache = new ScheduleCache(this.scheduleCachePath, (long) (this.scheduleCacheSize * 1024 * 1024), this.printer);
+		   }
+		   
+		   // Settings that change the schedule found for the same network
+		   String settings = "strategy=" + this.strategy + ";tick=" + this.timeTick + 
+				   ";lazyPairRules=" + this.lazyPairRules + ";pruneWithWindows=" + this.pruneWithWindows + 
+				   ";decompose=" + this.decomposeNetwork + ";optimize=" + this.optimizeSchedule + 
+				   ";optimizationTime=" + this.optimizationTime + ";latencyWeight=" + this.latencyWeight + 
+				   ";jitterWeight=" + this.jitterWeight;
+		   
+		   return ScheduleCache.computeKey(net, settings);
+	   }
+	   
+	   
+	   /**
+	    * [Method]: readCachedSchedule
+	    * [Usage]: Looks for the schedule of the network in the cache. On
+	    * a hit, the stored network is logged and given to the sinks as
+	    * a schedule just generated would be, without any z3 rule.
+	    * 
+	    * @param cacheKey   Key of the network in the cache
+	    * @param net        Network as given in the input
+	    * @return           Result of the cached schedule, or null on a miss
+	    */
+	   private ScheduleResult readCachedSchedule(String cacheKey, Network net) {
+		   long startTime = System.nanoTime();
+		   Network cachedNet = this.scheduleCache.load(cacheKey, net);
+		   
+		   if(cachedNet == null) {
+			   this.printer.printIfLoggingIsEnabled("Schedule cache - miss for " + cacheKey + " (" + this.scheduleCache.getStatistics() + ")");
+			   return null;
+		   }
+		   
+		   cachedNet.setPrinter(this.printer);
+		   
+		   ScheduleResult scheduleResult = new ScheduleResult(cachedNet, Status.SATISFIABLE, 0, 0, System.nanoTime() - startTime);
+		   
+		   this.printer.printIfLoggingIsEnabled("Schedule cache - hit for " + cacheKey + " (" + this.scheduleCache.getStatistics() + ")");
+		   this.printer.printIfLoggingIsEnabled("Time taken to load the schedule: " + ((float) scheduleResult.getExtractionTime())/1000000000 + " seconds");
+		   
+		   this.printer.printOnConsole(cachedNet);
+		   this.exportResult(scheduleResult, cachedNet);
+		   
+		   return scheduleResult;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: writeResult
+	    * [Usage]: Logs the answer of the solver and, if a schedule
+	    * was found, stores it on the network, builds its result and
+	    * gives it to the sinks of the generator.
+	    * 
+	    * @param net			Network used as base to generate the schedule
+	    * @param ctx			Context of the solver
+	    * @param solver		Solver already checked
+	    * @param result		Answer given by the solver
+	    * @param model			Model found for the rules, if the answer is SAT
+	    * @param setupTime		Time taken to set the rules, in nanoseconds
+	    * @param solvingTime	Time taken on solving, in nanoseconds
+	    * @return				Result of the schedule
+	    */
+	   ScheduleResult writeResult(Network net, Context ctx, Solver solver, Status result, Model model, long setupTime, long solvingTime) {
+		   ScheduleResult scheduleResult = this.extractResult(net, ctx, solver, result, model, setupTime, solvingTime);
+		   
+		   if(scheduleResult.hasSchedule()) {
+			   this.exportResult(scheduleResult, net);
+		   }
+		   
+		   return scheduleResult;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: extractResult
+	    * [Usage]: Logs the answer of the solver and, if a schedule
+	    * was found, stores it on the network and builds its result.
+	    * Nothing is given to the sinks, so the files can be written
+	    * later with exportResult, once the context is free.
+	    * 
+	    * @param net			Network used as base to generate the schedule
+	    * @param ctx			Context of the solver
+	    * @param solver		Solver already checked
+	    * @param result		Answer given by the solver
+	    * @param model			Model found for the rules, if the answer is SAT
+	    * @param setupTime		Time taken to set the rules, in nanoseconds
+	    * @param solvingTime	Time taken on solving, in nanoseconds
+	    * @return				Result of the schedule
+	    */
+	   ScheduleResult extractResult(Network net, Context ctx, Solver solver, Status result, Model model, long setupTime, long solvingTime) {
 	       // A switch is picked in order to evaluate the unknown values
            TSNSwitch switch1 = null;
            switch1 = (TSNSwitch) net.getSwitches().get(0);
@@ -280,41 +725,10 @@ public class ScheduleGenerator {
         	   switch1CycDuration = switch1.getCycle(0).getCycleDurationZ3();
            }
            
-           
-           endTime = System.nanoTime();
-           totalTime = endTime-startTime;
-           
-	       /* find model for the constraints above */
-	       Model model = null;
-	       LocalTime time = LocalTime.now();
-	       
-	       this.printer.printIfLoggingIsEnabled("Time taken to set the rules: " + ((float) totalTime)/1000000000 + " seconds\n ");
-	       
-	       this.printer.printIfLoggingIsEnabled("\n==================================================");
-	       this.printer.printIfLoggingIsEnabled("[RULES SET. CHECKING SOLVER]");
-	       this.printer.printIfLoggingIsEnabled("Current time of the day: " + time);
-	       
-	       startTime = System.nanoTime();
-
-	       Status result = solver.check();
 	       if (Status.SATISFIABLE == result)
 	       {
-	    	   endTime = System.nanoTime();
-	    	   totalTime = endTime - startTime;
-	    	   this.printer.printIfLoggingIsEnabled("Time taken on solving: " + ((float) totalTime)/1000000000 + " seconds ");
+	    	   this.printer.printIfLoggingIsEnabled("Time taken on solving: " + ((float) solvingTime)/1000000000 + " seconds ");
 	    	   this.printer.printIfLoggingIsEnabled("Number of assertions: " + solver.getAssertions().length);
-	           model = solver.getModel();
-	           
-	           /*
-	           for(BoolExpr exp : solver.getAssertions()) {
-	    		   System.out.println(exp);	    		   
-	    	   }
-	           */
-
-	           //System.out.println(model);
-	           
-
-   		       startTime = System.nanoTime();
 
    		       this.printer.printIfLoggingIsEnabled("\n==================================================");
    		       this.printer.printIfLoggingIsEnabled("[DATA LOGGING]");
@@ -322,77 +736,161 @@ public class ScheduleGenerator {
    	   		   Expr v = model.evaluate(switch1CycDuration, false);
 	           if (v != null)
 	           {
-
-            	   printer.generateLog("log.txt", net, ctx, model);   	            	   
+	        	   long startTime = System.nanoTime();
 	        	   
-	        	   /*
-	        	   for(Flow f : net.getFlows()) {
-		        	   printer.printDataOnTree(f.getPathTree().getRoot(), model, ctx);  	        		   
-	        	   }
-	        	   */
+            	   printer.storeNetworkData(net, ctx, model);
+            	   
+            	   ScheduleResult scheduleResult = new ScheduleResult(net, result, setupTime, solvingTime, System.nanoTime() - startTime);
+	        	   
+	        	   this.printer.printIfLoggingIsEnabled("Time taken to store the values: " + ((float) scheduleResult.getExtractionTime())/1000000000 + " seconds");
 	        	   
 	               printer.printOnConsole(net);
 	    	       if(this.exportModel) {
-	    	    	   printer.exportModel(solver);
-	    	       }
-	    	       if(this.generateXMLFiles) {
-	    	    	   new XMLExporter(net);	    	   
-	    	       }
-	    	       
-	    	       //System.out.println("- Exporting model");
-		           //printer.exportModel(solver);
-	    	       
-	    	       if(this.serializeNetwork) {
-	    	    	   this.printer.printIfLoggingIsEnabled("- Serializing network");
-	    	    	   this.serializeNetwork(net, "network.ser");
-	    	       }
-	       
-	    	       if(this.generateSimulationFiles) {
-	    	    	   this.printer.printIfLoggingIsEnabled("- Generating simulation files");
-	    	    	   generateSimulationFiles(net);			   
-	    		   }
-	    	       
-	    	       if(this.generateJSONOutput) {
-	    	    	   this.parserManager.parseOutput(net);	    	    	   
+	    	    	   printer.exportModel(solver, this.getOutputPath("model.txt"));
 	    	       }
 	    	       
+	    	       return scheduleResult;
 	           } else
 	           {
 	        	   this.printer.printIfLoggingIsEnabled("Failed to evaluate");
+	        	   
+	        	   return new ScheduleResult(null, Status.UNKNOWN, setupTime, solvingTime, 0);
 	           }
 	       } else
 	       {
-	    	   endTime = System.nanoTime();
-	    	   totalTime = endTime - startTime;
 	    	   this.printer.printIfLoggingIsEnabled("The specified constraints MIGHT NOT be satisfiable.");
-	    	   this.printer.printIfLoggingIsEnabled("Time taken on solving: " + ((float) totalTime)/1000000000 + " seconds\n ");
-
-		       startTime = System.nanoTime();
+	    	   this.printer.printIfLoggingIsEnabled("Time taken on solving: " + ((float) solvingTime)/1000000000 + " seconds\n ");
 
 		       this.printer.printIfLoggingIsEnabled("\n==================================================");
 		       this.printer.printIfLoggingIsEnabled("[DATA LOGGING]");
     	       if(this.exportModel) {
-    	    	   printer.exportModel(solver);
-    	       }	    	   	
-	           /*
-	           for(Flow f : net.getFlows()) {
-	        	   printer.printDataOnTree(f.getPathTree().getRoot(), model, ctx);  	        		   
-        	   }
-        	   */
+    	    	   printer.exportModel(solver, this.getOutputPath("model.txt"));
+    	       }
+    	       
+    	       return new ScheduleResult(null, result, setupTime, solvingTime, 0);
 	       }
 	       
-		   this.closeContext(ctx);
+	   }
+	   
+	   
+	   /**
+	    * [Method]: exportResult
+	    * [Usage]: Gives the result of a schedule to the file exports
+	    * enabled in the parameters and to the sinks of the generator.
+	    * 
+	    * @param scheduleResult		Result with a schedule
+	    * @param net				Network with the values of the schedule stored
+	    */
+	   void exportResult(ScheduleResult scheduleResult, Network net) {
+		   for(ScheduleSink sink : this.createFileSinks()) {
+			   sink.write(scheduleResult, net);
+		   }
 		   
-    	   endTime = System.nanoTime();
-    	   totalTime = endTime - startTime;
-    	   this.printer.printIfLoggingIsEnabled("Time taken on logging: " + ((float) totalTime)/1000000000 + " seconds");
-
-    	   this.printer.printIfLoggingIsEnabled("\n==================================================");
-
-		   long totalEndTime   = System.nanoTime();
-		   long totalExecutionTime = totalEndTime - totalStartTime;
-		
-		   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) totalExecutionTime)/1000000000 + " seconds\n ");
+		   for(ScheduleSink sink : this.sinks) {
+			   sink.write(scheduleResult, net);
+		   }
+	   }
+	   
+	   
+	   /**
+	    * [Method]: getOutputPath
+	    * [Usage]: Resolves the path of an output file against the output
+	    * directory, which is created if needed. Absolute paths and paths
+	    * of a generator without an output directory are kept as given.
+	    * 
+	    * @param path		Path of the output file
+	    * @return			Path where the file is written
+	    */
+	   public String getOutputPath(String path) {
+		   if(this.outputDirectory == null || Paths.get(path).isAbsolute()) {
+			   return path;
+		   }
+		   
+		   new File(this.outputDirectory).mkdirs();
+		   
+		   return Paths.get(this.outputDirectory).resolve(path).toString();
+	   }
+	   
+	   
+	   /**
+	    * [Method]: createFileSinks
+	    * [Usage]: Creates the sinks of the file exports enabled in the
+	    * parameters, in the order in which the files were always written.
+	    * With all of them disabled, no file is written for a schedule.
+	    * 
+	    * @return		Sinks of the enabled file exports
+	    */
+	   private ArrayList<ScheduleSink> createFileSinks() {
+		   ArrayList<ScheduleSink> fileSinks = new ArrayList<ScheduleSink>();
+		   final ScheduleGenerator generator = this;
+		   
+		   if(this.enableLoggerFile) {
+			   fileSinks.add(new ScheduleSink() {
+				   public void write(ScheduleResult result, Network net) {
+					   generator.getPrinter().writeLog(generator.getOutputPath(generator.getLogFilePath()), result, net);
+				   }
+			   });
+		   }
+		   
+		   if(this.generateXMLFiles) {
+			   fileSinks.add(new ScheduleSink() {
+				   public void write(ScheduleResult result, Network net) {
+					   if(generator.getOutputDirectory() != null) {
+						   new XMLExporter(net, generator.getOutputDirectory());
+					   } else {
+						   new XMLExporter(net);
+					   }
+				   }
+			   });
+		   }
+		   
+		   if(this.serializeNetwork) {
+			   fileSinks.add(new ScheduleSink() {
+				   public void write(ScheduleResult result, Network net) {
+					   generator.getPrinter().printIfLoggingIsEnabled("- Serializing network");
+					   generator.serializeNetwork(net, generator.getOutputPath("network.ser"));
+				   }
+			   });
+		   }
+		   
+		   if(this.generateSimulationFiles) {
+			   fileSinks.add(new ScheduleSink() {
+				   public void write(ScheduleResult result, Network net) {
+					   generator.getPrinter().printIfLoggingIsEnabled("- Generating simulation files");
+					   generator.generateSimulationFiles(net);
+				   }
+			   });
+		   }
+		   
+		   if(this.generateJSONOutput) {
+			   fileSinks.add(new ScheduleSink() {
+				   public void write(ScheduleResult result, Network net) {
+					   generator.getParserManager().parseOutput(net, generator.getOutputPath(generator.getJsonOutputPath()), !generator.getCompactJSONOutput());
+				   }
+			   });
+		   }
+		   
+		   return fileSinks;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: addSink
+	    * [Usage]: Adds a sink that receives the result of every
+	    * schedule found by this generator, after the file exports.
+	    * 
+	    * @param sink		Sink to be added
+	    */
+	   public void addSink(ScheduleSink sink) {
+		   this.sinks.add(sink);
+	   }
+	   
+	   public void removeSink(ScheduleSink sink) {
+		   this.sinks.remove(sink);
+	   }
+	   
+	   public ArrayList<ScheduleSink> getSinks() {
+		   return this.sinks;
 	   }
 	   
 	   
@@ -405,12 +903,13 @@ public class ScheduleGenerator {
 	    */
 	   public void generateSimulationFiles(Network net) {
 		 //Create the folder and the simulation files
-	       File folder = new File(System.getProperty("user.dir") + "/nestSched");
+		   String directory = this.outputDirectory != null ? this.outputDirectory : System.getProperty("user.dir");
+	       File folder = new File(directory + "/nestSched");
 	       if(!folder.exists()) {
-	    	   if(folder.mkdir()) {
-		    	   new NestSchedXMLGen(net);
-				   new NestSchedINIGen(net);
-				   new NestSchedNEDGen(net);
+	    	   if(folder.mkdirs()) {
+		    	   new NestSchedXMLGen(net, directory);
+				   new NestSchedINIGen(net, directory);
+				   new NestSchedNEDGen(net, directory);
 	    	   }
 	       } else {
 	    	   String[]entries = folder.list();
@@ -418,19 +917,18 @@ public class ScheduleGenerator {
 		           File currentFile = new File(folder.getPath(),s);
 		           currentFile.delete();
 		       }
-	    	   new NestSchedXMLGen(net);
-			   new NestSchedINIGen(net);
-			   new NestSchedNEDGen(net);
+	    	   new NestSchedXMLGen(net, directory);
+			   new NestSchedINIGen(net, directory);
+			   new NestSchedNEDGen(net, directory);
 	       }
 	   }
 
 
 	   /**
 	    * [Method]: serializateNetwork
-	    * [Usage]: Serialize the primitive objects of the network object.
-	    * The serialized file is stored in the path string folder. Can be used
-	    * to store the data of a network and the values of the generated 
-	    * schedule.
+	    * [Usage]: Stores the network in a snapshot file (see NetworkSnapshot)
+	    * in the path string folder. Can be used to store the data of a 
+	    * network and the values of the generated schedule.
 	    * 
 	    * @param net		Network object to be serialized
 	    * @param path		Path of for the serialized object file
@@ -447,12 +945,8 @@ public class ScheduleGenerator {
 		   }
 		   
 	    	try {
-	            FileOutputStream fileOut = new FileOutputStream(path);
-	            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-	            out.writeObject(net);
-	            out.close();
-	            fileOut.close();
-	            this.printer.printIfLoggingIsEnabled("Serialized data is saved in network.ser");
+	            new NetworkSnapshot().write(net, path);
+	            this.printer.printIfLoggingIsEnabled("Serialized data is saved in " + path);
 	         } catch (Exception i) {
 	            i.printStackTrace();
 	         }
@@ -460,8 +954,10 @@ public class ScheduleGenerator {
 	   
 	   /**
 	    * [Method]: deserializeNetwork
-	    * [Usage]: From a serialized object file, load the primitive
-	    * values of the stored object.
+	    * [Usage]: From a snapshot file, load the primitive values of the
+	    * stored network. Files written with Java serialization by older
+	    * versions are still read, accepting only classes of TSNsched and
+	    * of the java.util and java.lang packages.
 	    * 
 	    * @param path		Path of the serialized object file
 	    * @return			The network object with all its primitive values
@@ -469,9 +965,20 @@ public class ScheduleGenerator {
 	   public Network deserializeNetwork(String path) {
 		   Network net = null;
 		   
+		   if(NetworkSnapshot.isSnapshot(path)) {
+			   try {
+				   // The snapshot keeps the counters of the scope of the network
+				   return new NetworkSnapshot().read(path);
+			   } catch (IOException i) {
+				   i.printStackTrace();
+				   return null;
+			   }
+		   }
+		   
 		   try {
 	           FileInputStream fileIn = new FileInputStream(path);
 	           ObjectInputStream in = new ObjectInputStream(fileIn);
+	           in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("com.tsnsched.**;java.util.*;java.lang.*;!*"));
 	           net = (Network) in.readObject();
 	           in.close();
 	           fileIn.close();			   
@@ -480,6 +987,11 @@ public class ScheduleGenerator {
 	           return null;
 	       } 		   
 		   
+		   // Networks serialized before the scopes were added
+		   if(net.getScope() == null) {
+			   net.setScope(NetworkScope.current());
+		   }
+		   
 		   if(net.getFlows().size() > 0) {
 			   net.getFlows().get(0).setInstanceCounter(
 					net.getFlows().size()
@@ -553,11 +1065,118 @@ public class ScheduleGenerator {
 						break;
 					case "-disableJSONOutput":
 						this.generateJSONOutput=false;
-						break;				
+						break;
+					case "-compactJSONOutput":
+						this.compactJSONOutput=true;
+						break;
+					case "-lazyPairRules":
+						this.lazyPairRules=true;
+						break;
+					case "-pruneWithWindows":
+						this.pruneWithWindows=true;
+						break;
+					case "-skipFeasibilityCheck":
+						this.feasibilityCheck=false;
+						break;
+					case "-decompose":
+						this.decomposeNetwork=true;
+						break;
+					case "-optimize":
+						this.optimizeSchedule=true;
+						break;
+					case "-portfolio":
+						this.portfolioSize=Runtime.getRuntime().availableProcessors();
+						break;
+					default:
+						if(argument.startsWith("-decompose=")) {
+							this.decomposeNetwork=true;
+							try {
+								this.decompositionWorkers=Integer.parseInt(argument.substring("-decompose=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid number of workers: " + argument);
+							}
+						} else if(argument.startsWith("-optimize=")) {
+							this.optimizeSchedule=true;
+							try {
+								this.optimizationTime=Double.parseDouble(argument.substring("-optimize=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid optimization time: " + argument);
+							}
+						} else if(argument.startsWith("-latencyWeight=")) {
+							try {
+								this.latencyWeight=Double.parseDouble(argument.substring("-latencyWeight=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid latency weight: " + argument);
+							}
+						} else if(argument.startsWith("-jitterWeight=")) {
+							try {
+								this.jitterWeight=Double.parseDouble(argument.substring("-jitterWeight=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid jitter weight: " + argument);
+							}
+						} else if(argument.startsWith("-tick=")) {
+							try {
+								this.timeTick=Double.parseDouble(argument.substring("-tick=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid tick: " + argument);
+							}
+						} else if(argument.startsWith("-strategy=")) {
+							this.strategy=argument.substring("-strategy=".length());
+						} else if(argument.startsWith("-logFile=")) {
+							this.logFilePath=argument.substring("-logFile=".length());
+						} else if(argument.startsWith("-jsonOutput=")) {
+							this.jsonOutputPath=argument.substring("-jsonOutput=".length());
+						} else if(argument.startsWith("-outputDir=")) {
+							this.outputDirectory=argument.substring("-outputDir=".length());
+						} else if(argument.startsWith("-batch=")) {
+							this.batchInput=argument.substring("-batch=".length());
+						} else if(argument.startsWith("-feasibilityReport=")) {
+							this.feasibilityReportPath=argument.substring("-feasibilityReport=".length());
+						} else if(argument.startsWith("-server=")) {
+							try {
+								this.serverPort=Integer.parseInt(argument.substring("-server=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid server port: " + argument);
+							}
+						} else if(argument.startsWith("-workers=")) {
+							try {
+								this.serverWorkers=Integer.parseInt(argument.substring("-workers=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid number of workers: " + argument);
+							}
+						} else if(argument.startsWith("-queue=")) {
+							try {
+								this.serverQueueSize=Integer.parseInt(argument.substring("-queue=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid queue size: " + argument);
+							}
+						} else if(argument.startsWith("-scheduleCache=")) {
+							this.scheduleCachePath=argument.substring("-scheduleCache=".length());
+						} else if(argument.startsWith("-scheduleCacheSize=")) {
+							try {
+								this.scheduleCacheSize=Double.parseDouble(argument.substring("-scheduleCacheSize=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid schedule cache size: " + argument);
+							}
+						} else if(argument.startsWith("-portfolio=")) {
+							try {
+								this.portfolioSize=Integer.parseInt(argument.substring("-portfolio=".length()));
+							} catch (NumberFormatException e) {
+								System.out.println("[ERROR]: Invalid portfolio size: " + argument);
+							}
+						}
+						break;
 				}
 				
 			}
 			
+			// The decomposer solves the rules as they are, it can't refine or optimize them
+			if(this.decomposeNetwork && (this.lazyPairRules || this.optimizeSchedule)) {
+				System.out.println("[ERROR]: -decompose can't be combined with " + 
+					(this.optimizeSchedule ? "-optimize" : "-lazyPairRules") + ". The network won't be decomposed.");
+				this.decomposeNetwork=false;
+			}
+			
 		}
 
 		public Boolean getExportModel() {
@@ -616,6 +1235,206 @@ public class ScheduleGenerator {
 			this.generateJSONOutput = generateJSONOutput;
 		}
 
+		public Boolean getLoadNetwork() {
+			return loadNetwork;
+		}
+
+		public void setLoadNetwork(Boolean loadNetwork) {
+			this.loadNetwork = loadNetwork;
+		}
+
+		public Integer getPortfolioSize() {
+			return portfolioSize;
+		}
+
+		public void setPortfolioSize(Integer portfolioSize) {
+			this.portfolioSize = portfolioSize;
+		}
+
+		public Boolean getDecomposeNetwork() {
+			return decomposeNetwork;
+		}
+
+		public void setDecomposeNetwork(Boolean decomposeNetwork) {
+			this.decomposeNetwork = decomposeNetwork;
+		}
+
+		public Boolean getLazyPairRules() {
+			return lazyPairRules;
+		}
+
+		public void setLazyPairRules(Boolean lazyPairRules) {
+			this.lazyPairRules = lazyPairRules;
+		}
+
+		public Boolean getPruneWithWindows() {
+			return pruneWithWindows;
+		}
+
+		public void setPruneWithWindows(Boolean pruneWithWindows) {
+			this.pruneWithWindows = pruneWithWindows;
+		}
+
+		public Boolean getFeasibilityCheck() {
+			return feasibilityCheck;
+		}
+
+		public void setFeasibilityCheck(Boolean feasibilityCheck) {
+			this.feasibilityCheck = feasibilityCheck;
+		}
+
+		public String getFeasibilityReportPath() {
+			return feasibilityReportPath;
+		}
+
+		public void setFeasibilityReportPath(String feasibilityReportPath) {
+			this.feasibilityReportPath = feasibilityReportPath;
+		}
+
+		public String getLogFilePath() {
+			return logFilePath;
+		}
+
+		public void setLogFilePath(String logFilePath) {
+			this.logFilePath = logFilePath;
+		}
+
+		public String getJsonOutputPath() {
+			return jsonOutputPath;
+		}
+
+		public void setJsonOutputPath(String jsonOutputPath) {
+			this.jsonOutputPath = jsonOutputPath;
+		}
+
+		public Boolean getCompactJSONOutput() {
+			return compactJSONOutput;
+		}
+
+		public void setCompactJSONOutput(Boolean compactJSONOutput) {
+			this.compactJSONOutput = compactJSONOutput;
+		}
+
+		public Double getTimeTick() {
+			return timeTick;
+		}
+
+		public void setTimeTick(Double timeTick) {
+			this.timeTick = timeTick;
+		}
+
+		public String getStrategy() {
+			return strategy;
+		}
+
+		public void setStrategy(String strategy) {
+			this.strategy = strategy;
+		}
+
+		public Boolean getOptimizeSchedule() {
+			return optimizeSchedule;
+		}
+
+		public void setOptimizeSchedule(Boolean optimizeSchedule) {
+			this.optimizeSchedule = optimizeSchedule;
+		}
+
+		public Double getOptimizationTime() {
+			return optimizationTime;
+		}
+
+		public void setOptimizationTime(Double optimizationTime) {
+			this.optimizationTime = optimizationTime;
+		}
+
+		public Double getLatencyWeight() {
+			return latencyWeight;
+		}
+
+		public void setLatencyWeight(Double latencyWeight) {
+			this.latencyWeight = latencyWeight;
+		}
+
+		public Double getJitterWeight() {
+			return jitterWeight;
+		}
+
+		public void setJitterWeight(Double jitterWeight) {
+			this.jitterWeight = jitterWeight;
+		}
+
+		public Integer getServerPort() {
+			return serverPort;
+		}
+
+		public void setServerPort(Integer serverPort) {
+			this.serverPort = serverPort;
+		}
+
+		public Integer getServerWorkers() {
+			return serverWorkers;
+		}
+
+		public void setServerWorkers(Integer serverWorkers) {
+			this.serverWorkers = serverWorkers;
+		}
+
+		public Integer getServerQueueSize() {
+			return serverQueueSize;
+		}
+
+		public void setServerQueueSize(Integer serverQueueSize) {
+			this.serverQueueSize = serverQueueSize;
+		}
+
+		public Integer getDecompositionWorkers() {
+			return decompositionWorkers;
+		}
+
+		public void setDecompositionWorkers(Integer decompositionWorkers) {
+			this.decompositionWorkers = decompositionWorkers;
+		}
+
+		public String getOutputDirectory() {
+			return outputDirectory;
+		}
+
+		public void setOutputDirectory(String outputDirectory) {
+			this.outputDirectory = outputDirectory;
+		}
+
+		public String getBatchInput() {
+			return batchInput;
+		}
+
+		public void setBatchInput(String batchInput) {
+			this.batchInput = batchInput;
+		}
+
+		public String getScheduleCachePath() {
+			return scheduleCachePath;
+		}
+
+		public void setScheduleCachePath(String scheduleCachePath) {
+			this.scheduleCachePath = scheduleCachePath;
+		}
+
+		public Double getScheduleCacheSize() {
+			return scheduleCacheSize;
+		}
+
+		public void setScheduleCacheSize(Double scheduleCacheSize) {
+			this.scheduleCacheSize = scheduleCacheSize;
+		}
+
+		public ScheduleCache getScheduleCache() {
+			return scheduleCache;
+		}
+
+		public Printer getPrinter() {
+			return printer;
+		}
+
 		public Boolean getEnableLoggerFile() {
 			return enableLoggerFile;
 		}
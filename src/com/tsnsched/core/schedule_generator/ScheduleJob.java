@@ -0,0 +1,422 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: ScheduleJob
+ * [Usage]: Generates the schedule of a network on a background thread,
+ * with a wall-clock deadline. The job is started with start, which
+ * returns a CompletableFuture completed with the job itself once it
+ * reaches a final state.
+ *
+ * The solver is checked in slices, the first one of progressInterval
+ * milliseconds. After each slice, the progress listener receives the z3
+ * statistics of the solver, which can't be read safely while it checks,
+ * and the check is repeated on the same solver until an answer, the
+ * deadline or a cancellation. Solvers built from tactics start over on
+ * every check, so each slice is twice as long as the previous one and at
+ * most half of the solving time is repeated. With a progressInterval of
+ * 0, the solver is checked once until the deadline.
+ *
+ * A watchdog interrupts the context at the deadline, in case the solver
+ * does not stop on its own timeout.
+ *
+ * Cancelling the job (or its future) interrupts the context from the
+ * calling thread. Jobs that don't answer end as TIMEOUT, CANCELLED or
+ * UNKNOWN, and their context is always closed.
+ */
+public class ScheduleJob {
+
+	public enum JobStatus {
+		PENDING, RUNNING, SATISFIABLE, UNSATISFIABLE, UNKNOWN, TIMEOUT, CANCELLED
+	}
+
+	/**
+	 * [Class]: ProgressListener
+	 * [Usage]: Receives the progress of a job after each slice of the
+	 * check. Called from the thread of the job.
+	 */
+	public interface ProgressListener {
+		public void progress(ScheduleJob job, Progress progress);
+	}
+
+	/**
+	 * [Class]: Progress
+	 * [Usage]: Snapshot of the z3 statistics of a job.
+	 */
+	public static class Progress {
+		private long elapsedTime;
+		private int slices;
+		private double conflicts;
+		private double decisions;
+		private double memory;
+		private Map<String, Double> statistics;
+
+		public Progress(long elapsedTime, int slices, Map<String, Double> statistics) {
+			this.elapsedTime = elapsedTime;
+			this.slices = slices;
+			this.statistics = Collections.unmodifiableMap(statistics);
+			this.conflicts = statistics.containsKey("conflicts") ? statistics.get("conflicts") : 0;
+			this.decisions = statistics.containsKey("decisions") ? statistics.get("decisions") : 0;
+			this.memory = statistics.containsKey("memory") ? statistics.get("memory") : 0;
+		}
+
+		public long getElapsedTime() {
+			return elapsedTime;
+		}
+
+		public int getSlices() {
+			return slices;
+		}
+
+		public double getConflicts() {
+			return conflicts;
+		}
+
+		public double getDecisions() {
+			return decisions;
+		}
+
+		public double getMemory() {
+			return memory;
+		}
+
+		public Map<String, Double> getStatistics() {
+			return statistics;
+		}
+
+		public String toString() {
+			return "Elapsed: " + ((float) this.elapsedTime)/1000 + " seconds, conflicts: " + (long) this.conflicts +
+				   ", decisions: " + (long) this.decisions + ", memory: " + this.memory + " MB";
+		}
+	}
+
+
+	private ScheduleGenerator scheduleGenerator;
+	private Network net;
+	private long deadline;
+	private long progressInterval = 1000;
+	private ProgressListener listener = null;
+
+	private volatile JobStatus status = JobStatus.PENDING;
+	private volatile Boolean cancelled = false;
+	private volatile Boolean checking = false;
+	private volatile Context ctx = null;
+	private Progress lastProgress = null;
+	private long setupTime = 0;
+	private long solvingTime = 0;
+	private ScheduleResult result = null;
+	private CompletableFuture<ScheduleJob> future = null;
+
+
+	/**
+	 * [Method]: ScheduleJob
+	 * [Usage]: Creates a job for a network that must finish before the
+	 * given deadline.
+	 *
+	 * @param scheduleGenerator		Generator used to set up the rules and write the results
+	 * @param net					Network to be scheduled
+	 * @param deadline				Wall-clock deadline, as in System.currentTimeMillis
+	 */
+	public ScheduleJob(ScheduleGenerator scheduleGenerator, Network net, long deadline) {
+		this.scheduleGenerator = scheduleGenerator;
+		this.net = net;
+		this.deadline = deadline;
+	}
+
+
+	/**
+	 * [Method]: start
+	 * [Usage]: Runs the job on the given executor, or on a new thread if
+	 * the executor is null. Cancelling the returned future cancels the job.
+	 *
+	 * @param executor		Executor of the job, or null
+	 * @return				Future completed with the job on its final state
+	 */
+	public synchronized CompletableFuture<ScheduleJob> start(Executor executor) {
+		if(this.future != null) {
+			return this.future;
+		}
+
+		final ScheduleJob job = this;
+		Supplier<ScheduleJob> task = new Supplier<ScheduleJob>() {
+			public ScheduleJob get() {
+				job.run();
+				return job;
+			}
+		};
+
+		if(executor == null) {
+			executor = new Executor() {
+				public void execute(Runnable command) {
+					Thread thread = new Thread(command, "schedule-job");
+					thread.setDaemon(true);
+					thread.start();
+				}
+			};
+		}
+
+		this.future = CompletableFuture.supplyAsync(task, executor);
+		this.future.whenComplete(new BiConsumer<ScheduleJob, Throwable>() {
+			public void accept(ScheduleJob result, Throwable ex) {
+				if(ex instanceof CancellationException) {
+					job.cancel();
+				}
+			}
+		});
+
+		return this.future;
+	}
+
+
+	/**
+	 * [Method]: reject
+	 * [Usage]: Ends the job as UNSATISFIABLE without solving it, for
+	 * networks that failed the feasibility check.
+	 *
+	 * @return				Future completed with the job
+	 */
+	public synchronized CompletableFuture<ScheduleJob> reject() {
+		this.status = JobStatus.UNSATISFIABLE;
+		this.future = CompletableFuture.completedFuture(this);
+
+		return this.future;
+	}
+
+
+	/**
+	 * [Method]: cancel
+	 * [Usage]: Stops the job. If the solver is being checked, its
+	 * context is interrupted. Can be called from any thread.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		this.interruptSolver();
+	}
+
+
+	private synchronized void interruptSolver() {
+		if(this.checking && this.ctx != null) {
+			this.ctx.interrupt();
+		}
+	}
+
+
+	/*
+	 * Marks the solver as being checked, unless the job was stopped in the
+	 * meantime. Both are done under the lock of interruptSolver, so a cancel
+	 * either sees the check and interrupts it, or the check doesn't start.
+	 */
+	private synchronized Boolean startCheck() {
+		if(this.isStopped()) {
+			return false;
+		}
+
+		this.checking = true;
+		return true;
+	}
+
+
+	private synchronized void endCheck() {
+		this.checking = false;
+	}
+
+
+	/*
+	 * Sets up the rules, checks the solver in slices until the deadline
+	 * and writes the results of a SAT answer. The context is closed in
+	 * every case.
+	 */
+	private void run() {
+		Timer watchdog = new Timer("schedule-job-watchdog", true);
+		Solver solver = null;
+		long startTime = System.currentTimeMillis();
+
+		this.status = JobStatus.RUNNING;
+
+		watchdog.schedule(new TimerTask() {
+			public void run() {
+				interruptSolver();
+			}
+		}, new Date(this.deadline));
+
+		try {
+			if(!this.isStopped()) {
+				this.ctx = this.scheduleGenerator.createContext();
+				solver = SolverPortfolio.createSolver(this.ctx, this.scheduleGenerator.getStrategy());
+				this.scheduleGenerator.setUpRules(this.net, this.ctx, solver);
+			}
+
+			this.setupTime = System.currentTimeMillis() - startTime;
+			startTime = System.currentTimeMillis();
+
+			Status result = Status.UNKNOWN;
+			long sliceTime = this.progressInterval > 0 ? this.progressInterval : Long.MAX_VALUE;
+			int slices = 0;
+
+			while(!this.isStopped()) {
+				long remainingTime = this.deadline - System.currentTimeMillis();
+				Params params = this.ctx.mkParams();
+				params.add("timeout", (int) Math.max(1, Math.min(Math.min(sliceTime, remainingTime), Integer.MAX_VALUE)));
+				solver.setParameters(params);
+
+				if(!this.startCheck()) {
+					break;
+				}
+
+				try {
+					result = solver.check();
+				} finally {
+					this.endCheck();
+				}
+				slices++;
+				sliceTime = sliceTime > Long.MAX_VALUE / 2 ? sliceTime : sliceTime * 2;
+
+				this.reportProgress(solver, System.currentTimeMillis() - startTime, slices);
+
+				if(result != Status.UNKNOWN || !this.isTimeout(solver)) {
+					break;
+				}
+			}
+
+			this.solvingTime = System.currentTimeMillis() - startTime;
+
+			if(result == Status.SATISFIABLE) {
+				this.status = JobStatus.SATISFIABLE;
+				this.result = this.scheduleGenerator.writeResult(this.net, this.ctx, solver, result, solver.getModel(), this.setupTime * 1000000, this.solvingTime * 1000000);
+			} else if(result == Status.UNSATISFIABLE) {
+				this.status = JobStatus.UNSATISFIABLE;
+				this.result = this.scheduleGenerator.writeResult(this.net, this.ctx, solver, result, null, this.setupTime * 1000000, this.solvingTime * 1000000);
+			} else if(this.cancelled) {
+				this.status = JobStatus.CANCELLED;
+			} else if(System.currentTimeMillis() >= this.deadline) {
+				this.status = JobStatus.TIMEOUT;
+			} else {
+				this.status = JobStatus.UNKNOWN;
+			}
+		} catch (RuntimeException ex) {
+			this.status = this.cancelled ? JobStatus.CANCELLED : JobStatus.UNKNOWN;
+			this.scheduleGenerator.getPrinter().printIfLoggingIsEnabled("Schedule job failed: " + ex.getMessage());
+		} finally {
+			watchdog.cancel();
+
+			synchronized(this) {
+				this.checking = false;
+				if(this.ctx != null) {
+					this.scheduleGenerator.closeContext(this.ctx);
+					this.ctx = null;
+				}
+			}
+		}
+
+		this.scheduleGenerator.getPrinter().printIfLoggingIsEnabled(
+			"Schedule job finished as " + this.status + " after " + ((float) this.solvingTime)/1000 + " seconds of solving"
+		);
+	}
+
+
+	private Boolean isStopped() {
+		return this.cancelled || System.currentTimeMillis() >= this.deadline;
+	}
+
+
+	/*
+	 * A slice that ran out of time is resumed, while other reasons
+	 * (incompleteness, interruption) end the check.
+	 */
+	private Boolean isTimeout(Solver solver) {
+		String reason = solver.getReasonUnknown();
+
+		return reason != null && reason.contains("timeout");
+	}
+
+
+	private void reportProgress(Solver solver, long elapsedTime, int slices) {
+		HashMap<String, Double> statistics = new HashMap<String, Double>();
+
+		for(Statistics.Entry entry : solver.getStatistics().getEntries()) {
+			statistics.put(entry.Key, entry.isUInt() ? (double) entry.getUIntValue() : entry.getDoubleValue());
+		}
+
+		this.lastProgress = new Progress(elapsedTime, slices, statistics);
+
+		if(this.listener != null) {
+			this.listener.progress(this, this.lastProgress);
+		}
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public JobStatus getStatus() {
+		return status;
+	}
+
+	public Network getNetwork() {
+		return net;
+	}
+
+	public long getDeadline() {
+		return deadline;
+	}
+
+	public Progress getLastProgress() {
+		return lastProgress;
+	}
+
+	public long getSetupTime() {
+		return setupTime;
+	}
+
+	public long getSolvingTime() {
+		return solvingTime;
+	}
+
+	public ScheduleResult getResult() {
+		return result;
+	}
+
+	public long getProgressInterval() {
+		return progressInterval;
+	}
+
+	public void setProgressInterval(long progressInterval) {
+		this.progressInterval = progressInterval;
+	}
+
+	public ProgressListener getListener() {
+		return listener;
+	}
+
+	public void setListener(ProgressListener listener) {
+		this.listener = listener;
+	}
+
+}
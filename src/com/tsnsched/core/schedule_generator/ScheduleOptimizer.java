@@ -0,0 +1,314 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Device;
+
+/**
+ * [Class]: ScheduleOptimizer
+ * [Usage]: Searches for schedules with lower latency and jitter than
+ * the first model found by z3. The objective is the weighted sum, over
+ * all flows, of the average latency and the average jitter of the flow
+ * on its subscribers. After each model, the objective is bounded below
+ * its current value and the solver is checked again, until no better
+ * schedule exists or the time budget runs out. The best model found so
+ * far is kept.
+ *
+ * The latency of a packet is measured as in the hard constraint of the
+ * flow, and the jitter of a packet is its distance to the average
+ * latency of the flow on the same subscriber.
+ */
+public class ScheduleOptimizer {
+
+	private Printer printer;
+	private LazyRuleRefiner refiner = null;
+
+	private double latencyWeight = 1;
+	private double jitterWeight = 1;
+	private long timeBudget = 60000; // In milliseconds
+	private double precision = 0.01; // Minimum improvement of the objective
+
+	private RealExpr objective = null;
+	private Model model = null;
+	private double bestObjective = -1;
+	private int rounds = 0;
+
+
+	/**
+	 * [Method]: ScheduleOptimizer
+	 * [Usage]: Creates an optimizer that logs its rounds with the given printer.
+	 *
+	 * @param printer		Printer used to log the rounds
+	 */
+	public ScheduleOptimizer(Printer printer) {
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: setUpObjective
+	 * [Usage]: Builds the z3 expression of the weighted sum of the average
+	 * latency and jitter of the flows. Must be called after the scheduling
+	 * rules of the network are set up.
+	 *
+	 * @param net		Network with the rules already set up
+	 * @param ctx		Context of the network rules
+	 * @return			z3 expression of the objective
+	 */
+	public RealExpr setUpObjective(Network net, Context ctx) {
+		ArrayList<ArithExpr> terms = new ArrayList<ArithExpr>();
+
+		for(Flow flw : net.getFlows()) {
+			if(flw.getType() != Flow.PUBLISH_SUBSCRIBE) {
+				continue;
+			}
+
+			List<PathNode> leaves = flw.getPathTree().getLeaves();
+			int numOfPackets = flw.getNumOfPacketsSent();
+			ArithExpr sumOfLatency = ctx.mkReal(0);
+			ArithExpr sumOfJitter = ctx.mkReal(0);
+
+			for(PathNode leaf : leaves) {
+				ArrayList<ArithExpr> latencies = new ArrayList<ArithExpr>();
+				ArithExpr sumOfDevLatency = ctx.mkReal(0);
+
+				for(int i = 0; i < numOfPackets; i++) {
+					ArithExpr latency = this.latencyZ3(ctx, flw, (Device) leaf.getNode(), i);
+					latencies.add(latency);
+					sumOfDevLatency = ctx.mkAdd(sumOfDevLatency, latency);
+				}
+
+				ArithExpr avgDevLatency = ctx.mkDiv(sumOfDevLatency, ctx.mkReal(numOfPackets));
+
+				for(ArithExpr latency : latencies) {
+					ArithExpr difference = ctx.mkSub(latency, avgDevLatency);
+
+					sumOfJitter = ctx.mkAdd(
+						sumOfJitter,
+						(ArithExpr) ctx.mkITE(
+							ctx.mkGe(difference, ctx.mkReal(0)),
+							difference,
+							ctx.mkUnaryMinus(difference)
+						)
+					);
+				}
+
+				sumOfLatency = ctx.mkAdd(sumOfLatency, sumOfDevLatency);
+			}
+
+			RealExpr numOfSamples = ctx.mkReal(numOfPackets * leaves.size());
+
+			terms.add(ctx.mkMul(ctx.mkReal(Double.toString(this.latencyWeight)), ctx.mkDiv(sumOfLatency, numOfSamples)));
+			terms.add(ctx.mkMul(ctx.mkReal(Double.toString(this.jitterWeight)), ctx.mkDiv(sumOfJitter, numOfSamples)));
+		}
+
+		this.objective = terms.isEmpty() ? ctx.mkReal(0) : (RealExpr) ctx.mkAdd(terms.toArray(new ArithExpr[terms.size()]));
+
+		return this.objective;
+	}
+
+
+	/*
+	 * Latency of a packet until a subscriber, as in the hard constraint:
+	 * the transmission time on the first hop plus the time between the
+	 * departure from the publisher and the transmission to the subscriber.
+	 */
+	private ArithExpr latencyZ3(Context ctx, Flow flw, Device dev, int index) {
+		List<FlowFragment> fragments = flw.getFlowFromRootToNode(dev);
+		FlowFragment firstFragment = fragments.get(0);
+		FlowFragment lastFragment = fragments.get(fragments.size() - 1);
+
+		return ctx.mkAdd(
+			ctx.mkReal(Double.toString(flw.getPacketSize()/flw.getFirstPortSpeed())),
+			ctx.mkSub(
+				lastFragment.getPort().scheduledTime(ctx, index, lastFragment),
+				firstFragment.getPort().departureTime(ctx, index, firstFragment)
+			)
+		);
+	}
+
+
+	/**
+	 * [Method]: optimize
+	 * [Usage]: Checks the solver and, while the time budget allows,
+	 * bounds the objective below the value of the last model and checks
+	 * again. The best model is available with getModel.
+	 *
+	 * @param net		Network with the rules already set up
+	 * @param ctx		Context of the network rules
+	 * @param solver	Solver with the rules of the network
+	 * @return			SATISFIABLE if a model was found, otherwise the answer of the first check
+	 */
+	public Status optimize(Network net, Context ctx, Solver solver) {
+		long deadline = System.currentTimeMillis() + this.timeBudget;
+
+		if(this.objective == null) {
+			this.setUpObjective(net, ctx);
+		}
+
+		Status status = this.check(net, ctx, solver, deadline);
+
+		if(status != Status.SATISFIABLE) {
+			return status;
+		}
+
+		while(status == Status.SATISFIABLE) {
+			Model candidate = this.refiner != null ? this.refiner.getModel() : solver.getModel();
+			double value = this.valueOf(candidate, this.objective);
+
+			if(this.model == null || value < this.bestObjective) {
+				this.model = candidate;
+				this.bestObjective = value;
+			}
+
+			this.printer.printIfLoggingIsEnabled("Optimization round " + this.rounds + ": objective " + value);
+
+			if(System.currentTimeMillis() >= deadline) {
+				break;
+			}
+
+			solver.add(
+				ctx.mkLe(this.objective, ctx.mkReal(Double.toString(this.bestObjective - this.precision)))
+			);
+
+			status = this.check(net, ctx, solver, deadline);
+		}
+
+		this.printer.printIfLoggingIsEnabled(
+			"Optimization: best objective " + this.bestObjective + " after " + this.rounds + " rounds" +
+			(status == Status.UNSATISFIABLE ? " (no better schedule)" : " (time budget reached)")
+		);
+
+		return Status.SATISFIABLE;
+	}
+
+
+	/*
+	 * Checks the solver with the remaining time as timeout, through the
+	 * lazy rule refiner if one is used.
+	 */
+	private Status check(Network net, Context ctx, Solver solver, long deadline) {
+		long remainingTime = deadline - System.currentTimeMillis();
+
+		if(remainingTime <= 0) {
+			return Status.UNKNOWN;
+		}
+
+		Params params = ctx.mkParams();
+		params.add("timeout", (int) Math.min(remainingTime, Integer.MAX_VALUE));
+		solver.setParameters(params);
+
+		this.rounds++;
+
+		if(this.refiner != null) {
+			return this.refiner.solve(net, ctx, solver);
+		}
+
+		return solver.check();
+	}
+
+
+	private double valueOf(Model model, Expr expr) {
+		Expr value = model.eval(expr, true);
+
+		if(value instanceof RatNum) {
+			return new BigDecimal(((RatNum) value).getBigIntNumerator())
+					.divide(new BigDecimal(((RatNum) value).getBigIntDenominator()), MathContext.DECIMAL128)
+					.doubleValue();
+		} else if(value instanceof IntNum) {
+			return ((IntNum) value).getBigInteger().doubleValue();
+		}
+
+		return Double.parseDouble(value.toString());
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public Model getModel() {
+		return model;
+	}
+
+	public double getBestObjective() {
+		return bestObjective;
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	public RealExpr getObjective() {
+		return objective;
+	}
+
+	public LazyRuleRefiner getRefiner() {
+		return refiner;
+	}
+
+	public void setRefiner(LazyRuleRefiner refiner) {
+		this.refiner = refiner;
+	}
+
+	public double getLatencyWeight() {
+		return latencyWeight;
+	}
+
+	public void setLatencyWeight(double latencyWeight) {
+		this.latencyWeight = latencyWeight;
+	}
+
+	public double getJitterWeight() {
+		return jitterWeight;
+	}
+
+	public void setJitterWeight(double jitterWeight) {
+		this.jitterWeight = jitterWeight;
+	}
+
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	public double getPrecision() {
+		return precision;
+	}
+
+	public void setPrecision(double precision) {
+		this.precision = precision;
+	}
+
+}
@@ -0,0 +1,452 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import com.microsoft.z3.Status;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: ScheduleResult
+ * [Usage]: Immutable copy of the schedule of a network, taken once the
+ * values of the model are stored on the network. Holds the answer of
+ * the solver, the time taken on each step, the cycle and slots of every
+ * port, the packet times of every flow fragment and the latency and
+ * jitter of every flow.
+ *
+ * The tables are kept in primitive arrays indexed by port, fragment and
+ * flow. The slots of a port and the packets of a fragment are stored
+ * one after the other, with an array of offsets giving where the ones
+ * of each port or fragment start. Without a schedule, the tables are
+ * empty.
+ */
+public class ScheduleResult {
+
+	private final Status status;
+	private final long setupTime; // In nanoseconds
+	private final long solvingTime;
+	private final long extractionTime;
+
+	// Ports
+	private final String[] portSwitches;
+	private final String[] portNames;
+	private final String[] portConnections;
+	private final double[] firstCycleStarts;
+	private final double[] cycleStarts;
+	private final double[] cycleDurations;
+	private final int[] slotOffsets;
+	private final int[] slotPriorities;
+	private final double[] slotStarts;
+	private final double[] slotDurations;
+
+	// Flow fragments
+	private final String[] fragmentNames;
+	private final String[] fragmentNodes;
+	private final String[] fragmentNextHops;
+	private final int[] fragmentFlows;
+	private final int[] fragmentPorts;
+	private final int[] fragmentPriorities;
+	private final int[] packetOffsets;
+	private final double[] departureTimes;
+	private final double[] arrivalTimes;
+	private final double[] scheduledTimes;
+
+	// Flows
+	private final String[] flowNames;
+	private final double[] firstSendingTimes;
+	private final double[] averageLatencies;
+	private final double[] averageJitters;
+	private final int[] totalPackets;
+
+
+	/**
+	 * [Method]: ScheduleResult
+	 * [Usage]: Copies the schedule stored on the network. The network is
+	 * only read if the answer is SATISFIABLE.
+	 *
+	 * @param net				Network with the values of the model already stored
+	 * @param status			Answer of the solver
+	 * @param setupTime			Time taken to set up the rules, in nanoseconds
+	 * @param solvingTime		Time taken on solving, in nanoseconds
+	 * @param extractionTime	Time taken to store the values of the model, in nanoseconds
+	 */
+	public ScheduleResult(Network net, Status status, long setupTime, long solvingTime, long extractionTime) {
+		this.status = status;
+		this.setupTime = setupTime;
+		this.solvingTime = solvingTime;
+		this.extractionTime = extractionTime;
+
+		Boolean hasSchedule = net != null && status == Status.SATISFIABLE;
+
+		ArrayList<Port> ports = new ArrayList<Port>();
+		ArrayList<String> switches = new ArrayList<String>();
+		ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>();
+		ArrayList<Integer> flowOfFragment = new ArrayList<Integer>();
+		ArrayList<Flow> flows = hasSchedule ? net.getFlows() : new ArrayList<Flow>();
+
+		if(hasSchedule) {
+			for(Switch swt : net.getSwitches()) {
+				for(Port port : ((TSNSwitch) swt).getPorts()) {
+					ports.add(port);
+					switches.add(swt.getName());
+				}
+			}
+
+			for(int i = 0; i < flows.size(); i++) {
+				if(flows.get(i).getType() == Flow.PUBLISH_SUBSCRIBE) {
+					this.collectFragments(flows.get(i).getPathTree().getRoot(), i, fragments, flowOfFragment);
+				}
+			}
+		}
+
+		// Ports and slots
+		IdentityHashMap<Port, Integer> portIndexes = new IdentityHashMap<Port, Integer>();
+		int numOfSlots = 0;
+
+		for(int i = 0; i < ports.size(); i++) {
+			Cycle cycle = ports.get(i).getCycle();
+			portIndexes.put(ports.get(i), i);
+
+			for(int prt : cycle.getSlotsUsed()) {
+				numOfSlots += cycle.getSlotStartList(prt).size();
+			}
+		}
+
+		this.portSwitches = switches.toArray(new String[switches.size()]);
+		this.portNames = new String[ports.size()];
+		this.portConnections = new String[ports.size()];
+		this.firstCycleStarts = new double[ports.size()];
+		this.cycleStarts = new double[ports.size()];
+		this.cycleDurations = new double[ports.size()];
+		this.slotOffsets = new int[ports.size() + 1];
+		this.slotPriorities = new int[numOfSlots];
+		this.slotStarts = new double[numOfSlots];
+		this.slotDurations = new double[numOfSlots];
+
+		int slot = 0;
+
+		for(int i = 0; i < ports.size(); i++) {
+			Port port = ports.get(i);
+			Cycle cycle = port.getCycle();
+
+			this.portNames[i] = port.getName();
+			this.portConnections[i] = port.getConnectsTo();
+			this.firstCycleStarts[i] = cycle.getFirstCycleStart();
+			this.cycleStarts[i] = cycle.getCycleStart();
+			this.cycleDurations[i] = cycle.getCycleDuration();
+			this.slotOffsets[i] = slot;
+
+			for(int prt : cycle.getSlotsUsed()) {
+				for(int j = 0; j < cycle.getSlotStartList(prt).size(); j++) {
+					this.slotPriorities[slot] = prt;
+					this.slotStarts[slot] = cycle.getSlotStart(prt, j);
+					this.slotDurations[slot] = cycle.getSlotDuration(prt, j);
+					slot++;
+				}
+			}
+		}
+
+		this.slotOffsets[ports.size()] = slot;
+
+		// Flow fragments and packets
+		int numOfPackets = 0;
+
+		for(FlowFragment frag : fragments) {
+			numOfPackets += frag.getScheduledTimeList().size();
+		}
+
+		this.fragmentNames = new String[fragments.size()];
+		this.fragmentNodes = new String[fragments.size()];
+		this.fragmentNextHops = new String[fragments.size()];
+		this.fragmentFlows = new int[fragments.size()];
+		this.fragmentPorts = new int[fragments.size()];
+		this.fragmentPriorities = new int[fragments.size()];
+		this.packetOffsets = new int[fragments.size() + 1];
+		this.departureTimes = new double[numOfPackets];
+		this.arrivalTimes = new double[numOfPackets];
+		this.scheduledTimes = new double[numOfPackets];
+
+		int packet = 0;
+
+		for(int i = 0; i < fragments.size(); i++) {
+			FlowFragment frag = fragments.get(i);
+			Integer portIndex = portIndexes.get(frag.getPort());
+
+			this.fragmentNames[i] = frag.getName();
+			this.fragmentNodes[i] = frag.getNodeName();
+			this.fragmentNextHops[i] = frag.getNextHop();
+			this.fragmentFlows[i] = flowOfFragment.get(i);
+			this.fragmentPorts[i] = portIndex != null ? portIndex : -1;
+			this.fragmentPriorities[i] = frag.getFragmentPriority();
+			this.packetOffsets[i] = packet;
+
+			for(int j = 0; j < frag.getScheduledTimeList().size(); j++) {
+				this.departureTimes[packet] = j < frag.getDepartureTimeList().size() ? frag.getDepartureTime(j) : Double.NaN;
+				this.arrivalTimes[packet] = j < frag.getArrivalTimeList().size() ? frag.getArrivalTime(j) : Double.NaN;
+				this.scheduledTimes[packet] = frag.getScheduledTime(j);
+				packet++;
+			}
+		}
+
+		this.packetOffsets[fragments.size()] = packet;
+
+		// Flows
+		this.flowNames = new String[flows.size()];
+		this.firstSendingTimes = new double[flows.size()];
+		this.averageLatencies = new double[flows.size()];
+		this.averageJitters = new double[flows.size()];
+		this.totalPackets = new int[flows.size()];
+
+		for(int i = 0; i < flows.size(); i++) {
+			Flow flw = flows.get(i);
+
+			this.flowNames[i] = flw.getName();
+			this.firstSendingTimes[i] = flw.getFlowFirstSendingTime();
+			this.averageLatencies[i] = flw.getAverageLatency();
+			this.averageJitters[i] = flw.getAverageJitter();
+			this.totalPackets[i] = flw.getTotalNumOfPackets();
+		}
+	}
+
+
+	/*
+	 * Fragments are collected from the root to the leaves, in the same
+	 * order in which their values are stored.
+	 */
+	private void collectFragments(PathNode node, int flowIndex, ArrayList<FlowFragment> fragments, ArrayList<Integer> flowOfFragment) {
+		for(PathNode child : node.getChildren()) {
+			if(child.getNode() instanceof Switch) {
+				for(FlowFragment frag : child.getFlowFragments()) {
+					fragments.add(frag);
+					flowOfFragment.add(flowIndex);
+				}
+
+				this.collectFragments(child, flowIndex, fragments, flowOfFragment);
+			}
+		}
+	}
+
+
+	/**
+	 * [Method]: getPortIndex
+	 * [Usage]: Retrieves the index of a port in the tables.
+	 *
+	 * @param switchName	Name of the switch of the port
+	 * @param portName		Name of the port
+	 * @return				Index of the port, or -1 if it is not found
+	 */
+	public int getPortIndex(String switchName, String portName) {
+		for(int i = 0; i < this.portNames.length; i++) {
+			if(this.portSwitches[i].equals(switchName) && this.portNames[i].equals(portName)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * [Method]: getFragmentIndex
+	 * [Usage]: Retrieves the index of a flow fragment in the tables.
+	 *
+	 * @param fragmentName	Name of the flow fragment
+	 * @return				Index of the fragment, or -1 if it is not found
+	 */
+	public int getFragmentIndex(String fragmentName) {
+		return indexOf(this.fragmentNames, fragmentName);
+	}
+
+	/**
+	 * [Method]: getFlowIndex
+	 * [Usage]: Retrieves the index of a flow in the tables.
+	 *
+	 * @param flowName		Name of the flow
+	 * @return				Index of the flow, or -1 if it is not found
+	 */
+	public int getFlowIndex(String flowName) {
+		return indexOf(this.flowNames, flowName);
+	}
+
+	private static int indexOf(String[] names, String name) {
+		for(int i = 0; i < names.length; i++) {
+			if(names[i].equals(name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+
+	/*
+	 * GETTERS
+	 */
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Boolean hasSchedule() {
+		return status == Status.SATISFIABLE;
+	}
+
+	public long getSetupTime() {
+		return setupTime;
+	}
+
+	public long getSolvingTime() {
+		return solvingTime;
+	}
+
+	public long getExtractionTime() {
+		return extractionTime;
+	}
+
+	public long getTotalTime() {
+		return setupTime + solvingTime + extractionTime;
+	}
+
+	public int getNumOfPorts() {
+		return portNames.length;
+	}
+
+	public String getPortSwitch(int port) {
+		return portSwitches[port];
+	}
+
+	public String getPortName(int port) {
+		return portNames[port];
+	}
+
+	public String getPortConnectsTo(int port) {
+		return portConnections[port];
+	}
+
+	public double getFirstCycleStart(int port) {
+		return firstCycleStarts[port];
+	}
+
+	public double getCycleStart(int port) {
+		return cycleStarts[port];
+	}
+
+	public double getCycleDuration(int port) {
+		return cycleDurations[port];
+	}
+
+	public int getNumOfSlots(int port) {
+		return slotOffsets[port + 1] - slotOffsets[port];
+	}
+
+	public int getSlotPriority(int port, int slot) {
+		return slotPriorities[slotOffsets[port] + slot];
+	}
+
+	public double getSlotStart(int port, int slot) {
+		return slotStarts[slotOffsets[port] + slot];
+	}
+
+	public double getSlotDuration(int port, int slot) {
+		return slotDurations[slotOffsets[port] + slot];
+	}
+
+	public int getNumOfFragments() {
+		return fragmentNames.length;
+	}
+
+	public String getFragmentName(int fragment) {
+		return fragmentNames[fragment];
+	}
+
+	public String getFragmentNode(int fragment) {
+		return fragmentNodes[fragment];
+	}
+
+	public String getFragmentNextHop(int fragment) {
+		return fragmentNextHops[fragment];
+	}
+
+	public int getFragmentFlow(int fragment) {
+		return fragmentFlows[fragment];
+	}
+
+	public int getFragmentPort(int fragment) {
+		return fragmentPorts[fragment];
+	}
+
+	public int getFragmentPriority(int fragment) {
+		return fragmentPriorities[fragment];
+	}
+
+	public int getNumOfPackets(int fragment) {
+		return packetOffsets[fragment + 1] - packetOffsets[fragment];
+	}
+
+	public double getDepartureTime(int fragment, int packet) {
+		return departureTimes[packetOffsets[fragment] + packet];
+	}
+
+	public double getArrivalTime(int fragment, int packet) {
+		return arrivalTimes[packetOffsets[fragment] + packet];
+	}
+
+	public double getScheduledTime(int fragment, int packet) {
+		return scheduledTimes[packetOffsets[fragment] + packet];
+	}
+
+	public double[] getScheduledTimes(int fragment) {
+		return Arrays.copyOfRange(scheduledTimes, packetOffsets[fragment], packetOffsets[fragment + 1]);
+	}
+
+	public int getNumOfFlows() {
+		return flowNames.length;
+	}
+
+	public String getFlowName(int flow) {
+		return flowNames[flow];
+	}
+
+	public double getFirstSendingTime(int flow) {
+		return firstSendingTimes[flow];
+	}
+
+	public double getAverageLatency(int flow) {
+		return averageLatencies[flow];
+	}
+
+	public double getAverageJitter(int flow) {
+		return averageJitters[flow];
+	}
+
+	public int getTotalNumOfPackets(int flow) {
+		return totalPackets[flow];
+	}
+
+}
@@ -0,0 +1,504 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.microsoft.z3.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.tsnsched.core.components.ExpressionCache;
+import com.tsnsched.core.interface_manager.JSONOutputWriter;
+import com.tsnsched.core.interface_manager.ParserManager;
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: ScheduleServer
+ * [Usage]: Keeps the JVM and z3 loaded and schedules the networks
+ * posted to a local HTTP endpoint, so each request only pays for the
+ * rules and the check of its network. The body of a POST to /schedule
+ * is a network in the JSON input format, and the response of a SAT
+ * answer is the content of the output.json file. A GET to /status
+ * retrieves the size of the queue.
+ *
+ * Requests are queued on a bounded pool of workers. Each worker keeps
+ * one z3 context for all of its jobs, with a new solver (and expression
+ * cache) per job. When the queue is full, the request is answered with
+ * 503 at once. Every posted network is parsed in its own NetworkScope,
+ * so the jobs are set up and checked in parallel.
+ *
+ * Every job is scheduled with the parameters given to the server, but
+ * no file is written: the log file, the JSON output, the feasibility
+ * report and the other exports are disabled. The portfolio and the
+ * decomposition are not used, as they create contexts of their own.
+ *
+ * Usage: Main -server=<port> [-workers=<n>] [-queue=<n>] [other parameters]
+ *        curl --data-binary @input.json http://localhost:<port>/schedule?timeout=<ms>
+ */
+public class ScheduleServer {
+
+	private String[] parameters;
+	private int port;
+	private int workers;
+	private int queueSize;
+	private long jobTimeout = 60000; // In milliseconds, if the request has no timeout
+
+	private HttpServer httpServer = null;
+	private ThreadPoolExecutor workerPool = null;
+	private ExecutorService requestPool = null;
+	private Timer watchdog = null;
+
+	private ContextPool contextPool;
+
+	private AtomicLong completedJobs = new AtomicLong();
+	private AtomicLong rejectedJobs = new AtomicLong();
+
+	private Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+
+	/**
+	 * [Method]: ScheduleServer
+	 * [Usage]: Creates a server that schedules every job with the given
+	 * parameters, the same accepted by the ScheduleGenerator. The port,
+	 * the number of workers and the size of the queue are also taken
+	 * from them.
+	 *
+	 * @param parameters	Parameters of the ScheduleGenerator
+	 */
+	public ScheduleServer(String[] parameters) {
+		ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+		scheduleGenerator.setParameters(parameters);
+
+		this.parameters = parameters;
+		this.port = scheduleGenerator.getServerPort();
+		this.workers = Math.max(1, scheduleGenerator.getServerWorkers());
+		this.queueSize = Math.max(1, scheduleGenerator.getServerQueueSize());
+		this.contextPool = new ContextPool(this.createGenerator());
+	}
+
+
+	/**
+	 * [Method]: start
+	 * [Usage]: Binds the server to the loopback address and starts
+	 * accepting jobs.
+	 *
+	 * @throws IOException		If the port can't be bound
+	 */
+	public synchronized void start() throws IOException {
+		this.workerPool = new ThreadPoolExecutor(
+			this.workers, this.workers, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<Runnable>(this.queueSize),
+			new ThreadFactory() {
+				private int counter = 0;
+
+				public synchronized Thread newThread(Runnable runnable) {
+					return new Thread(runnable, "schedule-worker-" + (counter++));
+				}
+			}
+		);
+
+		// Request threads only wait for the workers
+		this.requestPool = Executors.newCachedThreadPool();
+		this.watchdog = new Timer("schedule-server-watchdog", true);
+
+		this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), 0);
+		this.httpServer.createContext("/schedule", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				handleSchedule(exchange);
+			}
+		});
+		this.httpServer.createContext("/status", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				handleStatus(exchange);
+			}
+		});
+		this.httpServer.setExecutor(this.requestPool);
+		this.httpServer.start();
+
+		System.out.println("TSNsched server listening on " + this.httpServer.getAddress() +
+				" with " + this.workers + " workers and a queue of " + this.queueSize + " jobs");
+	}
+
+
+	/**
+	 * [Method]: stop
+	 * [Usage]: Stops accepting jobs, waits for the running ones and
+	 * closes the contexts of the workers.
+	 *
+	 * @param delay			Seconds to wait for the running jobs
+	 */
+	public synchronized void stop(int delay) {
+		if(this.httpServer == null) {
+			return;
+		}
+
+		this.httpServer.stop(delay);
+		this.workerPool.shutdown();
+
+		try {
+			this.workerPool.awaitTermination(delay, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		this.requestPool.shutdown();
+		this.watchdog.cancel();
+
+		this.contextPool.close();
+
+		this.httpServer = null;
+	}
+
+
+	/*
+	 * Queues the posted network on the workers and waits for the answer.
+	 */
+	private void handleSchedule(HttpExchange exchange) throws IOException {
+		if(!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+			this.respond(exchange, 405, this.message("ERROR", "Only POST is accepted"));
+			return;
+		}
+
+		long timeout = this.jobTimeout;
+		String query = exchange.getRequestURI().getQuery();
+
+		if(query != null && query.startsWith("timeout=")) {
+			try {
+				timeout = Long.parseLong(query.substring("timeout=".length()));
+			} catch (NumberFormatException e) {
+				this.respond(exchange, 400, this.message("ERROR", "Invalid timeout: " + query));
+				return;
+			}
+		}
+
+		final String content = this.readBody(exchange.getRequestBody());
+		final long deadline = System.currentTimeMillis() + timeout;
+		Future<ServerResponse> future;
+
+		try {
+			future = this.workerPool.submit(new Callable<ServerResponse>() {
+				public ServerResponse call() {
+					return schedule(content, deadline);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.rejectedJobs.incrementAndGet();
+			this.respond(exchange, 503, this.message("BUSY", "The queue of jobs is full"));
+			return;
+		}
+
+		ServerResponse response;
+
+		try {
+			response = future.get();
+		} catch (InterruptedException | ExecutionException e) {
+			future.cancel(true);
+			response = new ServerResponse(500, this.message("ERROR", String.valueOf(e.getMessage())));
+		}
+
+		this.completedJobs.incrementAndGet();
+
+		exchange.getResponseHeaders().add("X-Schedule-Status", response.status);
+		exchange.getResponseHeaders().add("X-Setup-Time", Long.toString(response.setupTime));
+		exchange.getResponseHeaders().add("X-Solving-Time", Long.toString(response.solvingTime));
+		exchange.getResponseHeaders().add("X-Extraction-Time", Long.toString(response.extractionTime));
+		this.respond(exchange, response.code, response.body);
+	}
+
+
+	private void handleStatus(HttpExchange exchange) throws IOException {
+		Map<String, Object> status = new LinkedHashMap<String, Object>();
+		status.put("workers", this.workers);
+		status.put("activeJobs", this.workerPool.getActiveCount());
+		status.put("queuedJobs", this.workerPool.getQueue().size());
+		status.put("queueSize", this.queueSize);
+		status.put("completedJobs", this.completedJobs.get());
+		status.put("rejectedJobs", this.rejectedJobs.get());
+
+		this.respond(exchange, 200, this.gson.toJson(status));
+	}
+
+
+	/*
+	 * Runs on a worker: parses the network, sets up its rules on the
+	 * context of the worker and checks a new solver until the deadline.
+	 */
+	private ServerResponse schedule(String content, long deadline) {
+		ScheduleGenerator scheduleGenerator = this.createGenerator();
+		ServerResponse response = new ServerResponse(500, null);
+		Network net;
+
+		if(System.currentTimeMillis() >= deadline) {
+			response.code = 504;
+			response.status = "TIMEOUT";
+			response.body = this.message(response.status, "The deadline passed while the job was queued");
+			return response;
+		}
+
+		try {
+			ParserManager parserManager = new ParserManager();
+			parserManager.setPrinter(scheduleGenerator.getPrinter());
+			net = parserManager.parseFromContent(content);
+		} catch (RuntimeException e) {
+			net = null;
+		}
+
+		if(net == null) {
+			response.code = 400;
+			response.status = "ERROR";
+			response.body = this.message(response.status, "The network could not be parsed");
+			return response;
+		}
+
+		net.setPrinter(scheduleGenerator.getPrinter());
+
+		if(scheduleGenerator.getFeasibilityCheck()) {
+			FeasibilityCheck check = new FeasibilityCheck(scheduleGenerator.getPrinter());
+
+			if(!check.check(net)) {
+				response.code = 422;
+				response.status = Status.UNSATISFIABLE.toString();
+				Map<String, Object> body = new LinkedHashMap<String, Object>();
+				body.put("status", response.status);
+				body.put("issues", check.getIssues());
+				response.body = this.gson.toJson(body);
+				return response;
+			}
+		}
+
+		Context ctx = this.contextPool.getContext();
+		final ServerJob job = new ServerJob(ctx);
+		TimerTask interruption = new TimerTask() {
+			public void run() {
+				job.interrupt();
+			}
+		};
+
+		try {
+			ExpressionCache.getCache(ctx).setTick(scheduleGenerator.getTimeTick());
+
+			if(scheduleGenerator.getLazyPairRules()) {
+				LazyRuleRefiner.enable(net);
+			}
+
+			long startTime = System.currentTimeMillis();
+			Solver solver = SolverPortfolio.createSolver(ctx, scheduleGenerator.getStrategy());
+
+			scheduleGenerator.setUpRules(net, ctx, solver);
+
+			response.setupTime = System.currentTimeMillis() - startTime;
+			startTime = System.currentTimeMillis();
+
+			long remainingTime = deadline - startTime;
+			Status result = Status.UNKNOWN;
+			Model model = null;
+
+			if(remainingTime > 0) {
+				Params params = ctx.mkParams();
+				params.add("timeout", (int) Math.min(remainingTime, Integer.MAX_VALUE));
+				solver.setParameters(params);
+				this.watchdog.schedule(interruption, new Date(deadline));
+
+				job.setChecking(true);
+
+				ScheduleSolver scheduleSolver = new ScheduleSolver(scheduleGenerator);
+				scheduleSolver.setTimeBudget(Math.min(scheduleSolver.getTimeBudget(), remainingTime));
+				result = scheduleSolver.solve(net, ctx, solver);
+				model = scheduleSolver.getModel();
+
+				job.setChecking(false);
+			}
+
+			response.solvingTime = System.currentTimeMillis() - startTime;
+			response.status = result.toString();
+
+			if(result == Status.SATISFIABLE) {
+				ScheduleResult scheduleResult = scheduleGenerator.writeResult(net, ctx, solver, result, model, response.setupTime * 1000000, response.solvingTime * 1000000);
+				response.extractionTime = scheduleResult.getExtractionTime() / 1000000;
+				response.code = 200;
+				response.body = new JSONOutputWriter().writeToString(net);
+			} else if(result == Status.UNSATISFIABLE) {
+				response.code = 422;
+				response.body = this.message(response.status, "The network has no schedule");
+			} else {
+				response.code = 504;
+				response.status = System.currentTimeMillis() >= deadline ? "TIMEOUT" : response.status;
+				response.body = this.message(response.status, String.valueOf(solver.getReasonUnknown()));
+			}
+		} catch (RuntimeException e) {
+			// The context may be left in any state, so the worker gets a new one
+			this.contextPool.dropContext();
+			response.code = 500;
+			response.status = "ERROR";
+			response.body = this.message(response.status, String.valueOf(e.getMessage()));
+		} finally {
+			job.setChecking(false);
+			interruption.cancel();
+			ExpressionCache.releaseCache(ctx);
+		}
+
+		return response;
+	}
+
+
+	/*
+	 * Creates the generator of a job. Files would be overwritten by the
+	 * other workers, so all outputs of the generator are disabled.
+	 */
+	private ScheduleGenerator createGenerator() {
+		ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+		scheduleGenerator.setParameters(this.parameters);
+		scheduleGenerator.setEnableLoggerFile(false);
+		scheduleGenerator.setGenerateJSONOutput(false);
+		scheduleGenerator.setExportModel(false);
+		scheduleGenerator.setGenerateXMLFiles(false);
+		scheduleGenerator.setGenerateSimulationFiles(false);
+		scheduleGenerator.setSerializeNetwork(false);
+		scheduleGenerator.setLoadNetwork(false);
+		scheduleGenerator.setDecomposeNetwork(false);
+		scheduleGenerator.getPrinter().setEnableConsoleOutput(scheduleGenerator.getEnableConsoleOutput());
+		scheduleGenerator.getPrinter().setEnableLoggerFile(false);
+
+		return scheduleGenerator;
+	}
+
+
+	private String readBody(InputStream input) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int length;
+
+		while((length = input.read(buffer)) > 0) {
+			content.write(buffer, 0, length);
+		}
+		input.close();
+
+		return new String(content.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+
+	private void respond(HttpExchange exchange, int code, String body) throws IOException {
+		byte[] content = body.getBytes(StandardCharsets.UTF_8);
+
+		exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(code, content.length);
+
+		OutputStream output = exchange.getResponseBody();
+		output.write(content);
+		output.close();
+	}
+
+
+	private String message(String status, String message) {
+		Map<String, Object> body = new LinkedHashMap<String, Object>();
+		body.put("status", status);
+		body.put("message", message);
+
+		return this.gson.toJson(body);
+	}
+
+
+	/*
+	 * Answer of a job, written by the worker and read by the request.
+	 */
+	private static class ServerResponse {
+		int code;
+		String status = Status.UNKNOWN.toString();
+		String body;
+		long setupTime = 0;
+		long solvingTime = 0;
+		long extractionTime = 0;
+
+		ServerResponse(int code, String body) {
+			this.code = code;
+			this.body = body;
+		}
+	}
+
+
+	/*
+	 * The watchdog may only interrupt the context of a job while it is
+	 * being checked, as the context is reused by the next jobs.
+	 */
+	private static class ServerJob {
+		private Context ctx;
+		private Boolean checking = false;
+
+		ServerJob(Context ctx) {
+			this.ctx = ctx;
+		}
+
+		synchronized void setChecking(Boolean checking) {
+			this.checking = checking;
+		}
+
+		synchronized void interrupt() {
+			if(this.checking) {
+				this.ctx.interrupt();
+			}
+		}
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public int getPort() {
+		return this.httpServer != null ? this.httpServer.getAddress().getPort() : port;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public long getJobTimeout() {
+		return jobTimeout;
+	}
+
+	public void setJobTimeout(long jobTimeout) {
+		this.jobTimeout = jobTimeout;
+	}
+
+	public long getCompletedJobs() {
+		return completedJobs.get();
+	}
+
+	public long getRejectedJobs() {
+		return rejectedJobs.get();
+	}
+
+}
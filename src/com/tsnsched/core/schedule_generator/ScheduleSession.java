@@ -0,0 +1,559 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.*;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkScope;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: ScheduleSession
+ * [Usage]: Keeps the z3 context and solver of a scheduled network
+ * alive between calls, so flows can be admitted or withdrawn without
+ * solving the whole network again. The schedule of every flow already
+ * admitted is pinned to the values found for it, and each admitted flow
+ * lives in its own solver scope (push/pop).
+ *
+ * Flows can only be admitted through ports that already carried traffic
+ * when the session was opened and whose cycle is not changed by the
+ * periodicity of the new flow. Otherwise the flow is rejected and the
+ * network must be scheduled again with the ScheduleGenerator.
+ */
+public class ScheduleSession {
+
+	private Network net;
+	private ScheduleGenerator scheduleGenerator;
+	private Printer printer;
+
+	private Context ctx;
+	private Solver solver;
+	private Status status;
+
+	// Flows admitted after the session was opened, one solver scope each
+	private ArrayList<Flow> admittedFlows = new ArrayList<Flow>();
+	// Ports that carried traffic when the session was opened
+	private HashSet<Port> busyPorts = new HashSet<Port>();
+	// Ports that got a new periodicity in their list when a flow was admitted
+	private HashMap<Flow, ArrayList<Port>> addedPeriods = new HashMap<Flow, ArrayList<Port>>();
+	// Pinned schedule of each admitted flow, asserted again when an earlier flow is withdrawn
+	private HashMap<Flow, ArrayList<BoolExpr>> pinnedRules = new HashMap<Flow, ArrayList<BoolExpr>>();
+
+
+	/**
+	 * [Method]: ScheduleSession
+	 * [Usage]: Creates a session for the given network using the
+	 * default settings of the ScheduleGenerator.
+	 *
+	 * @param net		Network to be scheduled
+	 */
+	public ScheduleSession(Network net) {
+		this(net, new ScheduleGenerator());
+	}
+
+	/**
+	 * [Method]: ScheduleSession
+	 * [Usage]: Creates a session for the given network using the settings
+	 * (output and loading flags) of the given ScheduleGenerator.
+	 *
+	 * @param net					Network to be scheduled
+	 * @param scheduleGenerator		Generator used to create and configure the context
+	 */
+	public ScheduleSession(Network net, ScheduleGenerator scheduleGenerator) {
+		this.net = net;
+		this.scheduleGenerator = scheduleGenerator;
+		this.printer = scheduleGenerator.getPrinter();
+	}
+
+
+	/**
+	 * [Method]: open
+	 * [Usage]: Creates the context and the solver, sets up the rules of
+	 * the whole network and schedules it. If the generator is set to load
+	 * the network, the values of a deserialized network are used through
+	 * Network.loadNetwork instead. On success, the schedule of every flow is
+	 * pinned on the base level of the solver.
+	 *
+	 * @return		Status of the solver after scheduling the network
+	 */
+	public Status open() {
+		this.printer.setEnableConsoleOutput(this.scheduleGenerator.getEnableConsoleOutput());
+		this.printer.setEnableLoggerFile(this.scheduleGenerator.getEnableLoggerFile());
+		this.net.setPrinter(this.printer);
+
+		long startTime = System.nanoTime();
+
+		this.ctx = this.scheduleGenerator.createContext();
+
+		/*
+		 * Solvers created from a tactic are not incremental and would
+		 * run the tactic over all assertions again on every check, so the
+		 * default incremental solver is used on the session.
+		 */
+		this.solver = this.ctx.mkSolver();
+
+		if(this.scheduleGenerator.getLoadNetwork()) {
+			this.printer.printIfLoggingIsEnabled("- Loading network and modifications");
+			NetworkScope previousScope = this.net.getScope().enter();
+			try {
+				this.net.loadNetwork(this.ctx, this.solver);
+				this.net.setJitterUpperBoundRangeZ3(this.ctx, 25);
+				this.net.secureHC(this.solver, this.ctx);
+			} finally {
+				NetworkScope.restore(previousScope);
+			}
+		} else {
+			this.printer.printIfLoggingIsEnabled("- Creating network");
+			this.scheduleGenerator.configureNetwork(this.net, this.ctx, this.solver);
+		}
+
+		this.status = this.solver.check();
+
+		if(this.status == Status.SATISFIABLE) {
+			Model model = this.solver.getModel();
+			this.printer.generateLog(this.scheduleGenerator.getLogFilePath(), this.net, this.ctx, model);
+
+			ArrayList<BoolExpr> portRules = new ArrayList<BoolExpr>();
+
+			for(Switch swt : this.net.getSwitches()) {
+				for(Port port : ((TSNSwitch) swt).getPorts()) {
+					port.setIsModifiedOrCreated(false);
+					this.pinPort(port, model, portRules);
+
+					if(!port.getFlowFragments().isEmpty()) {
+						this.busyPorts.add(port);
+					}
+				}
+			}
+
+			for(BoolExpr rule : portRules) {
+				this.solver.add(rule);
+			}
+
+			for(Flow flw : this.net.getFlows()) {
+				this.setFlowModified(flw, false);
+				this.pinFlow(flw, model);
+			}
+		} else {
+			this.printer.printIfLoggingIsEnabled("The specified constraints MIGHT NOT be satisfiable.");
+		}
+
+		this.printer.printIfLoggingIsEnabled("Time taken to open the session: " + ((float) (System.nanoTime() - startTime))/1000000000 + " seconds");
+
+		return this.status;
+	}
+
+
+	/**
+	 * [Method]: admitFlow
+	 * [Usage]: Adds a flow to the network and schedules it on a new
+	 * solver scope, keeping the schedule of the other flows. If no schedule
+	 * is found, the scope is discarded and the flow is removed from the
+	 * network.
+	 *
+	 * @param flw		Flow to be admitted
+	 * @return			Status of the solver after scheduling the flow
+	 */
+	public Status admitFlow(Flow flw) {
+		if(this.ctx == null || this.status != Status.SATISFIABLE) {
+			this.printer.printIfLoggingIsEnabled("Session must be opened with a satisfiable network before admitting flows.");
+			return null;
+		}
+
+		long startTime = System.nanoTime();
+
+		flw.setIsModifiedOrCreated(true);
+		flw.setPrinter(this.printer);
+		flw.modifyIfUsingCustomVal();
+		flw.convertUnicastFlow();
+		this.net.addFlow(flw);
+
+		// Keep track of the ports that had their list of periods changed
+		HashMap<Port, Integer> numOfPeriods = new HashMap<Port, Integer>();
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				numOfPeriods.put(port, port.getListOfPeriods().size());
+			}
+		}
+
+		flw.setUpPeriods(flw.getPathTree().getRoot());
+
+		ArrayList<Port> changedPorts = new ArrayList<Port>();
+		for(Port port : numOfPeriods.keySet()) {
+			if(port.getListOfPeriods().size() != numOfPeriods.get(port)) {
+				changedPorts.add(port);
+			}
+		}
+		this.addedPeriods.put(flw, changedPorts);
+
+		/*
+		 * A port without traffic had no cycle scheduled when the session
+		 * was opened, so the flow can't be admitted through it.
+		 */
+		for(Port port : changedPorts) {
+			if(!this.busyPorts.contains(port)) {
+				this.setFlowModified(flw, false);
+				this.removeFlow(flw);
+				this.printer.printIfLoggingIsEnabled("- Flow " + flw.getName() + " could not be admitted (port " + port.getName() + " had no traffic when the session was opened)");
+				return Status.UNSATISFIABLE;
+			}
+		}
+
+		this.solver.push();
+
+		/*
+		 * The cycle of a port with a new periodicity is set up again. If the
+		 * cycle duration or start changes, it conflicts with the pinned
+		 * values and the flow is rejected.
+		 */
+		for(Port port : changedPorts) {
+			port.setUpCycle(this.solver, this.ctx);
+		}
+
+		NetworkScope previousScope = this.net.getScope().enter();
+		try {
+			flw.toZ3(this.ctx);
+		} finally {
+			NetworkScope.restore(previousScope);
+		}
+
+		for(FlowFragment frag : this.getFragments(flw)) {
+			frag.setIsModifiedOrCreated(true);
+			frag.getPort().setIsModifiedOrCreated(true);
+		}
+
+		this.assertFlowRules(flw);
+
+		this.status = this.solver.check();
+
+		if(this.status == Status.SATISFIABLE) {
+			Model model = this.solver.getModel();
+			this.printer.storeFlowData(flw, model, this.ctx);
+			this.pinnedRules.put(flw, this.pinFlow(flw, model));
+			this.setFlowModified(flw, false);
+			this.admittedFlows.add(flw);
+			this.printer.printIfLoggingIsEnabled("- Flow " + flw.getName() + " admitted");
+		} else {
+			this.solver.pop();
+			this.setFlowModified(flw, false);
+			this.removeFlow(flw);
+			this.status = Status.SATISFIABLE;
+			this.printer.printIfLoggingIsEnabled("- Flow " + flw.getName() + " could not be admitted");
+			this.printer.printIfLoggingIsEnabled("Time taken to admit flow: " + ((float) (System.nanoTime() - startTime))/1000000000 + " seconds");
+			return Status.UNSATISFIABLE;
+		}
+
+		this.printer.printIfLoggingIsEnabled("Time taken to admit flow: " + ((float) (System.nanoTime() - startTime))/1000000000 + " seconds");
+
+		return this.status;
+	}
+
+
+	/**
+	 * [Method]: withdrawFlow
+	 * [Usage]: Removes a flow admitted in this session from the network.
+	 * The solver scopes are popped down to the scope of the flow and the
+	 * flows admitted after it are added back with their pinned schedule,
+	 * so no new search is needed.
+	 *
+	 * @param flw		Flow to be withdrawn
+	 * @return			True if the flow was withdrawn
+	 */
+	public Boolean withdrawFlow(Flow flw) {
+		int index = this.admittedFlows.indexOf(flw);
+
+		if(index < 0) {
+			this.printer.printIfLoggingIsEnabled("Flow " + flw.getName() + " was not admitted in this session and can only be removed with a new schedule.");
+			return false;
+		}
+
+		ArrayList<Flow> laterFlows = new ArrayList<Flow>(this.admittedFlows.subList(index + 1, this.admittedFlows.size()));
+
+		this.solver.pop(this.admittedFlows.size() - index);
+		while(this.admittedFlows.size() > index) {
+			this.admittedFlows.remove(this.admittedFlows.size() - 1);
+		}
+
+		this.removeFlow(flw);
+
+		for(Flow laterFlow : laterFlows) {
+			this.solver.push();
+
+			// The cycle rules of the ports changed by the flow were asserted on its scope
+			for(Port port : this.addedPeriods.get(laterFlow)) {
+				port.setUpCycle(this.solver, this.ctx);
+			}
+
+			for(FlowFragment frag : this.getFragments(laterFlow)) {
+				frag.getPort().setIsModifiedOrCreated(true);
+			}
+
+			this.assertFlowRules(laterFlow);
+			for(BoolExpr rule : this.pinnedRules.get(laterFlow)) {
+				this.solver.add(rule);
+			}
+			this.admittedFlows.add(laterFlow);
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Flow " + flw.getName() + " withdrawn");
+
+		return true;
+	}
+
+
+	/**
+	 * [Method]: close
+	 * [Usage]: Closes the context of the session. The values of the
+	 * schedule remain stored in the network objects.
+	 */
+	public void close() {
+		if(this.ctx != null) {
+			this.scheduleGenerator.closeContext(this.ctx);
+			this.ctx = null;
+			this.solver = null;
+		}
+	}
+
+
+	/**
+	 * [Method]: assertFlowRules
+	 * [Usage]: Sets up the rules of the ports marked as modified (the ports
+	 * used by the flow) and the first sending time and hard constraints
+	 * of the flow on the current solver scope.
+	 *
+	 * @param flw		Flow to have its rules asserted
+	 */
+	private void assertFlowRules(Flow flw) {
+
+		for(FlowFragment frag : this.getFragments(flw)) {
+			this.solver.add( // Maximum cycle start constraint
+				this.ctx.mkLe(
+					frag.getPort().getCycle().getFirstCycleStartZ3(),
+					frag.getPort().arrivalTime(this.ctx, 0, frag)
+				)
+			);
+		}
+
+		// Only the ports marked as modified will have their rules set
+		for(Switch swt : this.net.getSwitches()) {
+			((TSNSwitch) swt).setupSchedulingRules(this.solver, this.ctx);
+		}
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				port.setIsModifiedOrCreated(false);
+			}
+		}
+
+		flw.assertFirstSendingTime(this.solver, this.ctx);
+		this.net.secureFlowHC(flw, this.solver, this.ctx);
+	}
+
+
+	/**
+	 * [Method]: pinFlow
+	 * [Usage]: Asserts on the current solver scope that the first sending
+	 * time, priorities and scheduled times of a flow and the slots of its
+	 * ports are equal to their values in the model.
+	 *
+	 * @param flw		Flow to have its schedule pinned
+	 * @param model		Model in which the flow was scheduled
+	 * @return			Rules asserted to pin the flow
+	 */
+	private ArrayList<BoolExpr> pinFlow(Flow flw, Model model) {
+		ArrayList<BoolExpr> rules = new ArrayList<BoolExpr>();
+
+		rules.add(this.pin(flw.getFlowFirstSendingTimeZ3(), model));
+
+		for(FlowFragment frag : this.getFragments(flw)) {
+			rules.add(this.pin(frag.getFragmentPriorityZ3(), model));
+
+			int numOfPackets = Math.min(frag.getNumOfPacketsSent(), frag.getScheduledTimeList().size());
+
+			for(int i = 0; i < numOfPackets; i++) {
+				rules.add(this.pin(frag.getPort().scheduledTime(this.ctx, i, frag), model));
+			}
+
+			this.pinPort(frag.getPort(), model, rules);
+		}
+
+		for(BoolExpr rule : rules) {
+			this.solver.add(rule);
+		}
+
+		return rules;
+	}
+
+
+	/**
+	 * [Method]: pinPort
+	 * [Usage]: Adds to the list the rules that keep the duration and start
+	 * of the cycle of a port and the slots in use by it equal to their
+	 * values in the model.
+	 *
+	 * @param port		Port to have its cycle pinned
+	 * @param model		Model in which the port was scheduled
+	 * @param rules		List of rules of the flow being pinned
+	 */
+	private void pinPort(Port port, Model model, ArrayList<BoolExpr> rules) {
+		if(port.getCycle().getCycleDurationZ3() != null) {
+			rules.add(this.pin(port.getCycle().getCycleDurationZ3(), model));
+			rules.add(this.pin(port.getCycle().getFirstCycleStartZ3(), model));
+		}
+
+		for(int prt : port.getCycle().getSlotsUsed()) {
+			int numOfSlots = Math.min(port.getCycle().getNumOfSlots(prt), port.getCycle().getSlotStartList(prt).size());
+
+			for(int index = 0; index < numOfSlots; index++) {
+				rules.add(this.pin(port.getCycle().slotStartZ3(this.ctx, prt, index), model));
+				rules.add(this.pin(port.getCycle().slotDurationZ3(this.ctx, prt, index), model));
+			}
+		}
+	}
+
+
+	/*
+	 * Equality between an expression and its exact value in the model.
+	 * The doubles stored in the network are rounded, and pinning them
+	 * could make the flows admitted later unsatisfiable.
+	 */
+	private BoolExpr pin(Expr expr, Model model) {
+		return this.ctx.mkEq(expr, model.eval(expr, true));
+	}
+
+
+	/**
+	 * [Method]: removeFlow
+	 * [Usage]: Removes a flow from the network and its fragments from the
+	 * ports. Periods added by this flow to the ports are removed if no
+	 * other flow on the port uses them.
+	 *
+	 * @param flw		Flow to be removed
+	 */
+	private void removeFlow(Flow flw) {
+
+		for(FlowFragment frag : this.getFragments(flw)) {
+			frag.getPort().getFlowFragments().remove(frag);
+		}
+
+		this.clearFragments(flw.getPathTree().getRoot());
+		this.net.getFlows().remove(flw);
+		this.pinnedRules.remove(flw);
+
+		ArrayList<Port> ports = this.addedPeriods.remove(flw);
+
+		if(ports == null) {
+			return;
+		}
+
+		for(Port port : ports) {
+			boolean periodInUse = false;
+
+			for(FlowFragment frag : port.getFlowFragments()) {
+				if(frag.getParent().getFlowSendingPeriodicity() == flw.getFlowSendingPeriodicity()) {
+					periodInUse = true;
+					break;
+				}
+			}
+
+			if(!periodInUse) {
+				port.getListOfPeriods().remove(flw.getFlowSendingPeriodicity());
+
+				// Restores the cycle properties of the port without keeping the assertions
+				this.solver.push();
+				port.setUpCycle(this.solver, this.ctx);
+				this.solver.pop();
+			}
+		}
+
+	}
+
+
+	private void setFlowModified(Flow flw, Boolean isModifiedOrCreated) {
+		flw.setIsModifiedOrCreated(isModifiedOrCreated);
+
+		for(FlowFragment frag : this.getFragments(flw)) {
+			frag.setIsModifiedOrCreated(isModifiedOrCreated);
+		}
+	}
+
+	private void clearFragments(PathNode node) {
+		// Through the setter, so the paths cached by the path tree are dropped
+		if(node.getFlowFragments() != null) {
+			node.setFlowFragment(new ArrayList<FlowFragment>());
+		}
+
+		for(PathNode child : node.getChildren()) {
+			this.clearFragments(child);
+		}
+	}
+
+	private ArrayList<FlowFragment> getFragments(Flow flw) {
+		ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>();
+
+		this.collectFragments(flw.getPathTree().getRoot(), fragments);
+
+		return fragments;
+	}
+
+	private void collectFragments(PathNode node, ArrayList<FlowFragment> fragments) {
+		if(node.getFlowFragments() != null) {
+			fragments.addAll(node.getFlowFragments());
+		}
+
+		for(PathNode child : node.getChildren()) {
+			this.collectFragments(child, fragments);
+		}
+	}
+
+
+	/*
+	 *  GETTERS AND SETTERS
+	 */
+
+	public Network getNetwork() {
+		return net;
+	}
+
+	public Context getContext() {
+		return ctx;
+	}
+
+	public Solver getSolver() {
+		return solver;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public ArrayList<Flow> getAdmittedFlows() {
+		return admittedFlows;
+	}
+
+}
@@ -0,0 +1,45 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: ScheduleSink
+ * [Usage]: Receives the result of every schedule generated by the
+ * ScheduleGenerator, after the values of the model are stored on the
+ * network. The file exports (log, JSON, XML, simulation files and the
+ * serialized network) are sinks enabled by the parameters of the
+ * generator, and others can be added with addSink. Sinks are only
+ * called for SAT answers.
+ */
+public interface ScheduleSink {
+
+	/**
+	 * [Method]: write
+	 * [Usage]: Consumes the result of a schedule. The network is given
+	 * to the exports that still read the scheduled components.
+	 *
+	 * @param result	Immutable result of the schedule
+	 * @param net		Network with the values of the model stored
+	 */
+	public void write(ScheduleResult result, Network net);
+
+}
@@ -0,0 +1,135 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+package com.tsnsched.core.schedule_generator;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: ScheduleSolver
+ * [Usage]: Checks the rules of a network with the solving mode set on
+ * a ScheduleGenerator: the ScheduleOptimizer with -optimize, the
+ * LazyRuleRefiner with -lazyPairRules, the NetworkDecomposer with
+ * -decompose, or a plain check of the solver otherwise. Used by the
+ * generator, the ScheduleServer and the ScheduleBatch, so every entry
+ * point solves a network in the same way.
+ */
+public class ScheduleSolver {
+
+	private ScheduleGenerator scheduleGenerator;
+	private long timeBudget; // In milliseconds, for the optimizer
+
+	private NetworkDecomposer decomposer = null;
+	private Model model = null;
+
+
+	/**
+	 * [Method]: ScheduleSolver
+	 * [Usage]: Creates a solver with the mode and the optimization
+	 * time of the given generator.
+	 *
+	 * @param scheduleGenerator		Generator with the solving parameters
+	 */
+	public ScheduleSolver(ScheduleGenerator scheduleGenerator) {
+		this.scheduleGenerator = scheduleGenerator;
+		this.timeBudget = (long) (scheduleGenerator.getOptimizationTime() * 1000);
+	}
+
+
+	/**
+	 * [Method]: solve
+	 * [Usage]: Checks the rules set up on the solver. If the answer is
+	 * SATISFIABLE, the model can be retrieved with getModel.
+	 *
+	 * @param net		Network with the rules already set up
+	 * @param ctx		Context of the network rules
+	 * @param solver	Solver with the rules of the network
+	 * @return			Answer of the check
+	 */
+	public Status solve(Network net, Context ctx, Solver solver) {
+		ScheduleGenerator generator = this.scheduleGenerator;
+		Status result;
+
+		if(generator.getOptimizeSchedule()) {
+			ScheduleOptimizer optimizer = new ScheduleOptimizer(generator.getPrinter());
+			optimizer.setTimeBudget(this.timeBudget);
+			optimizer.setLatencyWeight(generator.getLatencyWeight());
+			optimizer.setJitterWeight(generator.getJitterWeight());
+			if(generator.getLazyPairRules()) {
+				optimizer.setRefiner(new LazyRuleRefiner(generator.getPrinter()));
+			}
+			if(generator.getDecomposeNetwork()) {
+				generator.getPrinter().printIfLoggingIsEnabled("Optimizing the schedule of the whole network. Decomposition is not used.");
+			}
+			result = optimizer.optimize(net, ctx, solver);
+			this.model = optimizer.getModel();
+		} else if(generator.getLazyPairRules()) {
+			if(generator.getDecomposeNetwork()) {
+				generator.getPrinter().printIfLoggingIsEnabled("Refining the rules of the whole network. Decomposition is not used.");
+			}
+			LazyRuleRefiner refiner = new LazyRuleRefiner(generator.getPrinter());
+			result = refiner.solve(net, ctx, solver);
+			this.model = refiner.getModel();
+		} else if(generator.getDecomposeNetwork()) {
+			this.decomposer = new NetworkDecomposer(generator, generator.getDecompositionWorkers());
+			result = this.decomposer.solve(ctx, solver);
+			this.model = this.decomposer.getModel();
+			generator.getPrinter().printIfLoggingIsEnabled("Time taken to partition the rules: " + ((float) this.decomposer.getPartitioningTime())/1000000000 + " seconds");
+		} else {
+			result = solver.check();
+			if(result == Status.SATISFIABLE) {
+				this.model = solver.getModel();
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * [Method]: close
+	 * [Usage]: Closes the contexts created to solve the network, if
+	 * any. The model is still valid, as it belongs to the context of
+	 * the network.
+	 */
+	public void close() {
+		if(this.decomposer != null) {
+			this.decomposer.close();
+			this.decomposer = null;
+		}
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public Model getModel() {
+		return model;
+	}
+
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+}
@@ -0,0 +1,335 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: SolverPortfolio
+ * [Usage]: Solves the same network with several z3 strategies at the
+ * same time, one thread and one context per strategy. The first run to
+ * answer SAT or UNSAT wins and the remaining runs are interrupted.
+ *
+ * A strategy is the name of a z3 tactic ("default" for the standard
+ * incremental solver), optionally followed by ":" and a random seed,
+ * e.g. "qfufbv_ackr" or "smt:3".
+ *
+ * Every run needs its own copy of the network, as the z3 expressions
+ * are stored on the network objects. The copies are usually obtained
+ * by parsing the input file once per run.
+ */
+public class SolverPortfolio {
+
+	public static final String[] DEFAULT_STRATEGIES = {
+		"qfufbv_ackr", "default", "smt", "qflra", "qfufbv", "nra"
+	};
+
+	// Interval in which the losing runs are interrupted until they stop
+	private static final long INTERRUPT_INTERVAL = 100;
+
+	private ScheduleGenerator scheduleGenerator;
+	private ArrayList<String> strategies = new ArrayList<String>();
+	private ArrayList<PortfolioRun> runs = new ArrayList<PortfolioRun>();
+	private PortfolioRun winner = null;
+
+
+	/**
+	 * [Class]: PortfolioRun
+	 * [Usage]: One strategy of the portfolio. Sets up the rules of its
+	 * network on its own context and checks the solver.
+	 */
+	private class PortfolioRun implements Callable<PortfolioRun> {
+		private String strategy;
+		private Network net;
+		private Context ctx;
+		private Solver solver;
+		private Status status = Status.UNKNOWN;
+		private volatile Boolean cancelled = false;
+		private volatile Boolean checking = false;
+		private long setupTime = 0;
+		private long solvingTime = 0;
+
+		public PortfolioRun(String strategy, Network net) {
+			this.strategy = strategy;
+			this.net = net;
+		}
+
+		public PortfolioRun call() {
+			long startTime = System.nanoTime();
+
+			try {
+				if(this.cancelled) {
+					return this;
+				}
+
+				this.ctx = scheduleGenerator.createContext();
+				this.solver = createSolver(this.ctx, this.strategy);
+				scheduleGenerator.configureNetwork(this.net, this.ctx, this.solver);
+
+				this.setupTime = System.nanoTime() - startTime;
+
+				if(this.cancelled) {
+					return this;
+				}
+
+				startTime = System.nanoTime();
+				this.checking = true;
+				this.status = this.solver.check();
+				this.checking = false;
+				this.solvingTime = System.nanoTime() - startTime;
+
+				if(this.cancelled && this.status == Status.UNKNOWN) {
+					return this;
+				}
+
+				scheduleGenerator.getPrinter().printIfLoggingIsEnabled(
+					"Portfolio run " + this.strategy + " answered " + this.status +
+					" in " + ((float) this.solvingTime)/1000000000 + " seconds"
+				);
+			} catch (Z3Exception ex) {
+				this.checking = false;
+				this.status = Status.UNKNOWN;
+				scheduleGenerator.getPrinter().printIfLoggingIsEnabled(
+					"Portfolio run " + this.strategy + " failed: " + ex.getMessage()
+				);
+			}
+
+			return this;
+		}
+
+		public void cancel() {
+			this.cancelled = true;
+
+			if(this.checking && this.ctx != null) {
+				this.ctx.interrupt();
+			}
+		}
+
+		public Boolean hasAnswer() {
+			return this.status == Status.SATISFIABLE || this.status == Status.UNSATISFIABLE;
+		}
+	}
+
+
+	/**
+	 * [Method]: SolverPortfolio
+	 * [Usage]: Creates a portfolio with the given number of runs. The
+	 * default strategies are used first, and further runs repeat them
+	 * with different random seeds.
+	 *
+	 * @param scheduleGenerator		Generator used to create contexts and set up the rules
+	 * @param size					Number of runs of the portfolio
+	 */
+	public SolverPortfolio(ScheduleGenerator scheduleGenerator, int size) {
+		this.scheduleGenerator = scheduleGenerator;
+
+		for(int i = 0; i < size; i++) {
+			String strategy = DEFAULT_STRATEGIES[i % DEFAULT_STRATEGIES.length];
+
+			if(i >= DEFAULT_STRATEGIES.length) {
+				strategy = strategy + ":" + (i / DEFAULT_STRATEGIES.length);
+			}
+
+			this.strategies.add(strategy);
+		}
+	}
+
+	/**
+	 * [Method]: SolverPortfolio
+	 * [Usage]: Creates a portfolio with one run per given strategy.
+	 *
+	 * @param scheduleGenerator		Generator used to create contexts and set up the rules
+	 * @param strategies			Tactic names, optionally followed by ":" and a seed
+	 */
+	public SolverPortfolio(ScheduleGenerator scheduleGenerator, List<String> strategies) {
+		this.scheduleGenerator = scheduleGenerator;
+		this.strategies.addAll(strategies);
+	}
+
+
+	/**
+	 * [Method]: createSolver
+	 * [Usage]: Creates the solver of a strategy on the given context.
+	 *
+	 * @param ctx			Context of the run
+	 * @param strategy		Tactic name, optionally followed by ":" and a seed
+	 * @return				Solver of the strategy
+	 */
+	public static Solver createSolver(Context ctx, String strategy) {
+		String tacticName = strategy;
+		Params params = null;
+
+		if(strategy.contains(":")) {
+			tacticName = strategy.substring(0, strategy.indexOf(":"));
+			params = ctx.mkParams();
+			params.add("random_seed", Integer.parseInt(strategy.substring(strategy.indexOf(":") + 1)));
+		}
+
+		if(tacticName.equals("default")) {
+			Solver solver = ctx.mkSolver();
+			if(params != null) {
+				solver.setParameters(params);
+			}
+			return solver;
+		}
+
+		Tactic tactic = ctx.mkTactic(tacticName);
+		if(params != null) {
+			tactic = ctx.usingParams(tactic, params);
+		}
+
+		return ctx.mkSolver(tactic);
+	}
+
+
+	/**
+	 * [Method]: solve
+	 * [Usage]: Runs every strategy of the portfolio on its own copy of
+	 * the network and waits for the first SAT or UNSAT answer. The other
+	 * runs are then interrupted. The contexts are kept open, so the model
+	 * of the winner can be used until close is called.
+	 *
+	 * @param networks		One copy of the network per strategy
+	 * @return				Answer of the winning run, or UNKNOWN if no run answered
+	 */
+	public Status solve(List<Network> networks) {
+		if(networks.size() < this.strategies.size()) {
+			this.scheduleGenerator.getPrinter().printIfLoggingIsEnabled(
+				"Portfolio has " + this.strategies.size() + " strategies but only " +
+				networks.size() + " networks. Extra strategies will not run."
+			);
+		}
+
+		for(int i = 0; i < this.strategies.size() && i < networks.size(); i++) {
+			this.runs.add(new PortfolioRun(this.strategies.get(i), networks.get(i)));
+		}
+
+		if(this.runs.isEmpty()) {
+			return Status.UNKNOWN;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(this.runs.size());
+		CompletionService<PortfolioRun> completion = new ExecutorCompletionService<PortfolioRun>(pool);
+
+		for(PortfolioRun run : this.runs) {
+			completion.submit(run);
+		}
+
+		int finished = 0;
+
+		try {
+			while(finished < this.runs.size()) {
+				Future<PortfolioRun> future = completion.poll(INTERRUPT_INTERVAL, TimeUnit.MILLISECONDS);
+
+				if(future != null) {
+					PortfolioRun run = future.get();
+					finished++;
+
+					if(this.winner == null && run.hasAnswer()) {
+						this.winner = run;
+						this.scheduleGenerator.getPrinter().printIfLoggingIsEnabled(
+							"Portfolio winner: " + run.strategy + " (" + run.status + ")"
+						);
+					}
+				}
+
+				/*
+				 * A run might still be setting up its rules when the winner
+				 * answers, so the interruption is repeated until it stops.
+				 */
+				if(this.winner != null) {
+					for(PortfolioRun run : this.runs) {
+						if(run != this.winner) {
+							run.cancel();
+						}
+					}
+				}
+			}
+		} catch (InterruptedException ex) {
+			for(PortfolioRun run : this.runs) {
+				run.cancel();
+			}
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+			this.scheduleGenerator.getPrinter().printIfLoggingIsEnabled("Portfolio run failed: " + ex.getMessage());
+		} finally {
+			pool.shutdown();
+		}
+
+		if(this.winner == null) {
+			return Status.UNKNOWN;
+		}
+
+		return this.winner.status;
+	}
+
+
+	/**
+	 * [Method]: close
+	 * [Usage]: Closes the contexts of every run. The models and
+	 * expressions of the portfolio can't be used afterwards.
+	 */
+	public void close() {
+		for(PortfolioRun run : this.runs) {
+			if(run.ctx != null) {
+				this.scheduleGenerator.closeContext(run.ctx);
+				run.ctx = null;
+			}
+		}
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public ArrayList<String> getStrategies() {
+		return strategies;
+	}
+
+	public String getWinningStrategy() {
+		return this.winner == null ? null : this.winner.strategy;
+	}
+
+	public Network getNetwork() {
+		return this.winner == null ? null : this.winner.net;
+	}
+
+	public Context getContext() {
+		return this.winner == null ? null : this.winner.ctx;
+	}
+
+	public Solver getSolver() {
+		return this.winner == null ? null : this.winner.solver;
+	}
+
+	public long getSetupTime() {
+		return this.winner == null ? 0 : this.winner.setupTime;
+	}
+
+	public long getSolvingTime() {
+		return this.winner == null ? 0 : this.winner.solvingTime;
+	}
+
+}
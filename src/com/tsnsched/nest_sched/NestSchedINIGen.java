@@ -14,18 +14,26 @@ public class NestSchedINIGen {
 	
 	private Network net;
 	private static final String CURRENT_DIR = System.getProperty("user.dir");
+	private String directory = CURRENT_DIR;
 	
 	public NestSchedINIGen(Network net) {
 		this.net = net;
 		writeInitializationFile();
 	}
 	
+	// Writes the file in the "nestSched" folder of the given directory
+	public NestSchedINIGen(Network net, String directory) {
+		this.net = net;
+		this.directory = directory;
+		writeInitializationFile();
+	}
+	
 	
 	
 	public void writeInitializationFile() {
 		try {
 			// Creates the the file "NestSched.ini" in the directory "nestSched"
-			PrintWriter out = new PrintWriter(CURRENT_DIR + "/nestSched/NestSched.ini");
+			PrintWriter out = new PrintWriter(this.directory + "/nestSched/NestSched.ini");
 			
 			ArrayList<String> talkers = new ArrayList<String>();
 			
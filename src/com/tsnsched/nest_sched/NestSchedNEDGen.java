@@ -14,6 +14,7 @@ public class NestSchedNEDGen {
 	
 	private Network net;
 	private static final String CURRENT_DIR = System.getProperty("user.dir");
+	private String directory = CURRENT_DIR;
 	
 	public NestSchedNEDGen(Network net) {
 		this.net = net;
@@ -21,11 +22,19 @@ public class NestSchedNEDGen {
 		writeDevFile();
 	}
 	
+	// Writes the files in the "nestSched" folder of the given directory
+	public NestSchedNEDGen(Network net, String directory) {
+		this.net = net;
+		this.directory = directory;
+		writeNetworkFile();
+		writeDevFile();
+	}
+	
 	
 	public void writeNetworkFile() {
 		try {
 			// Creates the the file "NestSched.ned" in the directory "nestSched"
-			PrintWriter out = new PrintWriter(CURRENT_DIR + "/nestSched/NestSched.ned");
+			PrintWriter out = new PrintWriter(this.directory + "/nestSched/NestSched.ned");
 
 			
 			// Default parameters for the network description file
@@ -103,7 +112,7 @@ public class NestSchedNEDGen {
 	public void writeDevFile() {
 		try {
 			// Creates the the file "NestSched.ned" in the directory "nestSched"
-			PrintWriter out = new PrintWriter(CURRENT_DIR + "/nestSched/NestSchedDev.ned");
+			PrintWriter out = new PrintWriter(this.directory + "/nestSched/NestSchedDev.ned");
 
 			// Default parameters for the device file
 			out.println("package nesting.simulations.examples.nestSched;\n");
@@ -30,6 +30,7 @@ public class NestSchedXMLGen {
     private static final Logger logger = Logger.getLogger(NestSchedXMLGen.class.getName());
     private Document doc;
     private Network net;
+    private String directory = CURRENT_DIR;
 
     private static final String CURRENT_DIR = System.getProperty("user.dir");
     private static final String XML = ".xml";
@@ -73,6 +74,16 @@ public class NestSchedXMLGen {
         writeEmptyFlow();
     }
 
+    // Writes the files in the "nestSched" folder of the given directory
+    public NestSchedXMLGen(Network net, String directory) {
+        this.net = net;
+        this.directory = directory;
+        writeRoutingToXML();
+        writeTrafficGeneratorToXML();
+        writePortSchedulingToXML();
+        writeEmptyFlow();
+    }
+
     private void writeRoutingToXML () {
 
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -385,7 +396,7 @@ public class NestSchedXMLGen {
             // write to file
           StreamResult file =
                 new StreamResult(
-                    new FileOutputStream(CURRENT_DIR + SLASH + OUTPUT + SLASH + fileName + XML));
+                    new FileOutputStream(this.directory + SLASH + OUTPUT + SLASH + fileName + XML));
           transformer.transform(source, file);
           
         } catch (TransformerException | FileNotFoundException e) {
@@ -0,0 +1,421 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    Copyright (C) 2021  Aellison Cassimiro
+//
+//    TSNsched is licensed under the GNU GPL version 3 or later:
+//
+//    This program is free software: you can redistribute it and/or modify
+//    it under the terms of the GNU General Public License as published by
+//    the Free Software Foundation, either version 3 of the License, or
+//    (at your option) any later version.
+//
+//    This program is distributed in the hope that it will be useful,
+//    but WITHOUT ANY WARRANTY; without even the implied warranty of
+//    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//    GNU General Public License for more details.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.scenario_generator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * [Class]: ScenarioGenerator
+ * [Usage]: Generates the JSON input of a random network, in the same
+ * way as the ScenarioGenerator tool of the repository, which wrote the
+ * network as Java code. The switches form a full mesh, and the devices
+ * are divided equally among them. Each flow has its own publisher,
+ * the switch of the publisher as the root of its path tree and up to
+ * maxBranching new switches under each switch, level by level, until
+ * the tree has numOfPathSwitches switches, without more branches than
+ * subscribers. The subscribers are divided equally among the switches
+ * at the end of the branches, using their devices. The period of each
+ * flow is picked from the set of periods, and its hard constraint is
+ * the period, as in an isochronous flow.
+ *
+ * Every random choice comes from the seed, so the same seed and
+ * settings always give the same input.
+ *
+ * Usage: ScenarioGenerator generator = new ScenarioGenerator(seed);
+ *        generator.setNumOfFlows(20);
+ *        generator.writeInput("input.json");
+ *
+ * Or, from the command line, with the arguments of the former tool:
+ *        ScenarioGenerator [numOfFlows] [configuration] [period] [maxBranching] [seed] [output]
+ * e.g.   ScenarioGenerator 11 1 1000 2 42 input.json
+ */
+public class ScenarioGenerator {
+
+	// TIME UNITS ARE IN MICROSECOND
+	private static final double FIRST_SENDING_TIME = 0;
+	private static final double PACKET_SIZE = 72; // Bytes
+	private static final double TIME_TO_TRAVEL = 8;
+	private static final double PORT_SPEED = 125; // Bytes per microsecond
+	private static final double GUARD_BAND_SIZE = 1;
+	private static final double MAXIMUM_SLOT_DURATION = 50;
+
+	private long seed;
+	private int numOfSwitches = 10;
+	private int numOfDevicesPerSwitch = 5;
+	private int numOfFlows = 11;
+	private int numOfPathSwitches = 3; // Switches in the path tree of each flow
+	private int numOfSubscribers = 5;
+	private int maxBranching = 2;
+	private double[] periods = {1000};
+
+
+	/**
+	 * [Method]: ScenarioGenerator
+	 * [Usage]: Creates a generator whose random choices come from
+	 * the given seed.
+	 *
+	 * @param seed		Seed of the random choices
+	 */
+	public ScenarioGenerator(long seed) {
+		this.seed = seed;
+	}
+
+
+	/**
+	 * [Method]: main
+	 * [Usage]: Writes the input of a network with the settings of the
+	 * former tool. The configuration sets the switches in the path tree
+	 * and the subscribers of each flow: 1 - small (3 and 5), 2 - medium
+	 * (5 and 10), 3 - large (7 and 15). Without a seed, the current time
+	 * is used, and printed so the input can be generated again.
+	 *
+	 * @param args		numOfFlows, configuration, period, maxBranching, seed and output path
+	 */
+	public static void main(String[] args) throws IOException {
+		int numOfFlows = args.length > 0 ? Integer.parseInt(args[0]) : 11;
+		int configuration = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		double period = args.length > 2 ? Double.parseDouble(args[2]) : 1000;
+		int maxBranching = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : System.currentTimeMillis();
+		String output = args.length > 5 ? args[5] : "input.json";
+
+		int[] pathSwitches = {3, 5, 7};
+		int[] subscribers = {5, 10, 15};
+
+		if(configuration < 1 || configuration > pathSwitches.length) {
+			System.out.println("[ERROR]: Invalid configuration: " + configuration + " (1 - small, 2 - medium, 3 - large)");
+			return;
+		}
+
+		ScenarioGenerator generator = new ScenarioGenerator(seed);
+		generator.setNumOfFlows(numOfFlows);
+		generator.setNumOfPathSwitches(pathSwitches[configuration - 1]);
+		generator.setNumOfSubscribers(subscribers[configuration - 1]);
+		generator.setMaxBranching(maxBranching);
+		generator.setPeriods(new double[] {period});
+		generator.writeInput(output);
+
+		System.out.println("Scenario with seed " + seed + " written to " + output);
+	}
+
+
+	/**
+	 * [Method]: writeInput
+	 * [Usage]: Writes the input of the network to a file.
+	 *
+	 * @param path		Path of the JSON input file
+	 */
+	public void writeInput(String path) throws IOException {
+		Writer writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+
+		try {
+			this.writeInput(writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	/**
+	 * [Method]: generateInputContent
+	 * [Usage]: Returns the input of the network, to be parsed with
+	 * JSONParser.parseInputContent.
+	 *
+	 * @return			JSON input of the network
+	 */
+	public String generateInputContent() {
+		StringWriter writer = new StringWriter();
+
+		try {
+			this.writeInput(writer);
+		} catch (IOException e) {
+			// A StringWriter doesn't throw
+			e.printStackTrace();
+		}
+
+		return writer.toString();
+	}
+
+
+	/**
+	 * [Method]: writeInput
+	 * [Usage]: Writes the input of the network. The writer is not closed.
+	 *
+	 * @param out		Writer of the JSON input
+	 */
+	public void writeInput(Writer out) throws IOException {
+		Random rand = new Random(this.seed);
+		JsonWriter writer = new JsonWriter(out);
+		writer.setIndent("  ");
+
+		writer.beginObject();
+
+		writer.name("switches");
+		writer.beginArray();
+		for(int i = 0; i < this.numOfSwitches; i++) {
+			this.writeSwitch(writer, i);
+		}
+		writer.endArray();
+
+		writer.name("devices");
+		writer.beginArray();
+		for(int i = 0; i < this.getNumOfDevices(); i++) {
+			writer.beginObject();
+			writer.name("name").value(deviceName(i));
+			writer.name("defaultFirstSendingTime").value(FIRST_SENDING_TIME);
+			writer.name("defaultPacketPeriodicity").value(this.periods[0]);
+			writer.name("defaultHardConstraintTime").value(this.periods[0]);
+			writer.name("defaultPacketSize").value(PACKET_SIZE);
+			writer.endObject();
+		}
+		writer.endArray();
+
+		writer.name("flows");
+		writer.beginArray();
+		HashSet<Integer> usedPublishers = new HashSet<Integer>();
+		for(int i = 0; i < this.numOfFlows; i++) {
+			this.writeFlow(writer, i, rand, usedPublishers);
+		}
+		writer.endArray();
+
+		writer.endObject();
+		writer.flush();
+	}
+
+
+	private void writeSwitch(JsonWriter writer, int index) throws IOException {
+		writer.beginObject();
+		writer.name("name").value(switchName(index));
+		writer.name("defaultTimeToTravel").value(TIME_TO_TRAVEL);
+		writer.name("defaultPortSpeed").value(PORT_SPEED);
+		writer.name("defaultGuardBandSize").value(GUARD_BAND_SIZE);
+		writer.name("ports");
+		writer.beginArray();
+
+		for(int i = 0; i < this.numOfSwitches; i++) {
+			if(i != index) {
+				this.writePort(writer, switchName(i));
+			}
+		}
+
+		for(int i = 0; i < this.numOfDevicesPerSwitch; i++) {
+			this.writePort(writer, deviceName(index * this.numOfDevicesPerSwitch + i));
+		}
+
+		writer.endArray();
+		writer.endObject();
+	}
+
+
+	private void writePort(JsonWriter writer, String connectsTo) throws IOException {
+		writer.beginObject();
+		writer.name("connectsTo").value(connectsTo);
+		writer.name("maximumSlotDuration").value(MAXIMUM_SLOT_DURATION);
+		writer.name("cycleStart").value(0);
+		writer.endObject();
+	}
+
+
+	/*
+	 * Builds the path tree of a flow, level by level, and writes it
+	 * as the hops of the flow. A parent is always written before its
+	 * children, as the parser needs.
+	 */
+	private void writeFlow(JsonWriter writer, int index, Random rand, HashSet<Integer> usedPublishers) throws IOException {
+		int publisher;
+
+		// Each flow has its own publisher, while there are devices left
+		do {
+			publisher = rand.nextInt(this.getNumOfDevices());
+		} while(usedPublishers.contains(publisher) && usedPublishers.size() < this.getNumOfDevices());
+		usedPublishers.add(publisher);
+
+		double period = this.periods[rand.nextInt(this.periods.length)];
+		int firstSwitch = publisher / this.numOfDevicesPerSwitch;
+		int numOfPathSwitches = Math.max(1, Math.min(this.numOfPathSwitches, this.numOfSwitches));
+		List<String[]> hops = new ArrayList<String[]>();
+		HashSet<Integer> usedSwitches = new HashSet<Integer>();
+		LinkedList<Integer> leaves = new LinkedList<Integer>();
+
+		hops.add(new String[] {deviceName(publisher), switchName(firstSwitch)});
+		usedSwitches.add(firstSwitch);
+		leaves.add(firstSwitch);
+
+		while(usedSwitches.size() < numOfPathSwitches) {
+			int parent = leaves.removeFirst();
+			// No more branches than subscribers, so every branch ends on one
+			int maxBranches = Math.min(this.maxBranching, numOfPathSwitches - usedSwitches.size());
+			maxBranches = Math.max(1, Math.min(maxBranches, this.numOfSubscribers - leaves.size()));
+			int numOfBranches = rand.nextInt(maxBranches) + 1;
+
+			for(int i = 0; i < numOfBranches; i++) {
+				int child;
+
+				do {
+					child = rand.nextInt(this.numOfSwitches);
+				} while(usedSwitches.contains(child));
+
+				usedSwitches.add(child);
+				leaves.add(child);
+				hops.add(new String[] {switchName(parent), switchName(child)});
+			}
+		}
+
+		// The subscribers are divided equally among the last switches
+		List<String> endDevices = new ArrayList<String>();
+		int numOfLeaves = leaves.size();
+
+		for(int i = 0; i < numOfLeaves; i++) {
+			int leaf = leaves.get(i);
+			int subscribers = this.numOfSubscribers / numOfLeaves + (i < this.numOfSubscribers % numOfLeaves ? 1 : 0);
+
+			for(int j = 0; j < this.numOfDevicesPerSwitch && subscribers > 0; j++) {
+				int device = leaf * this.numOfDevicesPerSwitch + j;
+
+				if(device != publisher) {
+					endDevices.add(deviceName(device));
+					hops.add(new String[] {switchName(leaf), deviceName(device)});
+					subscribers--;
+				}
+			}
+		}
+
+		writer.beginObject();
+		writer.name("name").value("flow" + index);
+		writer.name("sourceDevice").value(deviceName(publisher));
+		writer.name("packetPeriodicity").value(period);
+		writer.name("hardConstraintTime").value(period);
+		writer.name("packetSize").value(PACKET_SIZE);
+
+		writer.name("endDevices");
+		writer.beginArray();
+		for(String endDevice : endDevices) {
+			writer.value(endDevice);
+		}
+		writer.endArray();
+
+		writer.name("hops");
+		writer.beginArray();
+		for(String[] hop : hops) {
+			writer.beginObject();
+			writer.name("currentNodeName").value(hop[0]);
+			writer.name("nextNodeName").value(hop[1]);
+			writer.endObject();
+		}
+		writer.endArray();
+
+		writer.endObject();
+	}
+
+
+	private static String switchName(int index) {
+		return "switch" + index;
+	}
+
+	private static String deviceName(int index) {
+		return "dev" + index;
+	}
+
+
+	/*
+	 * GETTERS AND SETTERS
+	 */
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getNumOfSwitches() {
+		return numOfSwitches;
+	}
+
+	public void setNumOfSwitches(int numOfSwitches) {
+		this.numOfSwitches = numOfSwitches;
+	}
+
+	public int getNumOfDevicesPerSwitch() {
+		return numOfDevicesPerSwitch;
+	}
+
+	public void setNumOfDevicesPerSwitch(int numOfDevicesPerSwitch) {
+		this.numOfDevicesPerSwitch = numOfDevicesPerSwitch;
+	}
+
+	public int getNumOfDevices() {
+		return numOfSwitches * numOfDevicesPerSwitch;
+	}
+
+	public int getNumOfFlows() {
+		return numOfFlows;
+	}
+
+	public void setNumOfFlows(int numOfFlows) {
+		this.numOfFlows = numOfFlows;
+	}
+
+	public int getNumOfPathSwitches() {
+		return numOfPathSwitches;
+	}
+
+	public void setNumOfPathSwitches(int numOfPathSwitches) {
+		this.numOfPathSwitches = numOfPathSwitches;
+	}
+
+	public int getNumOfSubscribers() {
+		return numOfSubscribers;
+	}
+
+	public void setNumOfSubscribers(int numOfSubscribers) {
+		this.numOfSubscribers = numOfSubscribers;
+	}
+
+	public int getMaxBranching() {
+		return maxBranching;
+	}
+
+	public void setMaxBranching(int maxBranching) {
+		this.maxBranching = maxBranching;
+	}
+
+	public double[] getPeriods() {
+		return periods;
+	}
+
+	public void setPeriods(double[] periods) {
+		this.periods = periods;
+	}
+
+}